@@ -0,0 +1,395 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.build;
+
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.module.ClassLoader;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import core.monitor.AnalyzeListener;
+import core.monitor.EnvironmentListener;
+import core.signal.SignalBit;
+import core.sim.Simulator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A persistent cache of built {@link Simulator}s. The key is a hash over the
+ * serialized, not yet built {@link Environment}, which covers the component
+ * tree, the flavors and the parameters. A cached entry holds the built
+ * {@link Environment} together with its {@link Simulator}, so an unchanged
+ * design skips construction and analysis. Since the loaded objects are new
+ * instances, the caller has to use the {@link Entry#environment environment}
+ * of the returned {@link Entry} to reach its components and signals.
+ * <p>
+ * Each entry also records a hash of the class file of every component class
+ * in the built tree, of its superclasses, of its nested and anonymous classes
+ * and of the {@link Flavor.Buildable}s of its flavors, and is ignored if one
+ * of them has changed. Helper classes which are referenced by none of these
+ * are not covered. Entries are
+ * written to a temporary file first and moved into place, so concurrent
+ * builds of the same design never see a partial entry.
+ * </p>
+ * @author lars
+ */
+public final class BuildCache {
+
+	/**
+	 * The result of {@link BuildCache#build(core.build.Environment,
+	 * core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}.
+	 * A cached entry is read from a mapped file on demand: loading it only
+	 * reads the top level components, the components of each {@link
+	 * Composite} are read when they are accessed first, for example when a
+	 * viewer opens it, see {@link Composite#isInflated()}. The {@link
+	 * Simulator} is read on the first call of {@link #getSimulator()}, which
+	 * reads all components before, so browsing the component tree neither
+	 * pays for the schedule nor starts any threads.
+	 */
+	public static final class Entry {
+
+		/**
+		 * The built environment, which is the given one unless the entry was
+		 * loaded from the cache
+		 */
+		public final Environment environment;
+
+		/**
+		 * {@code true} if the entry was loaded from the cache
+		 */
+		public final boolean cached;
+
+		private Simulator simulator;
+		private DeserializingStream in;
+
+		private Entry(Environment environment, Simulator simulator, boolean cached) {
+			this.environment = environment;
+			this.simulator = simulator;
+			this.cached = cached;
+		}
+
+		private Entry(Environment environment, DeserializingStream in) {
+			this.environment = environment;
+			this.in = in;
+			this.cached = true;
+		}
+
+		/**
+		 * Returns the {@link Simulator} for {@link #environment}, which is
+		 * read from the cache if necessary, together with all components
+		 * which were not read yet. Since the {@link Simulator} does not
+		 * notice changes of signals before, all of its calculators are
+		 * scheduled once after inflating.
+		 * @return the {@link Simulator}
+		 * @throws IOException if the cache entry cannot be read
+		 */
+		public final synchronized Simulator getSimulator() throws IOException {
+			if (simulator == null) {
+				try {
+					in.readSections();
+					SignalBit[] bits = in.readObject(SignalBit[].class, SignalBit.class);
+					simulator = in.readObject(Simulator.class);
+					for (SignalBit b : bits)
+						simulator.bitChanged(b, b.get(), b.get());
+				}
+				catch (DeserializingException ex) {
+					throw new IOException(ex);
+				}
+				catch (InstantiationException ex) {
+					throw new IOException(ex);
+				}
+				in = null;
+			}
+			return simulator;
+		}
+
+		/**
+		 * Checks whether the {@link Simulator} of this entry already exists
+		 * @return {@code false} if {@link #getSimulator()} would read it from
+		 * the cache
+		 */
+		public final synchronized boolean isInflated() {
+			return simulator != null;
+		}
+	}
+
+	private final Path directory;
+
+	/**
+	 * Creates a cache in a directory, which is created if necessary.
+	 * @param directory the cache directory
+	 * @throws IOException if the directory cannot be created
+	 */
+	public BuildCache(Path directory) throws IOException {
+		this.directory = Files.createDirectories(directory);
+	}
+
+	/**
+	 * Returns the built environment from the cache or builds it with
+	 * {@link Environment#build(core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}
+	 * and stores the result. A damaged or outdated entry is replaced. The
+	 * listeners are only notified when building.
+	 * @param environment the environment to build
+	 * @param envListener see {@link Environment#build(core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}
+	 * @param simListener see {@link Environment#build(core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}
+	 * @return the built environment and its {@link Simulator}
+	 * @throws IOException if the cache cannot be read or written
+	 */
+	public final Entry build(Environment environment, EnvironmentListener envListener, AnalyzeListener simListener) throws AnalyzeException, BuildException, IOException {
+		for (Component c : environment.getComponents().values())
+			c.removeAllComponentListeners();
+
+		Path file = directory.resolve(key(environment) + ".sim");
+
+		if (Files.isRegularFile(file)) {
+			Entry entry = load(file);
+			if (entry != null)
+				return entry;
+		}
+
+		Simulator simulator = environment.build(envListener, simListener);
+		store(file, environment, simulator);
+		return new Entry(environment, simulator, false);
+	}
+
+	public final Entry build(Environment environment) throws AnalyzeException, BuildException, IOException {
+		return build(environment, null, null);
+	}
+
+	private static final String key(Environment environment) throws IOException {
+		MessageDigest digest = newDigest();
+		SerializingStream out = new SerializingStream(new DigestOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) { }
+
+			@Override
+			public void write(byte[] b, int off, int len) { }
+		}, digest));
+
+		try {
+			out.writeObject(environment);
+		}
+		catch (SerializingException ex) {
+			throw new IOException(ex);
+		}
+		out.close();
+
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest())
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private final Entry load(Path file) throws IOException {
+		// the mapping stays valid after the channel is closed
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		ByteBuffer buffer;
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			channel.close();
+		}
+
+		try {
+			DeserializingStream in = new DeserializingStream(buffer);
+
+			Map<String, byte[]> classes = in.readObject(LinkedHashMap.class, String.class, byte[].class);
+			for (Map.Entry<String, byte[]> c : classes.entrySet())
+				if (!Arrays.equals(c.getValue(), hash(ClassLoader.getClass(c.getKey()))))
+					return null;
+
+			Environment environment = in.readObject();
+			// the top level components are read before their environment is
+			// complete, the composites restore their children themselves
+			for (Component c : environment.getComponents().values())
+				if (c.parent == null)
+					c.parent = environment;
+
+			return new Entry(environment, in);
+		}
+		catch (ClassNotFoundException ex) {
+			return null;
+		}
+		catch (DeserializingException ex) {
+			return null;
+		}
+		catch (InstantiationException ex) {
+			return null;
+		}
+		catch (ClassCastException ex) {
+			return null;
+		}
+	}
+
+	private final void store(Path file, Environment environment, Simulator simulator) throws IOException {
+		Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+		collectClasses(environment.getComponents().values(), classes);
+
+		// the environment is written first and top-down, so the simulator
+		// must not be reachable from the signals of its components yet
+		Set<SignalBit> bits = new HashSet<SignalBit>();
+		collectSignalBits(environment.getComponents().values(), bits);
+		List<SignalBit> detached = new ArrayList<SignalBit>();
+		for (SignalBit b : bits)
+			if (b.removeSignalBitListener(simulator))
+				detached.add(b);
+
+		Path temp = Files.createTempFile(directory, null, ".tmp");
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			SerializingStream out = new SerializingStream(Channels.newOutputStream(channel), true);
+			try {
+				// the components of each composite go into a section of
+				// their own, the simulator references all of them
+				out.writeObject(classes, false, false, false);
+				out.writeObject(environment);
+				out.writeSections();
+				out.writeObject(detached.toArray(new SignalBit[detached.size()]), false, false);
+				for (SignalBit b : detached)
+					b.addSignalBitListener(simulator);
+				detached.clear();
+				out.writeObject(simulator, false);
+			}
+			catch (SerializingException ex) {
+				throw new IOException(ex);
+			}
+			finally {
+				for (SignalBit b : detached)
+					b.addSignalBitListener(simulator);
+				out.close();
+			}
+
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static final void collectClasses(Collection<Component> components, Map<String, byte[]> classes) throws IOException {
+		for (Component c : components) {
+			if (!classes.containsKey(c.getClass().getName())) {
+				for (Class<?> k = c.getClass(); k != null && k.getClassLoader() != null; k = k.getSuperclass())
+					collectClass(k, classes);
+				// the build logic lives in the buildables, which are usually anonymous
+				for (Flavor f : c.getFlavors().values())
+					for (Class<?> b : f.getBuildableClasses())
+						collectClass(b, classes);
+			}
+			if (c instanceof Composite)
+				collectClasses(((Composite)c).getComponents().values(), classes);
+		}
+	}
+
+	/**
+	 * Adds the hashes of a class and of all its nested, inner and anonymous
+	 * classes. Anonymous classes are not reported by reflection, so they are
+	 * found by their numbered class files.
+	 */
+	private static final void collectClass(Class<?> c, Map<String, byte[]> classes) throws IOException {
+		if (classes.containsKey(c.getName()))
+			return;
+		classes.put(c.getName(), hash(c));
+
+		for (Class<?> nested : c.getDeclaredClasses())
+			collectClass(nested, classes);
+		for (int i = 1; exists(c, c.getName() + "$" + i); ++i) {
+			try {
+				collectClass(Class.forName(c.getName() + "$" + i, false, c.getClassLoader()), classes);
+			}
+			catch (ClassNotFoundException ex) {
+				break;
+			}
+		}
+	}
+
+	private static final boolean exists(Class<?> c, String name) throws IOException {
+		InputStream is = classFile(c, name);
+		if (is == null)
+			return false;
+		is.close();
+		return true;
+	}
+
+	private static final InputStream classFile(Class<?> c, String name) {
+		return c.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class");
+	}
+
+	private static final void collectSignalBits(Collection<Component> components, Set<SignalBit> bits) {
+		for (Component c : components) {
+			bits.addAll(c.getInputSignalBits());
+			if (c instanceof Composite)
+				collectSignalBits(((Composite)c).getComponents().values(), bits);
+		}
+	}
+
+	private static final byte[] hash(Class<?> c) throws IOException {
+		InputStream is = classFile(c, c.getName());
+		if (is == null)
+			return new byte[0];
+
+		MessageDigest digest = newDigest();
+		try {
+			byte[] buffer = new byte[8192];
+			for (int n; (n = is.read(buffer)) != -1;)
+				digest.update(buffer, 0, n);
+		}
+		finally {
+			is.close();
+		}
+		return digest.digest();
+	}
+
+	private static final MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new AssertionError(ex); // every Java platform provides SHA-256
+		}
+	}
+}
@@ -26,6 +26,7 @@ import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.ModuleException;
 import core.exception.SerializingException;
+import core.misc.module.Instantiator;
 import core.misc.module.Module;
 import core.misc.module.ModuleHandler;
 import core.misc.serial.SerializingStream;
@@ -38,11 +39,10 @@ import core.misc.serial.DeserializingStream;
 import core.monitor.CalculatorListener;
 import core.sim.Simulator;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The {@code Component} class is the superclass of all components.
@@ -61,14 +61,13 @@ public abstract class Component implements CalculatorListener, Serializable {
 
 	public static final class Extension extends Module<Component> {
 
-		private final Constructor<? extends Component> constructor;
+		private final Instantiator constructor;
 
 		private Extension(Class<? extends Component> c) throws ModuleException {
 			super(c);
 
 			try {
-				constructor = c.getDeclaredConstructor(ComponentCollection.class, String.class);
-				constructor.setAccessible(true);
+				constructor = Instantiator.getConstructor(c, ComponentCollection.class, String.class);
 			}
 			catch (NoSuchMethodException ex) {
 				throw new ModuleException(ex);
@@ -99,9 +98,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 		 */
 		public final Component newInstance(final ComponentCollection parent, final String name) throws InstantiationException
 		{
-			try { return constructor.newInstance(parent, name); }
-			catch (final java.lang.InstantiationException ex) { return null; } // will not happen
-			catch (final IllegalAccessException ex) { return null; } // will not happen
+			try { return (Component)constructor.newInstance(parent, name); }
 			catch (final InvocationTargetException ex) { throw new InstantiationException(constructor.getDeclaringClass().getName(), ex.getCause()); }
 		}
 		
@@ -126,20 +123,27 @@ public abstract class Component implements CalculatorListener, Serializable {
 		
 	}
 
+	private static final ComponentListener[] NO_LISTENERS = new ComponentListener[0];
+	private static final AtomicIntegerFieldUpdater<Component> LOCK = AtomicIntegerFieldUpdater.newUpdater(Component.class, "lock");
+
 	private final Map<String,Object> parameters;
 	private String flavor;
 	private boolean constructMode;
-	private final Set<SignalBit> outputSignalBits;
-	private final Set<SignalBit> inputSignalBits;
-	private final Map<SignalBit,Set<SignalBit>> priorities;
+	private Set<SignalBit> outputSignalBits;
+	private Set<SignalBit> inputSignalBits;
+
+	/**
+	 * only needed during elaboration, {@code null} if no priority was added
+	 * since the last {@link #compact()}
+	 */
+	private Map<SignalBit,Set<SignalBit>> priorities;
 
-	private String fullName;
 	private String shortName;
 
 	ComponentCollection parent;
 
 	private volatile ComponentListener[] listeners;
-	private final AtomicBoolean lock;
+	private volatile int lock;
 
 	/**
 	 * Creates a new component with no signals, parameters and flavor set.
@@ -159,31 +163,26 @@ public abstract class Component implements CalculatorListener, Serializable {
 		assert !name.contains(Composite.NAME_SEPARATOR) : "name '"+name+"' contains name separator '"+Composite.NAME_SEPARATOR;
 
 		this.parent = null;
-		this.shortName = name;
+		this.shortName = name.intern();
 
 		if (parent != null) {
-			this.fullName = ("".equals(parent.getName()) ? name : (parent.getName()+Composite.NAME_SEPARATOR+name));
 			parent.addComponent(this);
 			this.parent = parent;
 		}
-		else {
-			this.fullName = name;
-		}
 
 		outputSignalBits = new LinkedHashSet<SignalBit>();
 		inputSignalBits = new LinkedHashSet<SignalBit>();
-		priorities = new LinkedHashMap<SignalBit, Set<SignalBit>>();
+		priorities = null;
 		flavor = null;
 		parameters = new HashMap<String,Object>();
 		constructMode = false;
-		listeners = new ComponentListener[0];
-		lock = new AtomicBoolean(false);
+		listeners = NO_LISTENERS;
 	}
 
 	@SuppressWarnings("unchecked")
 	protected Component(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
 	{
-		shortName = in.readString();
+		shortName = in.readString().intern();
 		parent = in.readObject();
 		flavor = in.readString();
 		parameters = in.readObject(HashMap.class, String.class);
@@ -192,12 +191,14 @@ public abstract class Component implements CalculatorListener, Serializable {
 		priorities = in.readObject(LinkedHashMap.class, SignalBit.class, LinkedHashSet.class, SignalBit.class);
 		listeners = in.readObject(ComponentListener[].class);
 
-		if (parent != null)
-			fullName = "".equals(parent.getName()) ? shortName : (parent.getName() + Composite.NAME_SEPARATOR + shortName);
-		else
-			fullName = shortName;
 		constructMode = false;
-		lock = new AtomicBoolean(false);
+		// built or not, the signal bits are only read until the next
+		// construction recreates them, so they can be kept compact; the
+		// priorities of a built component have been dropped before writing
+		inputSignalBits = compact(inputSignalBits);
+		outputSignalBits = compact(outputSignalBits);
+		if (priorities.isEmpty())
+			priorities = null;
 	}
 
 	/**
@@ -216,22 +217,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 	 * @param name the new short name
 	 */
 	final void setName(String name) {
-		this.shortName = name;
-		updateName();
-	}
-
-	/**
-	 * Recursively computes new names for each child of this component.
-	 */
-	private final void updateName() {
-		if (parent != null)
-			fullName = ("".equals(parent.getName()) ? shortName : (parent.getName()+Composite.NAME_SEPARATOR+shortName));
-		else
-			fullName = shortName;
-
-		if (this instanceof Composite)
-			for (Component c : ((Composite)this).getComponents().values())
-				c.updateName();
+		this.shortName = name.intern();
 	}
 
 	/**
@@ -243,11 +229,37 @@ public abstract class Component implements CalculatorListener, Serializable {
 	}
 
 	/**
-	 * Returns the full name of this component
+	 * Returns the full name of this component. The full name is not stored,
+	 * so it never has to follow a renamed, removed or lazily relinked parent,
+	 * but built on each call in a single pass over the short names of the
+	 * enclosing components.
 	 * @return full name, separated by {@link ComponentCollection#NAME_SEPARATOR}
 	 */
 	public final String getName() {
-		return fullName;
+		int depth = 1;
+		for (ComponentCollection p = parent; p instanceof Component; p = ((Component)p).parent)
+			++depth;
+
+		Component[] path = new Component[depth];
+		Component c = this;
+		for (int i = depth - 1; i > 0; --i) {
+			path[i] = c;
+			c = (Component)c.parent;
+		}
+		path[0] = c;
+
+		ComponentCollection root = c.parent;
+		String prefix = root == null ? "" : root.getName();
+		if (depth == 1 && prefix.isEmpty())
+			return shortName;
+
+		StringBuilder sb = new StringBuilder(prefix);
+		for (Component pc : path) {
+			if (sb.length() != 0)
+				sb.append(Composite.NAME_SEPARATOR);
+			sb.append(pc.shortName);
+		}
+		return sb.toString();
 	}
 
 	@Override
@@ -280,7 +292,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 	 */
 	public final void addComponentListener(ComponentListener listener)
 	{
-		while(!lock.compareAndSet(false, true));
+		while(!LOCK.compareAndSet(this, 0, 1));
 
 		outer:
 		{
@@ -298,12 +310,12 @@ public abstract class Component implements CalculatorListener, Serializable {
 			listeners = new_listeners;
 		}
 
-		lock.set(false);
+		lock = 0;
 	}
 
 	public final void removeComponentListener(ComponentListener listener)
 	{
-		while(!lock.compareAndSet(false, true));
+		while(!LOCK.compareAndSet(this, 0, 1));
 
 		ComponentListener[] new_listeners = new ComponentListener[listeners.length - 1];
 		int i, j;
@@ -317,20 +329,20 @@ public abstract class Component implements CalculatorListener, Serializable {
 			listeners = new_listeners;
 		}
 
-		lock.set(false);
+		lock = 0;
 	}
 
 	final void removeAllComponentListeners()
 	{
-		while(!lock.compareAndSet(false, true));
+		while(!LOCK.compareAndSet(this, 0, 1));
 
-		listeners = new ComponentListener[0];
+		listeners = NO_LISTENERS;
 		// we don't call
 		//   removeCalculatorListener(this);
 		// here, because this method will only be called by Environment
 		// before build; aller inner components will be garbage collected :)
 		
-		lock.set(false);
+		lock = 0;
 	}
 
 	@Override
@@ -348,7 +360,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 		out.writeObject(parameters, false, false);
 		out.writeObject(inputSignalBits, false, false);
 		out.writeObject(outputSignalBits, false, false);
-		out.writeObject(priorities, false, false, false, false);
+		out.writeObject(priorities == null ? new LinkedHashMap<SignalBit,Set<SignalBit>>() : priorities, false, false, false, false);
 		out.writeObject(listeners, false);
 	}
 
@@ -438,6 +450,8 @@ public abstract class Component implements CalculatorListener, Serializable {
 	 * @see AnalyzeException.DirectedPriorityCycleException
 	 */
 	protected final void addPriority(Signal high,Signal low) {
+		if (priorities == null)
+			priorities = new LinkedHashMap<SignalBit, Set<SignalBit>>();
 		for (int i=0;i<high.size();++i) {
 			Set<SignalBit> newValue;
 			if (!priorities.containsKey(high.getSignalBit(i)))
@@ -568,7 +582,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 		return new StringBuilder("In class ")
 			.append(getClass().getSimpleName())
 			.append(" at component ")
-			.append(fullName)
+			.append(getName())
 			.append(": ")
 			.append(description)
 			.toString();
@@ -599,7 +613,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 
 			// check types and constrains
 			Flavor f = getFlavors().get(flavor);
-			f.checkAndThrow(parameters);
+			Map<String,Integer> variables = f.match(parameters);
 
 			// add signals
 			processSignals(f);
@@ -613,7 +627,7 @@ public abstract class Component implements CalculatorListener, Serializable {
 			}
 
 			// build
-			f.build(this);
+			f.build(this,variables);
 
 			// add inner structure to the environment
 			if (this instanceof Composite) {
@@ -636,15 +650,76 @@ public abstract class Component implements CalculatorListener, Serializable {
 			constructMode = false;
 		}
 
+		if (priorities == null)
+			return Collections.emptyMap();
 		return Collections.unmodifiableMap(priorities);
 	}
 
+	/**
+	 * Drops the data which is only needed while elaborating. The input and
+	 * output {@link SignalBit}s are kept in arrays and the priorities, which
+	 * have already been passed to the {@link Simulator}, are removed. This
+	 * method is called by {@link Environment} after this component and its
+	 * inner components have been built; a rebuild restores the elaboration
+	 * state.
+	 */
+	final void compact() {
+		inputSignalBits = compact(inputSignalBits);
+		outputSignalBits = compact(outputSignalBits);
+		priorities = null;
+	}
+
+	private static final Set<SignalBit> compact(Set<SignalBit> set) {
+		if (set instanceof SignalBitArray)
+			return set;
+		if (set.isEmpty())
+			return Collections.emptySet();
+		return new SignalBitArray(set.toArray(new SignalBit[set.size()]));
+	}
+
+	/**
+	 * An immutable set of distinct {@link SignalBit}s, stored in an array in
+	 * insertion order.
+	 */
+	private static final class SignalBitArray extends AbstractSet<SignalBit> {
+
+		private final SignalBit[] bits;
+
+		private SignalBitArray(SignalBit[] bits) {
+			this.bits = bits;
+		}
+
+		@Override
+		public Iterator<SignalBit> iterator() {
+			return Arrays.asList(bits).iterator();
+		}
+
+		@Override
+		public int size() {
+			return bits.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			for (SignalBit b : bits)
+				if (b == o)
+					return true;
+			return false;
+		}
+	}
+
 	/**
 	 * Cleans input and output signals
 	 */
 	private final void reset() {
-		outputSignalBits.clear();
-		inputSignalBits.clear();
+		if (inputSignalBits instanceof LinkedHashSet)
+			inputSignalBits.clear();
+		else
+			inputSignalBits = new LinkedHashSet<SignalBit>();
+		if (outputSignalBits instanceof LinkedHashSet)
+			outputSignalBits.clear();
+		else
+			outputSignalBits = new LinkedHashSet<SignalBit>();
 		cleanup();
 	}
 
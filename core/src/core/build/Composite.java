@@ -24,6 +24,7 @@ package core.build;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.SerializingException;
+import core.misc.serial.Deferred;
 import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
 import core.monitor.CalculatorListener;
@@ -33,12 +34,16 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- *
+ * A {@link Component} built from other components. Its components are
+ * written into a section of their own if the stream has sections, so a
+ * {@code Composite} read from such a stream only reads them when they are
+ * accessed first, see {@link #isInflated()}.
  * @author lars
  */
 public abstract class Composite extends Component implements ComponentCollection
 {
-	private final Map<String,Component> components;
+	private Map<String,Component> components;
+	private volatile Deferred<LinkedHashMap<String,Component>> deferred;
 
 	protected Composite(ComponentCollection parent,String name) {
 		super(parent,name);
@@ -50,7 +55,47 @@ public abstract class Composite extends Component implements ComponentCollection
 	{
 		super(in);
 
-		components = in.readObject(LinkedHashMap.class, String.class);
+		deferred = (Deferred<LinkedHashMap<String,Component>>)(Deferred<?>)in.readDeferred(LinkedHashMap.class, String.class);
+		if (deferred.isRead())
+			components();
+	}
+
+	/**
+	 * Checks whether the components of this composite have been read. The
+	 * components of a composite which was read from a stream with sections
+	 * are read when they are accessed first.
+	 * @return {@code false} if the components still have to be read
+	 */
+	public final boolean isInflated() {
+		Deferred<LinkedHashMap<String,Component>> d = deferred;
+		return d == null || d.isRead();
+	}
+
+	/**
+	 * Reads the components if necessary. A child which was read before this
+	 * composite was complete misses the reference to it, so it is restored.
+	 */
+	private final Map<String,Component> components() {
+		Deferred<LinkedHashMap<String,Component>> d = deferred;
+		if (d != null) {
+			try {
+				components = d.get();
+			}
+			catch (IOException ex) {
+				throw new IllegalStateException("cannot read the components of '"+getName()+"'", ex);
+			}
+			catch (DeserializingException ex) {
+				throw new IllegalStateException("cannot read the components of '"+getName()+"'", ex);
+			}
+			catch (InstantiationException ex) {
+				throw new IllegalStateException("cannot read the components of '"+getName()+"'", ex);
+			}
+			for (Component c : components.values())
+				if (c != null && c.parent == null)
+					c.parent = this;
+			deferred = null;
+		}
+		return components;
 	}
 
 	/**
@@ -63,23 +108,23 @@ public abstract class Composite extends Component implements ComponentCollection
 	public final Component getComponent(String name) {
 		int pos = name.indexOf(NAME_SEPARATOR);
 		if (pos != -1) {
-			Component first = components.get(name.substring(0,pos));
+			Component first = components().get(name.substring(0,pos));
 			if (first != null && first instanceof Composite)
 				return ((Composite)first).getComponent(name.substring(pos+1));
 			else
 				return null;
 		}
-		return components.get(name);
+		return components().get(name);
 	}
 
 	@Override
 	public final int size() {
-		return components.size();
+		return components().size();
 	}
 	
 	@Override
 	public final Map<String,Component> getComponents() {
-		return Collections.unmodifiableMap(components);
+		return Collections.unmodifiableMap(components());
 	}
 
 	@Override
@@ -88,9 +133,9 @@ public abstract class Composite extends Component implements ComponentCollection
 
 		assert component.parent == null : "component with name '"+name+"' already in use in another collection";
 		assert isInConstructMode();
-		assert !components.containsKey(name) : "name '"+name+"' already in use";
+		assert !components().containsKey(name) : "name '"+name+"' already in use";
 
-		components.put(name,component);
+		components().put(name,component);
 
 		return component;
 	}
@@ -103,7 +148,7 @@ public abstract class Composite extends Component implements ComponentCollection
 	 */
 	@Override
 	protected void cleanup() {
-		components.clear();
+		components().clear();
 		super.cleanup();
 	}
 
@@ -115,7 +160,7 @@ public abstract class Composite extends Component implements ComponentCollection
 	 */
 	@Override
 	protected final void addCalculatorListener(CalculatorListener listener) {
-		for (Component c : components.values())
+		for (Component c : components().values())
 			c.addCalculatorListener(listener);
 	}
 
@@ -127,7 +172,7 @@ public abstract class Composite extends Component implements ComponentCollection
 	 */
 	@Override
 	protected final void removeCalculatorListener(CalculatorListener listener) {
-		for (Component c : components.values())
+		for (Component c : components().values())
 			c.removeCalculatorListener(listener);
 	}
 
@@ -135,6 +180,6 @@ public abstract class Composite extends Component implements ComponentCollection
 	{
 		super.serialize(out);
 
-		out.writeObject(components, false, false);
+		out.writeDeferred(components(), false, false);
 	}
 }
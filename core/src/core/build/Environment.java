@@ -37,14 +37,18 @@ import core.signal.SignalBit;
 import core.sim.Calculator;
 import core.sim.Simulator;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static core.monitor.Monitor.ExceptionPolicy;
 
@@ -144,6 +148,8 @@ public class Environment implements ComponentCollection {
 	 * for that issue.
 	 * Calling this method may last really long due to several expensive
 	 * operations. Any {@link ComponentListener} will disappear after that.
+	 * Sibling subtrees are constructed in parallel, so the {@link EnvironmentListener}
+	 * is notified from several threads, but never concurrently.
 	 * @return a ready-to-use {@link Simulator}
 	 * @see Monitor
 	 * @see EnvironmentListener
@@ -151,17 +157,38 @@ public class Environment implements ComponentCollection {
 	 * @see AnalyzeListener
 	 */
 	public final Simulator build(EnvironmentListener envListener,AnalyzeListener simListener) throws AnalyzeException, BuildException {
-		Set<Calculator> allCalculators = new HashSet<Calculator>();
-		Map<SignalBit,Set<SignalBit>> priorities = new LinkedHashMap<SignalBit, Set<SignalBit>>();
-
 		// this will be called here (and not in Component.cleanup) because
 		// there, removal would be done on every Component, but we need to
 		// remove listeners only on top-level components.
 		for (Component c : components.values())
 			c.removeAllComponentListeners();
 
-		build(components.values(),allCalculators,priorities,envListener);
-		return new Simulator(allCalculators,priorities,simListener);
+		Elaboration root = new Elaboration(null,components.values(),envListener);
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			pool.invoke(root);
+		}
+		finally {
+			pool.shutdown();
+		}
+		if (root.exception != null)
+			throw (BuildException)root.exception;
+
+		return createSimulator(root.calculators,root.priorities,simListener);
+	}
+
+	/**
+	 * Creates the {@link Simulator} at the end of {@link #build(core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}.
+	 * The {@link Calculator calculators} and priorities are given in the order
+	 * of the component tree, so they do not depend on the order in which the
+	 * subtrees were built.
+	 * @param calculators all calculators of the built components
+	 * @param priorities the {@link Signal} priorities of the built components
+	 * @param simListener see {@link #build(core.monitor.EnvironmentListener, core.monitor.AnalyzeListener)}
+	 * @return a ready-to-use {@link Simulator}
+	 */
+	protected Simulator createSimulator(List<Calculator> calculators,Map<SignalBit,Set<SignalBit>> priorities,AnalyzeListener simListener) throws AnalyzeException {
+		return new Simulator(new HashSet<Calculator>(calculators),priorities,simListener);
 	}
 
 	public final Simulator build(EnvironmentListener envListener) throws AnalyzeException, BuildException {
@@ -177,52 +204,123 @@ public class Environment implements ComponentCollection {
 	}
 
 	/**
-	 * Builds components recursively.
-	 * @param components all {@link Component components} to be built
-	 * @param calculators set of {@link Calculator calculators} to be passed to the {@link Simulator}
-	 * @param priorities {@link Signal} priorities, see {@link Simulator} for further details
-	 * @param listener a listener to which the build progress will be submitted
+	 * Builds a component and, in parallel, the subtrees of its children. The
+	 * {@link Calculator calculators} and priorities of all subtrees are merged
+	 * in the order of the children, so the result does not depend on the
+	 * order in which the subtrees complete. Calls to the listener are
+	 * synchronized on it.
 	 */
-	private static final void build(Collection<Component> components,Set<Calculator> calculators,Map<SignalBit,Set<SignalBit>> priorities,EnvironmentListener listener) throws BuildException {
-		if (components.isEmpty())
-			return;
-
-		if (listener != null)
-		    listener.increaseTotalCount(components.size());
+	private static final class Elaboration extends RecursiveAction {
+
+		private static final long serialVersionUID = -2930464226373453510L;
+
+		private final Component component;
+		private Collection<Component> children;
+		private final EnvironmentListener listener;
+
+		/**
+		 * {@link Calculator calculators} to be passed to the {@link Simulator}
+		 */
+		private final List<Calculator> calculators = new ArrayList<Calculator>();
+
+		/**
+		 * {@link Signal} priorities, see {@link Simulator} for further details
+		 */
+		private final Map<SignalBit,Set<SignalBit>> priorities = new LinkedHashMap<SignalBit,Set<SignalBit>>();
+
+		private Exception exception;
+
+		/**
+		 * @param component the component to be built, or {@code null} to
+		 * build the given children only
+		 * @param children the children if no component is given
+		 * @param listener a listener to which the build progress will be submitted
+		 */
+		private Elaboration(Component component,Collection<Component> children,EnvironmentListener listener) {
+			this.component = component;
+			this.children = children;
+			this.listener = listener;
+		}
 
-		for (Iterator<Component> iterator = components.iterator();iterator.hasNext();) {
-			Component entry = iterator.next();
+		@Override
+		protected final void compute() {
 			try {
-				Set<Component> children = new LinkedHashSet<Component>();
-
-				// merge priorites
-				for (Map.Entry<SignalBit,Set<SignalBit>> prio : entry.construct(children).entrySet())
-					if (priorities.containsKey(prio.getKey()))
-						priorities.get(prio.getKey()).addAll(prio.getValue());
-					else
-						priorities.put(prio.getKey(),new LinkedHashSet<SignalBit>(prio.getValue()));
-
-				build(children,calculators,priorities,listener); // proceed recursively
-
-				entry.init(); // construction done, init the component
-
-				if (entry instanceof Calculator) // add to simulator
-					calculators.add((Calculator)entry);
-
-				if (listener != null)
-				    listener.increaseConstructedCount(1);
+				if (component != null) {
+					Set<Component> inner = new LinkedHashSet<Component>();
+					merge(component.construct(inner));
+					children = inner;
+				}
+
+				build();
+
+				if (component != null) {
+					component.init(); // construction done, init the component
+					component.compact(); // drop what was only needed for elaboration
+
+					if (component instanceof Calculator) // add to simulator
+						calculators.add((Calculator)component);
+
+					if (listener != null)
+						synchronized (listener) {
+							listener.increaseConstructedCount(1);
+						}
+				}
 			}
 			catch (Exception ex) { // 'faulty' component
-				entry.parent = null; // allow component to be added again
-				iterator.remove();
-
-				if (listener == null || !listener.exceptionOccured(entry,ex))
-					if (ex instanceof BuildException)
-						throw (BuildException)ex;
-					else
-						throw new BuildException(ex);
+				exception = ex;
 			}
 		}
+
+		private final void build() throws BuildException {
+			if (children.isEmpty())
+				return;
+
+			if (listener != null)
+				synchronized (listener) {
+					listener.increaseTotalCount(children.size());
+				}
+
+			List<Elaboration> elaborations = new ArrayList<Elaboration>(children.size());
+			for (Component c : children)
+				elaborations.add(new Elaboration(c,null,listener));
+			invokeAll(elaborations); // proceed recursively
+
+			Iterator<Elaboration> results = elaborations.iterator();
+			for (Iterator<Component> iterator = children.iterator();iterator.hasNext();) {
+				Component entry = iterator.next();
+				Elaboration result = results.next();
+
+				if (result.exception != null) {
+					Exception ex = result.exception;
+					iterator.remove();
+
+					boolean proceed = false;
+					if (listener != null)
+						synchronized (listener) {
+							proceed = listener.exceptionOccured(entry,ex);
+						}
+					// after notifying, since the full name is derived from the parent
+					entry.parent = null; // allow component to be added again
+					if (!proceed)
+						if (ex instanceof BuildException)
+							throw (BuildException)ex;
+						else
+							throw new BuildException(ex);
+				}
+				else {
+					merge(result.priorities);
+					calculators.addAll(result.calculators);
+				}
+			}
+		}
+
+		private final void merge(Map<SignalBit,Set<SignalBit>> priorities) {
+			for (Map.Entry<SignalBit,Set<SignalBit>> prio : priorities.entrySet())
+				if (this.priorities.containsKey(prio.getKey()))
+					this.priorities.get(prio.getKey()).addAll(prio.getValue());
+				else
+					this.priorities.put(prio.getKey(),new LinkedHashSet<SignalBit>(prio.getValue()));
+		}
 	}
 
 	@Override
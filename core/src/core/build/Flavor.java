@@ -22,16 +22,22 @@
 package core.build;
 
 import core.build.checking.DimensionMatcher;
-import core.build.checking.Expression;
+import core.build.checking.CompiledExpression;
 import core.build.checking.MatcherContext;
 import core.build.checking.Parser;
 import core.build.checking.types.Type;
 import core.build.checking.Dimension;
+import core.exception.BuildException;
 import core.exception.ParameterException;
 import core.exception.EvaluationException;
 import core.exception.MatchingException;
 import core.exception.ParseException;
 
+import core.signal.Signal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -74,8 +80,10 @@ public final class Flavor
 		 *
 		 * @param component The {@link Component} to build
 		 * @param variables   The map from variable names to values
+		 *
+		 * @throws BuildException if the {@link Component} cannot be built
 		 */
-		public void build(T component, Map<String, Integer> variables);
+		public void build(T component, Map<String, Integer> variables) throws BuildException;
 	}
 
 	/**
@@ -96,6 +104,12 @@ public final class Flavor
 	 */
 	public static final String DEFAULT = "default";
 
+	/**
+	 * The maximum number of memoized matches per {@code Flavor}, beyond which
+	 * the least recently used one is evicted.
+	 */
+	private static final int MEMO_SIZE = 256;
+
 	/**
 	 * Invokes {@link #Flavor(java.lang.String, core.build.Flavor.Buildable,
 	 * java.lang.String, java.lang.String, java.lang.String, java.lang.String,
@@ -285,8 +299,8 @@ public final class Flavor
 			}
 
 			this.dimensions = new DimensionMatcher(dimension_map);
-			this.matches = new HashMap<String, Integer>();
-			this.constraint = Parser.parseConstraint(constraint);
+			this.memo = Collections.synchronizedMap(new Memo());
+			this.constraint = CompiledExpression.compile(Parser.parseConstraint(constraint));
 			this.parent = parent;
 		}
 		catch(final ParseException ex)
@@ -311,13 +325,29 @@ public final class Flavor
 	 * Flavor} and its parent, if it has one.
 	 *
 	 * @param component The {@link Component} to build
+	 * @param variables The variables returned by {@link
+	 *                  #match(java.util.Map) match(Map)} for the {@link
+	 *                  Component}
+	 *
+	 * @throws BuildException if the {@link Component} cannot be built
 	 */
 	@SuppressWarnings("unchecked")
-	final void build(final Component component)
+	final void build(final Component component, final Map<String, Integer> variables) throws BuildException
 	{
 		if(parent != null)
-			parent.build(component);
-		buildable.build(component, matches);
+			parent.build(component, variables);
+		buildable.build(component, variables);
+	}
+
+	/**
+	 * @return The classes of the {@link Buildable}s of this {@code Flavor}
+	 *         and its parents
+	 */
+	final List<Class<?>> getBuildableClasses()
+	{
+		final List<Class<?>> classes = parent != null ? parent.getBuildableClasses() : new ArrayList<Class<?>>();
+		classes.add(buildable.getClass());
+		return classes;
 	}
 
 	/**
@@ -345,11 +375,11 @@ public final class Flavor
 	}
 
 	/**
-	 * @return The map from variable names to values
+	 * @return The constraint of this flavor, without the one of its parent
 	 */
-	public final Map<String, Integer> getVariables()
+	public final CompiledExpression<Boolean> getConstraint()
 	{
-		return Collections.unmodifiableMap(matches);
+		return constraint;
 	}
 
 	/**
@@ -396,15 +426,41 @@ public final class Flavor
 
 	/**
 	 * Checks the specified object restrictions against the given objects.
+	 * This method is thread-safe.
+	 *
+	 * @param values A map from parameter names to objects
+	 *
+	 * @return The map from variable names to values bound by this check
+	 *
+	 * @throws ParameterException  if a needed parameter was not given or of
+	 *                             wrong type
+	 * @throws EvaluationException if the constraint evaluation failed
+	 * @throws MatchingException   if the dimension matching failed
+	 */
+	public final Map<String, Integer> checkAndThrow(final Map<String, Object> values) throws ParameterException, EvaluationException, MatchingException
+	{
+		return match(values);
+	}
+
+	/**
+	 * Checks the specified object restrictions against the given objects and
+	 * returns the variables for building. A successful match is memoized by
+	 * the signature of the objects, which consists of the dimensions of
+	 * {@link Signal}s and the values of immutable parameters, so components
+	 * with equal parameters are only matched once, as long as their signature
+	 * is among the {@link #MEMO_SIZE} most recently used ones. Objects of
+	 * other types are matched every time. This method is thread-safe.
 	 *
 	 * @param values A map from parameter names to objects
 	 *
+	 * @return The map from variable names to values
+	 *
 	 * @throws ParameterException  if a needed parameter was not given or of
 	 *                             wrong type
 	 * @throws EvaluationException if the constraint evaluation failed
 	 * @throws MatchingException   if the dimension matching failed
 	 */
-	public final void checkAndThrow(final Map<String, Object> values) throws ParameterException, EvaluationException, MatchingException
+	final Map<String, Integer> match(final Map<String, Object> values) throws ParameterException, EvaluationException, MatchingException
 	{
 		for(final Map.Entry<String, ? extends Type> e : input_types.entrySet())
 		{
@@ -428,52 +484,93 @@ public final class Flavor
 				throw new ParameterException("parameter '" + e.getKey() + "' has wrong type");
 		}
 
+		final List<Object> key = signature(values);
+		if(key != null)
+		{
+			final Map<String, Integer> cached = memo.get(key);
+			if(cached != null)
+				return cached;
+		}
+
+		matcher.reset();
 		if(!matchDimensions(values))
 			throw new MatchingException("dimension match couldn't be completed");
+		final Map<String, Integer> result = Collections.unmodifiableMap(new HashMap<String, Integer>(matcher.getLengths()));
+
+		checkConstraint(values, result);
 
-		checkConstraint(values);
+		if(key != null)
+			memo.put(key, result);
+		return result;
 	}
 
 	private final boolean matchDimensions(final Map<String, Object> values) throws MatchingException
 	{
-		matcher.reset();
-		return matchDimensions0(values);
+		if(parent != null && !parent.matchDimensions(values))
+			return false;
+
+		return dimensions.matchParameters(values);
 	}
 
-	private final boolean matchDimensions0(final Map<String, Object> values) throws MatchingException
+	private final void checkConstraint(final Map<String, Object> values, final Map<String, Integer> variables) throws EvaluationException
 	{
-		matches.clear();
-
 		if(parent != null)
-		{
-			if(!parent.matchDimensions0(values))
-				return false;
-			else if(dimensions.matchParameters(values))
-			{
-				matches.putAll(matcher.getLengths());
-				return true;
-			}
-		}
-		else
-			if(dimensions.matchParameters(values))
-			{
-				matches.putAll(matcher.getLengths());
-				return true;
-			}
+			parent.checkConstraint(values, variables);
 
-		return false;
+		if(!constraint.evaluate(variables, values))
+			throw new EvaluationException("constraint check failed: constraint '"+constraint+"', expected true");
 	}
 
-	private final void checkConstraint(final Map<String, Object> values) throws EvaluationException
+	/**
+	 * @return The signature of the given objects in the order of the
+	 *         declarations, or null if one of them is neither a {@link
+	 *         Signal} nor immutable
+	 */
+	private final List<Object> signature(final Map<String, Object> values)
 	{
-		final Map<String, Object> all = new HashMap<String, Object>(values);
-		all.putAll(matches);
+		if(values.size() != input_types.size() + output_types.size() + parameter_types.size())
+			return null;
 
-		if(parent != null)
-			parent.checkConstraint(values);
+		final List<Object> key = new ArrayList<Object>(values.size());
+		for(final Map<String, Type> types : Arrays.asList(input_types, output_types, parameter_types))
+			for(final String name : types.keySet())
+			{
+				final Object value = values.get(name);
+				if(value == null)
+					key.add(null);
+				else if(value instanceof String || value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte ||
+					value instanceof Boolean || value instanceof Character || value instanceof Double || value instanceof Float || value instanceof Enum)
+					key.add(value);
+				else if(isSignal(value))
+				{
+					try { key.add(Arrays.asList(value.getClass(), DimensionMatcher.getDimensions(value))); }
+					catch(final MatchingException ex) { return null; }
+				}
+				else
+					return null;
+			}
+		return key;
+	}
 
-		if(!constraint.evaluate(all))
-			throw new EvaluationException("constraint check failed: constraint '"+constraint+"', expected true");
+	private static final boolean isSignal(final Object value)
+	{
+		if(value instanceof Signal)
+			return true;
+		if(value instanceof Object[])
+		{
+			for(final Object o : (Object[])value)
+				if(!isSignal(o))
+					return false;
+			return true;
+		}
+		if(value instanceof Collection)
+		{
+			for(final Object o : (Collection<?>)value)
+				if(!isSignal(o))
+					return false;
+			return true;
+		}
+		return false;
 	}
 
 	@Override public String toString()
@@ -492,6 +589,25 @@ public final class Flavor
 		return sb.append("\nconstraint:\n").append(constraint).toString();
 	}
 
+	/**
+	 * The memoized matches in access order, evicting the least recently used
+	 * one beyond {@link #MEMO_SIZE}.
+	 */
+	private static final class Memo extends LinkedHashMap<List<Object>, Map<String, Integer>>
+	{
+		private static final long serialVersionUID = 1L;
+
+		Memo()
+		{
+			super(16, 0.75f, true);
+		}
+
+		@Override protected final boolean removeEldestEntry(final Map.Entry<List<Object>, Map<String, Integer>> eldest)
+		{
+			return size() > MEMO_SIZE;
+		}
+	}
+
 	private final String name;
 	private final Buildable buildable;
 	private final MatcherContext matcher;
@@ -500,7 +616,7 @@ public final class Flavor
 	private final Map<String, Type> input_types;
 	private final Map<String, Type> output_types;
 	private final Map<String, Type> parameter_types;
-	private final Map<String, Integer> matches;
-	private final Expression<Boolean> constraint;
+	private final Map<List<Object>, Map<String, Integer>> memo;
+	private final CompiledExpression<Boolean> constraint;
 	private final Flavor parent;
 }
@@ -0,0 +1,269 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.build;
+
+import core.signal.Signal;
+import core.signal.SignalBit;
+import core.sim.Simulator;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimates the heap retained by the {@link Component}s of a
+ * {@link ComponentCollection}, summed up per component class. Starting from
+ * each component, all objects reachable via instance fields are counted,
+ * except other components, {@link ComponentCollection}s, {@link Signal}s,
+ * {@link SignalBit}s and {@link Simulator}s, which are shared or accounted
+ * for themselves. An object reachable from several components is counted
+ * once, for the first one in a top-down traversal.
+ * The sizes are estimated for a 64 bit virtual machine with compressed
+ * references, so they are meant for comparisons, not as exact values.
+ * @author lars
+ */
+public final class Footprint {
+
+	/**
+	 * The number of components of a class and their estimated retained
+	 * heap in bytes.
+	 */
+	public static final class Usage {
+
+		private int count;
+		private long bytes;
+
+		private Usage() {
+		}
+
+		public final int getCount() {
+			return count;
+		}
+
+		public final long getBytes() {
+			return bytes;
+		}
+
+		@Override
+		public String toString() {
+			return count+" components, "+bytes+" bytes";
+		}
+	}
+
+	private static final int HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+
+	private static final Class<?>[] SHARED = {
+		Component.class, ComponentCollection.class, Signal.class, SignalBit.class, Simulator.class, Class.class, Flavor.class, ClassLoader.class, Thread.class
+	};
+
+	private final Map<Class<?>,Long> shallow = new HashMap<Class<?>,Long>();
+	private final Map<Class<?>,List<Field>> fields = new HashMap<Class<?>,List<Field>>();
+	private final Map<Object,Object> visited = new IdentityHashMap<Object,Object>();
+
+	private Footprint() {
+	}
+
+	/**
+	 * Measures all components of the given collection, including the inner
+	 * components of {@link Composite}s.
+	 * @param collection the collection to measure, usually a built {@link Environment}
+	 * @return the usage per component class, in the order of first occurrence
+	 */
+	public static final Map<Class<? extends Component>,Usage> measure(ComponentCollection collection) {
+		Map<Class<? extends Component>,Usage> usages = new LinkedHashMap<Class<? extends Component>,Usage>();
+		Footprint footprint = new Footprint();
+
+		Deque<Component> components = new ArrayDeque<Component>(collection.getComponents().values());
+		while (!components.isEmpty()) {
+			Component c = components.poll();
+
+			Usage usage = usages.get(c.getClass());
+			if (usage == null)
+				usages.put(c.getClass(), usage = new Usage());
+			++usage.count;
+			usage.bytes += footprint.retained(c);
+
+			if (c instanceof Composite)
+				components.addAll(((Composite)c).getComponents().values());
+		}
+
+		return Collections.unmodifiableMap(usages);
+	}
+
+	private final long retained(Component component) {
+		long bytes = 0;
+
+		Deque<Object> pending = new ArrayDeque<Object>();
+		visited.put(component, component);
+		bytes += shallowSize(component.getClass());
+		push(pending, component);
+
+		while (!pending.isEmpty()) {
+			Object o = pending.pop();
+			if (o.getClass().isArray()) {
+				bytes += arraySize(o);
+				if (!o.getClass().getComponentType().isPrimitive())
+					for (Object e : (Object[])o)
+						visit(pending, e);
+			}
+			else {
+				bytes += shallowSize(o.getClass());
+				if (!push(pending, o))
+					bytes += traverse(pending, o);
+			}
+		}
+
+		return bytes;
+	}
+
+	private final void visit(Deque<Object> pending, Object o) {
+		if (o == null || visited.containsKey(o))
+			return;
+		for (Class<?> c : SHARED)
+			if (c.isInstance(o))
+				return;
+		visited.put(o, o);
+		pending.push(o);
+	}
+
+	/**
+	 * Pushes the objects referenced by the fields of {@code o}.
+	 * @return {@code false} if the fields are not accessible
+	 */
+	private final boolean push(Deque<Object> pending, Object o) {
+		List<Field> list = fields(o.getClass());
+		if (list == null)
+			return false;
+		try {
+			for (Field f : list)
+				visit(pending, f.get(o));
+		}
+		catch (IllegalAccessException ex) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Follows collections and maps whose fields are not accessible through
+	 * their interface, and estimates their inner nodes.
+	 */
+	private final long traverse(Deque<Object> pending, Object o) {
+		if (o instanceof Map) {
+			Map<?,?> m = (Map<?,?>)o;
+			for (Map.Entry<?,?> e : m.entrySet()) {
+				visit(pending, e.getKey());
+				visit(pending, e.getValue());
+			}
+			return hashSize(m.size());
+		}
+		if (o instanceof Collection) {
+			Collection<?> c = (Collection<?>)o;
+			for (Object e : c)
+				visit(pending, e);
+			if (o instanceof Set)
+				return hashSize(c.size());
+			return align(ARRAY_HEADER+(long)REFERENCE*c.size());
+		}
+		if (o instanceof String)
+			return align(ARRAY_HEADER+((String)o).length());
+		return 0;
+	}
+
+	/**
+	 * @return the estimated size of the table and the entries of a hash
+	 * table with the given number of entries
+	 */
+	private static final long hashSize(int size) {
+		int capacity = 16;
+		while (capacity*3/4 < size)
+			capacity *= 2;
+		return align(ARRAY_HEADER+(long)REFERENCE*capacity)+size*40L;
+	}
+
+	private final List<Field> fields(Class<?> c) {
+		if (fields.containsKey(c))
+			return fields.get(c);
+
+		List<Field> list = new ArrayList<Field>();
+		try {
+			for (Class<?> k = c; k != null; k = k.getSuperclass())
+				for (Field f : k.getDeclaredFields())
+					if (!Modifier.isStatic(f.getModifiers()) && !f.getType().isPrimitive()) {
+						f.setAccessible(true);
+						list.add(f);
+					}
+		}
+		catch (RuntimeException ex) { // e.g. encapsulated classes of the platform
+			list = null;
+		}
+
+		fields.put(c, list);
+		return list;
+	}
+
+	private final long shallowSize(Class<?> c) {
+		Long size = shallow.get(c);
+		if (size == null) {
+			long bytes = HEADER;
+			for (Class<?> k = c; k != null; k = k.getSuperclass())
+				for (Field f : k.getDeclaredFields())
+					if (!Modifier.isStatic(f.getModifiers()))
+						bytes += fieldSize(f.getType());
+			shallow.put(c, size = align(bytes));
+		}
+		return size;
+	}
+
+	private static final long arraySize(Object array) {
+		return align(ARRAY_HEADER+(long)fieldSize(array.getClass().getComponentType())*Array.getLength(array));
+	}
+
+	private static final int fieldSize(Class<?> type) {
+		if (type == long.class || type == double.class)
+			return 8;
+		if (type == int.class || type == float.class)
+			return 4;
+		if (type == short.class || type == char.class)
+			return 2;
+		if (type == byte.class || type == boolean.class)
+			return 1;
+		return REFERENCE;
+	}
+
+	private static final long align(long bytes) {
+		return (bytes+7)/8*8;
+	}
+}
@@ -0,0 +1,541 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.build.checking;
+
+import core.exception.EvaluationException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static core.exception.EvaluationException.Type.*;
+
+/**
+ * An {@link Expression} compiled for repeated evaluation. The tree is
+ * translated once into nested evaluators, where every identifier is resolved
+ * to a slot of a frame array and the {@link Expression.Identifier#getConstant(java.lang.String)
+ * constants} as well as constant subexpressions are folded. Evaluating the
+ * compiled expression neither does map lookups per identifier nor dispatches
+ * over the node types; the results are the same as those of the source
+ * expression, including the thrown {@link EvaluationException}s.
+ * An expression containing an unknown implementation of {@link Expression}
+ * is interpreted as before.
+ * Instances are immutable and can be evaluated concurrently.
+ * @param <T> stands for the type of the result
+ * @author torben
+ */
+public final class CompiledExpression<T> implements Expression<T>
+{
+
+	private static final Object ABSENT = new Object();
+
+	private final Expression<T> source;
+	private final String[] slots;
+	private final Node root;
+
+	private CompiledExpression(Expression<T> source)
+	{
+		Map<String, Integer> names = new LinkedHashMap<String, Integer>();
+		Node node;
+		try
+		{
+			node = compile(source, names);
+		}
+		catch (Unsupported ex)
+		{
+			node = null;
+			names.clear();
+		}
+		this.source = source;
+		this.root = node;
+		this.slots = names.keySet().toArray(new String[names.size()]);
+	}
+
+	/**
+	 * Compiles the given expression. Compiling an already compiled expression
+	 * returns it unchanged.
+	 * @param expression the expression to compile
+	 * @return the compiled expression
+	 */
+	@SuppressWarnings("unchecked") public static final <T> CompiledExpression<T> compile(Expression<T> expression)
+	{
+		if (expression instanceof CompiledExpression)
+			return (CompiledExpression<T>)expression;
+		return new CompiledExpression<T>(expression);
+	}
+
+	/**
+	 * Evaluates the expression with the identifiers taken from the given maps.
+	 * Every identifier is looked up in the maps in the given order, the first
+	 * map which contains it provides the value.
+	 * @param scopes the mappings between names and values, keyed by strings
+	 * @return the evaluated result
+	 * @throws EvaluationException see {@link Expression#evaluate(java.util.Map)}
+	 */
+	@SuppressWarnings("unchecked") public final T evaluate(Map<?, ?>... scopes) throws EvaluationException
+	{
+		if (root == null)
+		{
+			Map<String, Object> identifiers = new HashMap<String, Object>();
+			for (int i = scopes.length - 1; i >= 0; --i)
+				for (Map.Entry<?, ?> entry : scopes[i].entrySet())
+					identifiers.put((String)entry.getKey(), entry.getValue());
+			return source.evaluate(identifiers);
+		}
+
+		Object[] frame = new Object[slots.length];
+		for (int i = 0; i < slots.length; ++i)
+		{
+			frame[i] = ABSENT;
+			for (Map<?, ?> scope : scopes)
+			{
+				Object value = scope.get(slots[i]);
+				if (value != null || scope.containsKey(slots[i]))
+				{
+					frame[i] = value;
+					break;
+				}
+			}
+		}
+		return (T)root.evaluate(frame);
+	}
+
+	@Override public final T evaluate(Map<String, Object> identifiers) throws EvaluationException
+	{
+		return evaluate(new Map<?, ?>[] { identifiers });
+	}
+
+	/**
+	 * @return the expression this one was compiled from
+	 */
+	public final Expression<T> getSource()
+	{
+		return source;
+	}
+
+	@Override public String toString()
+	{
+		return source.toString();
+	}
+
+	private static abstract class Node
+	{
+		abstract Object evaluate(Object[] frame) throws EvaluationException;
+
+		/**
+		 * @return true if the result doesn't depend on the frame and the
+		 * evaluation has no side effects
+		 */
+		boolean isConstant()
+		{
+			return false;
+		}
+	}
+
+	private static final class Const extends Node
+	{
+		private final Object value;
+
+		Const(Object value)
+		{
+			this.value = value;
+		}
+
+		@Override Object evaluate(Object[] frame)
+		{
+			return value;
+		}
+
+		@Override boolean isConstant()
+		{
+			return true;
+		}
+	}
+
+	private static final class Slot extends Node
+	{
+		private final int index;
+		private final String identifier;
+
+		Slot(int index, String identifier)
+		{
+			this.index = index;
+			this.identifier = identifier;
+		}
+
+		@Override Object evaluate(Object[] frame) throws EvaluationException
+		{
+			Object value = frame[index];
+			if (value == ABSENT)
+				throw new EvaluationException(identifier,IDENTIFIER_NOT_FOUND);
+			return value;
+		}
+	}
+
+	/**
+	 * Thrown while compiling if an unknown {@link Expression} is encountered.
+	 */
+	private static final class Unsupported extends RuntimeException
+	{
+		private static final long serialVersionUID = 6185227303862536412L;
+	}
+
+	private static abstract class Unary extends Node
+	{
+		protected final Node in;
+
+		Unary(Node in)
+		{
+			this.in = in;
+		}
+
+		@Override boolean isConstant()
+		{
+			return in.isConstant();
+		}
+
+		final BigDecimal decimal(Object[] frame) throws EvaluationException
+		{
+			return (BigDecimal)in.evaluate(frame);
+		}
+	}
+
+	private static abstract class Binary extends Node
+	{
+		protected final Node left;
+		protected final Node right;
+
+		Binary(Node left, Node right)
+		{
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override boolean isConstant()
+		{
+			return left.isConstant() && right.isConstant();
+		}
+
+		final int compare(Object[] frame) throws EvaluationException
+		{
+			return ((BigDecimal)left.evaluate(frame)).compareTo((BigDecimal)right.evaluate(frame));
+		}
+
+		final BigDecimal leftDecimal(Object[] frame) throws EvaluationException
+		{
+			return (BigDecimal)left.evaluate(frame);
+		}
+
+		final BigDecimal rightDecimal(Object[] frame) throws EvaluationException
+		{
+			return (BigDecimal)right.evaluate(frame);
+		}
+
+		final boolean leftBoolean(Object[] frame) throws EvaluationException
+		{
+			return (Boolean)left.evaluate(frame);
+		}
+
+		final boolean rightBoolean(Object[] frame) throws EvaluationException
+		{
+			return (Boolean)right.evaluate(frame);
+		}
+	}
+
+	/**
+	 * Replaces a node by its result if it is constant. A failing evaluation
+	 * is kept, so the exception is thrown at the same time as without
+	 * compiling.
+	 */
+	private static final Node fold(Node node)
+	{
+		if (!node.isConstant() || node instanceof Const)
+			return node;
+		try
+		{
+			return new Const(node.evaluate(null));
+		}
+		catch (EvaluationException ex)
+		{
+			return node;
+		}
+		catch (RuntimeException ex)
+		{
+			return node;
+		}
+	}
+
+	private static final Node compile(Expression<?> expression, Map<String, Integer> slots)
+	{
+		return fold(translate(expression, slots));
+	}
+
+	private static final Node translate(Expression<?> expression, final Map<String, Integer> slots)
+	{
+		if (expression instanceof CompiledExpression)
+			return compile(((CompiledExpression<?>)expression).source, slots);
+
+		if (expression instanceof Expression.Constant)
+			return new Const(((Expression.Constant<?>)expression).getValue());
+
+		if (expression instanceof Expression.Identifier)
+		{
+			String identifier = ((Expression.Identifier)expression).getIdentifier();
+			Object constant = Expression.Identifier.getConstant(identifier);
+			if (constant != null)
+				return new Const(constant);
+			Integer index = slots.get(identifier);
+			if (index == null)
+				slots.put(identifier, index = slots.size());
+			return new Slot(index, identifier);
+		}
+
+		if (expression instanceof Expression.ListEval)
+		{
+			List<? extends Expression<?>> exprs = ((Expression.ListEval<?>)expression).getExpressions();
+			final Node[] elements = new Node[exprs.size()];
+			for (int i = 0; i < elements.length; ++i)
+				elements[i] = compile(exprs.get(i), slots);
+			// not constant, since every evaluation returns a new list
+			return new Node()
+			{
+				@Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					List<Object> results = new ArrayList<Object>(elements.length);
+					for (Node element : elements)
+						results.add(element.evaluate(frame));
+					return results;
+				}
+			};
+		}
+
+		if (expression instanceof Expression.Child)
+		{
+			Expression<BigDecimal>[] exprs = ((Expression.Child)expression).getIndexes();
+			final Node[] indexes = new Node[exprs.length];
+			for (int i = 0; i < indexes.length; ++i)
+				indexes[i] = compile(exprs[i], slots);
+			return new Unary(compile(((Expression.Child)expression).in, slots))
+			{
+				@Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					Object value = in.evaluate(frame);
+					for (Node index : indexes)
+						value = Expression.Child.getChild(value, ((BigDecimal)index.evaluate(frame)).intValue());
+					return value;
+				}
+
+				@Override boolean isConstant()
+				{
+					return false;
+				}
+			};
+		}
+
+		if (expression instanceof Expression.Size)
+		{
+			final int dimension = ((Expression.Size)expression).getDimension();
+			return new Unary(compile(((Expression.Size)expression).in, slots))
+			{
+				@Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					return Expression.Size.rec(in.evaluate(frame), dimension);
+				}
+
+				@Override boolean isConstant()
+				{
+					return false;
+				}
+			};
+		}
+
+		if (expression instanceof Expression.Call)
+		{
+			Expression.Call call = (Expression.Call)expression;
+			return new Binary(compile(call.left, slots), compile(call.right, slots))
+			{
+				@SuppressWarnings("unchecked") @Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					return Expression.Call.invoke(left.evaluate(frame), (List<Object>)right.evaluate(frame));
+				}
+
+				@Override boolean isConstant()
+				{
+					return false;
+				}
+			};
+		}
+
+		if (expression instanceof Expression.Not)
+			return new Unary(compile(((Expression.Not)expression).in, slots))
+			{
+				@Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					return !(Boolean)in.evaluate(frame);
+				}
+			};
+
+		if (expression instanceof Expression.Neg)
+			return new Unary(compile(((Expression.Neg)expression).in, slots))
+			{
+				@Override Object evaluate(Object[] frame) throws EvaluationException
+				{
+					return decimal(frame).negate();
+				}
+			};
+
+		if (expression instanceof Expression.BinaryExpression)
+		{
+			Expression.BinaryExpression<?, ?, ?> binary = (Expression.BinaryExpression<?, ?, ?>)expression;
+			Node left = compile(binary.left, slots);
+			Node right = compile(binary.right, slots);
+
+			if (expression instanceof Expression.And)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftBoolean(frame) && rightBoolean(frame);
+					}
+				};
+			if (expression instanceof Expression.Or)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftBoolean(frame) || rightBoolean(frame);
+					}
+				};
+			if (expression instanceof Expression.LessThan)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) < 0;
+					}
+				};
+			if (expression instanceof Expression.GreaterThan)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) > 0;
+					}
+				};
+			if (expression instanceof Expression.LessOrEqual)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) <= 0;
+					}
+				};
+			if (expression instanceof Expression.GreaterOrEqual)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) >= 0;
+					}
+				};
+			if (expression instanceof Expression.Equal)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) == 0;
+					}
+				};
+			if (expression instanceof Expression.NotEqual)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return compare(frame) != 0;
+					}
+				};
+			if (expression instanceof Expression.Add)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).add(rightDecimal(frame));
+					}
+				};
+			if (expression instanceof Expression.Sub)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).subtract(rightDecimal(frame));
+					}
+				};
+			if (expression instanceof Expression.Mul)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).multiply(rightDecimal(frame));
+					}
+				};
+			if (expression instanceof Expression.Div)
+			{
+				if (((Expression.Div)expression).isIntegerDivision())
+					return new Binary(left, right)
+					{
+						@Override Object evaluate(Object[] frame) throws EvaluationException
+						{
+							return leftDecimal(frame).divideToIntegralValue(rightDecimal(frame));
+						}
+					};
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).divide(rightDecimal(frame));
+					}
+				};
+			}
+			if (expression instanceof Expression.Mod)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).remainder(rightDecimal(frame));
+					}
+				};
+			if (expression instanceof Expression.Pow)
+				return new Binary(left, right)
+				{
+					@Override Object evaluate(Object[] frame) throws EvaluationException
+					{
+						return leftDecimal(frame).pow(rightDecimal(frame).intValue());
+					}
+				};
+		}
+
+		throw new Unsupported();
+	}
+
+}
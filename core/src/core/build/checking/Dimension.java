@@ -195,10 +195,10 @@ public interface Dimension
 
 		@Override
 		public boolean fixValue(int length) {
-			if (context.lengths.containsKey(name))
-				return length == context.lengths.get(name);
+			if (context.lengths().containsKey(name))
+				return length == context.lengths().get(name);
 			else if (length >= 1) {
-				context.lengths.put(name, length);
+				context.lengths().put(name, length);
 				return true;
 			}
 			else
@@ -207,16 +207,16 @@ public interface Dimension
 
 		@Override
 		public int getFixedValue() {
-			if (context.lengths.containsKey(name))
-				return context.lengths.get(name);
+			if (context.lengths().containsKey(name))
+				return context.lengths().get(name);
 			else
 				return 0;
 		}
 
 		@Override
 		public boolean acceptsValue(int length) {
-			if (context.lengths.containsKey(name))
-				return length == context.lengths.get(name);
+			if (context.lengths().containsKey(name))
+				return length == context.lengths().get(name);
 			else
 				return length >= 1;
 		}
@@ -443,8 +443,8 @@ public interface Dimension
 		}
 
 		private final int getFixedBranch() {
-			if (context.branches.containsKey(this))
-				return context.branches.get(this);
+			if (context.branches().containsKey(this))
+				return context.branches().get(this);
 			else
 				return -1;
 		}
@@ -456,7 +456,7 @@ public interface Dimension
 
 			for (int i=0;i<branches.length;++i)
 				if (branches[i].acceptsValue(length) && branches[i].fixValue(length)) {
-					context.branches.put(this, i);
+					context.branches().put(this, i);
 					return true;
 				}
 
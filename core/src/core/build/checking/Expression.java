@@ -226,6 +226,20 @@ public interface Expression<T>
 			this.identifier = identifier;
 		}
 
+		/**
+		 * @return the constant named {@code identifier}, or {@code null} if
+		 * there is none
+		 */
+		static final Object getConstant(String identifier)
+		{
+			return constants.get(identifier);
+		}
+
+		final String getIdentifier()
+		{
+			return identifier;
+		}
+
 		@Override public Object evaluate(Map<String, Object> identifiers) throws EvaluationException
 		{
 			if (constants.containsKey(identifier))
@@ -277,7 +291,12 @@ public interface Expression<T>
 			return value;
 		}
 
-		private final Object getChild(Object parent, int child) throws EvaluationException
+		final Expression<BigDecimal>[] getIndexes()
+		{
+			return indexes.clone();
+		}
+
+		static final Object getChild(Object parent, int child) throws EvaluationException
 		{
 			if(parent instanceof Collection)
 				return ((Collection)parent).toArray()[child];
@@ -343,7 +362,12 @@ public interface Expression<T>
 			return rec(in.evaluate(identifiers), dimension);
 		}
 
-		private final BigDecimal rec(Object value, int dim) throws EvaluationException
+		final int getDimension()
+		{
+			return dimension;
+		}
+
+		static final BigDecimal rec(Object value, int dim) throws EvaluationException
 		{
 			if(dim != 0)
 			{
@@ -400,6 +424,11 @@ public interface Expression<T>
 			return value;
 		}
 
+		final T getValue()
+		{
+			return value;
+		}
+
 		@Override public String toString()
 		{
 			return value.toString();
@@ -432,11 +461,17 @@ public interface Expression<T>
 			super(left, right);
 		}
 
-		@SuppressWarnings("unchecked") @Override public final Object evaluate(Map<String, Object> identifiers) throws EvaluationException
+		@Override public final Object evaluate(Map<String, Object> identifiers) throws EvaluationException
 		{
-			Object callable = left.evaluate(identifiers);
-			List<Object> params = right.evaluate(identifiers);
+			return invoke(left.evaluate(identifiers), right.evaluate(identifiers));
+		}
 
+		/**
+		 * Calls {@code callable} like {@link #evaluate(java.util.Map)} does
+		 * with the evaluated operands.
+		 */
+		@SuppressWarnings("unchecked") static final Object invoke(Object callable, List<Object> params) throws EvaluationException
+		{
 			if (callable instanceof Runnable && params.isEmpty()) {
 				((Runnable)callable).run();
 				return null;
@@ -644,6 +679,11 @@ public interface Expression<T>
 			this(left, right, true);
 		}
 
+		final boolean isIntegerDivision()
+		{
+			return integerDivision;
+		}
+
 		@Override public final BigDecimal evaluate(Map<String, Object> identifiers) throws EvaluationException
 		{
 			if (integerDivision)
@@ -27,33 +27,53 @@ import java.util.HashMap;
 import java.util.Map;
 
 /**
- *
+ * Holds the lengths and branches fixed while matching {@link Dimension}s. The
+ * state is kept per thread, so the {@link Dimension}s bound to a context can
+ * be matched by several threads at once.
  * @author lars
  */
 public final class MatcherContext {
 
-	final Map<String,Integer> lengths;
-	final Map<Dimension,Integer> branches;
+	private final ThreadLocal<Map<String,Integer>> lengths = new ThreadLocal<Map<String,Integer>>() {
+		@Override
+		protected Map<String,Integer> initialValue() {
+			return new HashMap<String,Integer>();
+		}
+	};
+
+	private final ThreadLocal<Map<Dimension,Integer>> branches = new ThreadLocal<Map<Dimension,Integer>>() {
+		@Override
+		protected Map<Dimension,Integer> initialValue() {
+			return new HashMap<Dimension,Integer>();
+		}
+	};
+
 	BigInteger whateverCount;
 
 	public MatcherContext() {
-		this.lengths = new HashMap<String, Integer>();
-		this.branches = new HashMap<Dimension, Integer>();
 		this.whateverCount = BigInteger.ZERO;
 	}
 
+	final Map<String,Integer> lengths() {
+		return lengths.get();
+	}
+
+	final Map<Dimension,Integer> branches() {
+		return branches.get();
+	}
+
 	public Map<String, Integer> getLengths() {
-		return Collections.unmodifiableMap(lengths);
+		return Collections.unmodifiableMap(lengths.get());
 	}
 
 	public void reset() {
-		lengths.clear();
-		branches.clear();
+		lengths.get().clear();
+		branches.get().clear();
 	}
 
 	@Override
 	public String toString() {
-		return lengths.toString();
+		return lengths.get().toString();
 	}
 
 }
@@ -167,6 +167,41 @@ public final class BitConverter
 		return bitsToInteger(order, signed, signal.getBits());
 	}
 
+	/**
+	 * Converts the {@link Bit}s of a {@link Signal} into an unsigned index,
+	 * least-significant bit first. Unlike {@link
+	 * #signalToLong(core.signal.Signal) signalToLong(signal)}, no intermediate
+	 * objects are created, so it is suitable for use in {@link
+	 * core.sim.Calculator#execute() Calculator.execute()}.
+	 *
+	 * @param signal The {@link Signal} to get the {@link Bit}s for converting
+	 *               from
+	 *
+	 * @return The numeric value of the {@link Signal}'s {@link Bit}s, or -1 if
+	 *         one of them is {@link Bit#Z Z} or the value doesn't fit into a
+	 *         non-negative int
+	 */
+	public static final int signalToIndex(final Signal signal)
+	{
+		assert signal != null;
+
+		int index = 0;
+
+		for(int i = 0; i < signal.size(); ++i)
+			switch(signal.getBit(i))
+			{
+			case H:
+				if(i >= 31)
+					return -1;
+				index |= 1 << i;
+				break;
+			case Z:
+				return -1;
+			}
+
+		return index;
+	}
+
 	/**
 	 * Invokes {@link #bitsToInteger(core.misc.BitConverter.Order, boolean,
 	 * core.signal.Bit[]) bitsToInteger(Order.LITTLE_ENDIAN, false, bits)} and
@@ -24,6 +24,7 @@ package core.misc.module;
 import core.build.Component;
 import core.misc.test.Testable;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -220,6 +221,21 @@ public final class ClassLoader
 			return defineClass(null, bytes, 0, bytes.length, pd);
 		}
 
+		/**
+		 * Provides the class files of the loaded classes, which are needed
+		 * to check whether a class has changed.
+		 */
+		@Override public final InputStream getResourceAsStream(final String name)
+		{
+			if(name.endsWith(".class"))
+			{
+				final byte[] bytes = map.get(name.substring(0, name.length() - 6).replace('/', '.'));
+				if(bytes != null)
+					return new ByteArrayInputStream(bytes);
+			}
+			return super.getResourceAsStream(name);
+		}
+
 		private final Map<String, byte[]> map;
 	}
 
@@ -0,0 +1,172 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.misc.module;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code Instantiator} class creates objects through a constructor or a
+ * static factory method, looked up once per class and process. The lookups
+ * are cached with the class itself, so classes of a replaced {@link
+ * ClassLoader#load(java.io.File[]) load} are not held and every class loader
+ * gets its own entries. Calls go through a {@link MethodHandle}, which does
+ * not repeat the access checks of reflection.
+ *
+ * @author torben
+ */
+public final class Instantiator
+{
+	/**
+	 * Returns the {@code Instantiator} for a declared constructor.
+	 *
+	 * @param c          The class to instantiate
+	 * @param parameters The parameter types of the constructor
+	 *
+	 * @return The {@code Instantiator}
+	 *
+	 * @throws NoSuchMethodException if the class has no such constructor or
+	 *                               is abstract
+	 */
+	public static final Instantiator getConstructor(final Class<?> c, final Class<?>... parameters) throws NoSuchMethodException
+	{
+		assert c != null;
+		assert parameters != null;
+
+		final Instantiator i = get(c, null, parameters);
+		if(i == null)
+			throw new NoSuchMethodException(c.getName() + ".<init>");
+		return i;
+	}
+
+	/**
+	 * Returns the {@code Instantiator} for a declared static method.
+	 *
+	 * @param c          The class declaring the method
+	 * @param name       The name of the method
+	 * @param parameters The parameter types of the method
+	 *
+	 * @return The {@code Instantiator} or null if the class has no such static
+	 *         method
+	 */
+	public static final Instantiator getStaticMethod(final Class<?> c, final String name, final Class<?>... parameters)
+	{
+		assert c != null;
+		assert name != null;
+		assert parameters != null;
+
+		return get(c, name, parameters);
+	}
+
+	/**
+	 * Invokes the constructor or method.
+	 *
+	 * @param arguments The arguments
+	 *
+	 * @return The created object
+	 *
+	 * @throws InvocationTargetException if the constructor or method has
+	 *                                   thrown an exception
+	 */
+	public final Object newInstance(final Object... arguments) throws InvocationTargetException
+	{
+		try { return handle.invokeExact(arguments); }
+		catch(final Throwable t) { throw new InvocationTargetException(t); }
+	}
+
+	/**
+	 * @return The class declaring the constructor or method
+	 */
+	public final Class<?> getDeclaringClass()
+	{
+		return declaring_class;
+	}
+
+	private static final ClassValue<Map<List<Object>, Instantiator>> cache = new ClassValue<Map<List<Object>, Instantiator>>()
+	{
+		@Override protected final Map<List<Object>, Instantiator> computeValue(final Class<?> c)
+		{
+			return new HashMap<List<Object>, Instantiator>();
+		}
+	};
+
+	private final Class<?> declaring_class;
+	private final MethodHandle handle;
+
+	private Instantiator(final Class<?> declaring_class, final MethodHandle handle)
+	{
+		this.declaring_class = declaring_class;
+		this.handle = handle.asSpreader(Object[].class, handle.type().parameterCount()).asType(MethodType.methodType(Object.class, Object[].class));
+	}
+
+	private static final Instantiator get(final Class<?> c, final String name, final Class<?>... parameters)
+	{
+		final List<Object> key = new ArrayList<Object>(parameters.length + 1);
+		key.add(name);
+		for(final Class<?> p : parameters)
+			key.add(p);
+
+		final Map<List<Object>, Instantiator> map = cache.get(c);
+		synchronized(map)
+		{
+			if(!map.containsKey(key))
+				map.put(key, lookup(c, name, parameters));
+			return map.get(key);
+		}
+	}
+
+	private static final Instantiator lookup(final Class<?> c, final String name, final Class<?>... parameters)
+	{
+		try
+		{
+			if(name == null)
+			{
+				if(Modifier.isAbstract(c.getModifiers()))
+					return null;
+
+				final Constructor<?> constructor = c.getDeclaredConstructor(parameters);
+				constructor.setAccessible(true);
+				return new Instantiator(c, MethodHandles.lookup().unreflectConstructor(constructor));
+			}
+			else
+			{
+				final Method method = c.getDeclaredMethod(name, parameters);
+				if(!Modifier.isStatic(method.getModifiers()))
+					return null;
+				method.setAccessible(true);
+				return new Instantiator(c, MethodHandles.lookup().unreflect(method));
+			}
+		}
+		catch(final NoSuchMethodException ex) { return null; }
+		catch(final IllegalAccessException ex) { return null; } // will not happen
+	}
+}
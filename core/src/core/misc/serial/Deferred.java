@@ -0,0 +1,98 @@
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package core.misc.serial;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+
+import java.io.IOException;
+
+/**
+ * A {@code Deferred} is returned by {@link
+ * DeserializingStream#readDeferred(java.lang.Class, java.lang.Class[])
+ * readDeferred()} for an object which may still have to be read from its
+ * section. The section, and the sections it was deferred from, are read on
+ * the first {@link #get() get()}, all later calls return the same object.
+ *
+ * @param <T> The type of the object
+ *
+ * @see SerializingStream#writeDeferred(java.lang.Object, boolean[])
+ *
+ * @author torben
+ */
+public final class Deferred<T>
+{
+	/**
+	 * Returns the object, reading its section if necessary.
+	 *
+	 * @return The object
+	 *
+	 * @throws IOException            if the underlying buffer can't be read
+	 * @throws DeserializingException if the object can't be deserialized
+	 * @throws InstantiationException if an objects constructor has thrown an
+	 *                                exception
+	 */
+	public final T get() throws IOException, DeserializingException, InstantiationException
+	{
+		final DeserializingStream.Sections s = sections;
+		if(s != null)
+			s.read(index);
+		return value;
+	}
+
+	/**
+	 * @return true if the object has been read
+	 */
+	public final boolean isRead()
+	{
+		return sections == null;
+	}
+
+	Deferred(final T value)
+	{
+		this.value = value;
+		index = 0;
+		obj_class = null;
+		deep_classes = null;
+	}
+
+	Deferred(final DeserializingStream.Sections sections, final int index, final Class<T> obj_class, final Class<?>[] deep_classes)
+	{
+		this.sections = sections;
+		this.index = index;
+		this.obj_class = obj_class;
+		this.deep_classes = deep_classes;
+	}
+
+	@SuppressWarnings("unchecked")
+	final void set(final Object value)
+	{
+		this.value = (T)value;
+		sections = null;
+	}
+
+	final Class<T> obj_class;
+	final Class<?>[] deep_classes;
+
+	private final int index;
+	private T value;
+	private volatile DeserializingStream.Sections sections;
+}
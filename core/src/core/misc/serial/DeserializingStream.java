@@ -24,17 +24,22 @@ package core.misc.serial;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.misc.module.ClassLoader;
+import core.misc.module.Instantiator;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -42,6 +47,22 @@ import java.util.Map;
  * {@link InputStream} It provides support for all Java native types, native
  * type wrapper classes, arrays, Strings, Enums, Collections, Maps and all
  * classes which implements the {@link Serializable} interface.
+ * <p>
+ * The format is detected from the header written by the {@link
+ * SerializingStream}, streams without a header are read as {@link
+ * SerializingStream#VERSION_1}. Like in the {@link SerializingStream},
+ * the elements of arrays, Collections and Maps are read from an explicit work
+ * stack and deeply nested {@link Serializable} objects are continued on
+ * reused worker threads.
+ * </p>
+ * <p>
+ * The sections of a stream written with sections can only be read from a
+ * {@link ByteBuffer}, usually a mapped file. Each section is read on the
+ * first {@link Deferred#get() get()} of the {@link Deferred} returned by
+ * {@link #readDeferred(java.lang.Class, java.lang.Class[]) readDeferred()},
+ * and {@link #readSections() readSections()} reads all of them before the
+ * objects written after them.
+ * </p>
  *
  * @author torben
  */
@@ -61,9 +82,42 @@ public final class DeserializingStream extends FilterInputStream
 
 		class_map = new HashMap<Integer, Class<?>>();
 		object_map = new HashMap<Integer, Object>();
-		constructor_cache = new HashMap<Class<?>, Constructor<?>>();
-		static_cache = new HashMap<Class<?>, Method>();
-		buffer = new byte[32];
+		buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.limit(0);
+		source = in instanceof BufferStream ? ((BufferStream)in).buffer : null;
+	}
+
+	/**
+	 * Creates a new {@code DeserializingStream} which reads from a {@link
+	 * ByteBuffer}, from its position to its limit. Unlike a stream reading
+	 * from an {@link InputStream}, it reads the sections of a stream written
+	 * with sections on demand.
+	 *
+	 * @param buffer The {@link ByteBuffer} to read from, which is not modified
+	 */
+	public DeserializingStream(final ByteBuffer buffer)
+	{
+		this(new BufferStream(buffer.slice()));
+	}
+
+	/**
+	 * Creates a {@code DeserializingStream} for a section, which shares the
+	 * objects of the stream it belongs to.
+	 */
+	private DeserializingStream(final Sections sections, final int offset, final int first)
+	{
+		super(new BufferStream(sections.source.duplicate()));
+
+		class_map = new HashMap<Integer, Class<?>>();
+		object_map = sections.object_map;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.limit(0);
+		source = ((BufferStream)in).buffer;
+		source.position(offset);
+		version = SerializingStream.VERSION_2;
+		sectioned = true;
+		this.sections = sections;
+		objects = first;
 	}
 
 	/**
@@ -77,8 +131,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final boolean readBoolean() throws IOException, DeserializingException
 	{
-		read(1);
-		return buffer[0] == 1;
+		require(1);
+		return buffer.get() == 1;
 	}
 
 	/**
@@ -92,8 +146,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final byte readByte() throws IOException, DeserializingException
 	{
-		read(1);
-		return buffer[0];
+		require(1);
+		return buffer.get();
 	}
 
 	/**
@@ -107,8 +161,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final short readShort() throws IOException, DeserializingException
 	{
-		read(2);
-		return (short)((buffer[0] & 0xff) | ((buffer[1] & 0xff) << 8));
+		require(2);
+		return buffer.getShort();
 	}
 
 	/**
@@ -122,8 +176,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final char readCharacter() throws IOException, DeserializingException
 	{
-		read(2);
-		return (char)((buffer[0] & 0xff) | ((buffer[1] & 0xff) << 8));
+		require(2);
+		return buffer.getChar();
 	}
 
 	/**
@@ -137,8 +191,14 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final int readInteger() throws IOException, DeserializingException
 	{
-		read(4);
-		return (buffer[0] & 0xff) | ((buffer[1] & 0xff) << 8)| ((buffer[2] & 0xff) << 16)| ((buffer[3] & 0xff) << 24);
+		if(version() == SerializingStream.VERSION_1)
+		{
+			require(4);
+			return buffer.getInt();
+		}
+
+		final int v = readVariable();
+		return (v >>> 1) ^ -(v & 1);
 	}
 
 	/**
@@ -152,8 +212,22 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final long readLong() throws IOException, DeserializingException
 	{
-		read(8);
-		return ((long)buffer[0] & 0xff) | (((long)buffer[1] & 0xff) << 8) | (((long)buffer[2] & 0xff) << 16) | (((long)buffer[3] & 0xff) << 24) | (((long)buffer[4] & 0xff) << 32) | (((long)buffer[5] & 0xff) << 40) | (((long)buffer[6] & 0xff) << 48) | (((long)buffer[7] & 0xff) << 56);
+		if(version() == SerializingStream.VERSION_1)
+		{
+			require(8);
+			return buffer.getLong();
+		}
+
+		long v = 0;
+		for(int shift = 0; shift < 70; shift += 7)
+		{
+			require(1);
+			final byte b = buffer.get();
+			v |= (long)(b & 0x7F) << shift;
+			if(b >= 0)
+				return (v >>> 1) ^ -(v & 1);
+		}
+		throw new DeserializingException.CorruptStream(null);
 	}
 
 	/**
@@ -167,7 +241,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final float readFloat() throws IOException, DeserializingException
 	{
-		return Float.intBitsToFloat(readInteger());
+		require(4);
+		return Float.intBitsToFloat(buffer.getInt());
 	}
 
 	/**
@@ -181,7 +256,8 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final double readDouble() throws IOException, DeserializingException
 	{
-		return Double.longBitsToDouble(readLong());
+		require(8);
+		return Double.longBitsToDouble(buffer.getLong());
 	}
 
 	/**
@@ -195,9 +271,11 @@ public final class DeserializingStream extends FilterInputStream
 	 */
 	public final String readString() throws IOException, DeserializingException
 	{
-		int len = readInteger();
-		read(len);
-		return new String(buffer, 0, len, UTF8);
+		final int len = readLength();
+		require(len);
+		final String s = new String(buffer.array(), buffer.position(), len, SerializingStream.UTF8);
+		buffer.position(buffer.position() + len);
+		return s;
 	}
 
 	/**
@@ -243,26 +321,156 @@ public final class DeserializingStream extends FilterInputStream
 	 *                                exception
 	 */
 	@SuppressWarnings("unchecked")
-	public final <T> T readObject(Class<T> obj_class, final Class<?>... deep_classes) throws IOException, DeserializingException, InstantiationException
+	public final <T> T readObject(final Class<T> obj_class, final Class<?>... deep_classes) throws IOException, DeserializingException, InstantiationException
 	{
 		assert deep_classes != null;
 
-		switch(readByte())
+		if(depth == limit)
+		{
+			final int outer_depth = depth;
+			final int outer_limit = limit;
+			final List<T> result = new ArrayList<T>(1);
+
+			final Exception ex = new Segment()
+			{
+				@Override final void call() throws Exception
+				{
+					depth = 0;
+					limit = Segment.DEPTH;
+					result.add(readObject(obj_class, deep_classes));
+				}
+			}.start();
+
+			depth = outer_depth;
+			limit = outer_limit;
+
+			if(ex instanceof IOException)
+				throw (IOException)ex;
+			else if(ex instanceof DeserializingException)
+				throw (DeserializingException)ex;
+			else if(ex instanceof InstantiationException)
+				throw (InstantiationException)ex;
+			return result.get(0);
+		}
+
+		++depth;
+		final int base = work.size();
+		try
+		{
+			Object o = readContent(obj_class, deep_classes);
+			for(;;)
+			{
+				if(o != PENDING)
+				{
+					if(work.size() == base)
+						return (T)o;
+					work.peek().add(o);
+				}
+
+				final Frame f = work.peek();
+				if(f.index < f.count)
+					o = f.next();
+				else
+				{
+					work.pop();
+					object_map.put(f.id, f.object);
+					o = f.object;
+				}
+			}
+		}
+		finally
+		{
+			--depth;
+			while(work.size() > base)
+				work.pop();
+		}
+	}
+
+	/**
+	 * Reads an object written with {@link
+	 * SerializingStream#writeDeferred(java.lang.Object, boolean[])
+	 * writeDeferred()}. If it was written into a section, the section is
+	 * read on the first {@link Deferred#get() get()}.
+	 *
+	 * @param <T> The type of the returned object
+	 *
+	 * @param obj_class    if the objects class was not written to the stream,
+	 *                     it must be provided, otherwise null
+	 * @param deep_classes if the child objects class was not written to the
+	 *                     stream in the corresponding depth, it must be
+	 *                     provided, otherwise null
+	 *
+	 * @return The object, which may still have to be read
+	 *
+	 * @throws IOException            if the underlying stream throws an
+	 *                                {@code IOException}
+	 * @throws DeserializingException if the object can't be deserialized
+	 * @throws InstantiationException if the objects constructor has thrown an
+	 *                                exception
+	 */
+	public final <T> Deferred<T> readDeferred(final Class<T> obj_class, final Class<?>... deep_classes) throws IOException, DeserializingException, InstantiationException
+	{
+		assert deep_classes != null;
+
+		if(version() != SerializingStream.VERSION_1 && sectioned)
+		{
+			final int index = readLength();
+			if(index != 0)
+				return sections().deferred(index, obj_class, deep_classes);
+		}
+		return new Deferred<T>(readObject(obj_class, deep_classes));
+	}
+
+	/**
+	 * Reads all sections which were not read yet and continues with the
+	 * objects written after {@link SerializingStream#writeSections()}. Does
+	 * nothing for a stream without sections.
+	 *
+	 * @throws IOException            if the underlying stream throws an
+	 *                                {@code IOException}
+	 * @throws DeserializingException if an object can't be deserialized
+	 * @throws InstantiationException if an objects constructor has thrown an
+	 *                                exception
+	 */
+	public final void readSections() throws IOException, DeserializingException, InstantiationException
+	{
+		if(version() == SerializingStream.VERSION_1 || !sectioned)
+			return;
+
+		final Sections s = sections();
+		s.readAll();
+
+		source.position(s.tail_offset);
+		buffer.limit(0);
+		objects = s.tail_first;
+		class_map.clear();
+	}
+
+	/**
+	 * Reads an object, but pushes arrays, Collections and Maps onto the work
+	 * stack instead of reading their elements.
+	 *
+	 * @return The read object, or {@link #PENDING} if a frame was pushed
+	 */
+	@SuppressWarnings("unchecked")
+	private final <T> Object readContent(Class<T> obj_class, final Class<?>... deep_classes) throws IOException, DeserializingException, InstantiationException
+	{
+		switch(readHeader())
 		{
 		case DIRECT:
-			final int object_id = readInteger();
+			final int object_id = version == SerializingStream.VERSION_1 ? header : objects++;
 
 			if(obj_class == null)
 			{
-				switch(readByte())
+				switch(readHeader())
 				{
 				case DIRECT:
-					final int class_id = readInteger();
+					final int class_id = version == SerializingStream.VERSION_1 ? header : class_map.size();
 					obj_class = (Class<T>)getClass(readString());
 					class_map.put(class_id, obj_class);
 					break;
 				case REFERENCE:
-					try { obj_class = (Class<T>)class_map.get(readInteger()); }
+					try { obj_class = (Class<T>)class_map.get(header); }
 					catch(final ClassCastException ex) { throw new DeserializingException.CorruptStream(null); }
 					if(obj_class == null)
 						throw new DeserializingException.CorruptStream(null);
@@ -275,25 +483,14 @@ public final class DeserializingStream extends FilterInputStream
 			Object o;
 			if(obj_class.isArray())
 			{
-				final int len = readInteger();
+				final int len = readLength();
 				final Class<?> c = obj_class.getComponentType();
 
 				if(!c.isPrimitive())
 				{
 					final Object[] a = (Object[])Array.newInstance(c, len);
-
-					if(deep_classes.length == 0)
-						for(int i = 0; i < len; ++i)
-							a[i] = readObject(null);
-					else
-					{
-						final Class<?>[] deeper_classes = new Class<?>[deep_classes.length - 1];
-						System.arraycopy(deep_classes, 1, deeper_classes, 0, deeper_classes.length);
-						for(int i = 0; i < len; ++i)
-							a[i] = readObject(deep_classes[0], deeper_classes);
-					}
-
-					o = a;
+					work.push(new Frame(object_id, a, len, deep_classes));
+					return PENDING;
 				}
 				else if(c == Boolean.TYPE)
 				{
@@ -305,8 +502,7 @@ public final class DeserializingStream extends FilterInputStream
 				else if(c == Byte.TYPE)
 				{
 					final byte[] a = (byte[])Array.newInstance(c, len);
-					for(int i = 0; i < len; ++i)
-							a[i] = readByte();
+					readFully(a);
 					o = a;
 				}
 				else if(c == Short.TYPE)
@@ -372,48 +568,27 @@ public final class DeserializingStream extends FilterInputStream
 				o = readString();
 			else if(obj_class.getSuperclass() == Enum.class)
 			{
-				try { o = obj_class.getEnumConstants()[readInteger()]; }
+				try { o = obj_class.getEnumConstants()[readLength()]; }
 				catch(final IndexOutOfBoundsException ex) { throw new DeserializingException.CorruptStream(obj_class.getName()); }
 			}
 			else if(Collection.class.isAssignableFrom(obj_class))
 			{
 				o = newInstance(getConstructor(obj_class));
-				final int s = readInteger();
-				if(deep_classes.length == 0)
-					for(int i = 0; i < s; ++i)
-						((Collection)o).add(readObject(null));
-				else
-				{
-					final Class<?>[] deeper_classes = new Class<?>[deep_classes.length - 1];
-					System.arraycopy(deep_classes, 1, deeper_classes, 0, deeper_classes.length);
-					for(int i = 0; i < s; ++i)
-						((Collection)o).add(readObject(deep_classes[0], deeper_classes));
-				}
+				work.push(new Frame(object_id, o, readLength(), deep_classes));
+				return PENDING;
 			}
 			else if(Map.class.isAssignableFrom(obj_class))
 			{
 				o = newInstance(getConstructor(obj_class));
-				final int s = readInteger();
-				if(deep_classes.length == 0)
-					for(int i = 0; i < s; ++i)
-						((Map)o).put(readObject(null), readObject(null));
-				else if(deep_classes.length == 1)
-					for(int i = 0; i < s; ++i)
-						((Map)o).put(readObject(deep_classes[0]), readObject(null));
-				else
-				{
-					final Class<?>[] deeper_classes = new Class<?>[deep_classes.length - 2];
-					System.arraycopy(deep_classes, 2, deeper_classes, 0, deeper_classes.length);
-					for(int i = 0; i < s; ++i)
-						((Map)o).put(readObject(deep_classes[0], deeper_classes), readObject(deep_classes[1], deeper_classes));
-				}
+				work.push(new Frame(object_id, o, 2 * readLength(), deep_classes));
+				return PENDING;
 			}
 			else if(Serializable.class.isAssignableFrom(obj_class))
 			{
-				final Method method = getStaticMethod(obj_class);
+				final Instantiator method = Instantiator.getStaticMethod(obj_class, "getDeserializedObject", DeserializingStream.class);
 
 				if(method != null)
-					o = getObject(method);
+					o = newInstance(method, this);
 				else
 					o = newInstance(getConstructor(obj_class, DeserializingStream.class), this);
 			}
@@ -421,9 +596,9 @@ public final class DeserializingStream extends FilterInputStream
 				throw new DeserializingException.ClassNotDeserializable(obj_class.getName());
 
 			object_map.put(object_id, o);
-			return (T)o;
+			return o;
 		case REFERENCE:
-			try { return (T)object_map.get(readInteger()); }
+			try { return (T)object_map.get(version == SerializingStream.VERSION_1 ? header : objects - 1 - header); }
 			catch(final ClassCastException ex) { throw new DeserializingException.CorruptStream(obj_class == null ? null : obj_class.getName()); }
 		case NULL:
 			return null;
@@ -432,72 +607,238 @@ public final class DeserializingStream extends FilterInputStream
 		}
 	}
 
-	private static final byte DIRECT = 0;
-	private static final byte REFERENCE = 1;
-	private static final byte NULL = 2;
-	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/**
+	 * Reads a single raw byte, see {@link InputStream#read()}.
+	 *
+	 * @return The byte or -1 at the end of the stream
+	 *
+	 * @throws IOException if the underlying stream throws an {@code
+	 *                     IOException}
+	 */
+	@Override public final int read() throws IOException
+	{
+		version();
+		if(buffer.hasRemaining())
+			return buffer.get() & 0xFF;
+		return in.read();
+	}
+
+	/**
+	 * Reads raw bytes, see {@link InputStream#read(byte[], int, int)}.
+	 *
+	 * @param b   The array to read into
+	 * @param off The index of the first byte to read
+	 * @param len The maximum number of bytes to read
+	 *
+	 * @return The number of bytes read or -1 at the end of the stream
+	 *
+	 * @throws IOException if the underlying stream throws an {@code
+	 *                     IOException}
+	 */
+	@Override public final int read(final byte[] b, final int off, final int len) throws IOException
+	{
+		if(len == 0)
+			return 0;
+		version();
+		if(!buffer.hasRemaining())
+			return in.read(b, off, len);
+
+		final int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override public final long skip(final long n) throws IOException
+	{
+		if(n <= 0)
+			return 0;
+		version();
+		if(!buffer.hasRemaining())
+			return in.skip(n);
+
+		final int s = (int)Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + s);
+		return s;
+	}
+
+	@Override public final int available() throws IOException
+	{
+		return buffer.remaining() + in.available();
+	}
+
+	@Override public final boolean markSupported()
+	{
+		return false;
+	}
+
+	private static final byte DIRECT = SerializingStream.DIRECT;
+	private static final byte REFERENCE = SerializingStream.REFERENCE;
+	private static final byte NULL = SerializingStream.NULL;
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final Class<?>[] NO_CLASSES = new Class<?>[0];
+
+	/**
+	 * Returned by {@link #readContent(Class, Class[]) readContent()} for
+	 * objects whose elements are still to be read.
+	 */
+	private static final Object PENDING = new Object();
 
 	private final Map<Integer, Class<?>> class_map;
 	private final Map<Integer, Object> object_map;
-	private final Map<Class<?>, Constructor<?>> constructor_cache;
-	private final Map<Class<?>, Method> static_cache;
-	private byte[] buffer;
+	private final ByteBuffer source;
+	private Sections sections;
+	private boolean sectioned;
+	private ByteBuffer buffer;
+	private int version;
+	private int objects;
+	private int header;
+	private int depth;
+	private int limit = Segment.FIRST_DEPTH;
+	private final Deque<Frame> work = new ArrayDeque<Frame>();
 
-	private final void read(final int len) throws IOException, DeserializingException
+	private final int version() throws IOException
 	{
-		while(buffer.length < len)
-			buffer = new byte[Integer.highestOneBit(len) << 1];
+		if(version == 0)
+		{
+			final int size = SerializingStream.MAGIC.length + 1;
+			load(size);
 
-		for(int r = 0, o = 0; (r = in.read(buffer, o, len - o)) > 0; o += r)
-			if(r == -1)
+			version = SerializingStream.VERSION_1;
+			final byte v = buffer.remaining() >= size ? buffer.get(buffer.position() + size - 1) : 0;
+			if((v & ~SerializingStream.SECTIONS) == SerializingStream.VERSION_2)
+			{
+				version = SerializingStream.VERSION_2;
+				for(int i = 0; i < SerializingStream.MAGIC.length; ++i)
+					if(buffer.get(buffer.position() + i) != SerializingStream.MAGIC[i])
+						version = SerializingStream.VERSION_1;
+				if(version != SerializingStream.VERSION_1)
+				{
+					buffer.position(buffer.position() + size);
+					sectioned = v != SerializingStream.VERSION_2;
+				}
+			}
+		}
+
+		return version;
+	}
+
+	/**
+	 * Reads the header of an object or a class, storing its id in {@code
+	 * header}, see {@link SerializingStream}.
+	 */
+	private final byte readHeader() throws IOException, DeserializingException
+	{
+		if(version() == SerializingStream.VERSION_1)
+		{
+			final byte tag = readByte();
+			if(tag == DIRECT || tag == REFERENCE)
+				header = readLength();
+			return tag;
+		}
+
+		final int v = readLength();
+		header = v - 2;
+		return v == 0 ? DIRECT : v == 1 ? NULL : REFERENCE;
+	}
+
+	private final int readLength() throws IOException, DeserializingException
+	{
+		if(version() == SerializingStream.VERSION_1)
+		{
+			require(4);
+			return buffer.getInt();
+		}
+
+		final int v = readVariable();
+		if(v < 0)
+			throw new DeserializingException.CorruptStream(null);
+		return v;
+	}
+
+	private final int readVariable() throws IOException, DeserializingException
+	{
+		int v = 0;
+		for(int shift = 0; shift < 35; shift += 7)
+		{
+			require(1);
+			final byte b = buffer.get();
+			v |= (b & 0x7F) << shift;
+			if(b >= 0)
+				return v;
+		}
+		throw new DeserializingException.CorruptStream(null);
+	}
+
+	private final void readFully(final byte[] a) throws IOException, DeserializingException
+	{
+		for(int o = 0, r; o < a.length; o += r)
+			if((r = read(a, o, a.length - o)) == -1)
 				throw new DeserializingException.CorruptStream(null);
 	}
 
-	private final Class<?> getClass(final String name) throws DeserializingException
+	private final void require(final int len) throws IOException, DeserializingException
 	{
-		try { return ClassLoader.getClass(name); }
-		catch(final ClassNotFoundException ex) { throw new DeserializingException.ClassNotFound(name); }
+		if(version == 0)
+			version();
+		if(buffer.remaining() < len)
+		{
+			load(len);
+			if(buffer.remaining() < len)
+				throw new DeserializingException.CorruptStream(null);
+		}
 	}
 
-	private final Constructor<?> getConstructor(final Class<?> c, final Class<?>... parameters) throws DeserializingException
+	/**
+	 * Tries to have at least {@code len} bytes in the buffer, stopping early
+	 * at the end of the stream.
+	 */
+	private final void load(final int len) throws IOException
 	{
-		if(!constructor_cache.containsKey(c))
+		if(buffer.capacity() < len)
 		{
-			Constructor<?> constructor = null;
-			try { constructor = c.getDeclaredConstructor(parameters); }
-			catch(final NoSuchMethodException ex) { throw new DeserializingException.ClassNotDeserializable(c.getName()); }
-			if(constructor != null)
-				constructor.setAccessible(true);
-			constructor_cache.put(c, constructor);
-
-			return constructor;
+			final ByteBuffer b = ByteBuffer.allocate(Integer.highestOneBit(len) << 1).order(ByteOrder.LITTLE_ENDIAN);
+			b.put(buffer);
+			buffer = b;
 		}
 		else
-			return constructor_cache.get(c);
+			buffer.compact();
+
+		for(int r; buffer.position() < len && (r = in.read(buffer.array(), buffer.position(), buffer.remaining())) != -1;)
+			buffer.position(buffer.position() + r);
+		buffer.flip();
 	}
 
-	private final Method getStaticMethod(final Class<?> c) throws DeserializingException
+	/**
+	 * @return The sections of this stream, reading the section table on the
+	 *         first call
+	 */
+	private final Sections sections() throws IOException, DeserializingException
 	{
-		if(!static_cache.containsKey(c))
+		if(sections == null)
 		{
-			Method method = null;
-			try { method = c.getDeclaredMethod("getDeserializedObject", DeserializingStream.class); }
-			catch(final NoSuchMethodException ex) { }
-			if(method != null)
-				method.setAccessible(true);
-			static_cache.put(c, method);
-
-			return method;
+			if(source == null)
+				throw new DeserializingException.CorruptStream(null);
+			sections = new Sections(source.duplicate(), object_map);
 		}
-		else
-			return static_cache.get(c);
+		return sections;
+	}
+
+	private final Class<?> getClass(final String name) throws DeserializingException
+	{
+		try { return ClassLoader.getClass(name); }
+		catch(final ClassNotFoundException ex) { throw new DeserializingException.ClassNotFound(name); }
+	}
+
+	private final Instantiator getConstructor(final Class<?> c, final Class<?>... parameters) throws DeserializingException
+	{
+		try { return Instantiator.getConstructor(c, parameters); }
+		catch(final NoSuchMethodException ex) { throw new DeserializingException.ClassNotDeserializable(c.getName()); }
 	}
 
-	private final Object newInstance(final Constructor<?> constructor, final Object... parameters) throws IOException, DeserializingException, InstantiationException
+	private final Object newInstance(final Instantiator instantiator, final Object... parameters) throws IOException, DeserializingException, InstantiationException
 	{
-		try { return constructor.newInstance(parameters); }
-		catch(final IllegalAccessException ex) { return null; } // will not happen
-		catch(final java.lang.InstantiationException ex) { throw new DeserializingException.ClassNotDeserializable(constructor.getDeclaringClass().getName()); }
+		try { return instantiator.newInstance(parameters); }
 		catch(final InvocationTargetException ex)
 		{
 			Throwable t = ex.getCause();
@@ -508,25 +849,242 @@ public final class DeserializingStream extends FilterInputStream
 			else if(t instanceof InstantiationException)
 				throw (InstantiationException)t;
 			else
-				throw new InstantiationException(constructor.getDeclaringClass().getName(), t);
+				throw new InstantiationException(instantiator.getDeclaringClass().getName(), t);
 		}
 	}
 
-	private final Object getObject(Method method) throws IOException, DeserializingException, InstantiationException
+	/**
+	 * The sections of a stream, read from the table at its end. All streams
+	 * reading sections of the same stream share their objects, which are
+	 * guarded by the {@code Sections}.
+	 */
+	static final class Sections
 	{
-		try { return method.invoke(null, this); }
-		catch(final IllegalAccessException ex) { return null; } // will not happen
-		catch(final InvocationTargetException ex)
+		Sections(final ByteBuffer source, final Map<Integer, Object> object_map) throws IOException, DeserializingException
 		{
-			Throwable t = ex.getCause();
-			if(t instanceof IOException)
-				throw (IOException)t;
-			else if(t instanceof DeserializingException)
-				throw (DeserializingException)t;
-			else if(t instanceof InstantiationException)
-				throw (InstantiationException)t;
+			this.source = source;
+			this.object_map = object_map;
+
+			if(source.limit() < 8)
+				throw new DeserializingException.CorruptStream(null);
+			final DeserializingStream in = new DeserializingStream(this, offset(source.order(ByteOrder.LITTLE_ENDIAN).getLong(source.limit() - 8)), 0);
+			final int count = in.readLength();
+			offsets = new int[count];
+			firsts = new int[count];
+			parents = new int[count];
+			deferred = new Deferred<?>[count];
+			read = new boolean[count];
+			for(int i = 0; i < count; ++i)
+			{
+				offsets[i] = offset(in.readLong());
+				firsts[i] = in.readLength();
+				parents[i] = in.readInteger();
+				if(parents[i] >= i || parents[i] < (i == 0 ? -1 : 0))
+					throw new DeserializingException.CorruptStream(null);
+			}
+			tail_offset = offset(in.readLong());
+			tail_first = in.readLength();
+		}
+
+		/**
+		 * @return The {@link Deferred} of a section, which is created when its
+		 *         index is read first. This happens while reading the stream or
+		 *         a section, which is already guarded, possibly on a {@link
+		 *         Segment} thread.
+		 */
+		@SuppressWarnings("unchecked")
+		final <T> Deferred<T> deferred(final int index, final Class<T> obj_class, final Class<?>[] deep_classes) throws DeserializingException
+		{
+			if(index <= 0 || index >= deferred.length)
+				throw new DeserializingException.CorruptStream(obj_class == null ? null : obj_class.getName());
+			if(deferred[index] == null)
+				deferred[index] = new Deferred<T>(this, index, obj_class, deep_classes);
+			return (Deferred<T>)deferred[index];
+		}
+
+		/**
+		 * Reads a section after the sections it was deferred from, if it was
+		 * not read yet.
+		 */
+		final synchronized void read(final int index) throws IOException, DeserializingException, InstantiationException
+		{
+			if(read[index])
+				return;
+			if(parents[index] >= 0)
+				read(parents[index]);
+
+			final Deferred<?> d = deferred[index];
+			if(index != 0 && d == null)
+				throw new DeserializingException.CorruptStream(null);
+
+			final DeserializingStream in = new DeserializingStream(this, offsets[index], firsts[index]);
+			in.readObject(Object[].class);
+			if(index == 0)
+				in.readObject();
+			else
+				d.set(in.readObject(d.obj_class, d.deep_classes));
+			read[index] = true;
+		}
+
+		/**
+		 * Reads all sections which were not read yet. A section is always
+		 * deferred from one with a lower index, so it is known when its turn
+		 * comes.
+		 */
+		final synchronized void readAll() throws IOException, DeserializingException, InstantiationException
+		{
+			for(int i = 0; i < read.length; ++i)
+				read(i);
+		}
+
+		private static final int offset(final long offset) throws DeserializingException
+		{
+			if(offset < 0 || offset > Integer.MAX_VALUE)
+				throw new DeserializingException.CorruptStream(null);
+			return (int)offset;
+		}
+
+		final ByteBuffer source;
+		final Map<Integer, Object> object_map;
+		final int tail_offset;
+		final int tail_first;
+
+		private final int[] offsets;
+		private final int[] firsts;
+		private final int[] parents;
+		private final Deferred<?>[] deferred;
+		private final boolean[] read;
+	}
+
+	/**
+	 * An {@link InputStream} reading from a {@link ByteBuffer}.
+	 */
+	private static final class BufferStream extends InputStream
+	{
+		BufferStream(final ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override public final int read()
+		{
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override public final int read(final byte[] b, final int off, final int len)
+		{
+			if(len == 0)
+				return 0;
+			if(!buffer.hasRemaining())
+				return -1;
+
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override public final long skip(final long n)
+		{
+			final int s = (int)Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + s);
+			return s;
+		}
+
+		@Override public final int available()
+		{
+			return buffer.remaining();
+		}
+
+		final ByteBuffer buffer;
+	}
+
+	/**
+	 * An array, a Collection or a Map whose elements are still to be read. It
+	 * is registered as an object not before all elements are read, like when
+	 * reading recursively.
+	 */
+	private final class Frame
+	{
+		/**
+		 * @param count the number of elements, twice the size for maps
+		 */
+		Frame(final int id, final Object object, final int count, final Class<?>[] deep_classes)
+		{
+			this.id = id;
+			this.object = object;
+			this.count = count;
+
+			if(deep_classes.length == 0)
+			{
+				key_class = null;
+				value_class = null;
+				key_classes = NO_CLASSES;
+				value_classes = NO_CLASSES;
+			}
+			else if(!(object instanceof Map))
+			{
+				key_class = deep_classes[0];
+				value_class = null;
+				key_classes = Arrays.copyOfRange(deep_classes, 1, deep_classes.length);
+				value_classes = null;
+			}
+			else if(deep_classes.length == 1)
+			{
+				key_class = deep_classes[0];
+				value_class = null;
+				key_classes = NO_CLASSES;
+				value_classes = NO_CLASSES;
+			}
+			else
+			{
+				key_class = deep_classes[0];
+				value_class = deep_classes[1];
+				key_classes = Arrays.copyOfRange(deep_classes, 2, deep_classes.length);
+				value_classes = key_classes;
+			}
+		}
+
+		/**
+		 * Reads the next element.
+		 *
+		 * @return The element, or {@link #PENDING} if a frame was pushed
+		 */
+		final Object next() throws IOException, DeserializingException, InstantiationException
+		{
+			if(object instanceof Map && (index & 1) != 0)
+				return readContent(value_class, value_classes);
+			return readContent(key_class, key_classes);
+		}
+
+		/**
+		 * Stores the element read last.
+		 */
+		@SuppressWarnings("unchecked")
+		final void add(final Object element)
+		{
+			if(object instanceof Object[])
+				((Object[])object)[index] = element;
+			else if(object instanceof Collection)
+				((Collection<Object>)object).add(element);
+			else if((index & 1) == 0)
+				key = element;
 			else
-				throw new InstantiationException(method.getDeclaringClass().getName(), t);
+			{
+				((Map<Object, Object>)object).put(key, element);
+				key = null;
+			}
+			++index;
 		}
+
+		final int id;
+		final Object object;
+		final int count;
+		int index;
+
+		private final Class<?> key_class;
+		private final Class<?> value_class;
+		private final Class<?>[] key_classes;
+		private final Class<?>[] value_classes;
+		private Object key;
 	}
 }
@@ -0,0 +1,122 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.misc.serial;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@code Segment} continues a deeply nested serialization or
+ * deserialization on a worker thread with a large stack. The streams handle
+ * arrays, Collections and Maps on an explicit work stack, so only {@link
+ * Serializable} objects, which write and read their children themselves,
+ * still nest on the stack. The streams count this nesting depth and start a
+ * new segment at {@link #FIRST_DEPTH} on the calling thread and every {@link
+ * #DEPTH} levels after that. The calling thread waits until the segment has
+ * finished.
+ * <p>
+ * The worker threads are kept for a while and reused, so a graph with many
+ * moderately deep branches does not start a thread for each of them. A
+ * segment nested in another one runs on a further worker, since the outer
+ * one is waiting.
+ * </p>
+ *
+ * @author torben
+ */
+abstract class Segment implements Runnable
+{
+	/**
+	 * The nesting depth allowed on the calling thread, whose remaining stack
+	 * size is unknown.
+	 */
+	static final int FIRST_DEPTH = 256;
+
+	/**
+	 * The nesting depth allowed on each segment thread.
+	 */
+	static final int DEPTH = 8192;
+
+	/**
+	 * Continues on the segment thread.
+	 *
+	 * @throws Exception if the serialization or deserialization fails
+	 */
+	abstract void call() throws Exception;
+
+	/**
+	 * Runs {@link #call() call()} on a worker thread and waits for it. An
+	 * interrupt while waiting is passed on after the segment has finished.
+	 *
+	 * @return The checked exception thrown by {@link #call() call()}, or null
+	 */
+	final Exception start()
+	{
+		final Future<?> future = WORKERS.submit(this);
+
+		boolean interrupted = false;
+		for(;;)
+			try
+			{
+				future.get();
+				break;
+			}
+			catch(final InterruptedException ex) { interrupted = true; }
+			catch(final ExecutionException ex) { throw new AssertionError(ex); } // run() catches everything
+		if(interrupted)
+			Thread.currentThread().interrupt();
+
+		if(error instanceof RuntimeException)
+			throw (RuntimeException)error;
+		else if(error instanceof Error)
+			throw (Error)error;
+		else
+			return (Exception)error;
+	}
+
+	@Override public final void run()
+	{
+		try { call(); }
+		catch(final Throwable t) { error = t; }
+	}
+
+	private static final long STACK_SIZE = 64L << 20;
+
+	/**
+	 * The workers, which are daemons, so an idle one never keeps the
+	 * application alive.
+	 */
+	private static final ExecutorService WORKERS = Executors.newCachedThreadPool(new ThreadFactory()
+	{
+		@Override public final Thread newThread(final Runnable r)
+		{
+			final Thread thread = new Thread(null, r, "Segment", STACK_SIZE);
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private Throwable error;
+}
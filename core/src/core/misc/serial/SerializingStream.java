@@ -26,11 +26,18 @@ import core.exception.SerializingException;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -43,6 +50,34 @@ import java.util.Map.Entry;
  * class information if the type is known at load time and by using class name
  * referencing. It is also faster than Java Serialization due to the lack of
  * reflection calls.
+ * <p>
+ * Since {@link #VERSION_2}, the stream starts with a header holding the
+ * version, integers, longs, lengths and references are written with a
+ * variable length and object and class ids are implied by their order, so a
+ * reference is a single number instead of a tag and a fixed size id. The
+ * data is staged in an internal buffer, so the stream has to be flushed or
+ * closed at the end. The {@link DeserializingStream} still reads streams of
+ * {@link #VERSION_1}, which have no header and fixed size numbers.
+ * </p>
+ * <p>
+ * The elements of arrays, Collections and Maps are written from an explicit
+ * work stack instead of recursively, so their nesting is only limited by the
+ * memory. {@link Serializable} objects write their children themselves,
+ * deeply nested ones are continued on reused worker threads with a large
+ * stack.
+ * </p>
+ * <p>
+ * A stream with sections writes the objects passed to {@link
+ * #writeDeferred(java.lang.Object, boolean[]) writeDeferred()} into sections
+ * of their own, which a {@link DeserializingStream} reading from a {@link
+ * java.nio.ByteBuffer} only inflates when they are accessed, see {@link
+ * Deferred}. A section may reference the objects of the sections it was
+ * deferred from, so it can be read once they are read. Objects which are
+ * shared by sections not deferred from each other are moved to their closest
+ * common section before, which {@link #writeSections() writeSections()}
+ * finds by writing the sections without output until nothing moves any more.
+ * The section table is written on {@link #close() close()}.
+ * </p>
  *
  * @see Serializable
  * @see DeserializingStream
@@ -51,20 +86,77 @@ import java.util.Map.Entry;
  */
 public final class SerializingStream extends FilterOutputStream
 {
+	/**
+	 * The original format without a header, writing every number with its
+	 * full size.
+	 */
+	public static final int VERSION_1 = 1;
+
+	/**
+	 * The current format, writing integers and longs zigzag encoded with 7
+	 * bits per byte.
+	 */
+	public static final int VERSION_2 = 2;
+
 	/**
 	 * Creates a new {@code SerializingStream} which writes to an {@link
-	 * OutputStream}.
+	 * OutputStream} in {@link #VERSION_2}.
 	 *
 	 * @param out The {@link OutputStream} to write to
 	 */
 	public SerializingStream(final OutputStream out)
+	{
+		this(out, VERSION_2);
+	}
+
+	/**
+	 * Creates a new {@code SerializingStream} which writes to an {@link
+	 * OutputStream}.
+	 *
+	 * @param out     The {@link OutputStream} to write to
+	 * @param version The format to write, {@link #VERSION_1} or {@link
+	 *                #VERSION_2}
+	 */
+	public SerializingStream(final OutputStream out, final int version)
 	{
 		super(out);
 
 		assert out != null;
+		assert version == VERSION_1 || version == VERSION_2;
 
+		this.version = version;
 		class_map = new HashMap<Class<?>, Integer>();
 		object_map = new IdentityHashMap<Object, Integer>();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		if(version != VERSION_1)
+		{
+			buffer.put(MAGIC);
+			buffer.put((byte)version);
+		}
+	}
+
+	/**
+	 * Creates a new {@code SerializingStream} which writes to an {@link
+	 * OutputStream} in {@link #VERSION_2}, with sections for the objects
+	 * passed to {@link #writeDeferred(java.lang.Object, boolean[])
+	 * writeDeferred()} if {@code sections} is true.
+	 *
+	 * @param out      The {@link OutputStream} to write to
+	 * @param sections true to write deferred objects into sections
+	 */
+	public SerializingStream(final OutputStream out, final boolean sections)
+	{
+		this(out, VERSION_2);
+
+		if(sections)
+		{
+			buffer.put(buffer.position() - 1, (byte)(VERSION_2 | SECTIONS));
+			this.sections = new ArrayList<Section>();
+			this.sections.add(new Section(0, null, null, null));
+			deferred = new IdentityHashMap<Object, Integer>();
+			hoisted = new IdentityHashMap<Object, Object>();
+		}
 	}
 
 	/**
@@ -77,7 +169,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeBoolean(final boolean b) throws IOException
 	{
-		out.write(b ? 1 : 0);
+		ensure(1);
+		buffer.put((byte)(b ? 1 : 0));
 	}
 
 	/**
@@ -90,7 +183,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeByte(final byte b) throws IOException
 	{
-		out.write(b);
+		ensure(1);
+		buffer.put(b);
 	}
 
 	/**
@@ -103,8 +197,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeShort(final short s) throws IOException
 	{
-		out.write(s);
-		out.write(s >> 8);
+		ensure(2);
+		buffer.putShort(s);
 	}
 
 	/**
@@ -117,8 +211,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeCharacter(final char c) throws IOException
 	{
-		out.write(c);
-		out.write(c >> 8);
+		ensure(2);
+		buffer.putChar(c);
 	}
 
 	/**
@@ -131,10 +225,13 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeInteger(final int i) throws IOException
 	{
-		out.write(i);
-		out.write(i >> 8);
-		out.write(i >> 16);
-		out.write(i >> 24);
+		if(version == VERSION_1)
+		{
+			ensure(4);
+			buffer.putInt(i);
+		}
+		else
+			writeVariable((i << 1) ^ (i >> 31));
 	}
 
 	/**
@@ -147,14 +244,19 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeLong(final long l) throws IOException
 	{
-		out.write((int)l);
-		out.write((int)(l >> 8));
-		out.write((int)(l >> 16));
-		out.write((int)(l >> 24));
-		out.write((int)(l >> 32));
-		out.write((int)(l >> 40));
-		out.write((int)(l >> 48));
-		out.write((int)(l >> 56));
+		if(version == VERSION_1)
+		{
+			ensure(8);
+			buffer.putLong(l);
+		}
+		else
+		{
+			long v = (l << 1) ^ (l >> 63);
+			ensure(10);
+			for(; (v & ~0x7FL) != 0; v >>>= 7)
+				buffer.put((byte)(v & 0x7F | 0x80));
+			buffer.put((byte)v);
+		}
 	}
 
 	/**
@@ -167,7 +269,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeFloat(final float f) throws IOException
 	{
-		writeInteger(Float.floatToRawIntBits(f));
+		ensure(4);
+		buffer.putInt(Float.floatToRawIntBits(f));
 	}
 
 	/**
@@ -180,7 +283,8 @@ public final class SerializingStream extends FilterOutputStream
 	 */
 	public final void writeDouble(final double d) throws IOException
 	{
-		writeLong(Double.doubleToRawLongBits(d));
+		ensure(8);
+		buffer.putLong(Double.doubleToRawLongBits(d));
 	}
 
 	/**
@@ -196,8 +300,8 @@ public final class SerializingStream extends FilterOutputStream
 		assert s != null;
 
 		final byte[] bytes = s.getBytes(UTF8);
-		writeInteger(bytes.length);
-		out.write(bytes);
+		writeLength(bytes.length);
+		write(bytes, 0, bytes.length);
 	}
 
 	/**
@@ -217,34 +321,330 @@ public final class SerializingStream extends FilterOutputStream
 	{
 		assert save_classes != null;
 
+		if(depth == limit)
+		{
+			final int outer_depth = depth;
+			final int outer_limit = limit;
+
+			final Exception ex = new Segment()
+			{
+				@Override final void call() throws Exception
+				{
+					depth = 0;
+					limit = Segment.DEPTH;
+					writeObject(obj, save_classes);
+				}
+			}.start();
+
+			depth = outer_depth;
+			limit = outer_limit;
+
+			if(ex instanceof IOException)
+				throw (IOException)ex;
+			else if(ex instanceof SerializingException)
+				throw (SerializingException)ex;
+			return;
+		}
+
+		++depth;
+		final int base = work.size();
+		try
+		{
+			writeContent(obj, save_classes);
+			while(work.size() > base)
+				work.peek().next();
+		}
+		finally
+		{
+			--depth;
+			while(work.size() > base)
+				work.pop();
+		}
+	}
+
+	/**
+	 * Writes an Object like {@link #writeObject(java.lang.Object, boolean[])
+	 * writeObject()}, but into a section of its own if this stream has
+	 * sections and {@link #writeSections() writeSections()} has not been
+	 * invoked yet. It has to be read with {@link
+	 * DeserializingStream#readDeferred(java.lang.Class, java.lang.Class[])
+	 * readDeferred()}.
+	 *
+	 * @param obj          The Object to write
+	 * @param save_classes true in the corresponding depth if the objects class
+	 *                     should be written, false otherwise
+	 *
+	 * @throws IOException          if the underlying stream throws an
+	 *                              {@code IOException}
+	 * @throws SerializingException if the object isn't serializable
+	 */
+	public final void writeDeferred(final Object obj, final boolean... save_classes) throws IOException, SerializingException
+	{
+		assert save_classes != null;
+
+		if(sections == null)
+		{
+			writeObject(obj, save_classes);
+			return;
+		}
+
+		Integer index = obj == null ? null : deferred.get(obj);
+		if(index == null)
+		{
+			// index 0 is the section of the moved objects, so it marks an
+			// object written in place
+			if(obj == null || tail || object_map.containsKey(obj))
+			{
+				writeLength(0);
+				writeObject(obj, save_classes);
+				return;
+			}
+
+			index = sections.size();
+			sections.add(new Section(index, obj, save_classes, current == null ? sections.get(0) : current));
+			deferred.put(obj, index);
+		}
+		writeLength(index);
+	}
+
+	/**
+	 * Writes the sections of all objects passed to {@link
+	 * #writeDeferred(java.lang.Object, boolean[]) writeDeferred()} so far,
+	 * including the ones deferred while writing them. The objects written
+	 * after this may reference all objects, they are read after all sections.
+	 * Does nothing if this stream has no sections or they were already
+	 * written.
+	 *
+	 * @throws IOException          if the underlying stream throws an
+	 *                              {@code IOException}
+	 * @throws SerializingException if an object isn't serializable
+	 */
+	public final void writeSections() throws IOException, SerializingException
+	{
+		if(sections == null || tail)
+			return;
+
+		drain();
+
+		final OutputStream target = out;
+		final long target_written = written;
+		final int deferred_count = sections.size();
+		final Map<Object, Integer> objects = new IdentityHashMap<Object, Integer>(object_map);
+		final Map<Object, Integer> indices = new IdentityHashMap<Object, Integer>(deferred);
+
+		// each dry pass moves the objects it found in the wrong section, the
+		// nesting of the sections may change with them
+		out = DISCARD;
+		try
+		{
+			do
+			{
+				moved = false;
+				object_map.clear();
+				object_map.putAll(objects);
+				deferred.clear();
+				deferred.putAll(indices);
+				sections.subList(deferred_count, sections.size()).clear();
+				written = target_written;
+
+				writeSectionContents(false);
+				drain();
+			}
+			while(moved);
+		}
+		finally
+		{
+			out = target;
+			written = target_written;
+			object_map.clear();
+			object_map.putAll(objects);
+			deferred.clear();
+			deferred.putAll(indices);
+			sections.subList(deferred_count, sections.size()).clear();
+		}
+
+		writeSectionContents(true);
+		current = null;
+		tail = true;
+		tail_offset = position();
+		tail_first = object_map.size();
+		class_map.clear();
+	}
+
+	/**
+	 * Writes the section table and closes the underlying stream. Sections
+	 * which were not written yet are written before.
+	 *
+	 * @throws IOException if the underlying stream throws an {@code
+	 *                     IOException} or a deferred object isn't
+	 *                     serializable
+	 */
+	@Override public final void close() throws IOException
+	{
+		try
+		{
+			if(sections != null && !closed)
+			{
+				closed = true;
+				try { writeSections(); }
+				catch(final SerializingException ex) { throw new IOException(ex); }
+
+				final long table = position();
+				writeLength(sections.size());
+				for(final Section s : sections)
+				{
+					writeLong(s.offset);
+					writeLength(s.first);
+					writeInteger(s.parent == null ? -1 : s.parent.index);
+				}
+				writeLong(tail_offset);
+				writeLength(tail_first);
+				ensure(8);
+				buffer.putLong(table);
+			}
+		}
+		finally
+		{
+			super.close();
+		}
+	}
+
+	/**
+	 * Writes every section with the objects moved into it first.
+	 *
+	 * @param strict true if this is not a dry pass, in which an object in the
+	 *               wrong section is an error
+	 */
+	private final void writeSectionContents(final boolean strict) throws IOException, SerializingException
+	{
+		final Map<Object, List<Object>> moved_objects = new IdentityHashMap<Object, List<Object>>();
+		for(final Entry<Object, Object> e : hoisted.entrySet())
+		{
+			List<Object> l = moved_objects.get(e.getValue());
+			if(l == null)
+				moved_objects.put(e.getValue(), l = new ArrayList<Object>());
+			l.add(e.getKey());
+		}
+
+		this.strict = strict;
+		for(int i = 0; i < sections.size(); ++i)
+		{
+			final Section s = sections.get(i);
+			current = s;
+			s.offset = position();
+			s.first = object_map.size();
+			class_map.clear();
+
+			final List<Object> l = moved_objects.get(s.key());
+			writeObject(l == null ? NO_OBJECTS : l.toArray(), false);
+			writeObject(s.object, s.classes);
+		}
+	}
+
+	/**
+	 * @return The section which has written the object with the given id, or
+	 *         null if it was written before the sections
+	 */
+	private final Section owner(final int id)
+	{
+		if(id < sections.get(0).first)
+			return null;
+
+		int low = 0;
+		int high = current.index;
+		while(low < high)
+		{
+			final int mid = (low + high + 1) >>> 1;
+			if(sections.get(mid).first <= id)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return sections.get(low);
+	}
+
+	/**
+	 * Checks whether an object written before may be referenced from the
+	 * current section, and moves it into the closest section common to both
+	 * otherwise.
+	 */
+	private final void check(final Object obj, final int id) throws SerializingException
+	{
+		final Section owner = owner(id);
+		if(owner == null || ancestor(owner))
+			return;
+
+		if(strict)
+			throw new SerializingException(obj);
+
+		// an object moved before is moved to a section common to all places
+		Section common = common(owner, current);
+		final Object previous = hoisted.get(obj);
+		final Integer index = previous == null ? null : deferred.get(previous);
+		if(previous instanceof Section)
+			common = (Section)previous;
+		else if(index != null && index < sections.size())
+			common = common(sections.get(index), common);
+		hoisted.put(obj, common.key());
+		moved = true;
+	}
+
+	/**
+	 * @return The closest section both sections were deferred from
+	 */
+	private static final Section common(Section a, final Section b)
+	{
+		for(;; a = a.parent)
+			for(Section s = b; s != null; s = s.parent)
+				if(s == a)
+					return a;
+	}
+
+	/**
+	 * @return true if the section is the current one or one it was deferred
+	 *         from
+	 */
+	private final boolean ancestor(final Section section)
+	{
+		for(Section s = current; s != null; s = s.parent)
+			if(s == section)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Writes an object, but pushes the elements of arrays, Collections and
+	 * Maps onto the work stack instead of writing them.
+	 */
+	private final void writeContent(final Object obj, final boolean... save_classes) throws IOException, SerializingException
+	{
+		final Integer id = obj == null ? null : object_map.get(obj);
+
 		if(obj == null)
-			writeByte(NULL);
-		else if(object_map.containsKey(obj))
+			writeHeader(NULL, 0);
+		else if(id != null)
 		{
-			writeByte(REFERENCE);
-			writeInteger(object_map.get(obj));
+			if(current != null)
+				check(obj, id);
+			writeHeader(REFERENCE, version == VERSION_1 ? id : object_map.size() - 1 - id);
 		}
 		else
 		{
 			final int i = object_map.size();
 			object_map.put(obj, i);
-			writeByte(DIRECT);
-			writeInteger(i);
+			writeHeader(DIRECT, i);
 
 			if(save_classes.length == 0 || save_classes[0])
 			{
 				final Class<?> c = obj.getClass();
-				if(class_map.containsKey(c))
-				{
-					writeByte(REFERENCE);
-					writeInteger(class_map.get(c));
-				}
+				final Integer class_id = class_map.get(c);
+				if(class_id != null)
+					writeHeader(REFERENCE, class_id);
 				else
 				{
 					final int j = class_map.size();
 					class_map.put(c, j);
-					writeByte(DIRECT);
-					writeInteger(j);
+					writeHeader(DIRECT, j);
 					writeString(c.getName());
 				}
 			}
@@ -252,71 +652,61 @@ public final class SerializingStream extends FilterOutputStream
 			if(obj instanceof Object[])
 			{
 				final Object[] a = (Object[])obj;
-				writeInteger(a.length);
-				if(save_classes.length == 0)
-					for(final Object o : a)
-						writeObject(o, true);
-				else
-				{
-					final boolean[] deep_save_class = new boolean[save_classes.length - 1];
-					System.arraycopy(save_classes, 1, deep_save_class, 0, deep_save_class.length);
-					for(final Object o : a)
-						writeObject(o, deep_save_class);
-				}
+				writeLength(a.length);
+				work.push(new Frame(Arrays.asList(a).iterator(), deeper(save_classes, 1), null));
 			}
 			else if(obj instanceof boolean[])
 			{
 				final boolean[] a = (boolean[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final boolean b : a)
 					writeBoolean(b);
 			}
 			else if(obj instanceof byte[])
 			{
 				final byte[] a = (byte[])obj;
-				writeInteger(a.length);
-				for(final byte b : a)
-					writeByte(b);
+				writeLength(a.length);
+				write(a, 0, a.length);
 			}
 			else if(obj instanceof short[])
 			{
 				final short[] a = (short[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final short s : a)
 					writeShort(s);
 			}
 			else if(obj instanceof char[])
 			{
 				final char[] a = (char[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final char c : a)
 					writeCharacter(c);
 			}
 			else if(obj instanceof int[])
 			{
 				final int[] a = (int[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final int in : a)
 					writeInteger(in);
 			}
 			else if(obj instanceof long[])
 			{
 				final long[] a = (long[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final long l : a)
 					writeLong(l);
 			}
 			else if(obj instanceof float[])
 			{
 				final float[] a = (float[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final float f : a)
 					writeFloat(f);
 			}
 			else if(obj instanceof double[])
 			{
 				final double[] a = (double[])obj;
-				writeInteger(a.length);
+				writeLength(a.length);
 				for(final double d : a)
 					writeDouble(d);
 			}
@@ -339,51 +729,21 @@ public final class SerializingStream extends FilterOutputStream
 			else if(obj instanceof String)
 				writeString((String)obj);
 			else if(obj instanceof Enum)
-				writeInteger(((Enum)obj).ordinal());
+				writeLength(((Enum)obj).ordinal());
 			else if(obj instanceof Collection)
 			{
-				final Collection c = (Collection)obj;
-				writeInteger(c.size());
-				if(save_classes.length == 0)
-					for(final Object o : c)
-						writeObject(o, true);
-				else
-				{
-					final boolean[] deep_save_class = new boolean[save_classes.length - 1];
-					System.arraycopy(save_classes, 1, deep_save_class, 0, deep_save_class.length);
-					for(final Object o : c)
-						writeObject(o, deep_save_class);
-				}
+				final Collection<?> c = (Collection<?>)obj;
+				writeLength(c.size());
+				work.push(new Frame(c.iterator(), deeper(save_classes, 1), null));
 			}
 			else if(obj instanceof Map)
 			{
-				final Map m = (Map)obj;
-				writeInteger(m.size());
-				if(save_classes.length == 0)
-					for(final Iterator j = m.entrySet().iterator(); j.hasNext();)
-					{
-						final Entry e = (Entry)j.next();
-						writeObject(e.getKey(), true);
-						writeObject(e.getValue(), true);
-					}
-				else if(save_classes.length == 1)
-					for(final Iterator j = m.entrySet().iterator(); j.hasNext();)
-					{
-						final Entry e = (Entry)j.next();
-						writeObject(e.getKey(), save_classes[1]);
-						writeObject(e.getValue(), true);
-					}
+				final Map<?, ?> m = (Map<?, ?>)obj;
+				writeLength(m.size());
+				if(save_classes.length < 2)
+					work.push(new Frame(m.entrySet().iterator(), SAVE_CLASS, SAVE_CLASS));
 				else
-				{
-					final boolean[] deep_save_class = new boolean[save_classes.length - 2];
-					System.arraycopy(save_classes, 2, deep_save_class, 0, deep_save_class.length);
-					for(final Iterator j = m.entrySet().iterator(); j.hasNext();)
-					{
-						final Entry e = (Entry)j.next();
-						writeObject(e.getKey(), save_classes[1]);
-						writeObject(e.getValue(), deep_save_class);
-					}
-				}
+					work.push(new Frame(m.entrySet().iterator(), new boolean[] {save_classes[1]}, deeper(save_classes, 2)));
 			}
 			else if(obj instanceof Serializable)
 				((Serializable)obj).serialize(this);
@@ -392,11 +752,245 @@ public final class SerializingStream extends FilterOutputStream
 		}
 	}
 
-	private static final byte DIRECT = 0;
-	private static final byte REFERENCE = 1;
-	private static final byte NULL = 2;
-	private static final Charset UTF8 = Charset.forName("UTF-8");
+	/**
+	 * Writes a single byte, see {@link OutputStream#write(int)}.
+	 *
+	 * @param b The byte
+	 *
+	 * @throws IOException if the underlying stream throws an
+	 *                     {@code IOException}
+	 */
+	@Override public final void write(final int b) throws IOException
+	{
+		ensure(1);
+		buffer.put((byte)b);
+	}
+
+	/**
+	 * Writes raw bytes, see {@link OutputStream#write(byte[], int, int)}.
+	 *
+	 * @param b   The bytes
+	 * @param off The index of the first byte to write
+	 * @param len The number of bytes to write
+	 *
+	 * @throws IOException if the underlying stream throws an
+	 *                     {@code IOException}
+	 */
+	@Override public final void write(final byte[] b, final int off, final int len) throws IOException
+	{
+		if(len > buffer.remaining())
+		{
+			drain();
+			if(len > buffer.capacity())
+			{
+				out.write(b, off, len);
+				written += len;
+				return;
+			}
+		}
+
+		buffer.put(b, off, len);
+	}
+
+	/**
+	 * Writes the buffered data and flushes the underlying stream.
+	 *
+	 * @throws IOException if the underlying stream throws an
+	 *                     {@code IOException}
+	 */
+	@Override public final void flush() throws IOException
+	{
+		drain();
+		out.flush();
+	}
 
+	static final byte DIRECT = 0;
+	static final byte REFERENCE = 1;
+	static final byte NULL = 2;
+	static final byte[] MAGIC = new byte[] {(byte)0xA5, 'J', 'S', 'S'};
+	static final byte SECTIONS = 0x40;
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final boolean[] SAVE_CLASS = new boolean[] {true};
+	private static final Object[] NO_OBJECTS = new Object[0];
+	private static final OutputStream DISCARD = new OutputStream()
+	{
+		@Override public final void write(final int b) { }
+
+		@Override public final void write(final byte[] b, final int off, final int len) { }
+	};
+
+	private final int version;
+	private int depth;
+	private int limit = Segment.FIRST_DEPTH;
+	private final Deque<Frame> work = new ArrayDeque<Frame>();
 	private final Map<Class<?>, Integer> class_map;
 	private final Map<Object, Integer> object_map;
+	private final ByteBuffer buffer;
+	private long written;
+
+	private List<Section> sections;
+	private Map<Object, Integer> deferred;
+	private Map<Object, Object> hoisted;
+	private Section current;
+	private boolean strict;
+	private boolean moved;
+	private boolean tail;
+	private boolean closed;
+	private long tail_offset;
+	private int tail_first;
+
+	/**
+	 * Writes the header of an object or a class. Since {@link #VERSION_2} it
+	 * is a single number, 0 for {@code DIRECT} with an id implied by the order,
+	 * 1 for {@code NULL} and the id plus 2 for a {@code REFERENCE}. Objects
+	 * are referenced by their distance to the last written object, which is
+	 * mostly small.
+	 */
+	private final void writeHeader(final byte tag, final int id) throws IOException
+	{
+		if(version == VERSION_1)
+		{
+			writeByte(tag);
+			if(tag != NULL)
+				writeLength(id);
+		}
+		else
+			writeVariable(tag == DIRECT ? 0 : tag == NULL ? 1 : id + 2);
+	}
+
+	/**
+	 * Writes a length or an id, which is never negative.
+	 */
+	private final void writeLength(final int n) throws IOException
+	{
+		if(version == VERSION_1)
+		{
+			ensure(4);
+			buffer.putInt(n);
+		}
+		else
+			writeVariable(n);
+	}
+
+	private final void writeVariable(int v) throws IOException
+	{
+		ensure(5);
+		for(; (v & ~0x7F) != 0; v >>>= 7)
+			buffer.put((byte)(v & 0x7F | 0x80));
+		buffer.put((byte)v);
+	}
+
+	private final void ensure(final int n) throws IOException
+	{
+		if(buffer.remaining() < n)
+			drain();
+	}
+
+	private final void drain() throws IOException
+	{
+		out.write(buffer.array(), 0, buffer.position());
+		written += buffer.position();
+		buffer.clear();
+	}
+
+	private final long position()
+	{
+		return written + buffer.position();
+	}
+
+	/**
+	 * @return The save classes of the children, which save their class if
+	 *         nothing was specified
+	 */
+	private static final boolean[] deeper(final boolean[] save_classes, final int skip)
+	{
+		if(save_classes.length == 0)
+			return SAVE_CLASS;
+		return Arrays.copyOfRange(save_classes, Math.min(skip, save_classes.length), save_classes.length);
+	}
+
+	/**
+	 * An object written into a section of its own.
+	 */
+	private static final class Section
+	{
+		/**
+		 * @param parent the section the object was deferred from, null for
+		 *               the first section, which holds the objects moved
+		 *               out of the sections deferred before the sections
+		 *               were written
+		 */
+		Section(final int index, final Object object, final boolean[] classes, final Section parent)
+		{
+			this.index = index;
+			this.object = object;
+			this.classes = classes == null ? SAVE_CLASS : classes.clone();
+			this.parent = parent;
+		}
+
+		/**
+		 * @return The identity of this section in all passes
+		 */
+		final Object key()
+		{
+			return parent == null ? this : object;
+		}
+
+		final int index;
+		final Object object;
+		final boolean[] classes;
+		final Section parent;
+		long offset;
+		int first;
+	}
+
+	/**
+	 * The elements of an array, a Collection or a Map still to be written.
+	 */
+	private final class Frame
+	{
+		/**
+		 * @param value_classes the save classes of the values if the elements
+		 *                      are map entries, otherwise null
+		 */
+		Frame(final Iterator<?> elements, final boolean[] classes, final boolean[] value_classes)
+		{
+			this.elements = elements;
+			this.classes = classes;
+			this.value_classes = value_classes;
+		}
+
+		/**
+		 * Writes the next element, or pops this frame if there is none.
+		 */
+		final void next() throws IOException, SerializingException
+		{
+			if(value_pending)
+			{
+				final Object v = value;
+				value = null;
+				value_pending = false;
+				writeContent(v, value_classes);
+			}
+			else if(!elements.hasNext())
+				work.pop();
+			else if(value_classes == null)
+				writeContent(elements.next(), classes);
+			else
+			{
+				final Entry<?, ?> e = (Entry<?, ?>)elements.next();
+				value = e.getValue();
+				value_pending = true;
+				writeContent(e.getKey(), classes);
+			}
+		}
+
+		private final Iterator<?> elements;
+		private final boolean[] classes;
+		private final boolean[] value_classes;
+		private Object value;
+		private boolean value_pending;
+	}
 }
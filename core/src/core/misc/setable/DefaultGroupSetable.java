@@ -29,6 +29,7 @@ import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
 import core.signal.Bit;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -37,7 +38,7 @@ import java.util.Map;
  *
  * @author lars
  */
-public final class DefaultGroupSetable implements GroupSetable, Serializable
+public final class DefaultGroupSetable implements GroupSetable, WordSetable, Serializable
 {
 	private final LinkedHashMap<String, Setable> group_map;
 
@@ -103,6 +104,21 @@ public final class DefaultGroupSetable implements GroupSetable, Serializable
 		}
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		Setables.getWords(group_map.values(), offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		Setables.setWords(group_map.values(), offset, src, length);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		Setables.setBytes(group_map.values(), offset, src);
+	}
+
 	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
 	{
 		out.writeObject(group_map, false, false);
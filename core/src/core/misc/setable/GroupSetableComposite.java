@@ -30,13 +30,14 @@ import core.build.Composite;
 import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
  *
  * @author lars
  */
-public abstract class GroupSetableComposite extends Composite implements GroupSetable
+public abstract class GroupSetableComposite extends Composite implements GroupSetable, WordSetable
 {
 	private final LinkedHashMap<String, Setable> group_map;
 
@@ -113,6 +114,21 @@ public abstract class GroupSetableComposite extends Composite implements GroupSe
 		}
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		Setables.getWords(group_map.values(), offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		Setables.setWords(group_map.values(), offset, src, length);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		Setables.setBytes(group_map.values(), offset, src);
+	}
+
 	@Override protected final void cleanup()
 	{
 		group_map.clear();
@@ -0,0 +1,309 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.misc.setable;
+
+import core.signal.Bit;
+import core.signal.Signal;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Bulk transfers of {@link Setable} bits, see {@link WordSetable} for the
+ * word layout. {@link WordSetable}s transfer the words themselves, every
+ * other {@link Setable} is accessed bit by bit.
+ *
+ * @author torben
+ */
+public final class Setables
+{
+	/**
+	 * Reads {@code dst.length * 64} bits.
+	 *
+	 * @param setable The {@link Setable} to read from
+	 * @param offset  The number of the first setable bit
+	 * @param dst     The words to fill
+	 */
+	public static final void getWords(final Setable setable, final long offset, final long[] dst)
+	{
+		getWords(setable, offset, dst, (long)dst.length * 64);
+	}
+
+	/**
+	 * @param setable The {@link Setable} to read from
+	 * @param offset  The number of the first setable bit
+	 * @param dst     The words to fill
+	 * @param length  The number of bits to read
+	 *
+	 * @see WordSetable#getWords(long, long[], long)
+	 */
+	public static final void getWords(final Setable setable, final long offset, final long[] dst, final long length)
+	{
+		assert setable != null;
+		assert offset >= 0;
+		assert length >= 0 && length <= (long)dst.length * 64;
+
+		if(setable instanceof WordSetable)
+			((WordSetable)setable).getWords(offset, dst, length);
+		else
+		{
+			clear(dst, length);
+
+			final long end = Math.min(offset + length, setable.getSetableCount());
+			for(long i = offset; i < end; ++i)
+				if(setable.getSetableBit((int)i) == Bit.H)
+					dst[(int)((i - offset) >>> 6)] |= 1L << (i - offset);
+		}
+	}
+
+	/**
+	 * Writes {@code src.length * 64} bits.
+	 *
+	 * @param setable The {@link Setable} to write to
+	 * @param offset  The number of the first setable bit
+	 * @param src     The words to write
+	 */
+	public static final void setWords(final Setable setable, final long offset, final long[] src)
+	{
+		setWords(setable, offset, src, (long)src.length * 64);
+	}
+
+	/**
+	 * @param setable The {@link Setable} to write to
+	 * @param offset  The number of the first setable bit
+	 * @param src     The words to write
+	 * @param length  The number of bits to write
+	 *
+	 * @see WordSetable#setWords(long, long[], long)
+	 */
+	public static final void setWords(final Setable setable, final long offset, final long[] src, final long length)
+	{
+		assert setable != null;
+		assert offset >= 0;
+		assert length >= 0 && length <= (long)src.length * 64;
+
+		if(setable instanceof WordSetable)
+			((WordSetable)setable).setWords(offset, src, length);
+		else
+		{
+			final long end = Math.min(offset + length, setable.getSetableCount());
+			for(long i = offset; i < end; ++i)
+				setable.setSetableBit((int)i, (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? Bit.H : Bit.L);
+		}
+	}
+
+	/**
+	 * @param setable The {@link Setable} to write to
+	 * @param offset  The number of the first setable bit
+	 * @param src     The bytes to write
+	 *
+	 * @see WordSetable#setBytes(long, java.nio.ByteBuffer)
+	 */
+	public static final void setBytes(final Setable setable, final long offset, final ByteBuffer src)
+	{
+		assert setable != null;
+		assert offset >= 0;
+
+		if(setable instanceof WordSetable)
+			((WordSetable)setable).setBytes(offset, src);
+		else
+			setWords(setable, offset, toWords(src), (long)src.remaining() * 8);
+	}
+
+	/**
+	 * Packs the remaining bytes of a buffer into words, without changing its
+	 * position.
+	 *
+	 * @param src The bytes to pack
+	 *
+	 * @return The words
+	 */
+	public static final long[] toWords(final ByteBuffer src)
+	{
+		final long[] words = new long[(src.remaining() + 7) / 8];
+		for(int i = 0; i < src.remaining(); ++i)
+			words[i >>> 3] |= (src.get(src.position() + i) & 0xFFL) << (i % 8 * 8);
+		return words;
+	}
+
+	/**
+	 * Copies {@code length} bits between two word arrays.
+	 *
+	 * @param src     The words to copy from
+	 * @param src_pos The number of the first bit to copy
+	 * @param dst     The words to copy to
+	 * @param dst_pos The number of the first bit to overwrite
+	 * @param length  The number of bits to copy
+	 */
+	public static final void copyBits(final long[] src, long src_pos, final long[] dst, long dst_pos, long length)
+	{
+		while(length > 0)
+		{
+			final int n = (int)Math.min(length, Math.min(64 - (src_pos & 63), 64 - (dst_pos & 63)));
+			final long mask = n == 64 ? -1L : (1L << n) - 1;
+			final int d = (int)(dst_pos & 63);
+			final int w = (int)(dst_pos >>> 6);
+
+			dst[w] = dst[w] & ~(mask << d) | (src[(int)(src_pos >>> 6)] >>> (src_pos & 63) & mask) << d;
+
+			src_pos += n;
+			dst_pos += n;
+			length -= n;
+		}
+	}
+
+	/**
+	 * Reads bits from {@link Signal}s of equal size, bit {@code i} of the
+	 * j'th {@link Signal} being the setable bit {@code j * size + i}.
+	 *
+	 * @see WordSetable#getWords(long, long[], long)
+	 */
+	public static final void getWords(final Signal[] words, final long offset, final long[] dst, final long length)
+	{
+		clear(dst, length);
+		if(words.length == 0)
+			return;
+
+		final int size = words[0].size();
+		final long end = Math.min(offset + length, (long)words.length * size);
+		for(long i = offset; i < end; ++i)
+			if(words[(int)(i / size)].compareBit((int)(i % size), Bit.H))
+				dst[(int)((i - offset) >>> 6)] |= 1L << (i - offset);
+	}
+
+	/**
+	 * Writes bits to {@link Signal}s of equal size, bit {@code i} of the j'th
+	 * {@link Signal} being the setable bit {@code j * size + i}.
+	 *
+	 * @see WordSetable#setWords(long, long[], long)
+	 */
+	public static final void setWords(final Signal[] words, final long offset, final long[] src, final long length)
+	{
+		if(words.length == 0)
+			return;
+
+		final int size = words[0].size();
+		final long end = Math.min(offset + length, (long)words.length * size);
+		for(long i = offset; i < end; ++i)
+			words[(int)(i / size)].setBit((int)(i % size), (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? Bit.H : Bit.L);
+	}
+
+	/**
+	 * Reads bits from {@link Setable}s concatenated in iteration order, like
+	 * the groups of a {@link GroupSetable}.
+	 *
+	 * @see WordSetable#getWords(long, long[], long)
+	 */
+	public static final void getWords(final Collection<? extends Setable> groups, final long offset, final long[] dst, final long length)
+	{
+		clear(dst, length);
+
+		long start = 0;
+		for(Setable s : groups)
+		{
+			final long count = s.getSetableCount();
+			final long lo = Math.max(offset, start);
+			final long hi = Math.min(offset + length, start + count);
+			if(lo < hi)
+			{
+				final long[] words = new long[(int)((hi - lo + 63) >>> 6)];
+				getWords(s, lo - start, words, hi - lo);
+				copyBits(words, 0, dst, lo - offset, hi - lo);
+			}
+			start += count;
+		}
+	}
+
+	/**
+	 * Writes bits to {@link Setable}s concatenated in iteration order, like
+	 * the groups of a {@link GroupSetable}.
+	 *
+	 * @see WordSetable#setWords(long, long[], long)
+	 */
+	public static final void setWords(final Collection<? extends Setable> groups, final long offset, final long[] src, final long length)
+	{
+		long start = 0;
+		for(Setable s : groups)
+		{
+			final long count = s.getSetableCount();
+			final long lo = Math.max(offset, start);
+			final long hi = Math.min(offset + length, start + count);
+			if(lo < hi)
+			{
+				final long[] words = new long[(int)((hi - lo + 63) >>> 6)];
+				copyBits(src, lo - offset, words, 0, hi - lo);
+				setWords(s, lo - start, words, hi - lo);
+			}
+			start += count;
+		}
+	}
+
+	/**
+	 * Writes bytes to {@link Setable}s concatenated in iteration order, like
+	 * the groups of a {@link GroupSetable}. {@link Setable}s starting at a
+	 * byte boundary of {@code src} get their bytes passed on unchanged.
+	 *
+	 * @see WordSetable#setBytes(long, java.nio.ByteBuffer)
+	 */
+	public static final void setBytes(final Collection<? extends Setable> groups, final long offset, final ByteBuffer src)
+	{
+		final long length = (long)src.remaining() * 8;
+
+		long[] words = null;
+		long start = 0;
+		for(Setable s : groups)
+		{
+			final long count = s.getSetableCount();
+			final long lo = Math.max(offset, start);
+			final long hi = Math.min(offset + length, start + count);
+			if(lo < hi)
+			{
+				if((lo - offset) % 8 == 0)
+				{
+					final ByteBuffer bytes = src.duplicate();
+					bytes.position(src.position() + (int)((lo - offset) / 8));
+					bytes.limit(bytes.position() + (int)((hi - lo + 7) / 8));
+					setBytes(s, lo - start, bytes);
+				}
+				else
+				{
+					if(words == null)
+						words = toWords(src);
+					final long[] part = new long[(int)((hi - lo + 63) >>> 6)];
+					copyBits(words, lo - offset, part, 0, hi - lo);
+					setWords(s, lo - start, part, hi - lo);
+				}
+			}
+			start += count;
+		}
+	}
+
+	private static final void clear(final long[] words, final long length)
+	{
+		for(int i = 0; i < (length + 63) >>> 6; ++i)
+			words[i] = 0;
+	}
+
+	private Setables()
+	{
+	}
+}
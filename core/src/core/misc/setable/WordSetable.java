@@ -0,0 +1,69 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.misc.setable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Setable} which can transfer many {@link core.signal.Bit}s at once.
+ * Bits are packed into words with the setable bit {@code offset + i} at bit
+ * {@code i % 64} of word {@code i / 64}, {@link core.signal.Bit#H H} being 1
+ * and every other {@link core.signal.Bit} 0. Bits outside of the setable
+ * range read as 0 and are ignored when written.
+ * <p>
+ * Use the methods of {@link Setables}, they fall back to single bits for
+ * plain {@link Setable}s.
+ * </p>
+ *
+ * @author torben
+ */
+public interface WordSetable extends Setable
+{
+	/**
+	 * Reads {@code length} bits into {@code dst}, clearing the remaining bits
+	 * of the last word.
+	 *
+	 * @param offset The number of the first setable bit
+	 * @param dst    The words to fill
+	 * @param length The number of bits to read
+	 */
+	public void getWords(long offset, long[] dst, long length);
+
+	/**
+	 * Writes {@code length} bits from {@code src}.
+	 *
+	 * @param offset The number of the first setable bit
+	 * @param src    The words to write
+	 * @param length The number of bits to write
+	 */
+	public void setWords(long offset, long[] src, long length);
+
+	/**
+	 * Writes the remaining bytes of {@code src} without changing its
+	 * position, the lowest bit of each byte first.
+	 *
+	 * @param offset The number of the first setable bit
+	 * @param src    The bytes to write
+	 */
+	public void setBytes(long offset, ByteBuffer src);
+}
@@ -0,0 +1,263 @@
+
+package core.misc.test;
+
+import core.build.Component;
+import core.build.ComponentCollection;
+import core.build.Environment;
+import core.build.Flavor;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static core.misc.BitConverter.*;
+
+/**
+ * The {@code EquivalenceChecker} checks that two flavors of a {@link
+ * Component} behave identically. Both flavors are built into one {@link
+ * Environment}, sharing their inputs, and every output of the first flavor is
+ * compared to the corresponding output of the second one after each
+ * simulation. If there are at most as many input combinations as vectors
+ * requested, all of them are driven in ascending order, otherwise random
+ * vectors from {@link TestSuite#predictableRandomBits(core.signal.Bit[])} are
+ * used. Like {@link TestSuite#assertEquals(java.lang.String, java.lang.Object,
+ * java.lang.Object)}, {@link Bit#Z Z} is treated as {@link Bit#L L}.
+ * <p>
+ * The vectors are split into consecutive chunks, each simulated by its own
+ * thread in its own {@link Environment}. Each chunk starts from a freshly
+ * built state. The first mismatch in vector order is reported as a failure
+ * of the {@link TestSuite}.
+ * </p>
+ *
+ * @author torben
+ */
+public final class EquivalenceChecker
+{
+	public EquivalenceChecker(TestSuite testsuite, Class<? extends Component> component, String first, String second)
+	{
+		this.testsuite = testsuite;
+		this.component = component;
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * Checks both flavors for equivalence.
+	 *
+	 * @param names      The names of the parameters, like in {@link
+	 *                   Component#useAndSet(java.lang.String,
+	 *                   java.lang.String[], java.lang.Object[])}
+	 * @param parameters The parameters, where {@link Signal}s and arrays of
+	 *                   {@link Signal}s only serve as templates for their
+	 *                   sizes
+	 * @param vectors    The maximum number of input vectors to simulate
+	 */
+	public final void check(String[] names, Object[] parameters, int vectors)
+	{
+		Flavor flavor = newInstance(null).getFlavors().get(first);
+		Set<String> inputs = flavor.getInputs().keySet();
+		Set<String> outputs = flavor.getOutputs().keySet();
+
+		int size = 0;
+		for(int i = 0; i < names.length; ++i)
+			if(inputs.contains(names[i]))
+				for(Signal s : signals(parameters[i]))
+					size += s.size();
+
+		final Bit[][] vector;
+		if(size < 31 && (1 << size) <= vectors)
+		{
+			vector = new Bit[1 << size][];
+			for(int i = 0; i < vector.length; ++i)
+				vector[i] = longToBits(size, i);
+		}
+		else
+		{
+			vector = new Bit[vectors][size];
+			for(int i = 0; i < vector.length; ++i)
+				testsuite.predictableRandomBits(vector[i]);
+		}
+
+		int count = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), vector.length / MIN_CHUNK));
+		Worker[] worker = new Worker[count];
+		Thread[] thread = new Thread[count];
+		for(int i = 0; i < count; ++i)
+		{
+			worker[i] = new Worker(names, parameters, inputs, outputs, vector, vector.length * i / count, vector.length * (i + 1) / count);
+			thread[i] = new Thread(worker[i]);
+			thread[i].start();
+		}
+
+		boolean interrupted = false;
+		for(int i = 0; i < count; ++i)
+			while(thread[i].isAlive())
+				try { thread[i].join(); }
+				catch(InterruptedException ex) { interrupted = true; }
+		if(interrupted)
+			Thread.currentThread().interrupt();
+
+		for(Worker w : worker)
+			if(w.error != null)
+				testsuite.fail(w.stage + " of " + component.getName() + " failed", w.error);
+
+		for(Worker w : worker)
+			if(w.mismatch != -1)
+			{
+				testsuite.assertEquals(w.check, w.expected, w.result);
+				break;
+			}
+	}
+
+	private static final int MIN_CHUNK = 64;
+
+	private final TestSuite testsuite;
+	private final Class<? extends Component> component;
+	private final String first;
+	private final String second;
+
+	private final class Worker implements Runnable
+	{
+		Worker(String[] names, Object[] parameters, Set<String> inputs, Set<String> outputs, Bit[][] vector, int start, int end)
+		{
+			this.names = names;
+			this.parameters = parameters;
+			this.inputs = inputs;
+			this.outputs = outputs;
+			this.vector = vector;
+			this.start = start;
+			this.end = end;
+			this.mismatch = -1;
+		}
+
+		@Override public final void run()
+		{
+			Environment environment = new Environment();
+			Object[] first_parameters = new Object[parameters.length];
+			Object[] second_parameters = new Object[parameters.length];
+			List<Signal> in = new ArrayList<Signal>();
+			List<Signal> first_out = new ArrayList<Signal>();
+			List<Signal> second_out = new ArrayList<Signal>();
+
+			for(int i = 0; i < names.length; ++i)
+			{
+				if(inputs.contains(names[i]))
+				{
+					first_parameters[i] = second_parameters[i] = copy(parameters[i]);
+					in.addAll(signals(first_parameters[i]));
+				}
+				else if(outputs.contains(names[i]))
+				{
+					first_parameters[i] = copy(parameters[i]);
+					second_parameters[i] = copy(parameters[i]);
+					first_out.addAll(signals(first_parameters[i]));
+					second_out.addAll(signals(second_parameters[i]));
+				}
+				else
+					first_parameters[i] = second_parameters[i] = parameters[i];
+			}
+
+			Simulator simulator;
+			try
+			{
+				newInstance(environment).useAndSet(first, names, first_parameters);
+				newInstance(environment).useAndSet(second, names, second_parameters);
+				simulator = environment.build();
+			}
+			catch(Throwable t)
+			{
+				stage = "Building";
+				error = t;
+				return;
+			}
+
+			try
+			{
+				for(int v = start; v < end; ++v)
+				{
+					for(int i = 0, k = 0; i < in.size(); ++i)
+						for(int j = 0; j < in.get(i).size(); ++j, ++k)
+							in.get(i).setBit(j, vector[v][k]);
+
+					simulator.doSimulation();
+
+					for(int i = 0; i < first_out.size(); ++i)
+						for(int j = 0; j < first_out.get(i).size(); ++j)
+							if(first_out.get(i).compareBit(j, Bit.H) != second_out.get(i).compareBit(j, Bit.H))
+							{
+								mismatch = v;
+								check = "Equivalence of " + first + " and " + second + " at vector " + v + " with inputs " + bitsToString(vector[v]) + ", output " + i;
+								expected = first_out.get(i).getBits();
+								result = second_out.get(i).getBits();
+								return;
+							}
+				}
+			}
+			catch(Throwable t)
+			{
+				stage = "Simulation";
+				error = t;
+			}
+			finally
+			{
+				simulator.shutdown();
+			}
+		}
+
+		private final String[] names;
+		private final Object[] parameters;
+		private final Set<String> inputs;
+		private final Set<String> outputs;
+		private final Bit[][] vector;
+		private final int start;
+		private final int end;
+
+		private String stage;
+		private Throwable error;
+		private int mismatch;
+		private String check;
+		private Bit[] expected;
+		private Bit[] result;
+	}
+
+	private final Component newInstance(ComponentCollection parent)
+	{
+		try { return component.getConstructor(ComponentCollection.class, String.class).newInstance(parent, "root:" + (parent == null ? 0 : parent.size())); }
+		catch(Exception ex)
+		{
+			testsuite.fail("Creation of " + component.getName() + " failed", ex);
+			return null;
+		}
+	}
+
+	private static final Object copy(Object template)
+	{
+		if(template instanceof Signal)
+			return new Signal(((Signal)template).size());
+		else if(template instanceof Signal[])
+		{
+			Signal[] t = (Signal[])template;
+			Signal[] c = new Signal[t.length];
+			for(int i = 0; i < t.length; ++i)
+				c[i] = new Signal(t[i].size());
+			return c;
+		}
+		else
+			return template;
+	}
+
+	private static final List<Signal> signals(Object parameter)
+	{
+		List<Signal> l = new ArrayList<Signal>();
+
+		if(parameter instanceof Signal)
+			l.add((Signal)parameter);
+		else if(parameter instanceof Signal[])
+			for(Signal s : (Signal[])parameter)
+				l.add(s);
+
+		return l;
+	}
+}
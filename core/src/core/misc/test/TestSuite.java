@@ -39,6 +39,11 @@ public final class TestSuite
 		assertEquals(check, expected, result, true, new int[0]);
 	}
 
+	final void fail(String message, Throwable cause)
+	{
+		throw new Failure(message, cause);
+	}
+
 	public final void predictableRandomSignal(Signal s)
 	{
 		predictableRandomSignal(s, 0, s.size());
@@ -3,9 +3,9 @@ package core.misc.test;
 
 import core.exception.ModuleException;
 import core.exception.InstantiationException;
+import core.misc.module.Instantiator;
 import core.misc.module.Module;
 import core.misc.module.ModuleHandler;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 public interface Testable
@@ -17,7 +17,7 @@ public interface Testable
 	 */
 	public static final class Extension extends Module<Testable> {
 
-		private final Constructor<? extends Testable> constructor;
+		private final Instantiator constructor;
 		private TestResult result;
 
 		private Extension(Class<? extends Testable> c) throws ModuleException {
@@ -26,8 +26,7 @@ public interface Testable
 			result = null;
 
 			try {
-				constructor = c.getDeclaredConstructor();
-				constructor.setAccessible(true);
+				constructor = Instantiator.getConstructor(c);
 			}
 			catch (NoSuchMethodException ex) {
 				throw new ModuleException(ex);
@@ -47,9 +46,7 @@ public interface Testable
 		 */
 		public final TestResult runTest(TestSuite testsuite) throws InstantiationException
 		{
-			try { return result = testsuite.runTest(constructor.newInstance()); }
-			catch (final java.lang.InstantiationException ex) { return null; } // will not happen
-			catch (final IllegalAccessException ex) { return null; } // will not happen
+			try { return result = testsuite.runTest((Testable)constructor.newInstance()); }
 			catch (final InvocationTargetException ex) { throw new InstantiationException(constructor.getDeclaringClass().getName(), ex.getCause()); }
 		}
 
@@ -30,6 +30,7 @@ import core.misc.serial.SerializingStream;
 import core.monitor.SignalBitListener;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -244,21 +245,24 @@ public final class SignalBit implements Serializable
 	 * this {@code SignalBit} changes. This method is thread-safe.
 	 *
 	 * @param listener The {@link SignalBitListener} to remove
+	 * @return {@code true} if the {@link SignalBitListener} was registered
 	 */
-	public final void removeSignalBitListener(final SignalBitListener listener)
+	public final boolean removeSignalBitListener(final SignalBitListener listener)
 	{
 		while(!lock.compareAndSet(false, true));
 
 		final SignalBitListener[] current_listeners = listeners;
-		final SignalBitListener[] new_listeners = new SignalBitListener[current_listeners.length - 1];
+		final SignalBitListener[] new_listeners = new SignalBitListener[current_listeners.length];
 		int i, j;
 		for(i = 0, j = 0; i < current_listeners.length; ++i)
 			if(current_listeners[i] != listener)
 				new_listeners[j++] = current_listeners[i];
 		if(j != i)
-			listeners = new_listeners;
+			listeners = Arrays.copyOf(new_listeners, j);
 
 		lock.set(false);
+
+		return j != i;
 	}
 
 	@Override public final void serialize(final SerializingStream out) throws IOException, SerializingException
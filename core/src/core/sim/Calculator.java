@@ -31,7 +31,7 @@ import core.misc.serial.SerializingStream;
 import core.monitor.CalculatorListener;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * The {@code Calculator} class is the supertype of all simulation primitives
@@ -102,7 +102,7 @@ public abstract class Calculator extends Component
 	{
 		assert listener != null;
 
-		while(!lock.compareAndSet(false, true));
+		while(!LOCK.compareAndSet(this, 0, 1));
 
 		outer:
 		{
@@ -117,7 +117,7 @@ public abstract class Calculator extends Component
 			listeners = new_listeners;
 		}
 
-		lock.set(false);
+		lock = 0;
 	}
 
 	/**
@@ -133,7 +133,7 @@ public abstract class Calculator extends Component
 	 */
 	@Override public final void removeCalculatorListener(final CalculatorListener listener)
 	{
-		while(!lock.compareAndSet(false, true));
+		while(!LOCK.compareAndSet(this, 0, 1));
 
 		final CalculatorListener[] current_listeners = listeners;
 		final CalculatorListener[] new_listeners = new CalculatorListener[current_listeners.length - 1];
@@ -144,7 +144,7 @@ public abstract class Calculator extends Component
 		if(j != i)
 			listeners = new_listeners;
 
-		lock.set(false);
+		lock = 0;
 	}
 
 	@Override public void serialize(final SerializingStream out) throws IOException, SerializingException
@@ -168,8 +168,7 @@ public abstract class Calculator extends Component
 	{
 		super(parent,name);
 
-		listeners = new CalculatorListener[0];
-		lock = new AtomicBoolean(false);
+		listeners = NO_LISTENERS;
 	}
 
 	/**
@@ -192,9 +191,11 @@ public abstract class Calculator extends Component
 		assert in != null;
 
 		listeners = in.readObject(CalculatorListener[].class);
-		lock = new AtomicBoolean(false);
 	}
 
+	private static final CalculatorListener[] NO_LISTENERS = new CalculatorListener[0];
+	private static final AtomicIntegerFieldUpdater<Calculator> LOCK = AtomicIntegerFieldUpdater.newUpdater(Calculator.class, "lock");
+
 	private volatile CalculatorListener[] listeners;
-	private final AtomicBoolean lock;
+	private volatile int lock;
 }
@@ -28,6 +28,8 @@ import core.exception.SerializingException;
 import core.misc.serial.Serializable;
 import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
+import core.misc.setable.Setable;
+import core.misc.setable.Setables;
 import core.monitor.SignalBitListener;
 import core.monitor.AnalyzeListener;
 import core.monitor.SimulationListener;
@@ -38,12 +40,15 @@ import core.signal.SignalBit;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
@@ -526,6 +531,159 @@ public final class Simulator implements SignalBitListener, Serializable
 		return Collections.unmodifiableSet(result);
 	}
 
+	/**
+	 * Takes a {@link Snapshot} of the current state, which consists of the
+	 * values of all {@link SignalBit}s the {@link Calculator}s read or write,
+	 * the set of scheduled {@link Calculator}s and the contents of {@link
+	 * Calculator}s which are {@link Setable}s. If a previous {@link Snapshot}
+	 * is given, only the difference to it is kept, unless its chain already
+	 * holds {@link Snapshot#CHAIN_LENGTH} {@link Snapshot}s. This method must
+	 * not be called while simulating.
+	 *
+	 * @param previous A {@link Snapshot} of this {@code Simulator} or null
+	 *
+	 * @return The new {@link Snapshot}
+	 */
+	public final Snapshot snapshot(final Snapshot previous)
+	{
+		prepareSnapshots();
+
+		final long[] values = new long[snapshot_length];
+
+		for(int i = 0; i < wires.length; ++i)
+			values[i >> 5] |= (long)wires[i].get().ordinal() << ((i & 31) << 1);
+
+		reschedule();
+		final int offset = (wires.length + 31) >> 5;
+		for(int i = 0; i < numbering.length; ++i)
+		{
+			final OrderedCalculator oc = numbering[i];
+			if(calculators[oc.priority][oc.group][oc.order][oc.number] != null)
+				values[offset + (i >> 6)] |= 1L << i;
+		}
+
+		for(int i = 0; i < setables.length; ++i)
+		{
+			final long[] words = new long[(setables[i].getSetableCount() + 63) >> 6];
+			Setables.getWords(setables[i], 0, words, setables[i].getSetableCount());
+			System.arraycopy(words, 0, values, setable_offsets[i], words.length);
+		}
+
+		if(previous != null && !previous.fits(wires.length, numbering.length, snapshot_length))
+			throw new IllegalArgumentException("snapshot of another simulator");
+
+		return new Snapshot(previous, wires.length, numbering.length, values);
+	}
+
+	/**
+	 * Invokes {@link #snapshot(core.sim.Snapshot) snapshot(null)}.
+	 *
+	 * @return The new {@link Snapshot}
+	 */
+	public final Snapshot snapshot()
+	{
+		return snapshot(null);
+	}
+
+	/**
+	 * Restores a {@link Snapshot} of this {@code Simulator} or of one
+	 * deserialized from it. Afterwards, exactly the {@link Calculator}s
+	 * scheduled at the time of the {@link Snapshot} and the readers of all
+	 * restored {@link SignalBit}s are scheduled, those scheduled before are
+	 * dropped. Values kept by the {@link Calculator}s
+	 * themselves, like the last clock value of a behavioral memory, are not
+	 * part of a {@link Snapshot}, so it should be restored in the same clock
+	 * phase it was taken in. This method must not be called while simulating.
+	 *
+	 * @param snapshot The {@link Snapshot} to restore
+	 *
+	 * @throws IllegalArgumentException if the {@link Snapshot} was taken from
+	 *                                  a different {@code Simulator}
+	 */
+	public final void restore(final Snapshot snapshot)
+	{
+		assert snapshot != null;
+
+		prepareSnapshots();
+
+		if(!snapshot.fits(wires.length, numbering.length, snapshot_length))
+			throw new IllegalArgumentException("snapshot of another simulator");
+
+		final long[] values = snapshot.values();
+
+		unschedule();
+
+		for(int i = 0; i < setables.length; ++i)
+		{
+			final long[] words = new long[(setables[i].getSetableCount() + 63) >> 6];
+			System.arraycopy(values, setable_offsets[i], words, 0, words.length);
+			Setables.setWords(setables[i], 0, words, setables[i].getSetableCount());
+		}
+
+		final Bit[] bits = Bit.values();
+		for(int i = 0; i < wires.length; ++i)
+			wires[i].set(bits[(int)(values[i >> 5] >>> ((i & 31) << 1)) & 3]);
+
+		final int offset = (wires.length + 31) >> 5;
+		for(int i = 0; i < numbering.length; ++i)
+			if((values[offset + (i >> 6)] & (1L << i)) != 0 && numbering[i].dirty.compareAndSet(false, true))
+				dirty_stack.set(dirty_count.getAndIncrement(), numbering[i]);
+	}
+
+	/**
+	 * Numbers all {@link Calculator}s by their position in the schedule and
+	 * all of their {@link SignalBit}s in the order they are declared, which
+	 * is kept by serializing.
+	 */
+	private final void prepareSnapshots()
+	{
+		if(numbering != null)
+			return;
+
+		final Set<OrderedCalculator> ocs = new HashSet<OrderedCalculator>();
+		for(final OrderedCalculator[] array : connections.values())
+			Collections.addAll(ocs, array);
+
+		final OrderedCalculator[] sorted = ocs.toArray(new OrderedCalculator[ocs.size()]);
+		Arrays.sort(sorted, new Comparator<OrderedCalculator>()
+		{
+			@Override public final int compare(final OrderedCalculator a, final OrderedCalculator b)
+			{
+				if(a.priority != b.priority)
+					return a.priority < b.priority ? -1 : 1;
+				if(a.group != b.group)
+					return a.group < b.group ? -1 : 1;
+				if(a.order != b.order)
+					return a.order < b.order ? -1 : 1;
+				return a.number < b.number ? -1 : (a.number == b.number ? 0 : 1);
+			}
+		});
+
+		final Set<SignalBit> bits = new LinkedHashSet<SignalBit>();
+		final List<Setable> setable_list = new ArrayList<Setable>();
+		for(final OrderedCalculator oc : sorted)
+		{
+			bits.addAll(oc.calculator.getInputSignalBits());
+			bits.addAll(oc.calculator.getOutputSignalBits());
+			if(oc.calculator instanceof Setable)
+				setable_list.add((Setable)oc.calculator);
+		}
+
+		wires = bits.toArray(new SignalBit[bits.size()]);
+		setables = setable_list.toArray(new Setable[setable_list.size()]);
+		setable_offsets = new int[setables.length];
+
+		int length = ((wires.length + 31) >> 5) + ((sorted.length + 63) >> 6);
+		for(int i = 0; i < setables.length; ++i)
+		{
+			setable_offsets[i] = length;
+			length += (setables[i].getSetableCount() + 63) >> 6;
+		}
+		snapshot_length = length;
+
+		numbering = sorted;
+	}
+
 	/**
 	 * Adds a {@link SimulationListener} to the registered listeners of this
 	 * {@code Simulator}. The {@link SimulationListener} is then notified via
@@ -1197,6 +1355,12 @@ public final class Simulator implements SignalBitListener, Serializable
 	private volatile SimulationListener[] listeners;
 	private final AtomicBoolean listener_lock;
 
+	private OrderedCalculator[] numbering;
+	private SignalBit[] wires;
+	private Setable[] setables;
+	private int[] setable_offsets;
+	private int snapshot_length;
+
 	@SuppressWarnings("unchecked")
 	private Simulator(final DeserializingStream in) throws IOException, DeserializingException, InstantiationException
 	{
@@ -1234,6 +1398,30 @@ public final class Simulator implements SignalBitListener, Serializable
 		listener_lock = new AtomicBoolean(false);
 	}
 
+	/**
+	 * Removes all {@link Calculator}s from the schedule.
+	 */
+	private final void unschedule()
+	{
+		reschedule();
+
+		int priority;
+		while((priority = priority_tree.min()) != -1)
+		{
+			for(int i = 0; i < calculators[priority].length; ++i)
+			{
+				final VBETree ot = order_tree[priority][i];
+				int order;
+				while((order = ot.min()) != -1)
+				{
+					ot.delete(order);
+					Arrays.fill(calculators[priority][i][order], null);
+				}
+			}
+			priority_tree.delete(priority);
+		}
+	}
+
 	private final void reschedule()
 	{
 		final int cnt = dirty_count.get();
@@ -0,0 +1,212 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of Jamog.                                               *
+ *                                                                           *
+ * Jamog is free software: you can redistribute it and/or modify             *
+ * it under the terms of the GNU General Public License as published by      *
+ * the Free Software Foundation; version 3.                                  *
+ *                                                                           *
+ * Jamog is distributed in the hope that it will be useful,                  *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of            *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the              *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with Jamog. If not, see <http://www.gnu.org/licenses/>.             *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+
+package core.sim;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.Serializable;
+import core.misc.serial.SerializingStream;
+
+import java.io.IOException;
+
+/**
+ * The {@code Snapshot} class holds the state of a {@link Simulator} as packed
+ * words: the value of every {@link core.signal.SignalBit SignalBit} with two
+ * bits each, one bit for each scheduled {@link Calculator} and the contents of
+ * all {@link Calculator}s which are {@link core.misc.setable.Setable
+ * Setable}s. A {@code Snapshot} may be taken relative to a previous one, in
+ * which case only the words differing from it are kept, as pairs of an index
+ * and the XOR of both words. Mostly unchanged states therefore take little
+ * memory, and zero words are left out when serializing. Every {@link
+ * #CHAIN_LENGTH}th {@code Snapshot} of a chain is a full one instead, so
+ * resolving, holding and serializing a {@code Snapshot} never involves more
+ * than {@link #CHAIN_LENGTH} others.
+ *
+ * @see Simulator#snapshot(core.sim.Snapshot)
+ * @see Simulator#restore(core.sim.Snapshot)
+ *
+ * @author torben
+ */
+public final class Snapshot implements Serializable
+{
+	/**
+	 * The maximum number of {@code Snapshot}s in a chain of relative ones,
+	 * including the full one it starts with.
+	 */
+	public static final int CHAIN_LENGTH = 16;
+
+	/**
+	 * @return The {@code Snapshot} this one is relative to, or {@code null}
+	 *         if it is a full one
+	 */
+	public final Snapshot getPrevious()
+	{
+		return previous;
+	}
+
+	@Override public final void serialize(final SerializingStream out) throws IOException, SerializingException
+	{
+		assert out != null;
+
+		out.writeObject(previous);
+		out.writeInteger(wires);
+		out.writeInteger(calculators);
+		out.writeInteger(size);
+
+		if(indices != null)
+		{
+			out.writeInteger(indices.length);
+			for(int i = 0, last = -1; i < indices.length; ++i)
+			{
+				out.writeInteger(indices[i] - last);
+				out.writeLong(words[i]);
+				last = indices[i];
+			}
+			return;
+		}
+
+		int count = 0;
+		for(final long w : words)
+			if(w != 0)
+				++count;
+		out.writeInteger(count);
+
+		for(int i = 0, last = -1; i < words.length; ++i)
+			if(words[i] != 0)
+			{
+				out.writeInteger(i - last);
+				out.writeLong(words[i]);
+				last = i;
+			}
+	}
+
+	Snapshot(final Snapshot previous, final int wires, final int calculators, final long[] values)
+	{
+		assert previous == null || previous.fits(wires, calculators, values.length);
+
+		this.previous = previous == null || previous.length == CHAIN_LENGTH ? null : previous;
+		this.length = this.previous == null ? 1 : previous.length + 1;
+		this.wires = wires;
+		this.calculators = calculators;
+		this.size = values.length;
+
+		if(this.previous == null)
+		{
+			indices = null;
+			words = values.clone();
+		}
+		else
+		{
+			final long[] previous_values = previous.values();
+			int count = 0;
+			for(int i = 0; i < values.length; ++i)
+				if(values[i] != previous_values[i])
+					++count;
+
+			indices = new int[count];
+			words = new long[count];
+			for(int i = 0, j = 0; i < values.length; ++i)
+				if(values[i] != previous_values[i])
+				{
+					indices[j] = i;
+					words[j++] = values[i] ^ previous_values[i];
+				}
+		}
+	}
+
+	final boolean fits(final int wires, final int calculators, final int length)
+	{
+		return this.wires == wires && this.calculators == calculators && size == length;
+	}
+
+	/**
+	 * @return The absolute state, resolved along all previous {@code
+	 *         Snapshot}s
+	 */
+	final long[] values()
+	{
+		Snapshot full = this;
+		while(full.previous != null)
+			full = full.previous;
+
+		final long[] values = full.words.clone();
+		for(Snapshot s = this; s != full; s = s.previous)
+			for(int i = 0; i < s.indices.length; ++i)
+				values[s.indices[i]] ^= s.words[i];
+		return values;
+	}
+
+	private final Snapshot previous;
+	private final int length;
+	private final int wires;
+	private final int calculators;
+	private final int size;
+
+	/**
+	 * The indices of the words kept by a relative {@code Snapshot}, in
+	 * ascending order, or {@code null} for a full one.
+	 */
+	private final int[] indices;
+
+	/**
+	 * All words of a full {@code Snapshot}, or the XOR with the previous
+	 * {@code Snapshot} of the words at {@link #indices}.
+	 */
+	private final long[] words;
+
+	private Snapshot(final DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		previous = in.readObject();
+		length = previous == null ? 1 : previous.length + 1;
+		wires = in.readInteger();
+		calculators = in.readInteger();
+		size = in.readInteger();
+
+		final int count = in.readInteger();
+		if(size < 0 || count < 0 || count > size)
+			throw new DeserializingException.CorruptStream(Snapshot.class.getName());
+
+		indices = previous == null ? null : new int[count];
+		words = new long[previous == null ? size : count];
+		for(int i = 0, last = -1; i < count; ++i)
+		{
+			final int step = in.readInteger();
+			if(step <= 0 || step > size - 1 - last)
+				throw new DeserializingException.CorruptStream(Snapshot.class.getName());
+			last += step;
+
+			if(indices == null)
+				words[last] = in.readLong();
+			else
+			{
+				indices[i] = last;
+				words[i] = in.readLong();
+			}
+		}
+
+		if(length > CHAIN_LENGTH || previous != null && !previous.fits(wires, calculators, size))
+			throw new DeserializingException.CorruptStream(Snapshot.class.getName());
+	}
+}
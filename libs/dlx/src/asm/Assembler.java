@@ -1,63 +1,126 @@
 
 package asm;
 
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Assembles DLX sources into opcodes by running them through the {@link
+ * Preprocessor}, {@link Scanner}, {@link Parser} and {@link CodeGenerator}.
+ * Errors are thrown as {@link AssemblerException}s, warnings are collected by
+ * the {@link ErrorHandler} of the last run.
+ */
 public final class Assembler
 {
-	public static final void main(String[] args)
+	/**
+	 * @param std_makros Whether the sources may use the makros of {@link
+	 *                   Preprocessor#STD_MAKROS}
+	 */
+	public Assembler(boolean std_makros)
 	{
-		// Get asm from whereever
-		//String source = "/* test /* c */ */ #def VALUE {80000} #def BLA2 #def IF (TEST INS) {add r0 r0 r0 add r0 r0 r0 beqz TEST __AUTO__[1] add r0 r0 r0 INS __AUTO__[1]: } #ifndef BLA {baddla: addi r3 r0 VALUE} sgti r5 r3 500 IF{r5}{lb r2 VALUE(r3)} // bla blub";
-		String source = " " + Preprocessor.STD_MAKROS + "IF r2 <= r5 {lb r6 100(r6)} ";
+		this.std_makros = std_makros;
+	}
+
+	public final int[] assemble(Reader reader) throws IOException, AssemblerException
+	{
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[8192];
+		for(int n; (n = reader.read(buffer)) != -1;)
+			sb.append(buffer, 0, n);
+
+		return assemble(sb.toString());
+	}
+
+	public final int[] assemble(String source) throws AssemblerException
+	{
+		// the preprocessor cannot expand a makro at the very first character
+		String prefix = std_makros ? " " + Preprocessor.STD_MAKROS : " ";
 
-		ErrorHandler eh = new ErrorHandler(source);
+		eh = new ErrorHandler(prefix + source);
+		symbols = new HashMap<String, Integer>();
+		source_map = new int[0];
 
 		List<Token> tokens = new ArrayList<Token>();
-		Map<String, Integer> labels = new HashMap<String, Integer>();
 		List<Instruction> instructions = new ArrayList<Instruction>();
-		List<Integer> opcodes = new ArrayList<Integer>();
 
-		try
+		String asm = Preprocessor.process(prefix + source, eh);
+		Scanner.scan(asm, tokens, symbols, eh);
+		Parser.parse(tokens, symbols, instructions, eh);
+
+		int[] opcodes = new int[instructions.size()];
+		source_map = new int[instructions.size()];
+		for(int i = 0; i < opcodes.length; ++i)
 		{
-			String asm = Preprocessor.process(source, eh);
+			opcodes[i] = CodeGenerator.generate(instructions.get(i));
+			source_map[i] = eh.getLine(instructions.get(i).mnemonic);
+		}
+
+		return opcodes;
+	}
+
+	/**
+	 * @return The instruction index of every label of the last run
+	 */
+	public final Map<String, Integer> getSymbols()
+	{
+		return Collections.unmodifiableMap(symbols);
+	}
 
-			System.out.println(">>>" + asm + "<<<");
+	/**
+	 * @return The source line of every instruction of the last run, starting
+	 *         with 1
+	 */
+	public final int[] getSourceMap()
+	{
+		return source_map.clone();
+	}
 
-			Scanner.scan(asm, tokens, labels, eh);
+	/**
+	 * @return The {@link ErrorHandler} of the last run, holding its warnings
+	 */
+	public final ErrorHandler getErrorHandler()
+	{
+		return eh;
+	}
 
-			System.out.println("Tokens:");
-			for(Token t : tokens)
-				System.out.println(t);
-			System.out.println("Labels:");
-			for(Map.Entry<String, Integer> e : labels.entrySet())
-				System.out.println(e.getKey() + ": " + e.getValue());
+	public static final void main(String[] args) throws IOException
+	{
+		Assembler assembler = new Assembler(true);
+		Reader reader = args.length != 0 ? new FileReader(args[0]) : new InputStreamReader(System.in);
 
-			Parser.parse(tokens, labels, instructions, eh);
+		int[] opcodes;
+		try
+		{
+			opcodes = assembler.assemble(reader);
 		}
 		catch(AssemblerException ae)
 		{
 			System.err.print("ERROR: " + ae.reason + "\n" + ae.place);
 			System.exit(1);
+			return;
 		}
-
-		for(Instruction i : instructions)
-			opcodes.add(CodeGenerator.generate(i));
-
-		// Write opcodes to whereever
-
-		if(eh.warnings.size() != 0)
+		finally
 		{
-			System.out.println("Warnings:");
-			for(String[] s : eh.warnings)
-				System.out.print("WARNING: " + s[0] + "\n" + s[1]);
+			reader.close();
 		}
 
-		System.out.println("Opcodes:");
-		for(Integer i : opcodes)
-			System.out.println("\t" + String.format("%08X", i));
+		for(String[] s : assembler.getErrorHandler().warnings)
+			System.err.print("WARNING: " + s[0] + "\n" + s[1]);
+
+		for(int opcode : opcodes)
+			System.out.println(String.format("%08X", opcode));
 	}
+
+	private final boolean std_makros;
+
+	private ErrorHandler eh;
+	private Map<String, Integer> symbols = new HashMap<String, Integer>();
+	private int[] source_map = new int[0];
 }
@@ -2,11 +2,8 @@
 package asm;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 public class ErrorHandler
 {
@@ -14,89 +11,109 @@ public class ErrorHandler
 	{
 		this.source = source;
 
-		reps = new HashMap<Integer, Range>();
-		tokens = new HashMap<Token, Range>();
+		positions = null;
+		tokens = new Token[64];
+		starts = new int[64];
+		ends = new int[64];
+		count = 0;
+		cursor = 0;
 		warnings = new ArrayList<String[]>();
+
+		int n = 1;
+		for(int i = 0; i < source.length(); ++i)
+			if(source.charAt(i) == '\n')
+				++n;
+		lines = new int[n];
+		for(int i = 0, l = 1; i < source.length(); ++i)
+			if(source.charAt(i) == '\n')
+				lines[l++] = i + 1;
 	}
 
-	public void registerReplace(int start_old, int end_old, int start_new, int end_new)
+	/**
+	 * Registers the source offset of every character of the preprocessed
+	 * source, characters inserted by a makro carry the offset of the makro
+	 * call.
+	 */
+	public void registerPositions(int[] positions)
 	{
-		for(int i = start_new; i < end_new; ++i)
-			reps.put(i, new Range(start_old, end_old));
+		this.positions = positions;
 	}
 
 	public void registerToken(Token t, int start, int end)
 	{
-		tokens.put(t, new Range(start, end));
+		if(count == tokens.length)
+		{
+			tokens = Arrays.copyOf(tokens, count * 2);
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+
+		tokens[count] = t;
+		starts[count] = start;
+		ends[count] = end;
+		++count;
 	}
 
 	public String forScanner(int start, int end)
 	{
-		Set<Range> ranges = new HashSet<Range>();
-
-		for(int i = start; i < end; ++i)
-			ranges.add(reps.get(i));
+		if(positions == null || start >= positions.length)
+			return getRange(Math.min(start, source.length()), Math.min(end, source.length()));
 
-		StringBuilder sb = new StringBuilder();
-		for(Range r : ranges)
-			if(r.start <= start && r.end >= end)
-				sb.append(getRange(start, end));
-			else
-				sb.append(getRange(r.start, r.end));
+		int s = positions[start];
+		int e = s;
+		for(int i = start; i < end && i < positions.length; ++i)
+		{
+			s = Math.min(s, positions[i]);
+			e = Math.max(e, positions[i]);
+		}
 
-		return sb.toString();
+		return getRange(s, Math.min(e + 1, source.length()));
 	}
 
 	public String forParser(Token t)
 	{
-		Range r = tokens.get(t);
-		return forScanner(r.start, r.end);
+		int i = find(t);
+		return i != -1 ? forScanner(starts[i], ends[i]) : "";
 	}
 
-	public void addWarning(String reason, String place)
+	/**
+	 * @return The line of the source the token was scanned from, starting
+	 *         with 1
+	 */
+	public int getLine(Token t)
 	{
-		warnings.add(new String[] {reason, place});
-	}
+		int i = find(t);
+		if(i == -1)
+			return 0;
 
-	private static final class Range
-	{
-		final int start;
-		final int end;
+		int p = starts[i];
+		if(positions != null && p < positions.length)
+			p = positions[p];
 
-		Range(int start, int end)
-		{
-			this.start = start;
-			this.end = end;
-		}
-
-		@Override public boolean equals(Object obj)
-		{
-			if(obj == null || !(obj instanceof Range))
-				return false;
-			Range r = (Range)obj;
-			return start == r.start && end == r.end;
-		}
+		return getLine(p);
+	}
 
-		@Override public int hashCode()
-		{
-			return start ^ end;
-		}
+	public void addWarning(String reason, String place)
+	{
+		warnings.add(new String[] {reason, place});
 	}
 
 	private final String source;
 
-	private final Map<Integer, Range> reps;
-	private final Map<Token, Range> tokens;
+	private final int[] lines;
+	private Token[] tokens;
+	private int[] starts;
+	private int[] ends;
+	private int count;
+	private int cursor;
+	private int[] positions;
 	public final List<String[]> warnings;
 
 	private String getRange(int start, int end)
 	{
 		StringBuilder sb = new StringBuilder("\tat line ");
 
-		int line = 1;
-		for(int i = 0; i < source.length() && i < start; ++i)
-			if(source.charAt(i) == '\n')
-				++line;
+		int line = getLine(start);
 
 		int so = start >= 5 ? 5 : start;
 		int eo = end <= source.length() - 5 ? 5 : source.length() - end;
@@ -116,4 +133,27 @@ public class ErrorHandler
 
 		return sb.toString();
 	}
+
+	private int getLine(int offset)
+	{
+		int line = Arrays.binarySearch(lines, offset);
+		return line >= 0 ? line + 1 : -line - 1;
+	}
+
+	/**
+	 * Tokens are registered in source order and mostly looked up near the
+	 * previous lookup, so the search starts from there instead of hashing
+	 * every token.
+	 */
+	private int find(Token t)
+	{
+		for(int i = cursor; i < count; ++i)
+			if(tokens[i] == t)
+				return cursor = i;
+		for(int i = Math.min(cursor, count) - 1; i >= 0; --i)
+			if(tokens[i] == t)
+				return cursor = i;
+
+		return -1;
+	}
 }
@@ -27,14 +27,13 @@ public final class Preprocessor
 
 	public static String process(String source, ErrorHandler eh) throws AssemblerException
 	{
-		eh.registerReplace(0, source.length(), 0, source.length());
-
 		ExtStringBuilder esb = new ExtStringBuilder();
-		for(char c : source.toCharArray())
-			esb.addAfter(c);
+		for(int i = 0; i < source.length(); ++i)
+			esb.addAfter(source.charAt(i), i);
 
 		Map<String, Makro> makros = new LinkedHashMap<String, Makro>();
 		int autogen = 0;
+		String firsts = "";
 
 		for(ExtStringBuilder.Entry e = esb.first; e != null;)
 		{
@@ -100,12 +99,14 @@ public final class Preprocessor
 					e = e.removeValue(value);
 
 					makros.put(id, new Makro(parameters, value.length() >= 2 && value.charAt(0) == '{' ? value.substring(1, value.length() - 1) : value.toString()));
+					firsts = firsts(makros);
 				}
 				else if(ins.equals("UNDEF"))
 				{
 					if(!makros.containsKey(id))
 						throw new AssemblerException("Makro " + id + " not defined", "");
 					makros.remove(id);
+					firsts = firsts(makros);
 				}
 				else if(ins.equals("IFDEF"))
 				{
@@ -133,13 +134,13 @@ public final class Preprocessor
 				switch(e.next.c)
 				{
 				case '/':
-					for(e.addBefore(' '), e = e.removeAfter().removeAfter(); e != null; e = e.removeAfter())
+					for(e.addBefore(' ', e.pos), e = e.removeAfter().removeAfter(); e != null; e = e.removeAfter())
 						if(e.c == '\n')
 							break;
 					break;
 				case '*':
 					int comment = 1;
-					outer: for(e.addBefore(' '), e = e.removeAfter().removeAfter(); e != null;)
+					outer: for(e.addBefore(' ', e.pos), e = e.removeAfter().removeAfter(); e != null;)
 					{
 						if(e.next == null)
 							throw new AssemblerException("Unexpected end of source", "");
@@ -164,45 +165,48 @@ public final class Preprocessor
 				}
 				break;
 			default:
-				for(Map.Entry<String, Makro> me : makros.entrySet())
-				{
-					String name = me.getKey();
-
-					if(e.startsWith(name))
+				// most characters cannot start a makro call, so skip matching them against every makro
+				if(firsts.indexOf(e.c) != -1)
+					for(Map.Entry<String, Makro> me : makros.entrySet())
 					{
-						Makro m = me.getValue();
-
-						for(int i = 0; i < name.length(); ++i)
-							e = e.removeAfter();
-
-						char[][] reps = new char[m.params][];
-						int i = 0;
-						for(; e != null && i < reps.length; ++i)
-						{
-							StringBuilder value = new StringBuilder();
-							e = e.removeValue(value);
-							reps[i] = (value.length() >= 2 && value.charAt(0) == '{' ? value.substring(1, value.length() - 1) : value.toString()).toCharArray();
-						}
-						for(; i < reps.length; ++i)
-							reps[i] = new char[0];
-
-						char[][] auto = new char[m.autoparams][];
-						for(i = 0; i < auto.length; ++i)
-							auto[i] = ("__AUTOGEN__" + autogen++).toCharArray();
+						String name = me.getKey();
 
-						for(e = e.prev, i = m.values[m.reps.length].length - 1; i >= 0; --i)
-							e.addAfter(m.values[m.reps.length][i]);
-						for(i = m.reps.length - 1; i >= 0; --i)
+						if(e.startsWith(name))
 						{
-							int r = m.reps[i];
-							char[] rep = r > 0 ? reps[r - 1] : auto[-r - 1];
-							for(int j = rep.length - 1; j >= 0; --j)
-								e.addAfter(rep[j]);
-							for(int j = m.values[i].length - 1; j >= 0; --j)
-								e.addAfter(m.values[i][j]);
+							Makro m = me.getValue();
+							int pos = e.pos;
+
+							for(int i = 0; i < name.length(); ++i)
+								e = e.removeAfter();
+
+							char[][] reps = new char[m.params][];
+							int i = 0;
+							for(; e != null && i < reps.length; ++i)
+							{
+								StringBuilder value = new StringBuilder();
+								e = e.removeValue(value);
+								reps[i] = (value.length() >= 2 && value.charAt(0) == '{' ? value.substring(1, value.length() - 1) : value.toString()).toCharArray();
+							}
+							for(; i < reps.length; ++i)
+								reps[i] = new char[0];
+
+							char[][] auto = new char[m.autoparams][];
+							for(i = 0; i < auto.length; ++i)
+								auto[i] = ("__AUTOGEN__" + autogen++).toCharArray();
+
+							for(e = e.prev, i = m.values[m.reps.length].length - 1; i >= 0; --i)
+								e.addAfter(m.values[m.reps.length][i], pos);
+							for(i = m.reps.length - 1; i >= 0; --i)
+							{
+								int r = m.reps[i];
+								char[] rep = r > 0 ? reps[r - 1] : auto[-r - 1];
+								for(int j = rep.length - 1; j >= 0; --j)
+									e.addAfter(rep[j], pos);
+								for(int j = m.values[i].length - 1; j >= 0; --j)
+									e.addAfter(m.values[i][j], pos);
+							}
 						}
 					}
-				}
 				e = e.next;
 			}
 		}
@@ -211,6 +215,22 @@ public final class Preprocessor
 		for(ExtStringBuilder.Entry e = esb.first; e != null; e = e.next)
 			sb.append(e.c);
 
+		int[] positions = new int[sb.length()];
+		int i = 0;
+		for(ExtStringBuilder.Entry e = esb.first; e != null; e = e.next)
+			positions[i++] = e.pos;
+		eh.registerPositions(positions);
+
+		return sb.toString();
+	}
+
+	private static final String firsts(Map<String, Makro> makros)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(String name : makros.keySet())
+			if(name.length() != 0 && sb.indexOf(name.substring(0, 1)) == -1)
+				sb.append(name.charAt(0));
+
 		return sb.toString();
 	}
 
@@ -221,17 +241,19 @@ public final class Preprocessor
 			Entry prev;
 			Entry next;
 			char c;
+			int pos;
 
-			Entry(Entry prev, Entry next, char c)
+			Entry(Entry prev, Entry next, char c, int pos)
 			{
 				this.prev = prev;
 				this.next = next;
 				this.c = c;
+				this.pos = pos;
 			}
 
-			void addBefore(char n)
+			void addBefore(char n, int p)
 			{
-				Entry e = new Entry(prev, this, n);
+				Entry e = new Entry(prev, this, n, p);
 				if(prev != null)
 					prev.next = e;
 				else
@@ -239,9 +261,9 @@ public final class Preprocessor
 				prev = e;
 			}
 
-			void addAfter(char n)
+			void addAfter(char n, int p)
 			{
-				Entry e = new Entry(this, next, n);
+				Entry e = new Entry(this, next, n, p);
 				if(next != null)
 					next.prev = e;
 				else
@@ -370,20 +392,20 @@ public final class Preprocessor
 			last = null;
 		}
 
-		void addBefore(char n)
+		void addBefore(char n, int p)
 		{
 			if(first == null)
-				first = last = new Entry(null, null, n);
+				first = last = new Entry(null, null, n, p);
 			else
-				first.addBefore(n);
+				first.addBefore(n, p);
 		}
 
-		void addAfter(char n)
+		void addAfter(char n, int p)
 		{
 			if(last == null)
-				first = last = new Entry(null, null, n);
+				first = last = new Entry(null, null, n, p);
 			else
-				last.addAfter(n);
+				last.addAfter(n, p);
 		}
 	}
 
@@ -17,7 +17,7 @@ public final class Scanner
 		while(m.find())
 		{
 			if(p != m.start())
-				throw new AssemblerException("Unrecognized token", asm.substring(p, m.start()));
+				throw new AssemblerException("Unrecognized token", eh.forScanner(p, m.start()));
 			p = m.end();
 
 			String s;
@@ -62,6 +62,11 @@ public final class Scanner
 				eh.registerToken(t, m.start(), m.end());
 			}
 		}
+
+		while(p < asm.length() && Character.isWhitespace(asm.charAt(p)))
+			++p;
+		if(p != asm.length())
+			throw new AssemblerException("Unrecognized token", eh.forScanner(p, asm.length()));
 	}
 
 	private static final Pattern pattern;
@@ -72,8 +77,8 @@ public final class Scanner
 		String nondec = "0x([0-9A-F]+)|0b([0-1]+)|0([0-7]+)";
 		String register = "R(3[0-1]|[1-2][0-9]|[0-9])";
 
-		String address = "(?:" + nondec + "|([1-9][0-9]*))\\(" + register + "\\)";
-		String immediate = "(?:" + nondec + "|(-?[1-9][0-9]*))";
+		String address = "(?:" + nondec + "|(0|[1-9][0-9]*))\\(" + register + "\\)";
+		String immediate = "(?:" + nondec + "|(0|-?[1-9][0-9]*))";
 		String instruction = "(L(?:BU?|H(?:U|I)?)|LW|S(?:B|H|W)|(?:ADD|SUB)(?:U?I)?|(?:MULT|DIV)U?|(?:AND|OR|XOR|SLL|SRL|SRA|S(?:LT|GT|LE|GE|EQ|NE))I?|BEQZ|BNEZ|J(?:AL)?R?|F(?:ADD|SUB|MULT|DIV|S(?:LT|GT|LE|GE|EQ|NE|INF)|C(?:ITF|FTI)))";
 
 		pattern = Pattern.compile("\\s*(?:" + address + "|" + register + "|" + immediate + "|(" + identifier + "):|" + instruction + "|(" + identifier + "))(?:\\s+|$)", Pattern.CASE_INSENSITIVE);
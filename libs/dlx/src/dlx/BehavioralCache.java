@@ -0,0 +1,302 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package dlx;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.SerializingStream;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link Cache}, see its "behavioral" flavor.
+ * The directory is held in arrays and updated on the rising edge of
+ * {@code clk}, taking the access from before the edge like the flipflops do.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Cache",
+	description	= "A set associative data cache directory for the DLX, computed by a single calculator."
+)
+public final class BehavioralCache extends Calculator
+{
+	public BehavioralCache(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralCache setAll(Signal clk, Signal address, Signal load, Signal store, Signal hit, Signal miss, Signal evict, Signal flush, int sets, int ways, int line, boolean write_back, boolean lru)
+	{
+		return (BehavioralCache)useAndSet(Flavor.DEFAULT, new String[] {"clk", "address", "load", "store", "hit", "miss", "evict", "flush", "sets", "ways", "line", "write_back", "lru"}, clk, address, load, store, hit, miss, evict, flush, sets, ways, line, write_back, lru);
+	}
+
+	@Override public final Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		Bit new_clk = clk.getBit(0);
+		if(new_clk == H && old_clk == L)
+			update(old_address, old_load, old_store);
+		old_clk = new_clk;
+
+		old_address = 0;
+		for(int i = 0; i < 32; ++i)
+			if(address.compareBit(i, H))
+				old_address |= 1 << i;
+		old_load = load.compareBit(0, H);
+		old_store = store.compareBit(0, H);
+
+		int set = set(old_address);
+		int way = lookup(old_address);
+		boolean access = old_load || old_store;
+		boolean allocate = access && way == -1 && (old_load || write_back);
+		int victim = victim(set);
+		boolean evicting = allocate && valid[set * ways + victim];
+
+		hit.getSignalBit(0).is(access && way != -1 ? H : L);
+		miss.getSignalBit(0).is(access && way == -1 ? H : L);
+		evict.getSignalBit(0).is(evicting ? H : L);
+		flush.getSignalBit(0).is(evicting && dirty[set * ways + victim] ? H : L);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(clk, false);
+		out.writeObject(address, false);
+		out.writeObject(load, false);
+		out.writeObject(store, false);
+		out.writeObject(hit, false);
+		out.writeObject(miss, false);
+		out.writeObject(evict, false);
+		out.writeObject(flush, false);
+		out.writeInteger(sets);
+		out.writeInteger(ways);
+		out.writeInteger(line);
+		out.writeBoolean(write_back);
+		out.writeBoolean(lru);
+		out.writeObject(tag, false);
+		out.writeObject(valid, false);
+		out.writeObject(dirty, false);
+		out.writeObject(age, false);
+		out.writeInteger(lfsr);
+		out.writeObject(old_clk, false);
+		out.writeInteger(old_address);
+		out.writeBoolean(old_load);
+		out.writeBoolean(old_store);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralCache>()
+			{
+				@Override public void build(BehavioralCache me, Map<String, Integer> variables)
+				{
+					me.clk = me.getSignal("clk");
+					me.address = me.getSignal("address");
+					me.load = me.getSignal("load");
+					me.store = me.getSignal("store");
+					me.hit = me.getSignal("hit");
+					me.miss = me.getSignal("miss");
+					me.evict = me.getSignal("evict");
+					me.flush = me.getSignal("flush");
+					me.sets = (Integer)me.get("sets");
+					me.ways = (Integer)me.get("ways");
+					me.line = (Integer)me.get("line");
+					me.write_back = (Boolean)me.get("write_back");
+					me.lru = (Boolean)me.get("lru") && me.ways > 1;
+
+					me.tag = new int[me.sets * me.ways];
+					me.valid = new boolean[me.sets * me.ways];
+					me.dirty = new boolean[me.sets * me.ways];
+					me.age = new int[me.sets * me.ways];
+					me.old_clk = me.clk.getBit(0);
+
+					for(Signal s : new Signal[] {me.address, me.load, me.store})
+						me.addPriority(me.clk, s);
+				}
+			},
+			"clk[1], address[32], load[1], store[1]",
+			"hit[1], miss[1], evict[1], flush[1]",
+			"int sets, int ways, int line, boolean write_back, boolean lru",
+			Cache.CONSTRAINT
+		)
+	);
+
+	private Signal clk;
+	private Signal address;
+	private Signal load;
+	private Signal store;
+	private Signal hit;
+	private Signal miss;
+	private Signal evict;
+	private Signal flush;
+
+	private int sets;
+	private int ways;
+	private int line;
+	private boolean write_back;
+	private boolean lru;
+
+	private int[] tag;
+	private boolean[] valid;
+	private boolean[] dirty;
+	private int[] age;
+	private int lfsr;
+
+	private Bit old_clk;
+	private int old_address;
+	private boolean old_load;
+	private boolean old_store;
+
+	private BehavioralCache(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		clk = in.readObject(Signal.class);
+		address = in.readObject(Signal.class);
+		load = in.readObject(Signal.class);
+		store = in.readObject(Signal.class);
+		hit = in.readObject(Signal.class);
+		miss = in.readObject(Signal.class);
+		evict = in.readObject(Signal.class);
+		flush = in.readObject(Signal.class);
+		sets = in.readInteger();
+		ways = in.readInteger();
+		line = in.readInteger();
+		write_back = in.readBoolean();
+		lru = in.readBoolean();
+		tag = in.readObject(int[].class);
+		valid = in.readObject(boolean[].class);
+		dirty = in.readObject(boolean[].class);
+		age = in.readObject(int[].class);
+		lfsr = in.readInteger();
+		old_clk = in.readObject(Bit.class);
+		old_address = in.readInteger();
+		old_load = in.readBoolean();
+		old_store = in.readBoolean();
+	}
+
+	private final int set(int address)
+	{
+		return (address >>> Cache.log(line)) & (sets - 1);
+	}
+
+	/**
+	 * @return The way holding the line of {@code address}, or -1 if none does
+	 */
+	private final int lookup(int address)
+	{
+		int set = set(address);
+		int t = address >>> (Cache.log(line) + Cache.log(sets));
+
+		for(int w = 0; w < ways; ++w)
+			if(valid[set * ways + w] && tag[set * ways + w] == t)
+				return w;
+
+		return -1;
+	}
+
+	/**
+	 * @return The way a missing line is put into
+	 */
+	private final int victim(int set)
+	{
+		for(int w = 0; w < ways; ++w)
+			if(!valid[set * ways + w])
+				return w;
+
+		if(lru)
+		{
+			for(int w = 0; w < ways; ++w)
+				if(age[set * ways + w] == ways - 1)
+					return w;
+			return 0;
+		}
+		else
+			return lfsr & (ways - 1);
+	}
+
+	private final void update(int address, boolean load, boolean store)
+	{
+		if(!load && !store)
+			return;
+
+		int set = set(address);
+		int way = lookup(address);
+		int base = set * ways;
+
+		if(way == -1)
+		{
+			if(!load && !write_back)
+				return;
+
+			way = victim(set);
+			if(valid[base + way] && !lru && ways > 1)
+			{
+				// the 16 bit linear feedback shift register with the taps 16, 15, 13 and 4
+				int feedback = ~((lfsr >>> 15) ^ (lfsr >>> 14) ^ (lfsr >>> 12) ^ (lfsr >>> 3)) & 1;
+				lfsr = (lfsr << 1 | feedback) & 0xFFFF;
+			}
+			age(base, way);
+			tag[base + way] = address >>> (Cache.log(line) + Cache.log(sets));
+			valid[base + way] = true;
+			dirty[base + way] = store && write_back;
+		}
+		else
+		{
+			age(base, way);
+			if(store && write_back)
+				dirty[base + way] = true;
+		}
+	}
+
+	/**
+	 * Makes a way the most recently used of its set.
+	 */
+	private final void age(int base, int way)
+	{
+		if(!lru)
+			return;
+
+		for(int w = 0; w < ways; ++w)
+			if(w != way && valid[base + w] && (age[base + w] < age[base + way] || !valid[base + way]))
+				age[base + w] = (age[base + w] + 1) & (ways - 1);
+		age[base + way] = 0;
+	}
+}
@@ -0,0 +1,335 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package dlx;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
+import core.misc.serial.Serializable;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link RegisterFile}, see its "behavioral"
+ * flavor. The registers are held in an {@code int[32]} and written on the
+ * falling edge of {@code clk}, taking the values from before the edge like
+ * the flipflops do.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Register File",
+	description	= "The register file of the DLX, computed by a single calculator."
+)
+public final class BehavioralRegisterFile extends Calculator implements GroupSetable, WordSetable
+{
+	public BehavioralRegisterFile(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+
+		createGroups();
+	}
+
+	public final BehavioralRegisterFile setAll(Signal clk, Signal[] write, Signal[] write_en, Signal[] write31, Signal[] write31_en, Signal[] read)
+	{
+		return (BehavioralRegisterFile)useAndSet(Flavor.DEFAULT, new String[] {"clk", "write", "write_en", "write31", "write31_en", "read"}, clk, write, write_en, write31, write31_en, read);
+	}
+
+	@Override public final Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		Bit new_clk = clk.getBit(0);
+		if(new_clk == L && old_clk == H)
+			for(int i = 1; i < 32; ++i)
+				if((pending_en & (1 << i)) != 0)
+				{
+					register[i] = pending[i];
+					update(i);
+				}
+		old_clk = new_clk;
+
+		pending_en = 0;
+		for(int i = 1; i < 31; ++i)
+			if(write_en[i].compareBit(0, H))
+			{
+				pending_en |= 1 << i;
+				pending[i] = toInt(write[i]);
+			}
+		if(write31_en[0].compareBit(0, H) || write31_en[1].compareBit(0, H))
+		{
+			pending_en |= 1 << 31;
+			pending[31] = toInt(write31[write31_en[0].compareBit(0, H) ? 0 : 1]);
+		}
+	}
+
+	@Override public final Map<String, ? extends Setable> getSetableGroups()
+	{
+		return Collections.unmodifiableMap(groups);
+	}
+
+	@Override public final Setable getSetableGroup(String name)
+	{
+		return groups.get(name);
+	}
+
+	@Override public final int getSetableCount()
+	{
+		return 31 * 32;
+	}
+
+	@Override public final Bit getSetableBit(int i)
+	{
+		return (register[i / 32 + 1] & (1 << (i % 32))) != 0 ? H : L;
+	}
+
+	@Override public final void setSetableBit(int i, Bit v)
+	{
+		int r = i / 32 + 1;
+
+		if(v == H)
+			register[r] |= 1 << (i % 32);
+		else
+			register[r] &= ~(1 << (i % 32));
+		read[r].getSignalBit(i % 32).is(v == H ? H : L);
+	}
+
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		for(int i = 0; i < (length + 63) >>> 6; ++i)
+			dst[i] = 0;
+
+		final long[] word = new long[1];
+		final long end = Math.min(offset + length, getSetableCount());
+		for(long i = offset; i < end;)
+		{
+			final int n = (int)Math.min(32 - i % 32, end - i);
+
+			word[0] = register[(int)(i / 32) + 1] & 0xFFFFFFFFL;
+			Setables.copyBits(word, i % 32, dst, i - offset, n);
+
+			i += n;
+		}
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		final long[] word = new long[1];
+		final long end = Math.min(offset + length, getSetableCount());
+		for(long i = offset; i < end;)
+		{
+			final int r = (int)(i / 32) + 1;
+			final int n = (int)Math.min(32 - i % 32, end - i);
+
+			word[0] = register[r] & 0xFFFFFFFFL;
+			Setables.copyBits(src, i - offset, word, i % 32, n);
+			register[r] = (int)word[0];
+			update(r);
+
+			i += n;
+		}
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(clk, false);
+		out.writeObject(write, false, false);
+		out.writeObject(write_en, false, false);
+		out.writeObject(write31, false, false);
+		out.writeObject(write31_en, false, false);
+		out.writeObject(read, false, false);
+		out.writeObject(register, false);
+		out.writeObject(pending, false);
+		out.writeInteger(pending_en);
+		out.writeObject(old_clk, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralRegisterFile>()
+			{
+				@Override public void build(BehavioralRegisterFile me, Map<String, Integer> variables)
+				{
+					me.clk = me.getSignal("clk");
+					me.write = (Signal[])me.get("write");
+					me.write_en = (Signal[])me.get("write_en");
+					me.write31 = (Signal[])me.get("write31");
+					me.write31_en = (Signal[])me.get("write31_en");
+					me.read = (Signal[])me.get("read");
+
+					me.register = new int[32];
+					me.pending = new int[32];
+					me.pending_en = 0;
+					me.old_clk = me.clk.getBit(0);
+
+					for(int i = 0; i < 32; ++i)
+						me.update(i);
+				}
+			},
+			"clk[1], write[31][32], write_en[31][1], write31[2][32], write31_en[2][1]",
+			"read[32][32]"
+		)
+	);
+
+	private Signal clk;
+	private Signal[] write;
+	private Signal[] write_en;
+	private Signal[] write31;
+	private Signal[] write31_en;
+	private Signal[] read;
+
+	private int[] register;
+	private int[] pending;
+	private int pending_en;
+	private Bit old_clk;
+
+	private Map<String, Setable> groups;
+
+	private BehavioralRegisterFile(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		clk = in.readObject(Signal.class);
+		write = in.readObject(Signal[].class, Signal.class);
+		write_en = in.readObject(Signal[].class, Signal.class);
+		write31 = in.readObject(Signal[].class, Signal.class);
+		write31_en = in.readObject(Signal[].class, Signal.class);
+		read = in.readObject(Signal[].class, Signal.class);
+		register = in.readObject(int[].class);
+		pending = in.readObject(int[].class);
+		pending_en = in.readInteger();
+		old_clk = in.readObject(Bit.class);
+
+		createGroups();
+	}
+
+	private final void createGroups()
+	{
+		groups = new LinkedHashMap<String, Setable>();
+		for(int i = 1; i < 32; ++i)
+			groups.put("register " + i, new Register(this, i));
+	}
+
+	private final void update(int i)
+	{
+		for(int j = 0; j < 32; ++j)
+			read[i].getSignalBit(j).is((register[i] & (1 << j)) != 0 ? H : L);
+	}
+
+	private static final int toInt(Signal s)
+	{
+		int v = 0;
+		for(int j = 0; j < 32; ++j)
+			if(s.compareBit(j, H))
+				v |= 1 << j;
+		return v;
+	}
+
+	/**
+	 * The {@link Setable} of a single register, used for the groups.
+	 */
+	private static final class Register implements WordSetable, Serializable
+	{
+		private final BehavioralRegisterFile file;
+		private final int index;
+
+		Register(BehavioralRegisterFile file, int index)
+		{
+			this.file = file;
+			this.index = index;
+		}
+
+		private Register(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+		{
+			file = in.readObject(BehavioralRegisterFile.class);
+			index = in.readInteger();
+		}
+
+		@Override public final int getSetableCount()
+		{
+			return 32;
+		}
+
+		@Override public final Bit getSetableBit(int i)
+		{
+			return file.getSetableBit((index - 1) * 32 + i);
+		}
+
+		@Override public final void setSetableBit(int i, Bit v)
+		{
+			file.setSetableBit((index - 1) * 32 + i, v);
+		}
+
+		@Override public final void getWords(long offset, long[] dst, long length)
+		{
+			for(int i = 0; i < (length + 63) >>> 6; ++i)
+				dst[i] = 0;
+
+			file.getWords((index - 1) * 32 + offset, dst, Math.max(0, Math.min(length, 32 - offset)));
+		}
+
+		@Override public final void setWords(long offset, long[] src, long length)
+		{
+			file.setWords((index - 1) * 32 + offset, src, Math.max(0, Math.min(length, 32 - offset)));
+		}
+
+		@Override public final void setBytes(long offset, ByteBuffer src)
+		{
+			setWords(offset, Setables.toWords(src), Math.min((long)src.remaining() * 8, 32));
+		}
+
+		@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+		{
+			out.writeObject(file);
+			out.writeInteger(index);
+		}
+	}
+}
@@ -0,0 +1,437 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package dlx;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.SerializingStream;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.build.Composite;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import std.convert.BinaryDecoder;
+import std.flipflop.GatedDFlipFlop;
+import std.gate.*;
+import std.logic.Forward;
+import std.logic.Mapping;
+import std.mux.Multiplexer;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+
+import static core.misc.BitConverter.*;
+import static core.signal.Bit.*;
+
+/**
+ * A set associative data cache for the DLX. It only keeps the directory of
+ * the cache, the tags, valid and dirty bits and the replacement state, while
+ * the data stays in the memory, which is accessed in parallel anyway. So it
+ * does not change the behaviour of a program, but tells for every access in
+ * the memory access stage whether it hits, misses, evicts a line and whether
+ * the evicted line has to be written back, and counts these events.
+ * <p>
+ * The number of sets, the number of ways and the line size in bytes have to
+ * be powers of two, which the flavors check when building. A write back cache allocates a line on every miss and
+ * marks it dirty when it is written, a write through cache allocates lines on
+ * load misses only. The line to replace is the first invalid way of the set,
+ * or else the least recently used one or one chosen by a 16 bit linear
+ * feedback shift register, which advances with every eviction. The directory
+ * is updated on the rising edge of {@code clk}.
+ * </p>
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Cache",
+	description	= "A set associative data cache directory for the DLX, counting hits, misses, evictions and write backs."
+)
+public final class Cache extends Composite
+{
+	public Cache(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final Cache setAll(Signal clk, Signal address, Signal load, Signal store, Signal hit, Signal miss, Signal evict, Signal flush, int sets, int ways, int line, boolean write_back, boolean lru)
+	{
+		return (Cache)useAndSet(Flavor.DEFAULT, new String[] {"clk", "address", "load", "store", "hit", "miss", "evict", "flush", "sets", "ways", "line", "write_back", "lru"}, clk, address, load, store, hit, miss, evict, flush, sets, ways, line, write_back, lru);
+	}
+
+	public final long getHits()
+	{
+		return statistics.getHits();
+	}
+
+	public final long getMisses()
+	{
+		return statistics.getMisses();
+	}
+
+	public final long getEvictions()
+	{
+		return statistics.getEvictions();
+	}
+
+	public final long getWriteBacks()
+	{
+		return statistics.getWriteBacks();
+	}
+
+	public final void resetStatistics()
+	{
+		statistics.reset();
+	}
+
+	@Override public final void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(flipflops, false, false);
+		out.writeObject(statistics, false);
+	}
+
+	@Override public final Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override protected final void init()
+	{
+		super.init();
+		for(GatedDFlipFlop flipflop : flipflops)
+			flipflop.setWords(0, new long[(flipflop.getSetableCount() + 63) / 64], flipflop.getSetableCount());
+	}
+
+	/**
+	 * The constraint of all cache flavors: the number of sets, the number of
+	 * ways and the line size are powers of two, which are positive.
+	 */
+	static final String CONSTRAINT =
+		"#sets > 0 && 2^(#ceil(#log(#sets))) == #sets && " +
+		"#ways > 0 && 2^(#ceil(#log(#ways))) == #ways && " +
+		"#line > 0 && 2^(#ceil(#log(#line))) == #line";
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<Cache>()
+			{
+				@Override public void build(Cache me, Map<String, Integer> variables)
+				{
+					me.build();
+					me.count();
+				}
+			},
+			"clk[1], address[32], load[1], store[1]",
+			"hit[1], miss[1], evict[1], flush[1]",
+			"int sets, int ways, int line, boolean write_back, boolean lru",
+			CONSTRAINT
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<Cache>()
+			{
+				@Override public void build(Cache me, Map<String, Integer> variables)
+				{
+					me.flipflops = new GatedDFlipFlop[0];
+					new BehavioralCache(me, "cache").setAll(me.getSignal("clk"), me.getSignal("address"), me.getSignal("load"), me.getSignal("store"), me.getSignal("hit"), me.getSignal("miss"), me.getSignal("evict"), me.getSignal("flush"), (Integer)me.get("sets"), (Integer)me.get("ways"), (Integer)me.get("line"), (Boolean)me.get("write_back"), (Boolean)me.get("lru"));
+					me.count();
+				}
+			},
+			"clk[1], address[32], load[1], store[1]",
+			"hit[1], miss[1], evict[1], flush[1]",
+			"int sets, int ways, int line, boolean write_back, boolean lru",
+			CONSTRAINT
+		)
+	);
+
+	private GatedDFlipFlop[] flipflops;
+	private CacheStatistics statistics;
+
+	private Cache(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		flipflops = in.readObject(GatedDFlipFlop[].class, GatedDFlipFlop.class);
+		statistics = in.readObject(CacheStatistics.class);
+	}
+
+	private final void count()
+	{
+		statistics = new CacheStatistics(this, "statistics").setAll(getSignal("clk"), getSignal("hit"), getSignal("miss"), getSignal("evict"), getSignal("flush"));
+	}
+
+	private final void build()
+	{
+		Signal clk = getSignal("clk");
+		Signal address = getSignal("address");
+		Signal load = getSignal("load");
+		Signal store = getSignal("store");
+		Signal hit = getSignal("hit");
+		Signal miss = getSignal("miss");
+		Signal evict = getSignal("evict");
+		Signal flush = getSignal("flush");
+		int sets = (Integer)get("sets");
+		int ways = (Integer)get("ways");
+		boolean write_back = (Boolean)get("write_back");
+		boolean lru = (Boolean)get("lru") && ways > 1;
+
+		int offset_bits = log((Integer)get("line"));
+		int index_bits = log(sets);
+		int age_bits = lru ? log(ways) : 0;
+		int tag_bits = 32 - offset_bits - index_bits;
+		Signal tag = address.get(offset_bits + index_bits, tag_bits);
+
+		List<GatedDFlipFlop> list = new ArrayList<GatedDFlipFlop>();
+
+		Signal select = new Signal(sets);
+		if(sets == 1)
+			new Forward(this, "index-decode").setAll(new Signal(H), select);
+		else
+			new BinaryDecoder(this, "index-decode").setAll(address.get(offset_bits, index_bits), select);
+
+		// the lines of all sets, each valid, dirty, age and tag
+		int size = 2 + age_bits + tag_bits;
+		Signal[][] lines = new Signal[ways][sets];
+		for(int w = 0; w < ways; ++w)
+			for(int s = 0; s < sets; ++s)
+				lines[w][s] = new Signal(size);
+
+		// the lines of the selected set
+		Signal[] current = new Signal[ways];
+		for(int w = 0; w < ways; ++w)
+		{
+			current[w] = new Signal(size);
+			if(sets == 1)
+				new Forward(this, "line-mux:" + w).setAll(lines[w][0], current[w]);
+			else
+				new Multiplexer(this, "line-mux:" + w).setAll(lines[w], select, current[w]);
+		}
+
+		// tag comparison
+		Signal access = new Signal(1);
+		new OR(this, "access").setAll(new Signal(load, store), access);
+
+		Signal invalid = new Signal(ways);
+		Signal match = new Signal(ways);
+		for(int w = 0; w < ways; ++w)
+		{
+			Signal diff = new Signal(tag_bits);
+			for(int i = 0; i < tag_bits; ++i)
+				new XOR(this, "tag-xor:" + w + ":" + i).setAll(new Signal(current[w].get(2 + age_bits + i), tag.get(i)), diff.get(i));
+			new NOT(this, "invalid:" + w).setAll(current[w].get(0), invalid.get(w));
+			new NOR(this, "match:" + w).setAll(new Signal(diff, invalid.get(w)), match.get(w));
+		}
+
+		Signal any_match = new Signal(1);
+		Signal any_invalid = new Signal(1);
+		if(ways == 1)
+		{
+			new Forward(this, "any-match").setAll(match, any_match);
+			new Forward(this, "any-invalid").setAll(invalid, any_invalid);
+		}
+		else
+		{
+			new OR(this, "any-match").setAll(match, any_match);
+			new OR(this, "any-invalid").setAll(invalid, any_invalid);
+		}
+		Signal no_match = new Signal(1);
+		Signal all_valid = new Signal(1);
+		new NOT(this, "no-match").setAll(any_match, no_match);
+		new NOT(this, "all-valid").setAll(any_invalid, all_valid);
+
+		new AND(this, "hit").setAll(new Signal(access, any_match), hit);
+		new AND(this, "miss").setAll(new Signal(access, no_match), miss);
+
+		Signal allocate = new Signal(1);
+		if(write_back)
+			new Forward(this, "allocate").setAll(miss, allocate);
+		else
+			new AND(this, "allocate").setAll(new Signal(miss, load), allocate);
+
+		new AND(this, "evict").setAll(new Signal(allocate, all_valid), evict);
+
+		// victim selection
+		Signal victim = new Signal(ways);
+		if(ways == 1)
+			new Forward(this, "victim").setAll(new Signal(H), victim);
+		else
+		{
+			Signal replace = new Signal(ways);
+			if(lru)
+			{
+				for(int w = 0; w < ways; ++w)
+					if(age_bits == 1)
+						new Forward(this, "oldest:" + w).setAll(current[w].get(2), replace.get(w));
+					else
+						new AND(this, "oldest:" + w).setAll(current[w].get(2, age_bits), replace.get(w));
+			}
+			else
+			{
+				Signal lfsr = new Signal(16);
+				Signal feedback = new Signal(1);
+				new XNOR(this, "lfsr-feedback").setAll(new Signal(lfsr.get(15), lfsr.get(14), lfsr.get(12), lfsr.get(3)), feedback);
+				Signal shifted = new Signal(15);
+				new Forward(this, "lfsr-shift").setAll(lfsr.get(0, 15), shifted);
+				list.add(new GatedDFlipFlop(this, "lfsr").setAll(clk, evict, new Signal(feedback, shifted), lfsr));
+				new BinaryDecoder(this, "random").setAll(lfsr.get(0, log(ways)), replace);
+			}
+
+			for(int w = 0; w < ways; ++w)
+			{
+				Signal first = new Signal(1);
+				Signal replaced = new Signal(1);
+				if(w == 0)
+					new Forward(this, "first:" + w).setAll(invalid.get(w), first);
+				else
+				{
+					Signal[] valid = new Signal[w + 1];
+					for(int v = 0; v < w; ++v)
+						valid[v] = current[v].get(0);
+					valid[w] = invalid.get(w);
+					new AND(this, "first:" + w).setAll(new Signal(valid), first);
+				}
+				new AND(this, "replaced:" + w).setAll(new Signal(all_valid, replace.get(w)), replaced);
+				new OR(this, "victim:" + w).setAll(new Signal(first, replaced), victim.get(w));
+			}
+		}
+
+		// write backs of dirty victims
+		if(write_back)
+		{
+			Signal dirty = new Signal(ways);
+			for(int w = 0; w < ways; ++w)
+				new AND(this, "dirty-victim:" + w).setAll(new Signal(evict, victim.get(w), current[w].get(1)), dirty.get(w));
+			if(ways == 1)
+				new Forward(this, "flush").setAll(dirty, flush);
+			else
+				new OR(this, "flush").setAll(dirty, flush);
+		}
+		else
+			new Forward(this, "flush").setAll(new Signal(L), flush);
+
+		// the way used by this access, for the replacement state
+		Signal used = new Signal(ways);
+		Signal fill = new Signal(ways);
+		Signal written = new Signal(ways);
+		for(int w = 0; w < ways; ++w)
+		{
+			Signal hit_way = new Signal(1);
+			new AND(this, "fill:" + w).setAll(new Signal(allocate, victim.get(w)), fill.get(w));
+			new AND(this, "hit-way:" + w).setAll(new Signal(access, match.get(w)), hit_way);
+			new OR(this, "used:" + w).setAll(new Signal(hit_way, fill.get(w)), used.get(w));
+			if(write_back)
+			{
+				Signal store_hit = new Signal(1);
+				new AND(this, "store-hit:" + w).setAll(new Signal(store, match.get(w)), store_hit);
+				new OR(this, "written:" + w).setAll(new Signal(fill.get(w), store_hit), written.get(w));
+			}
+		}
+
+		Signal[] age = new Signal[ways];
+		Signal use = new Signal(1);
+		if(lru)
+		{
+			Signal[] state = new Signal[ways];
+			for(int w = 0; w < ways; ++w)
+				state[w] = new Signal(current[w].get(0), current[w].get(2, age_bits));
+			Signal used_state = new Signal(1 + age_bits);
+			new Multiplexer(this, "used-mux").setAll(state, used, used_state);
+			new OR(this, "use").setAll(used, use);
+
+			Map<Bit[], Bit[]> map = ageMap(age_bits);
+			for(int w = 0; w < ways; ++w)
+			{
+				age[w] = new Signal(age_bits);
+				new Mapping(this, "age:" + w).setAll(new Signal(current[w].get(2, age_bits), used_state.get(1, age_bits), current[w].get(0), used.get(w), used_state.get(0)), age[w], map);
+			}
+		}
+
+		// the flipflops of the lines
+		for(int s = 0; s < sets; ++s)
+		{
+			Signal set_use = new Signal(1);
+			if(lru)
+				new AND(this, "set-use:" + s).setAll(new Signal(select.get(s), use), set_use);
+
+			for(int w = 0; w < ways; ++w)
+			{
+				Signal line = lines[w][s];
+				String suffix = ":" + s + ":" + w;
+
+				Signal fill_line = new Signal(1);
+				new AND(this, "fill" + suffix).setAll(new Signal(select.get(s), fill.get(w)), fill_line);
+				list.add(new GatedDFlipFlop(this, "tag" + suffix).setAll(clk, fill_line, new Signal(new Signal(H), tag), new Signal(line.get(0), line.get(2 + age_bits, tag_bits))));
+
+				if(write_back)
+				{
+					Signal write_line = new Signal(1);
+					new AND(this, "write" + suffix).setAll(new Signal(select.get(s), written.get(w)), write_line);
+					list.add(new GatedDFlipFlop(this, "dirty" + suffix).setAll(clk, write_line, store, line.get(1)));
+				}
+				else
+					new Forward(this, "dirty" + suffix).setAll(new Signal(L), line.get(1));
+
+				if(lru)
+					list.add(new GatedDFlipFlop(this, "age" + suffix).setAll(clk, set_use, age[w], line.get(2, age_bits)));
+			}
+		}
+
+		flipflops = list.toArray(new GatedDFlipFlop[list.size()]);
+	}
+
+	/**
+	 * The update of the age of a way for least recently used replacement: the
+	 * used way becomes the youngest, the valid ways younger than it, or all
+	 * valid ways if it was invalid, age by one.
+	 */
+	private static final Map<Bit[], Bit[]> ageMap(int age_bits)
+	{
+		Map<Bit[], Bit[]> map = new HashMap<Bit[], Bit[]>();
+		int mask = (1 << age_bits) - 1;
+
+		for(int i = 0; i < 1 << (2 * age_bits + 3); ++i)
+		{
+			int age = i & mask;
+			int used_age = (i >>> age_bits) & mask;
+			boolean valid = (i >>> (2 * age_bits) & 1) != 0;
+			boolean used = (i >>> (2 * age_bits + 1) & 1) != 0;
+			boolean used_valid = (i >>> (2 * age_bits + 2) & 1) != 0;
+
+			int result = used ? 0 : valid && (age < used_age || !used_valid) ? (age + 1) & mask : age;
+			map.put(longToBits(2 * age_bits + 3, i), longToBits(age_bits, result));
+		}
+
+		return map;
+	}
+
+	static final int log(int n)
+	{
+		return 31 - Integer.numberOfLeadingZeros(n);
+	}
+}
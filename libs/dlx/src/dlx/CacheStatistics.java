@@ -0,0 +1,197 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package dlx;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.SerializingStream;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * Counts the events signalled by a {@link Cache} on every rising edge of
+ * {@code clk}, taking the values from before the edge like the flipflops of
+ * the cache do. It does not drive any signal.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Cache Statistics",
+	description	= "Counts the hits, misses, evictions and write backs of a cache."
+)
+public final class CacheStatistics extends Calculator
+{
+	public CacheStatistics(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final CacheStatistics setAll(Signal clk, Signal hit, Signal miss, Signal evict, Signal flush)
+	{
+		return (CacheStatistics)useAndSet(Flavor.DEFAULT, new String[] {"clk", "hit", "miss", "evict", "flush"}, clk, hit, miss, evict, flush);
+	}
+
+	public final long getHits()
+	{
+		return hits;
+	}
+
+	public final long getMisses()
+	{
+		return misses;
+	}
+
+	public final long getEvictions()
+	{
+		return evictions;
+	}
+
+	public final long getWriteBacks()
+	{
+		return write_backs;
+	}
+
+	public final void reset()
+	{
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+		write_backs = 0;
+	}
+
+	@Override public final Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		Bit new_clk = clk.getBit(0);
+		if(new_clk == H && old_clk == L)
+		{
+			if(old_hit)
+				++hits;
+			if(old_miss)
+				++misses;
+			if(old_evict)
+				++evictions;
+			if(old_flush)
+				++write_backs;
+		}
+		old_clk = new_clk;
+
+		old_hit = hit.compareBit(0, H);
+		old_miss = miss.compareBit(0, H);
+		old_evict = evict.compareBit(0, H);
+		old_flush = flush.compareBit(0, H);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(clk, false);
+		out.writeObject(hit, false);
+		out.writeObject(miss, false);
+		out.writeObject(evict, false);
+		out.writeObject(flush, false);
+		out.writeObject(old_clk, false);
+		out.writeBoolean(old_hit);
+		out.writeBoolean(old_miss);
+		out.writeBoolean(old_evict);
+		out.writeBoolean(old_flush);
+		out.writeLong(hits);
+		out.writeLong(misses);
+		out.writeLong(evictions);
+		out.writeLong(write_backs);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<CacheStatistics>()
+			{
+				@Override public void build(CacheStatistics me, Map<String, Integer> variables)
+				{
+					me.clk = me.getSignal("clk");
+					me.hit = me.getSignal("hit");
+					me.miss = me.getSignal("miss");
+					me.evict = me.getSignal("evict");
+					me.flush = me.getSignal("flush");
+					me.old_clk = me.clk.getBit(0);
+
+					for(Signal s : new Signal[] {me.hit, me.miss, me.evict, me.flush})
+						me.addPriority(me.clk, s);
+				}
+			},
+			"clk[1], hit[1], miss[1], evict[1], flush[1]",
+			""
+		)
+	);
+
+	private Signal clk;
+	private Signal hit;
+	private Signal miss;
+	private Signal evict;
+	private Signal flush;
+
+	private Bit old_clk;
+	private boolean old_hit;
+	private boolean old_miss;
+	private boolean old_evict;
+	private boolean old_flush;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long write_backs;
+
+	private CacheStatistics(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		clk = in.readObject(Signal.class);
+		hit = in.readObject(Signal.class);
+		miss = in.readObject(Signal.class);
+		evict = in.readObject(Signal.class);
+		flush = in.readObject(Signal.class);
+		old_clk = in.readObject(Bit.class);
+		old_hit = in.readBoolean();
+		old_miss = in.readBoolean();
+		old_evict = in.readBoolean();
+		old_flush = in.readBoolean();
+		hits = in.readLong();
+		misses = in.readLong();
+		evictions = in.readLong();
+		write_backs = in.readLong();
+	}
+}
@@ -0,0 +1,150 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package dlx;
+
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import static core.misc.BitConverter.*;
+
+/**
+ * Runs a DLX program either on an {@link InstructionSetSimulator} or on a
+ * gate level {@link Processor}, switching between both at any clock cycle.
+ * On a switch the state of the pipeline, the register file and the data memory
+ * is transferred through the {@link Setable} groups of the processor, so long
+ * programs can be fast forwarded to the part which is to be inspected at gate
+ * level.
+ * <p>
+ * The processor must be driven by {@code clk} only and both instruction
+ * memories must hold the same program. The simulation starts on the
+ * instruction level.
+ * </p>
+ *
+ * @author torben
+ */
+public final class CoSimulation
+{
+	public CoSimulation(InstructionSetSimulator iss, Simulator simulator, Signal clk, GroupSetable processor, Setable memory)
+	{
+		this.iss = iss;
+		this.simulator = simulator;
+		this.clk = clk;
+		this.processor = processor;
+		this.memory = memory;
+		this.pc = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
+	}
+
+	public final boolean isGateLevel()
+	{
+		return gate_level;
+	}
+
+	public final void switchToGateLevel()
+	{
+		if(gate_level)
+			return;
+
+		iss.save(processor, memory);
+		clk.setBit(0, Bit.L);
+		simulator.doSimulation();
+		gate_level = true;
+	}
+
+	public final void switchToInstructionLevel()
+	{
+		if(!gate_level)
+			return;
+
+		iss.load(processor, memory);
+		gate_level = false;
+	}
+
+	public final InstructionSetSimulator getInstructionSetSimulator()
+	{
+		return iss;
+	}
+
+	public final int getProgramCounter()
+	{
+		if(!gate_level)
+			return iss.getProgramCounter();
+
+		Bit[] b = new Bit[32];
+		for(int i = 0; i < b.length; ++i)
+			b[i] = pc.getSetableBit(i);
+		return (int)bitsToLong(b);
+	}
+
+	/**
+	 * @return The number of clock cycles simulated on both levels
+	 */
+	public final long getCycles()
+	{
+		return cycles;
+	}
+
+	public final void step()
+	{
+		if(gate_level)
+		{
+			clk.setBit(0, Bit.H);
+			simulator.doSimulation();
+			clk.setBit(0, Bit.L);
+			simulator.doSimulation();
+		}
+		else
+			iss.step();
+
+		++cycles;
+	}
+
+	/**
+	 * Simulates at most {@code cycles} clock cycles, stopping early when the
+	 * program counter reaches {@code pc}.
+	 *
+	 * @return Whether the program counter reached {@code pc}
+	 */
+	public final boolean run(int pc, long cycles)
+	{
+		for(long i = 0; i < cycles; ++i)
+		{
+			step();
+			if(getProgramCounter() == pc)
+				return true;
+		}
+
+		return false;
+	}
+
+	private final InstructionSetSimulator iss;
+	private final Simulator simulator;
+	private final Signal clk;
+	private final GroupSetable processor;
+	private final Setable memory;
+	private final Setable pc;
+	private boolean gate_level;
+	private long cycles;
+}
@@ -28,7 +28,7 @@ import std.gate.XNOR;
 import std.memory.RingBuffer;
 import std.mux.BinaryMultiplexer;
 import core.build.ComponentCollection;
-import core.build.Composite;
+import core.misc.setable.GroupSetableComposite;
 import core.signal.Bit;
 import core.build.Flavor;
 import core.exception.DeserializingException;
@@ -41,7 +41,7 @@ import std.alu.Comparator;
 /**
  * @author lars
  */
-public class Executor extends Composite {
+public class Executor extends GroupSetableComposite {
 
 	public Executor(ComponentCollection parent,String name)
 	{
@@ -148,7 +148,7 @@ public class Executor extends Composite {
 		new BinaryMultiplexer(this,"fw-mux")
 			.setAll(new Signal[]{zeros,new Signal(rdest,getSignal("out"))}, getSignal("write_forward"), rbInput);
 
-		new RingBuffer(this,"ringbuffer").setAll(rbInput, getSignal("clk"), rbOutput, new Signal(2), true);
+		addGroup("ring buffer", new RingBuffer(this,"ringbuffer").setAll(rbInput, getSignal("clk"), rbOutput, new Signal(2), true));
 	}
 
 	/**
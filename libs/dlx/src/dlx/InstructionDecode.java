@@ -92,10 +92,10 @@ public final class InstructionDecode extends Composite
 		)
 	);
 
-	private static final Map<Bit[], Bit[]> op_map;
-	private static final Map<Bit[], Bit[]> func_map;
-	private static final Map<Bit[], Bit[]> fpu_op_map;
-	private static final Map<Bit[], Bit[]> fpu_func_map;
+	static final Map<Bit[], Bit[]> op_map;
+	static final Map<Bit[], Bit[]> func_map;
+	static final Map<Bit[], Bit[]> fpu_op_map;
+	static final Map<Bit[], Bit[]> fpu_func_map;
 
 	static
 	{
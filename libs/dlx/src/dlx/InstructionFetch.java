@@ -27,7 +27,6 @@ import core.exception.InstantiationException;
 import core.exception.SerializingException;
 import core.misc.setable.GroupSetableComposite;
 import core.misc.serial.SerializingStream;
-import core.signal.Bit;
 import core.signal.Signal;
 import java.io.IOException;
 import std.alu.*;
@@ -76,10 +75,8 @@ public final class InstructionFetch extends GroupSetableComposite
 	@Override protected final void init()
 	{
 		super.init();
-		for(int i = 0; i < 32; ++i)
-			flipflop.setSetableBit(i, Bit.L);
-		for(int i = 0; i < im.getSetableCount(); ++i)
-			im.setSetableBit(i, Bit.L);
+		flipflop.setWords(0, new long[1], 32);
+		im.setWords(0, new long[(im.getSetableCount() + 63) / 64], im.getSetableCount());
 	}
 
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
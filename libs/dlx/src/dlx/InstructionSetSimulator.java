@@ -0,0 +1,1129 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package dlx;
+
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.signal.Bit;
+import java.util.Arrays;
+import java.util.Map;
+
+import static core.misc.BitConverter.*;
+
+/**
+ * An instruction set simulator of the DLX operating on plain {@code int}
+ * registers and a {@code byte} memory. It models the same five stage pipeline
+ * as {@link Processor}, one {@link #step()} being one clock cycle, so it
+ * exhibits the same delay slot after jumps and branches, the same forwarding
+ * and the same hazards: branches and register jumps read the register file
+ * in the decode stage and see no results of the two preceding instructions,
+ * and the instruction following a load does not see the loaded value.
+ * <p>
+ * The instructions are decoded with the tables of {@link InstructionDecode},
+ * so it accepts exactly the encodings of {@code asm.CodeGenerator} and
+ * {@code gui.DLXAssembler}. Floating point operations use the arithmetic of
+ * Java's {@code float}, with {@code NaN} results encoded as all ones like the
+ * {@link FPU} does. An integer division by zero yields all ones.
+ * </p>
+ * <p>
+ * Every instruction is decoded once, on its first fetch, into the control
+ * signals of the decode stage. {@link #run(int)} additionally translates the
+ * basic blocks which are entered often, each ending with the delay slot of a
+ * jump or branch. Once the instructions occupying all stages are known, which
+ * holds after the first cycles of a block or right away if the block is
+ * entered from another translated block, the translation takes every
+ * decision of the pipeline in advance: the forwarding paths, the stages that
+ * access the memory or write the register file, and the control signals,
+ * which are only latched when the block is left. A block is translated once
+ * for every distinct sequence of instructions preceding it and is chained to
+ * the blocks it was left to, so hot loops run without decoding and without
+ * looking up their blocks. The translation never changes the outcome: a
+ * block is left as soon as the pipeline takes a path it does not cover.
+ * </p>
+ * <p>
+ * The DLX has separate instruction and data memories, so a store cannot
+ * modify the program. Changing it through {@link #setInstruction(int, int)}
+ * instead discards the decoding and every block covering the changed
+ * instruction, including the blocks translated in view of it preceding them.
+ * </p>
+ *
+ * @author torben
+ */
+public final class InstructionSetSimulator
+{
+	/**
+	 * @param program  The instruction memory
+	 * @param memory   The size of the data memory in bytes
+	 * @param with_fpu Whether the floating point instructions are available
+	 */
+	public InstructionSetSimulator(int[] program, int memory, boolean with_fpu)
+	{
+		this.program = program.clone();
+		this.memory = new byte[memory];
+		this.with_fpu = with_fpu;
+		this.register = new int[32];
+		this.rb_address = new int[3];
+		this.rb_value = new int[3];
+		this.decoded = new Decoded[program.length];
+		this.blocks = new Block[program.length];
+		this.heat = new int[program.length];
+		this.nop = new Decoded(0);
+		this.id = nop;
+	}
+
+	public final int getInstruction(int address)
+	{
+		return program[address];
+	}
+
+	/**
+	 * Replaces an instruction of the program, discarding its decoding and all
+	 * translated blocks covering it. An instruction already fetched is not
+	 * affected.
+	 */
+	public final void setInstruction(int address, int instruction)
+	{
+		Decoded old = decoded[address];
+		program[address] = instruction;
+		decoded[address] = null;
+		if(old == null)
+			return;
+
+		for(int i = 0; i < blocks.length; ++i)
+		{
+			Block previous = null;
+			for(Block b = blocks[i]; b != null; b = b.sibling)
+				if(Arrays.asList(b.trace).contains(old))
+				{
+					b.valid = false;
+					if(previous == null)
+						blocks[i] = b.sibling;
+					else
+						previous.sibling = b.sibling;
+					heat[i] = 0;
+				}
+				else
+					previous = b;
+		}
+	}
+
+	/**
+	 * @return The number of translated blocks currently cached
+	 */
+	public final int getBlockCount()
+	{
+		int count = 0;
+		for(Block b : blocks)
+			for(; b != null; b = b.sibling)
+				++count;
+		return count;
+	}
+
+	public final int getRegister(int i)
+	{
+		return register[i];
+	}
+
+	public final void setRegister(int i, int value)
+	{
+		if(i != 0)
+			register[i] = value;
+	}
+
+	/**
+	 * @return The data memory, changes to it are seen by the simulation
+	 */
+	public final byte[] getMemory()
+	{
+		return memory;
+	}
+
+	/**
+	 * @return The address of the instruction to be fetched next
+	 */
+	public final int getProgramCounter()
+	{
+		return pc;
+	}
+
+	public final void setProgramCounter(int pc)
+	{
+		this.pc = pc;
+	}
+
+	public final long getCycles()
+	{
+		return cycles;
+	}
+
+	/**
+	 * @return The index of the first byte stored in the last cycle
+	 */
+	final int getStoreIndex()
+	{
+		return store_index;
+	}
+
+	/**
+	 * @return The number of bytes stored in the last cycle
+	 */
+	final int getStoreSize()
+	{
+		return store_size;
+	}
+
+	/**
+	 * @return The register written back in the last cycle, not counting the
+	 *         link register, or 0 if there was none
+	 */
+	final int getWrittenRegister()
+	{
+		return written;
+	}
+
+	/**
+	 * Simulates clock cycles until the program counter reaches {@code pc},
+	 * like a test bench waiting for a program to return. The result is the
+	 * same as calling {@link #step()} in a loop, but hot blocks are
+	 * translated.
+	 */
+	public final void run(int pc)
+	{
+		Block block = null;
+
+		do
+		{
+			if(block == null)
+				block = enter(this.pc, null);
+
+			if(block == null)
+				step();
+			else
+				block = execute(block, pc);
+		}
+		while(this.pc != pc);
+	}
+
+	/**
+	 * Transfers the state of this simulation into a {@link Processor} and its
+	 * data memory through their {@link Setable}s, so a gate level simulation
+	 * can continue from here. Both are expected to be between two clock cycles
+	 * and the instruction memory is expected to hold the same program.
+	 */
+	public final void save(GroupSetable processor, Setable memory)
+	{
+		GroupSetable pipeline = (GroupSetable)processor.getSetableGroup("pipeline");
+		GroupSetable buffer = (GroupSetable)((GroupSetable)processor.getSetableGroup("executor")).getSetableGroup("ring buffer");
+		GroupSetable cells = (GroupSetable)buffer.getSetableGroup("cells");
+
+		set(((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter"), 0, 32, pc);
+		for(int i = 1; i < 32; ++i)
+			set(((GroupSetable)processor.getSetableGroup("register file")).getSetableGroup("register " + i), 0, 32, register[i]);
+
+		long[] latches = getLatches();
+		for(int i = 0; i < latches.length; ++i)
+		{
+			Setable s = pipeline.getSetableGroup("flipflop:" + i);
+			set(s, 0, s.getSetableCount(), latches[i]);
+		}
+
+		// with the pointer at 0, the ring buffer outputs its cells in reverse
+		set(buffer.getSetableGroup("pointer"), 0, 2, 0);
+		for(int i = 0; i < rb_address.length; ++i)
+			set(cells.getSetableGroup("cell:" + (rb_address.length - 1 - i)), 0, 37, rb_address[i] | (rb_value[i] & 0xFFFFFFFFL) << 5);
+
+		for(int i = 0; i < this.memory.length; ++i)
+			set(memory, i * 8, 8, this.memory[i]);
+	}
+
+	/**
+	 * Takes over the state of a {@link Processor} and its data memory, the
+	 * counterpart of {@link #save(core.misc.setable.GroupSetable,
+	 * core.misc.setable.Setable)}.
+	 */
+	public final void load(GroupSetable processor, Setable memory)
+	{
+		GroupSetable pipeline = (GroupSetable)processor.getSetableGroup("pipeline");
+		GroupSetable buffer = (GroupSetable)((GroupSetable)processor.getSetableGroup("executor")).getSetableGroup("ring buffer");
+		GroupSetable cells = (GroupSetable)buffer.getSetableGroup("cells");
+
+		pc = (int)get(((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter"), 0, 32);
+		for(int i = 1; i < 32; ++i)
+			register[i] = (int)get(((GroupSetable)processor.getSetableGroup("register file")).getSetableGroup("register " + i), 0, 32);
+
+		long[] latches = new long[27];
+		for(int i = 0; i < latches.length; ++i)
+		{
+			Setable s = pipeline.getSetableGroup("flipflop:" + i);
+			latches[i] = get(s, 0, s.getSetableCount());
+		}
+		setLatches(latches);
+
+		// a pointer out of range, as after initialization, selects no cell
+		int pointer = (int)get(buffer.getSetableGroup("pointer"), 0, 2);
+		for(int i = 0; i < rb_address.length; ++i)
+		{
+			long cell = pointer < rb_address.length ? get(cells.getSetableGroup("cell:" + ((pointer + 2 * rb_address.length - 1 - i) % rb_address.length)), 0, 37) : 0;
+			rb_address[i] = (int)cell & 31;
+			rb_value[i] = (int)(cell >>> 5);
+		}
+
+		for(int i = 0; i < this.memory.length; ++i)
+			this.memory[i] = (byte)get(memory, i * 8, 8);
+	}
+
+	/**
+	 * Simulates one clock cycle. All pipeline registers are latched on the
+	 * rising edge, the register file and the memory are written on the falling
+	 * edge.
+	 */
+	public final void step()
+	{
+		cycle(fetch(pc));
+	}
+
+	/**
+	 * Simulates one clock cycle fetching the given instruction.
+	 */
+	private final void cycle(Decoded fetched)
+	{
+		// instruction decode
+		Decoded d = id;
+		int r1 = register[d.a1];
+		boolean jump = d.jump == 1 || (d.jump == 2 && (r1 != 0) == d.condition);
+		int target = d.target == 2 ? r1 : d.target == 3 ? 0 : id_pc + d.offset;
+
+		// execute
+		int x = forward(ex_a1, ex_r1);
+		int s = forward(ex_a2, ex_r2);
+		int result = execute(ex_opcode, x, ex_alu_imm ? ex_imm : s);
+
+		// memory access
+		int loaded = load(mem_alu, mem_load);
+
+		// rising edge
+		wb_alu = mem_alu;
+		wb_load = loaded;
+		wb_write = mem_write;
+		wb_write_en = mem_write_en;
+		wb_a3 = mem_a3;
+
+		mem_alu = result;
+		mem_store_value = s;
+		mem_load = ex_load;
+		mem_store = ex_store;
+		mem_write = ex_write;
+		mem_write_en = ex_write_en;
+		mem_a3 = ex_a3;
+
+		rb_address[2] = rb_address[1];
+		rb_value[2] = rb_value[1];
+		rb_address[1] = rb_address[0];
+		rb_value[1] = rb_value[0];
+		rb_address[0] = ex_alu_fw ? ex_a3 : 0;
+		rb_value[0] = ex_alu_fw ? result : 0;
+
+		ex_opcode = d.opcode;
+		ex_alu_imm = d.alu_imm;
+		ex_alu_fw = d.alu_fw;
+		ex_r1 = r1;
+		ex_r2 = register[d.a2];
+		ex_a1 = d.a1;
+		ex_a2 = d.a2;
+		ex_imm = d.imm;
+		ex_a3 = d.a3;
+		ex_load = d.load;
+		ex_store = d.store;
+		ex_write = d.write;
+		ex_write_en = d.write_en;
+
+		id = fetched;
+		id_pc = pc;
+		pc = jump ? target : pc + 1;
+
+		// falling edge
+		boolean link = fetched.link;
+		written = wb_write_en && wb_a3 != 0 && !(link && wb_a3 == 31) ? wb_a3 : 0;
+		if(written != 0)
+			register[written] = wb_write ? wb_load : wb_alu;
+		if(link)
+			register[31] = id_pc + 2;
+		store(mem_alu, mem_store, mem_store_value);
+
+		++cycles;
+	}
+
+	/**
+	 * Simulates one clock cycle of a translated block. Only the values pass
+	 * through the pipeline registers, the control signals are those of the
+	 * instructions the cycle has been translated for and are latched by
+	 * {@link #latch(Decoded[], int)} when the block is left.
+	 */
+	private final void cycle(Cycle c)
+	{
+		// instruction decode
+		Decoded d = c.decoded;
+		int r1 = register[d.a1];
+		boolean jump = d.jump == 1 || (d.jump == 2 && (r1 != 0) == d.condition);
+		int target = d.target == 2 ? r1 : d.target == 3 ? 0 : id_pc + d.offset;
+
+		// execute
+		int x = operand(c.x, ex_r1);
+		int s = operand(c.s, ex_r2);
+		int result = execute(c.opcode, x, c.alu_imm ? c.imm : s);
+
+		// memory access
+		int loaded = c.load ? load(mem_alu, c.load_mode) : 0;
+
+		// rising edge
+		wb_alu = mem_alu;
+		wb_load = loaded;
+
+		mem_alu = result;
+		mem_store_value = s;
+
+		rb_value[2] = rb_value[1];
+		rb_value[1] = rb_value[0];
+		rb_value[0] = c.alu_fw ? result : 0;
+
+		ex_r1 = r1;
+		ex_r2 = register[d.a2];
+
+		id_pc = pc;
+		pc = jump ? target : pc + 1;
+
+		// falling edge
+		written = c.write_back ? c.a3 : 0;
+		if(c.write_back)
+			register[c.a3] = c.write ? wb_load : wb_alu;
+		if(c.link)
+			register[31] = id_pc + 2;
+		if(c.store_mode != 0)
+			store(mem_alu, c.store_mode, mem_store_value);
+		else
+			store_size = 0;
+
+		++cycles;
+	}
+
+	/**
+	 * The number of times a block is entered before it gets translated.
+	 */
+	private static final int HOT = 8;
+
+	/**
+	 * The number of instructions preceding a cycle which have to be known to
+	 * translate it: the forwarding of the execute stage looks at the results
+	 * of up to five instructions back.
+	 */
+	private static final int CONTEXT = 5;
+
+	/**
+	 * The number of translations of a block for different preceding
+	 * instructions, before it is only entered by its translation without any.
+	 */
+	private static final int VARIANTS = 4;
+
+	// the sources of an operand in the execute stage
+	private static final int REGISTER = -1;
+	private static final int ZERO = -2;
+	private static final int LOADED = -3;
+
+	private static final int[][] op_table;
+	private static final int[][] func_table;
+
+	static
+	{
+		op_table = new int[][] {table(InstructionDecode.op_map, 64), table(InstructionDecode.fpu_op_map, 64)};
+		func_table = new int[][] {table(InstructionDecode.func_map, 2048), table(InstructionDecode.fpu_func_map, 2048)};
+	}
+
+	private final int[] program;
+	private final byte[] memory;
+	private final boolean with_fpu;
+	private final int[] register;
+	private final Decoded[] decoded;
+	private final Block[] blocks;
+	private final int[] heat;
+	private final Decoded nop;
+	private long cycles;
+	private int store_index;
+	private int store_size;
+	private int written;
+
+	// instruction fetch
+	private int pc;
+
+	// instruction decode
+	private Decoded id;
+	private int id_pc;
+
+	// execute
+	private int ex_opcode;
+	private boolean ex_alu_imm;
+	private boolean ex_alu_fw;
+	private int ex_r1;
+	private int ex_r2;
+	private int ex_a1;
+	private int ex_a2;
+	private int ex_imm;
+	private int ex_a3;
+	private int ex_load;
+	private int ex_store;
+	private boolean ex_write;
+	private boolean ex_write_en;
+	private final int[] rb_address;
+	private final int[] rb_value;
+
+	// memory access
+	private int mem_alu;
+	private int mem_store_value;
+	private int mem_load;
+	private int mem_store;
+	private boolean mem_write;
+	private boolean mem_write_en;
+	private int mem_a3;
+
+	// write back
+	private int wb_alu;
+	private int wb_load;
+	private boolean wb_write;
+	private boolean wb_write_en;
+	private int wb_a3;
+
+	/**
+	 * The names of the pipeline registers returned by {@link #getLatches()}.
+	 */
+	static final String[] LATCHES = {
+		"id ir", "id pc",
+		"ex opcode", "ex alu imm", "ex alu fw", "ex r1", "ex r2", "ex a1", "ex a2", "ex imm",
+		"ex load", "mem load", "ex store", "mem store",
+		"ex write", "mem write", "wb write", "ex write en", "mem write en", "wb write en",
+		"ex a3", "mem a3", "wb a3",
+		"mem alu", "mem store value", "wb alu", "wb load"
+	};
+
+	/**
+	 * Translated cycles only read the memory for instructions which load, so
+	 * after {@link #run(int)} the loaded value latched for another
+	 * instruction, which is never used, may differ from the one of the
+	 * {@link Processor}.
+	 *
+	 * @return The contents of the pipeline registers in the order of the
+	 *         flipflops of {@link Processor}
+	 */
+	final long[] getLatches()
+	{
+		return new long[] {
+			id.ir & 0xFFFFFFFFL, id_pc & 0xFFFFFFFFL,
+			ex_opcode, ex_alu_imm ? 1 : 0, ex_alu_fw ? 1 : 0, ex_r1 & 0xFFFFFFFFL, ex_r2 & 0xFFFFFFFFL, ex_a1, ex_a2, ex_imm & 0xFFFFFFFFL,
+			ex_load, mem_load, ex_store, mem_store,
+			ex_write ? 1 : 0, mem_write ? 1 : 0, wb_write ? 1 : 0, ex_write_en ? 1 : 0, mem_write_en ? 1 : 0, wb_write_en ? 1 : 0,
+			ex_a3, mem_a3, wb_a3,
+			mem_alu & 0xFFFFFFFFL, mem_store_value & 0xFFFFFFFFL, wb_alu & 0xFFFFFFFFL, wb_load & 0xFFFFFFFFL
+		};
+	}
+
+	private final void setLatches(long[] latches)
+	{
+		id = new Decoded((int)latches[0]);
+		id_pc = (int)latches[1];
+		ex_opcode = (int)latches[2];
+		ex_alu_imm = latches[3] != 0;
+		ex_alu_fw = latches[4] != 0;
+		ex_r1 = (int)latches[5];
+		ex_r2 = (int)latches[6];
+		ex_a1 = (int)latches[7];
+		ex_a2 = (int)latches[8];
+		ex_imm = (int)latches[9];
+		ex_load = (int)latches[10];
+		mem_load = (int)latches[11];
+		ex_store = (int)latches[12];
+		mem_store = (int)latches[13];
+		ex_write = latches[14] != 0;
+		mem_write = latches[15] != 0;
+		wb_write = latches[16] != 0;
+		ex_write_en = latches[17] != 0;
+		mem_write_en = latches[18] != 0;
+		wb_write_en = latches[19] != 0;
+		ex_a3 = (int)latches[20];
+		mem_a3 = (int)latches[21];
+		wb_a3 = (int)latches[22];
+		mem_alu = (int)latches[23];
+		mem_store_value = (int)latches[24];
+		wb_alu = (int)latches[25];
+		wb_load = (int)latches[26];
+	}
+
+	private static final void set(Setable setable, int offset, int size, long value)
+	{
+		for(int i = 0; i < size; ++i)
+			setable.setSetableBit(offset + i, (value >>> i & 1) != 0 ? Bit.H : Bit.L);
+	}
+
+	/**
+	 * @return The whole {@link Setable}, at most 64 bits, as a number
+	 */
+	static final long get(Setable setable)
+	{
+		return get(setable, 0, setable.getSetableCount());
+	}
+
+	/**
+	 * @return {@code size} bits of a {@link Setable}, at most 64, as a number
+	 */
+	static final long get(Setable setable, int offset, int size)
+	{
+		long[] word = new long[1];
+		Setables.getWords(setable, offset, word, size);
+		return word[0];
+	}
+
+	private static final int[] table(Map<Bit[], Bit[]> map, int size)
+	{
+		int[] table = new int[size];
+		for(Map.Entry<Bit[], Bit[]> e : map.entrySet())
+			table[(int)bitsToLong(e.getKey())] = (int)bitsToLong(e.getValue());
+		return table;
+	}
+
+	/**
+	 * @return The control signals {@link InstructionDecode} derives from an
+	 *         instruction
+	 */
+	static final int decode(int ir, boolean with_fpu)
+	{
+		int op = ir & 63;
+		return op == 0 ? func_table[with_fpu ? 1 : 0][ir >>> 21] : op_table[with_fpu ? 1 : 0][op];
+	}
+
+	private final Decoded fetch(int pc)
+	{
+		int i = pc & ((1 << (32 - Integer.numberOfLeadingZeros(program.length - 1))) - 1);
+		if(i >= program.length)
+			return nop;
+		if(decoded[i] == null)
+			decoded[i] = new Decoded(program[i]);
+		return decoded[i];
+	}
+
+	/**
+	 * @param predecessor The translated block left to {@code pc}, whose last
+	 *                    instructions are in the pipeline, or {@code null} if
+	 *                    they are unknown
+	 *
+	 * @return The translated block starting at {@code pc}, or {@code null} if
+	 *         it is not hot yet
+	 */
+	private final Block enter(int pc, Block predecessor)
+	{
+		if(pc < 0 || pc >= program.length)
+			return null;
+
+		Decoded[] context = new Decoded[CONTEXT];
+		if(predecessor != null)
+			System.arraycopy(predecessor.trace, predecessor.trace.length - CONTEXT, context, 0, CONTEXT);
+
+		int variants = 0;
+		for(Block b = blocks[pc]; b != null; b = b.sibling, ++variants)
+			if(Arrays.equals(b.context(), context))
+				return b;
+
+		if(predecessor == null ? ++heat[pc] < HOT : variants >= VARIANTS)
+			return predecessor == null ? null : enter(pc, null);
+
+		int end = pc;
+		while(end < program.length - 1 && fetch(end).jump == 0)
+			++end;
+		end = Math.min(end + 1, program.length - 1);
+
+		Decoded[] trace = Arrays.copyOf(context, CONTEXT + end - pc + 1);
+		for(int i = pc; i <= end; ++i)
+			trace[CONTEXT + i - pc] = fetch(i);
+
+		Block block = new Block(pc, trace);
+		block.sibling = blocks[pc];
+		return blocks[pc] = block;
+	}
+
+	/**
+	 * Runs a translated block until its end, until the pipeline leaves it or
+	 * until the program counter reaches {@code stop}.
+	 *
+	 * @return The block to continue with, or {@code null} if unknown
+	 */
+	private final Block execute(Block block, int stop)
+	{
+		Cycle[] cycles = block.cycles;
+		int last = cycles.length - 1;
+		int i = 0;
+		for(; i < last; ++i)
+		{
+			if(cycles[i] == null)
+				cycle(block.trace[CONTEXT + i]);
+			else
+				cycle(cycles[i]);
+			if(pc != block.start + i + 1 || pc == stop)
+				break;
+		}
+		if(i == last)
+		{
+			if(cycles[i] == null)
+				cycle(block.trace[CONTEXT + i]);
+			else
+				cycle(cycles[i]);
+		}
+
+		Block next = null;
+		if(i == last && pc != stop)
+		{
+			// the successor depends on the jump of the block, the fall
+			// through successor is kept apart from the latest jump target
+			int slot = pc == block.start + cycles.length ? 0 : 1;
+			next = block.next[slot];
+			if(next == null || !next.valid || next.start != pc)
+				next = block.next[slot] = enter(pc, block);
+		}
+
+		// a successor translated completely does not need the control signals
+		if(cycles[i] != null && (next == null || next.cycles[0] == null))
+			latch(block.trace, CONTEXT + i);
+		return next;
+	}
+
+	/**
+	 * Latches the control signals after a translated cycle.
+	 *
+	 * @param t The index of the instruction fetched last in {@code trace}
+	 */
+	private final void latch(Decoded[] trace, int t)
+	{
+		Decoded ex = trace[t - 1];
+		Decoded mem = trace[t - 2];
+		Decoded wb = trace[t - 3];
+
+		id = trace[t];
+
+		ex_opcode = ex.opcode;
+		ex_alu_imm = ex.alu_imm;
+		ex_alu_fw = ex.alu_fw;
+		ex_a1 = ex.a1;
+		ex_a2 = ex.a2;
+		ex_imm = ex.imm;
+		ex_a3 = ex.a3;
+		ex_load = ex.load;
+		ex_store = ex.store;
+		ex_write = ex.write;
+		ex_write_en = ex.write_en;
+
+		mem_load = mem.load;
+		mem_store = mem.store;
+		mem_write = mem.write;
+		mem_write_en = mem.write_en;
+		mem_a3 = mem.a3;
+
+		wb_write = wb.write;
+		wb_write_en = wb.write_en;
+		wb_a3 = wb.a3;
+
+		rb_address[0] = mem.alu_fw ? mem.a3 : 0;
+		rb_address[1] = wb.alu_fw ? wb.a3 : 0;
+		rb_address[2] = trace[t - 4].alu_fw ? trace[t - 4].a3 : 0;
+	}
+
+	/**
+	 * Decides in advance what {@link #forward(int, int)} selects.
+	 *
+	 * @param wb The instruction in the write back stage
+	 * @param rb The last three instructions in the execute stage, latest
+	 *           first
+	 *
+	 * @return The index into the results of the execute stage or one of
+	 *         {@link #REGISTER}, {@link #ZERO} and {@link #LOADED}
+	 */
+	private static final int source(int address, Decoded wb, Decoded... rb)
+	{
+		boolean fw = wb.a3 != 0 && wb.write_en && wb.write;
+		if(address == (fw ? wb.a3 : 0))
+			return fw ? LOADED : ZERO;
+		for(int i = 0; i < rb.length; ++i)
+			if(address == (rb[i].alu_fw ? rb[i].a3 : 0))
+				return i;
+		return REGISTER;
+	}
+
+	private final int operand(int source, int value)
+	{
+		switch(source)
+		{
+		case REGISTER:
+			return value;
+		case ZERO:
+			return 0;
+		case LOADED:
+			return wb_load;
+		default:
+			return rb_value[source];
+		}
+	}
+
+	/**
+	 * Selects an operand like the forwarding of {@link Executor}: a loaded
+	 * value in the write back stage first, then the last three results of the
+	 * executor, then the value read from the register file.
+	 */
+	private final int forward(int address, int value)
+	{
+		boolean fw = wb_a3 != 0 && wb_write_en && wb_write;
+		if(address == (fw ? wb_a3 : 0))
+			return fw ? wb_load : 0;
+		for(int i = 0; i < rb_address.length; ++i)
+			if(address == rb_address[i])
+				return rb_value[i];
+		return value;
+	}
+
+	private final int execute(int opcode, int x, int y)
+	{
+		return (opcode & 32) != 0 ? fpu(opcode & 31, x, y) : alu(opcode & 31, x, y);
+	}
+
+	private static final int alu(int opcode, int x, int y)
+	{
+		switch(opcode)
+		{
+		case 0:
+			return x + y;
+		case 1:
+			return x - y;
+		case 2:
+		case 3:
+			return x * y;
+		case 4:
+			return y == 0 ? -1 : x / y;
+		case 5:
+			return y == 0 ? -1 : (int)((x & 0xFFFFFFFFL) / (y & 0xFFFFFFFFL));
+		case 6:
+			return x & y;
+		case 7:
+			return x | y;
+		case 8:
+			return x ^ y;
+		case 9:
+			return shift(x, y, false);
+		case 10:
+			return shift(x, -y, false);
+		case 11:
+			return shift(x, -y, true);
+		case 12:
+			return x < y ? 1 : 0;
+		case 13:
+			return x > y ? 1 : 0;
+		case 14:
+			return x <= y ? 1 : 0;
+		case 15:
+			return x >= y ? 1 : 0;
+		case 16:
+			return x == y ? 1 : 0;
+		case 17:
+			return x != y ? 1 : 0;
+		case 18:
+			return x << 16;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Shifts like the {@code Shifter} of {@link ALU}, which only looks at the
+	 * lower six bits of the (possibly negated) shift amount as a signed value.
+	 */
+	private static final int shift(int x, int y, boolean arithmetic)
+	{
+		int s = (y << 26) >> 26;
+		if(s >= 0)
+			return x << s;
+		else if(s == -32)
+			return arithmetic && x < 0 ? -1 : 0;
+		else
+			return arithmetic ? x >> -s : x >>> -s;
+	}
+
+	private static final int fpu(int opcode, int x, int y)
+	{
+		float a = Float.intBitsToFloat(x);
+		float b = Float.intBitsToFloat(y);
+
+		switch(opcode >>> 1)
+		{
+		case 0:
+			return toInt((opcode & 1) == 0 ? a + b : a - b);
+		case 1:
+			return toInt(a * b);
+		case 2:
+			return toInt(a / b);
+		case 3:
+		case 4:
+		case 5:
+		case 6:
+		case 7:
+		case 8:
+			return compare((opcode >>> 1) - 3, a, b) ? 1 : 0;
+		case 9:
+			return Float.isInfinite(a) ? 1 : 0;
+		case 10:
+			return toInt((float)x);
+		case 11:
+			return (int)a;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Compares like {@link FPU}: infinities only compare by their sign and
+	 * {@code NaN}s make every comparison false.
+	 *
+	 * @param op 0 to 5 for less, greater, less or equal, greater or equal,
+	 *           equal and not equal
+	 */
+	private static final boolean compare(int op, float a, float b)
+	{
+		boolean less;
+		boolean equal;
+
+		if(Float.isInfinite(a) || Float.isInfinite(b))
+		{
+			boolean sa = Float.floatToRawIntBits(a) < 0;
+			boolean sb = Float.floatToRawIntBits(b) < 0;
+			less = sa && !sb;
+			equal = sa == sb;
+		}
+		else if(Float.isNaN(a) || Float.isNaN(b))
+			return false;
+		else
+		{
+			int d = toInt(a - b);
+			equal = (d & 0x7FFFFFFF) == 0;
+			less = d < 0 && !equal;
+		}
+
+		switch(op)
+		{
+		case 0:
+			return less;
+		case 1:
+			return !less && !equal;
+		case 2:
+			return less || equal;
+		case 3:
+			return !less;
+		case 4:
+			return equal;
+		default:
+			return !equal;
+		}
+	}
+
+	private static final int toInt(float f)
+	{
+		return Float.isNaN(f) ? -1 : Float.floatToRawIntBits(f);
+	}
+
+	private final int index(int address)
+	{
+		int i = address & ((1 << (32 - Integer.numberOfLeadingZeros(memory.length - 1))) - 1);
+		return i < memory.length ? i : -1;
+	}
+
+	private final int load(int address, int mode)
+	{
+		int i = index(address);
+		int word = 0;
+		if(i != -1)
+			for(int j = 0; j < 4; ++j)
+				word |= (memory[(i + j) % memory.length] & 0xFF) << (8 * j);
+
+		switch(mode)
+		{
+		case 0:
+			return (byte)word;
+		case 1:
+			return word & 0xFF;
+		case 2:
+			return (short)word;
+		case 3:
+			return word & 0xFFFF;
+		case 4:
+			return word;
+		default:
+			return 0;
+		}
+	}
+
+	private final void store(int address, int mode, int value)
+	{
+		int i = index(address);
+		store_index = i;
+		store_size = i == -1 ? 0 : mode == 3 ? 4 : mode;
+
+		for(int j = 0; j < store_size; ++j)
+			memory[(i + j) % memory.length] = (byte)(value >>> (8 * j));
+	}
+
+	/**
+	 * An instruction with the control signals the decode stage derives from
+	 * it.
+	 */
+	private final class Decoded
+	{
+		Decoded(int ir)
+		{
+			int control = decode(ir, with_fpu);
+			int width = with_fpu ? 6 : 5;
+
+			this.ir = ir;
+			this.a1 = (ir >>> 6) & 31;
+			this.a2 = (ir >>> 11) & 31;
+			this.jump = (control >>> (width + 12)) & 3;
+			this.condition = (control >>> (width + 14) & 1) != 0;
+			this.target = (control >>> (width + 10)) & 3;
+			this.offset = target == 0 ? ir >> 6 : ir >> 16;
+			this.link = (control >>> (width + 15) & 1) != 0;
+			this.opcode = control & ((1 << width) - 1);
+			this.alu_imm = (control >>> width & 1) != 0;
+			this.alu_fw = (control >>> (width + 1) & 1) != 0;
+			this.imm = (control >>> (width + 9) & 1) != 0 ? ir >>> 16 : ir >> 16;
+			this.a3 = jump != 0 ? 0 : (ir & 63) == 0 ? (ir >>> 16) & 31 : a2;
+			this.load = (control >>> (width + 2)) & 7;
+			this.store = (control >>> (width + 5)) & 3;
+			this.write = (control >>> (width + 7) & 1) != 0;
+			this.write_en = (control >>> (width + 8) & 1) != 0;
+		}
+
+		final int ir;
+		final int a1;
+		final int a2;
+		final int jump;
+		final boolean condition;
+		final int target;
+		final int offset;
+		final boolean link;
+		final int opcode;
+		final boolean alu_imm;
+		final boolean alu_fw;
+		final int imm;
+		final int a3;
+		final int load;
+		final int store;
+		final boolean write;
+		final boolean write_en;
+	}
+
+	/**
+	 * A translated basic block, the instructions fetched from {@code start}
+	 * up to the delay slot of the first jump or branch.
+	 */
+	private static final class Block
+	{
+		/**
+		 * @param trace The {@link #CONTEXT} instructions preceding the block,
+		 *              {@code null} where unknown, followed by the
+		 *              instructions of the block
+		 */
+		Block(int start, Decoded[] trace)
+		{
+			this.start = start;
+			this.trace = trace;
+			this.cycles = new Cycle[trace.length - CONTEXT];
+			this.next = new Block[2];
+			this.valid = true;
+
+			for(int t = CONTEXT; t < trace.length; ++t)
+				if(trace[t - CONTEXT] != null)
+					cycles[t - CONTEXT] = new Cycle(trace, t);
+		}
+
+		final Decoded[] context()
+		{
+			return Arrays.copyOf(trace, CONTEXT);
+		}
+
+		final int start;
+		final Decoded[] trace;
+		final Cycle[] cycles;
+		final Block[] next;
+		Block sibling;
+		boolean valid;
+	}
+
+	/**
+	 * The decisions of the pipeline in a cycle, taken from the instructions
+	 * occupying its stages.
+	 */
+	private static final class Cycle
+	{
+		/**
+		 * @param t The index of the instruction fetched in the cycle, the
+		 *          {@link #CONTEXT} instructions before it have to be known
+		 */
+		Cycle(Decoded[] trace, int t)
+		{
+			Decoded fetched = trace[t];
+			Decoded ex = trace[t - 2];
+			Decoded mem = trace[t - 3];
+			Decoded wb = trace[t - 4];
+
+			this.decoded = trace[t - 1];
+			this.x = source(ex.a1, wb, mem, wb, trace[t - 5]);
+			this.s = source(ex.a2, wb, mem, wb, trace[t - 5]);
+			this.opcode = ex.opcode;
+			this.alu_imm = ex.alu_imm;
+			this.imm = ex.imm;
+			this.alu_fw = ex.alu_fw;
+			this.load_mode = mem.load;
+			this.load = mem.write;
+			this.store_mode = ex.store;
+			this.link = fetched.link;
+			this.write_back = mem.write_en && mem.a3 != 0 && !(link && mem.a3 == 31);
+			this.a3 = mem.a3;
+			this.write = mem.write;
+		}
+
+		final Decoded decoded;
+		final int x;
+		final int s;
+		final int opcode;
+		final boolean alu_imm;
+		final int imm;
+		final boolean alu_fw;
+		final int load_mode;
+		final boolean load;
+		final int store_mode;
+		final boolean link;
+		final boolean write_back;
+		final int a3;
+		final boolean write;
+	}
+}
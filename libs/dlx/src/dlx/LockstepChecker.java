@@ -0,0 +1,227 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package dlx;
+
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+import java.util.Arrays;
+
+import static dlx.InstructionSetSimulator.get;
+
+/**
+ * Runs a gate level {@link Processor} and an {@link InstructionSetSimulator}
+ * in lockstep and compares what has changed after every clock cycle: the
+ * program counter, the registers written back by {@link WriteBack} as
+ * signalled by its write enable or by the reference, the link register, and
+ * the bytes stored by {@link MemoryAccess}, as signalled on the write enables
+ * of the data memory or by the reference. Only these are compared, so the
+ * overhead per cycle depends neither on the size of the register file nor on
+ * the size of the memory. The first divergence stops the simulation and is
+ * described with a dump of both pipelines.
+ * <p>
+ * State changed behind the back of both models, like a register of the
+ * reference set from outside, is only found by {@link #check()}, which
+ * compares the whole register file.
+ * </p>
+ * <p>
+ * The processor must be driven by {@code clk} only and both instruction
+ * memories must hold the same program. The processor starts with the state
+ * of the reference.
+ * </p>
+ *
+ * @author torben
+ */
+public final class LockstepChecker
+{
+	public LockstepChecker(InstructionSetSimulator iss, Simulator simulator, Signal clk, GroupSetable processor, Setable memory, Signal[] mem_write_en)
+	{
+		this.iss = iss;
+		this.simulator = simulator;
+		this.clk = clk;
+		this.memory = memory;
+		this.mem_write_en = mem_write_en;
+		this.stored = new int[mem_write_en.length];
+
+		pc = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
+		register = new Setable[32];
+		for(int i = 1; i < register.length; ++i)
+			register[i] = ((GroupSetable)processor.getSetableGroup("register file")).getSetableGroup("register " + i);
+		pipeline = new Setable[InstructionSetSimulator.LATCHES.length];
+		for(int i = 0; i < pipeline.length; ++i)
+			pipeline[i] = ((GroupSetable)processor.getSetableGroup("pipeline")).getSetableGroup("flipflop:" + i);
+		wb_write_en = pipeline[Arrays.asList(InstructionSetSimulator.LATCHES).indexOf("wb write en")];
+		wb_a3 = pipeline[Arrays.asList(InstructionSetSimulator.LATCHES).indexOf("wb a3")];
+
+		iss.save(processor, memory);
+		clk.setBit(0, Bit.L);
+		simulator.doSimulation();
+	}
+
+	/**
+	 * @return A description of the first divergence including both pipelines,
+	 *         or {@code null} if there was none
+	 */
+	public final String getDivergence()
+	{
+		return divergence;
+	}
+
+	public final long getCycles()
+	{
+		return cycles;
+	}
+
+	/**
+	 * Simulates one clock cycle on both models and compares them.
+	 *
+	 * @return Whether both models still agree
+	 */
+	public final boolean step()
+	{
+		if(divergence != null)
+			return false;
+
+		clk.setBit(0, Bit.H);
+		simulator.doSimulation();
+
+		// the memory access stage enables the stores and the write back stage
+		// the register write until the falling edge
+		int count = 0;
+		for(int i = 0; i < mem_write_en.length; ++i)
+			if(mem_write_en[i].compareBit(0, Bit.H))
+				stored[count++] = i;
+		int written = get(wb_write_en) != 0 ? (int)get(wb_a3) : 0;
+
+		clk.setBit(0, Bit.L);
+		simulator.doSimulation();
+		iss.step();
+		++cycles;
+
+		comparePC();
+		if(written != 0 && divergence == null)
+			compareRegister(written);
+		if(iss.getWrittenRegister() != 0 && divergence == null)
+			compareRegister(iss.getWrittenRegister());
+		if(divergence == null)
+			compareRegister(31);
+		for(int i = 0; i < count && divergence == null; ++i)
+			compare(stored[i]);
+		for(int i = 0; i < iss.getStoreSize() && divergence == null; ++i)
+			compare((iss.getStoreIndex() + i) % iss.getMemory().length);
+
+		return divergence == null;
+	}
+
+	/**
+	 * Compares the program counter and the whole register file of both
+	 * models, without simulating a cycle.
+	 *
+	 * @return Whether both models still agree
+	 */
+	public final boolean check()
+	{
+		if(divergence != null)
+			return false;
+
+		comparePC();
+		for(int i = 1; i < register.length && divergence == null; ++i)
+			compareRegister(i);
+
+		return divergence == null;
+	}
+
+	/**
+	 * Simulates at most {@code cycles} clock cycles, stopping early when the
+	 * program counter reaches {@code pc} or both models diverge.
+	 *
+	 * @return Whether the program counter reached {@code pc} without a
+	 *         divergence
+	 */
+	public final boolean run(int pc, long cycles)
+	{
+		for(long i = 0; i < cycles; ++i)
+			if(!step())
+				return false;
+			else if(iss.getProgramCounter() == pc)
+				return true;
+
+		return false;
+	}
+
+	private final InstructionSetSimulator iss;
+	private final Simulator simulator;
+	private final Signal clk;
+	private final Setable memory;
+	private final Signal[] mem_write_en;
+	private final int[] stored;
+	private final Setable pc;
+	private final Setable[] register;
+	private final Setable[] pipeline;
+	private final Setable wb_write_en;
+	private final Setable wb_a3;
+	private long cycles;
+	private String divergence;
+
+	private final void comparePC()
+	{
+		int value = (int)get(pc, 0, 32);
+		if(value != iss.getProgramCounter())
+			diverge("program counter", value, iss.getProgramCounter());
+	}
+
+	private final void compareRegister(int i)
+	{
+		int value = (int)get(register[i], 0, 32);
+		if(value != iss.getRegister(i))
+			diverge("register " + i, value, iss.getRegister(i));
+	}
+
+	private final void compare(int i)
+	{
+		int value = (int)get(memory, i * 8, 8);
+		int expected = iss.getMemory()[i] & 0xFF;
+		if(value != expected)
+			diverge("memory byte " + i, value, expected);
+	}
+
+	private final void diverge(String where, int value, int expected)
+	{
+		divergence = String.format("Divergence after cycle %d at %s: processor %08X, reference %08X%nPipelines after the cycle:%n%s", cycles, where, value, expected, dump());
+	}
+
+	/**
+	 * @return The pipeline registers of both models, one per line
+	 */
+	private final String dump()
+	{
+		long[] latches = iss.getLatches();
+		StringBuilder sb = new StringBuilder(String.format("%-16s%-10s%s%n", "", "processor", "reference"));
+		sb.append(String.format("%-16s%08X  %08X%n", "pc", get(pc, 0, 32), iss.getProgramCounter()));
+		for(int i = 0; i < pipeline.length; ++i)
+			sb.append(String.format("%-16s%08X  %08X%n", InstructionSetSimulator.LATCHES[i], get(pipeline[i]), latches[i]));
+		return sb.toString();
+	}
+}
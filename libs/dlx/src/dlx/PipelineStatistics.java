@@ -0,0 +1,365 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog DLX Library.                               *
+ *                                                                           *
+ * The Jamog DLX Library is free software: you can redistribute it           *
+ * and/or modify it under the terms of the GNU General Public License        *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog DLX Library is distributed in the hope that it will be          *
+ * useful, but WITHOUT ANY WARRANTY; without even the implied warranty       *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog DLX Library. If not, see                             *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+package dlx;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.Serializable;
+import core.misc.serial.SerializingStream;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.monitor.SignalListener;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.signal.SignalBit;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static dlx.InstructionSetSimulator.get;
+
+/**
+ * Counts the events in the pipeline of a gate level {@link Processor} by
+ * looking at its pipeline registers once per clock cycle, so neither the
+ * processor nor its simulation is slowed down by additional gates. Each
+ * instruction is counted once when it is in the decode stage, where an
+ * instruction without any effect, like the {@code add r0 r0 r0} filling the
+ * delay slots and the load delays, counts as a bubble. Forwarding is counted
+ * per operand of an instruction in the execute stage which is taken from the
+ * write back stage or the ring buffer of {@link Executor} instead of the
+ * register file, leaving out the jumps and branches, which read their operand
+ * in the decode stage.
+ * <p>
+ * The statistics listen to the clock {@link Signal} of the processor and
+ * count a cycle on every falling edge. The pipeline registers are latched on
+ * the rising edge, so when the clock falls, the simulation of the cycle has
+ * settled and the registers hold the values the cycle has latched. The clock
+ * has to be driven from outside the simulation, like a {@link
+ * core.misc.ClockSimulator} does, and {@link #detach()} stops counting.
+ * </p>
+ * <p>
+ * The counters are read by name like the groups of a {@link GroupSetable}.
+ * {@link #toString()} formats a report of all counters, which is passed to a
+ * {@link ReportListener} periodically, so the caller can show it wherever it
+ * wants to.
+ * </p>
+ *
+ * @author torben
+ */
+public final class PipelineStatistics implements SignalListener
+{
+	/**
+	 * The {@code ReportListener} interface is used to get notified when a
+	 * report period has ended, see {@link
+	 * PipelineStatistics#setReportPeriod(long,
+	 * dlx.PipelineStatistics.ReportListener) setReportPeriod(long,
+	 * ReportListener)}.
+	 */
+	public static interface ReportListener extends Serializable
+	{
+		/**
+		 * Is invoked on the falling edge which ends a report period.
+		 *
+		 * @param statistics The statistics which have counted the period
+		 */
+		public void report(PipelineStatistics statistics);
+	}
+
+	/**
+	 * The names of the counters, in the order of the report.
+	 */
+	public static final String[] COUNTERS = {
+		"cycles", "instructions", "bubbles", "jumps", "branches", "taken branches",
+		"loads", "stores", "load forwards", "ring buffer forwards"
+	};
+
+	public PipelineStatistics(GroupSetable processor, Signal clk)
+	{
+		GroupSetable pipeline = (GroupSetable)processor.getSetableGroup("pipeline");
+		GroupSetable buffer = (GroupSetable)((GroupSetable)processor.getSetableGroup("executor")).getSetableGroup("ring buffer");
+
+		this.clk = clk;
+		this.program_counter = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
+		this.id_ir = latch(pipeline, "id ir");
+		this.id_pc = latch(pipeline, "id pc");
+		this.ex_alu_imm = latch(pipeline, "ex alu imm");
+		this.ex_a1 = latch(pipeline, "ex a1");
+		this.ex_a2 = latch(pipeline, "ex a2");
+		this.ex_store = latch(pipeline, "ex store");
+		this.wb_write = latch(pipeline, "wb write");
+		this.wb_write_en = latch(pipeline, "wb write en");
+		this.wb_a3 = latch(pipeline, "wb a3");
+		this.pointer = buffer.getSetableGroup("pointer");
+		this.cells = new Setable[3];
+		for(int i = 0; i < cells.length; ++i)
+			cells[i] = ((GroupSetable)buffer.getSetableGroup("cells")).getSetableGroup("cell:" + i);
+
+		// only the processors with an FPU have six bit opcodes
+		this.with_fpu = latch(pipeline, "ex opcode").getSetableCount() == 6;
+		this.counters = new long[COUNTERS.length];
+		this.branch = -1;
+
+		clk.addSignalListener(this);
+	}
+
+	/**
+	 * Counts a clock cycle on every falling edge of the clock.
+	 */
+	@Override public final void signalChanged(Signal changed_signal, SignalBit changed_bit, Bit old_value, Bit new_value)
+	{
+		if(old_value == Bit.H && new_value == Bit.L)
+		{
+			count();
+
+			final ReportListener current_listener = listener;
+			if(current_listener != null && period != 0 && counters[CYCLES] % period == 0)
+				current_listener.report(this);
+		}
+	}
+
+	/**
+	 * Stops counting by removing the statistics from the listeners of the
+	 * clock. The counters keep their values.
+	 */
+	public final void detach()
+	{
+		clk.removeSignalListener(this);
+	}
+
+	/**
+	 * @return The value of the counter with the specified name
+	 */
+	public final long getCounter(String name)
+	{
+		for(int i = 0; i < COUNTERS.length; ++i)
+			if(COUNTERS[i].equals(name))
+				return counters[i];
+
+		throw new IllegalArgumentException("There is no counter " + name);
+	}
+
+	/**
+	 * @return A map of all counter names and their values
+	 */
+	public final Map<String, Long> getCounters()
+	{
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for(int i = 0; i < COUNTERS.length; ++i)
+			map.put(COUNTERS[i], counters[i]);
+		return map;
+	}
+
+	/**
+	 * @return The average number of cycles per instruction, not counting the
+	 *         bubbles as instructions, or 0 if no instruction has been counted
+	 *         yet
+	 */
+	public final double getCyclesPerInstruction()
+	{
+		return counters[INSTRUCTIONS] == 0 ? 0 : (double)counters[CYCLES] / counters[INSTRUCTIONS];
+	}
+
+	/**
+	 * Sets the number of cycles between two reports passed to a {@link
+	 * ReportListener}, 0 or a null listener disabling them.
+	 */
+	public final void setReportPeriod(long period, ReportListener listener)
+	{
+		this.period = period;
+		this.listener = listener;
+	}
+
+	public final void reset()
+	{
+		for(int i = 0; i < counters.length; ++i)
+			counters[i] = 0;
+		branch = -1;
+		operands = false;
+	}
+
+	/**
+	 * @return A report of all counters, one per line
+	 */
+	@Override public final String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < COUNTERS.length; ++i)
+			sb.append(String.format("%-24s%d%n", COUNTERS[i], counters[i]));
+		sb.append(String.format("%-24s%.3f", "cycles per instruction", getCyclesPerInstruction()));
+		return sb.toString();
+	}
+
+	@Override public final void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		out.writeObject(clk, false);
+		out.writeObject(program_counter, false);
+		out.writeObject(new Setable[] {id_ir, id_pc, ex_alu_imm, ex_a1, ex_a2, ex_store, wb_write, wb_write_en, wb_a3, pointer}, false);
+		out.writeObject(cells, false);
+		out.writeBoolean(with_fpu);
+		out.writeObject(counters, false);
+		out.writeLong(period);
+		out.writeObject(listener, false);
+		out.writeInteger(branch);
+		out.writeBoolean(operands);
+	}
+
+	private static final int CYCLES = 0;
+	private static final int INSTRUCTIONS = 1;
+	private static final int BUBBLES = 2;
+	private static final int JUMPS = 3;
+	private static final int BRANCHES = 4;
+	private static final int TAKEN_BRANCHES = 5;
+	private static final int LOADS = 6;
+	private static final int STORES = 7;
+	private static final int LOAD_FORWARDS = 8;
+	private static final int RING_BUFFER_FORWARDS = 9;
+
+	private final Signal clk;
+	private final Setable program_counter;
+	private final Setable id_ir;
+	private final Setable id_pc;
+	private final Setable ex_alu_imm;
+	private final Setable ex_a1;
+	private final Setable ex_a2;
+	private final Setable ex_store;
+	private final Setable wb_write;
+	private final Setable wb_write_en;
+	private final Setable wb_a3;
+	private final Setable pointer;
+	private final Setable[] cells;
+	private final boolean with_fpu;
+	private final long[] counters;
+	private volatile long period;
+	private volatile ReportListener listener;
+	private int branch;
+	private boolean operands;
+
+	private PipelineStatistics(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		clk = in.readObject(Signal.class);
+		program_counter = in.readObject(Setable.class);
+
+		Setable[] latches = in.readObject(Setable[].class);
+		id_ir = latches[0];
+		id_pc = latches[1];
+		ex_alu_imm = latches[2];
+		ex_a1 = latches[3];
+		ex_a2 = latches[4];
+		ex_store = latches[5];
+		wb_write = latches[6];
+		wb_write_en = latches[7];
+		wb_a3 = latches[8];
+		pointer = latches[9];
+
+		cells = in.readObject(Setable[].class);
+		with_fpu = in.readBoolean();
+		counters = in.readObject(long[].class);
+		period = in.readLong();
+		listener = in.readObject(ReportListener.class);
+		branch = in.readInteger();
+		operands = in.readBoolean();
+	}
+
+	/**
+	 * Counts the clock cycle which has just settled.
+	 */
+	private final void count()
+	{
+		int width = with_fpu ? 6 : 5;
+		int ir = (int)get(id_ir);
+		int pc = (int)get(id_pc);
+		int control = InstructionSetSimulator.decode(ir, with_fpu);
+		int jump = (control >>> (width + 12)) & 3;
+		boolean load = (control >>> (width + 7) & 1) != 0;
+		int store = (control >>> (width + 5)) & 3;
+		int a3 = jump != 0 ? 0 : (ir & 63) == 0 ? (ir >>> 16) & 31 : (ir >>> 11) & 31;
+		boolean write = (control >>> (width + 8) & 1) != 0 && a3 != 0;
+
+		++counters[CYCLES];
+
+		// the branch decoded before has chosen the address fetched after its
+		// delay slot
+		if(branch != -1 && (int)get(program_counter) != branch + 2)
+			++counters[TAKEN_BRANCHES];
+		branch = -1;
+
+		// the instruction decoded before is in the execute stage now
+		if(operands)
+		{
+			forward((int)get(ex_a1));
+			if(get(ex_alu_imm) == 0 || get(ex_store) != 0)
+				forward((int)get(ex_a2));
+		}
+		operands = jump == 0 && (store != 0 || write);
+
+		if(jump == 0 && store == 0 && !write)
+			++counters[BUBBLES];
+		else
+		{
+			++counters[INSTRUCTIONS];
+			if(jump == 1)
+				++counters[JUMPS];
+			else if(jump == 2)
+			{
+				++counters[BRANCHES];
+				branch = pc;
+			}
+			if(load && write)
+				++counters[LOADS];
+			if(store != 0)
+				++counters[STORES];
+		}
+	}
+
+	/**
+	 * Counts an operand read by the execute stage if it is forwarded, with
+	 * the priorities of {@link Executor}.
+	 */
+	private final void forward(int address)
+	{
+		if(address == 0)
+			return;
+
+		if(get(wb_write) != 0 && get(wb_write_en) != 0 && get(wb_a3) == address)
+		{
+			++counters[LOAD_FORWARDS];
+			return;
+		}
+
+		// a pointer out of range, as after initialization, selects no cell
+		if(get(pointer) < cells.length)
+			for(Setable cell : cells)
+				if(get(cell, 0, 5) == address)
+				{
+					++counters[RING_BUFFER_FORWARDS];
+					return;
+				}
+	}
+
+	private static final Setable latch(GroupSetable pipeline, String name)
+	{
+		return pipeline.getSetableGroup("flipflop:" + Arrays.asList(InstructionSetSimulator.LATCHES).indexOf(name));
+	}
+}
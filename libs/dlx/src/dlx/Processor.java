@@ -27,17 +27,21 @@ import core.exception.InstantiationException;
 import core.exception.SerializingException;
 import core.misc.setable.GroupSetableComposite;
 import core.misc.serial.SerializingStream;
-import core.signal.Bit;
 import core.signal.Signal;
 import java.io.IOException;
 import javax.swing.JComponent;
 import std.flipflop.*;
+import std.gate.AND;
+import std.gate.OR;
 import core.build.ComponentCollection;
 import core.misc.module.Module.Description;
 import core.build.Flavor;
 import core.misc.serial.DeserializingStream;
+import core.misc.setable.DefaultGroupSetable;
 import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
 import gui.GUI;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -60,11 +64,29 @@ public final class Processor extends GroupSetableComposite implements GUI
 		return (Processor)useAndSet(Flavor.DEFAULT, new String[] {"clk", "mem_read", "mem_write", "mem_write_en", "mem_clk", "ims", "with_fpu"}, clk, mem_read, mem_write, mem_write_en, mem_clk, ims, with_fpu);
 	}
 
+	/**
+	 * Builds the processor with a {@link Cache} observing the accesses of its
+	 * memory access stage, see {@link #getCache()}.
+	 */
+	public final Processor setAll(Signal clk, Signal[] mem_read, Signal[] mem_write, Signal[] mem_write_en, Signal mem_clk, int ims, boolean with_fpu, int sets, int ways, int line, boolean write_back, boolean lru)
+	{
+		return (Processor)useAndSet("cached", new String[] {"clk", "mem_read", "mem_write", "mem_write_en", "mem_clk", "ims", "with_fpu", "sets", "ways", "line", "write_back", "lru"}, clk, mem_read, mem_write, mem_write_en, mem_clk, ims, with_fpu, sets, ways, line, write_back, lru);
+	}
+
+	/**
+	 * @return The {@link Cache} of the "cached" flavor, or {@code null}
+	 */
+	public final Cache getCache()
+	{
+		return cache;
+	}
+
 	@Override public final void serialize(SerializingStream out) throws IOException, SerializingException
 	{
 		super.serialize(out);
 
 		out.writeObject(flipflops, false, false);
+		out.writeObject(cache, false);
 	}
 
 	@Override public final Map<String, Flavor> getFlavors()
@@ -76,8 +98,7 @@ public final class Processor extends GroupSetableComposite implements GUI
 	{
 		super.init();
 		for(DFlipFlop flipflop : flipflops)
-			for(int i = 0; i < flipflop.getSetableCount(); ++i)
-				flipflop.setSetableBit(i, Bit.L);
+			flipflop.setWords(0, new long[(flipflop.getSetableCount() + 63) / 64], flipflop.getSetableCount());
 	}
 
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
@@ -86,178 +107,218 @@ public final class Processor extends GroupSetableComposite implements GUI
 			{
 				@Override public void build(Processor me, Map<String, Integer> variables)
 				{
-					Signal clk = me.getSignal("clk");
-					Signal[] mem_read = (Signal[])me.get("mem_read");
-					Signal[] mem_write = (Signal[])me.get("mem_write");
-					Signal[] mem_write_en = (Signal[])me.get("mem_write_en");
-					Signal mem_clk = me.getSignal("mem_clk");
-
-					boolean with_fpu = (Boolean)me.get("with_fpu");
-
-					me.flipflops = new DFlipFlop[27];
-
-					// InstructionFetch to InstructionDecode
-					Signal ir_out = new Signal(32);
-					Signal ir_in = new Signal(32);
-					Signal pc_out = new Signal(32);
-					Signal pc_in = new Signal(32);
-
-					me.flipflops[0] = new DFlipFlop(me, "flipflop:0").setAll(clk, ir_out, ir_in);
-					me.flipflops[1] = new DFlipFlop(me, "flipflop:1").setAll(clk, pc_out, pc_in);
-
-					// InstructionDecode to Execution
-					Signal opcode_out;
-					Signal opcode_in;
-					if(with_fpu)
-					{
-						opcode_out = new Signal(6);
-						opcode_in = new Signal(6);
-					}
-					else
-					{
-						opcode_out = new Signal(5);
-						opcode_in = new Signal(5);
-					}
-					Signal alu_imm_out = new Signal(1);
-					Signal alu_imm_in = new Signal(1);
-					Signal alu_fw_out = new Signal(1);
-					Signal alu_fw_in = new Signal(1);
-					Signal r1_out = new Signal(32);
-					Signal r1_in = new Signal(32);
-					Signal r2_out = new Signal(32);
-					Signal r2_in = new Signal(32);
-					Signal a1_out = new Signal(5);
-					Signal a1_in = new Signal(5);
-					Signal a2_out = new Signal(5);
-					Signal a2_in = new Signal(5);
-					Signal imm_out = new Signal(32);
-					Signal imm_in = new Signal(32);
-
-					me.flipflops[2] = new DFlipFlop(me, "flipflop:2").setAll(clk, opcode_out, opcode_in);
-					me.flipflops[3] = new DFlipFlop(me, "flipflop:3").setAll(clk, alu_imm_out, alu_imm_in);
-					me.flipflops[4] = new DFlipFlop(me, "flipflop:4").setAll(clk, alu_fw_out, alu_fw_in);
-					me.flipflops[5] = new DFlipFlop(me, "flipflop:5").setAll(clk, r1_out, r1_in);
-					me.flipflops[6] = new DFlipFlop(me, "flipflop:6").setAll(clk, r2_out, r2_in);
-					me.flipflops[7] = new DFlipFlop(me, "flipflop:7").setAll(clk, a1_out, a1_in);
-					me.flipflops[8] = new DFlipFlop(me, "flipflop:8").setAll(clk, a2_out, a2_in);
-					me.flipflops[9] = new DFlipFlop(me, "flipflop:9").setAll(clk, imm_out, imm_in);
-
-					// InstructionDecode to MemoryAccess
-					Signal load_func_out = new Signal(3);
-					Signal load_func_bp = new Signal(3);
-					Signal load_func_in = new Signal(3);
-					Signal store_func_out = new Signal(2);
-					Signal store_func_bp = new Signal(2);
-					Signal store_func_in = new Signal(2);
-
-					me.flipflops[10] = new DFlipFlop(me, "flipflop:10").setAll(clk, load_func_out, load_func_bp);
-					me.flipflops[11] = new DFlipFlop(me, "flipflop:11").setAll(clk, load_func_bp, load_func_in);
-					me.flipflops[12] = new DFlipFlop(me, "flipflop:12").setAll(clk, store_func_out, store_func_bp);
-					me.flipflops[13] = new DFlipFlop(me, "flipflop:13").setAll(clk, store_func_bp, store_func_in);
-
-					// InstructionDecode to WriteBack
-					Signal reg_write_sel_out = new Signal(1);
-					Signal reg_write_sel_bp1 = new Signal(1);
-					Signal reg_write_sel_bp2 = new Signal(1);
-					Signal reg_write_sel_in = new Signal(1);
-					Signal reg_write_sel_en_out = new Signal(1);
-					Signal reg_write_sel_en_bp1 = new Signal(1);
-					Signal reg_write_sel_en_bp2 = new Signal(1);
-					Signal reg_write_sel_en_in = new Signal(1);
-					Signal a3_out = new Signal(5);
-					Signal a3_alu_in = new Signal(5);
-					Signal a3_bp = new Signal(5);
-					Signal a3_wb_in = new Signal(5);
-
-					me.flipflops[14] = new DFlipFlop(me, "flipflop:14").setAll(clk, reg_write_sel_out, reg_write_sel_bp1);
-					me.flipflops[15] = new DFlipFlop(me, "flipflop:15").setAll(clk, reg_write_sel_bp1, reg_write_sel_bp2);
-					me.flipflops[16] = new DFlipFlop(me, "flipflop:16").setAll(clk, reg_write_sel_bp2, reg_write_sel_in);
-					me.flipflops[17] = new DFlipFlop(me, "flipflop:17").setAll(clk, reg_write_sel_en_out, reg_write_sel_en_bp1);
-					me.flipflops[18] = new DFlipFlop(me, "flipflop:18").setAll(clk, reg_write_sel_en_bp1, reg_write_sel_en_bp2);
-					me.flipflops[19] = new DFlipFlop(me, "flipflop:19").setAll(clk, reg_write_sel_en_bp2, reg_write_sel_en_in);
-					me.flipflops[20] = new DFlipFlop(me, "flipflop:20").setAll(clk, a3_out, a3_alu_in);
-					me.flipflops[21] = new DFlipFlop(me, "flipflop:21").setAll(clk, a3_alu_in, a3_bp);
-					me.flipflops[22] = new DFlipFlop(me, "flipflop:22").setAll(clk, a3_bp, a3_wb_in);
-
-					// InstructionDecode to RegisterFile
-					Signal r31_write_id = new Signal(32);
-					Signal r31_write_en_id = new Signal(1);
-
-					// Executor to MemoryAccess
-					Signal alu_res_out = new Signal(32);
-					Signal alu_res_in = new Signal(32);
-					Signal rs_out = new Signal(32);
-					Signal rs_in = new Signal(32);
-
-					me.flipflops[23] = new DFlipFlop(me, "flipflop:23").setAll(clk, alu_res_out, alu_res_in);
-					me.flipflops[24] = new DFlipFlop(me, "flipflop:24").setAll(clk, rs_out, rs_in);
-
-					// Executor to WriteBack
-					Signal alu_res_wb_in = new Signal(32);
-
-					me.flipflops[25] = new DFlipFlop(me, "flipflop:25").setAll(clk, alu_res_in, alu_res_wb_in);
-
-					// MemoryAccess to WriteBack
-					Signal load_out = new Signal(32);
-					Signal load_in = new Signal(32);
-
-					me.flipflops[26] = new DFlipFlop(me, "flipflop:26").setAll(clk, load_out, load_in);
-
-					// WriteBack to RegisterFile
-					Signal[] reg_write = new Signal[32];
-					Signal[] reg_write_en = new Signal[32];
-					Signal[] reg_write_in = new Signal[31];
-					Signal[] reg_write_en_in = new Signal[31];
-					for(int i = 0; i < 32; ++i)
-					{
-						reg_write[i] = new Signal(32);
-						reg_write_en[i] = new Signal(1);
-
-						if(i != 31)
-						{
-							reg_write_in[i] = reg_write[i];
-							reg_write_en_in[i] = reg_write_en[i];
-						}
-					}
-
-					// InstructionDecode to InstructionFetch
-					Signal pcoe = new Signal(1);
-					Signal pco = new Signal(32);
-
-					// WriteBack to Executor
-					Signal alu_afw = new Signal(5);
-					Signal alu_rfw = new Signal(32);
-
-					// RegisterFile to InstructionDecode
-					Signal[] reg_read = new Signal[32];
-					for(int i = 0; i < 32; ++i)
-						reg_read[i] = new Signal(32);
-
-					InstructionFetch fetch = new InstructionFetch(me, "instruction-fetch").setAll(clk, pcoe, pco, ir_out, pc_out, (Integer)me.get("ims"));
-					new InstructionDecode(me, "instruction-decode").setAll(ir_in, pc_in, reg_read, pco, pcoe, r31_write_id, r31_write_en_id, opcode_out, alu_imm_out, alu_fw_out, r1_out, r2_out, a1_out, a2_out, a3_out, imm_out, load_func_out, store_func_out, reg_write_sel_out, reg_write_sel_en_out, with_fpu);
-					new Executor(me, "executor").setAll(clk, r1_in, r2_in, a1_in, a2_in, a3_alu_in, imm_in, opcode_in, alu_imm_in, alu_fw_in, alu_afw, alu_rfw, a2_in, r2_in, rs_out, alu_res_out, with_fpu);
-					new MemoryAccess(me, "memory-access").setAll(alu_res_in, load_func_in, store_func_in, rs_in, mem_read, clk, load_out, mem_write, mem_write_en, mem_clk);
-					new WriteBack(me, "write-back").setAll(alu_res_wb_in, load_in, reg_write_sel_in, reg_write_sel_en_in, a3_wb_in, alu_afw, alu_rfw, reg_write, reg_write_en);
-					RegisterFile register = new RegisterFile(me, "register-file").setAll(clk, reg_write_in, reg_write_en_in, new Signal[] {r31_write_id, reg_write[31]}, new Signal[] {r31_write_en_id, reg_write_en[31]}, reg_read);
-
-					me.addGroup("instruction fetch", fetch);
-					me.addGroup("register file", register);
+					me.build(false);
 				}
 			},
 			"clk[1], mem_read[n:4-][8]",
 			"mem_write[n][8], mem_write_en[n][1], mem_clk[1]",
 			"int ims, boolean with_fpu",
 			""
+		),
+		new Flavor(
+			"cached",
+			new Flavor.Buildable<Processor>()
+			{
+				@Override public void build(Processor me, Map<String, Integer> variables)
+				{
+					me.build(true);
+				}
+			},
+			"clk[1], mem_read[n:4-][8]",
+			"mem_write[n][8], mem_write_en[n][1], mem_clk[1]",
+			"int ims, boolean with_fpu, int sets, int ways, int line, boolean write_back, boolean lru",
+			""
 		)
 	);
 
 	private DFlipFlop[] flipflops;
+	private Cache cache;
 
 	private Processor(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
 	{
 		super(in);
 
 		flipflops = in.readObject(DFlipFlop[].class, DFlipFlop.class);
+		cache = in.readObject(Cache.class);
+	}
+
+	private final void build(boolean cached)
+	{
+		Signal clk = getSignal("clk");
+		Signal[] mem_read = (Signal[])get("mem_read");
+		Signal[] mem_write = (Signal[])get("mem_write");
+		Signal[] mem_write_en = (Signal[])get("mem_write_en");
+		Signal mem_clk = getSignal("mem_clk");
+
+		boolean with_fpu = (Boolean)get("with_fpu");
+
+		flipflops = new DFlipFlop[27];
+
+		// InstructionFetch to InstructionDecode
+		Signal ir_out = new Signal(32);
+		Signal ir_in = new Signal(32);
+		Signal pc_out = new Signal(32);
+		Signal pc_in = new Signal(32);
+
+		flipflops[0] = new DFlipFlop(this, "flipflop:0").setAll(clk, ir_out, ir_in);
+		flipflops[1] = new DFlipFlop(this, "flipflop:1").setAll(clk, pc_out, pc_in);
+
+		// InstructionDecode to Execution
+		Signal opcode_out;
+		Signal opcode_in;
+		if(with_fpu)
+		{
+			opcode_out = new Signal(6);
+			opcode_in = new Signal(6);
+		}
+		else
+		{
+			opcode_out = new Signal(5);
+			opcode_in = new Signal(5);
+		}
+		Signal alu_imm_out = new Signal(1);
+		Signal alu_imm_in = new Signal(1);
+		Signal alu_fw_out = new Signal(1);
+		Signal alu_fw_in = new Signal(1);
+		Signal r1_out = new Signal(32);
+		Signal r1_in = new Signal(32);
+		Signal r2_out = new Signal(32);
+		Signal r2_in = new Signal(32);
+		Signal a1_out = new Signal(5);
+		Signal a1_in = new Signal(5);
+		Signal a2_out = new Signal(5);
+		Signal a2_in = new Signal(5);
+		Signal imm_out = new Signal(32);
+		Signal imm_in = new Signal(32);
+
+		flipflops[2] = new DFlipFlop(this, "flipflop:2").setAll(clk, opcode_out, opcode_in);
+		flipflops[3] = new DFlipFlop(this, "flipflop:3").setAll(clk, alu_imm_out, alu_imm_in);
+		flipflops[4] = new DFlipFlop(this, "flipflop:4").setAll(clk, alu_fw_out, alu_fw_in);
+		flipflops[5] = new DFlipFlop(this, "flipflop:5").setAll(clk, r1_out, r1_in);
+		flipflops[6] = new DFlipFlop(this, "flipflop:6").setAll(clk, r2_out, r2_in);
+		flipflops[7] = new DFlipFlop(this, "flipflop:7").setAll(clk, a1_out, a1_in);
+		flipflops[8] = new DFlipFlop(this, "flipflop:8").setAll(clk, a2_out, a2_in);
+		flipflops[9] = new DFlipFlop(this, "flipflop:9").setAll(clk, imm_out, imm_in);
+
+		// InstructionDecode to MemoryAccess
+		Signal load_func_out = new Signal(3);
+		Signal load_func_bp = new Signal(3);
+		Signal load_func_in = new Signal(3);
+		Signal store_func_out = new Signal(2);
+		Signal store_func_bp = new Signal(2);
+		Signal store_func_in = new Signal(2);
+
+		flipflops[10] = new DFlipFlop(this, "flipflop:10").setAll(clk, load_func_out, load_func_bp);
+		flipflops[11] = new DFlipFlop(this, "flipflop:11").setAll(clk, load_func_bp, load_func_in);
+		flipflops[12] = new DFlipFlop(this, "flipflop:12").setAll(clk, store_func_out, store_func_bp);
+		flipflops[13] = new DFlipFlop(this, "flipflop:13").setAll(clk, store_func_bp, store_func_in);
+
+		// InstructionDecode to WriteBack
+		Signal reg_write_sel_out = new Signal(1);
+		Signal reg_write_sel_bp1 = new Signal(1);
+		Signal reg_write_sel_bp2 = new Signal(1);
+		Signal reg_write_sel_in = new Signal(1);
+		Signal reg_write_sel_en_out = new Signal(1);
+		Signal reg_write_sel_en_bp1 = new Signal(1);
+		Signal reg_write_sel_en_bp2 = new Signal(1);
+		Signal reg_write_sel_en_in = new Signal(1);
+		Signal a3_out = new Signal(5);
+		Signal a3_alu_in = new Signal(5);
+		Signal a3_bp = new Signal(5);
+		Signal a3_wb_in = new Signal(5);
+
+		flipflops[14] = new DFlipFlop(this, "flipflop:14").setAll(clk, reg_write_sel_out, reg_write_sel_bp1);
+		flipflops[15] = new DFlipFlop(this, "flipflop:15").setAll(clk, reg_write_sel_bp1, reg_write_sel_bp2);
+		flipflops[16] = new DFlipFlop(this, "flipflop:16").setAll(clk, reg_write_sel_bp2, reg_write_sel_in);
+		flipflops[17] = new DFlipFlop(this, "flipflop:17").setAll(clk, reg_write_sel_en_out, reg_write_sel_en_bp1);
+		flipflops[18] = new DFlipFlop(this, "flipflop:18").setAll(clk, reg_write_sel_en_bp1, reg_write_sel_en_bp2);
+		flipflops[19] = new DFlipFlop(this, "flipflop:19").setAll(clk, reg_write_sel_en_bp2, reg_write_sel_en_in);
+		flipflops[20] = new DFlipFlop(this, "flipflop:20").setAll(clk, a3_out, a3_alu_in);
+		flipflops[21] = new DFlipFlop(this, "flipflop:21").setAll(clk, a3_alu_in, a3_bp);
+		flipflops[22] = new DFlipFlop(this, "flipflop:22").setAll(clk, a3_bp, a3_wb_in);
+
+		// InstructionDecode to RegisterFile
+		Signal r31_write_id = new Signal(32);
+		Signal r31_write_en_id = new Signal(1);
+
+		// Executor to MemoryAccess
+		Signal alu_res_out = new Signal(32);
+		Signal alu_res_in = new Signal(32);
+		Signal rs_out = new Signal(32);
+		Signal rs_in = new Signal(32);
+
+		flipflops[23] = new DFlipFlop(this, "flipflop:23").setAll(clk, alu_res_out, alu_res_in);
+		flipflops[24] = new DFlipFlop(this, "flipflop:24").setAll(clk, rs_out, rs_in);
+
+		// Executor to WriteBack
+		Signal alu_res_wb_in = new Signal(32);
+
+		flipflops[25] = new DFlipFlop(this, "flipflop:25").setAll(clk, alu_res_in, alu_res_wb_in);
+
+		// MemoryAccess to WriteBack
+		Signal load_out = new Signal(32);
+		Signal load_in = new Signal(32);
+
+		flipflops[26] = new DFlipFlop(this, "flipflop:26").setAll(clk, load_out, load_in);
+
+		// WriteBack to RegisterFile
+		Signal[] reg_write = new Signal[32];
+		Signal[] reg_write_en = new Signal[32];
+		Signal[] reg_write_in = new Signal[31];
+		Signal[] reg_write_en_in = new Signal[31];
+		for(int i = 0; i < 32; ++i)
+		{
+			reg_write[i] = new Signal(32);
+			reg_write_en[i] = new Signal(1);
+
+			if(i != 31)
+			{
+				reg_write_in[i] = reg_write[i];
+				reg_write_en_in[i] = reg_write_en[i];
+			}
+		}
+
+		// InstructionDecode to InstructionFetch
+		Signal pcoe = new Signal(1);
+		Signal pco = new Signal(32);
+
+		// WriteBack to Executor
+		Signal alu_afw = new Signal(5);
+		Signal alu_rfw = new Signal(32);
+
+		// RegisterFile to InstructionDecode
+		Signal[] reg_read = new Signal[32];
+		for(int i = 0; i < 32; ++i)
+			reg_read[i] = new Signal(32);
+
+		InstructionFetch fetch = new InstructionFetch(this, "instruction-fetch").setAll(clk, pcoe, pco, ir_out, pc_out, (Integer)get("ims"));
+		new InstructionDecode(this, "instruction-decode").setAll(ir_in, pc_in, reg_read, pco, pcoe, r31_write_id, r31_write_en_id, opcode_out, alu_imm_out, alu_fw_out, r1_out, r2_out, a1_out, a2_out, a3_out, imm_out, load_func_out, store_func_out, reg_write_sel_out, reg_write_sel_en_out, with_fpu);
+		Executor executor = new Executor(this, "executor").setAll(clk, r1_in, r2_in, a1_in, a2_in, a3_alu_in, imm_in, opcode_in, alu_imm_in, alu_fw_in, alu_afw, alu_rfw, a2_in, r2_in, rs_out, alu_res_out, with_fpu);
+		new MemoryAccess(this, "memory-access").setAll(alu_res_in, load_func_in, store_func_in, rs_in, mem_read, clk, load_out, mem_write, mem_write_en, mem_clk);
+		new WriteBack(this, "write-back").setAll(alu_res_wb_in, load_in, reg_write_sel_in, reg_write_sel_en_in, a3_wb_in, alu_afw, alu_rfw, reg_write, reg_write_en);
+		RegisterFile register = new RegisterFile(this, "register-file").setAll(clk, reg_write_in, reg_write_en_in, new Signal[] {r31_write_id, reg_write[31]}, new Signal[] {r31_write_en_id, reg_write_en[31]}, reg_read);
+
+		addGroup("instruction fetch", fetch);
+		addGroup("register file", register);
+
+		LinkedHashMap<String, Setable> pipeline = new LinkedHashMap<String, Setable>();
+		for(int i = 0; i < flipflops.length; ++i)
+			pipeline.put("flipflop:" + i, flipflops[i]);
+		addGroup("pipeline", new DefaultGroupSetable(pipeline));
+		addGroup("executor", executor);
+
+		if(cached)
+		{
+			// a memory access is a load if the write back selects the loaded value
+			Signal load = new Signal(1);
+			Signal store = new Signal(1);
+			new AND(this, "cache-load").setAll(new Signal(reg_write_sel_bp2, reg_write_sel_en_bp2), load);
+			new OR(this, "cache-store").setAll(store_func_in, store);
+			cache = new Cache(this, "cache").setAll(clk, alu_res_in, load, store, new Signal(1), new Signal(1), new Signal(1), new Signal(1), (Integer)get("sets"), (Integer)get("ways"), (Integer)get("line"), (Boolean)get("write_back"), (Boolean)get("lru"));
+		}
+		else
+			cache = null;
+
 	}
 
 	@Override public JComponent getGUI()
@@ -25,6 +25,7 @@ package dlx;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.misc.setable.GroupSetableComposite;
+import core.misc.setable.Setable;
 import core.signal.Signal;
 import java.io.IOException;
 import std.flipflop.*;
@@ -102,6 +103,21 @@ public final class RegisterFile extends GroupSetableComposite
 			},
 			"clk[1], write[31][32], write_en[31][1], write31[2][32], write31_en[2][1]",
 			"read[32][32]"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<RegisterFile>()
+			{
+				@Override public void build(RegisterFile me, Map<String, Integer> variables)
+				{
+					BehavioralRegisterFile register = new BehavioralRegisterFile(me, "registers").setAll(me.getSignal("clk"), (Signal[])me.get("write"), (Signal[])me.get("write_en"), (Signal[])me.get("write31"), (Signal[])me.get("write31_en"), (Signal[])me.get("read"));
+
+					for(Map.Entry<String, ? extends Setable> e : register.getSetableGroups().entrySet())
+						me.addGroup(e.getKey(), e.getValue());
+				}
+			},
+			"clk[1], write[31][32], write_en[31][1], write31[2][32], write31_en[2][1]",
+			"read[32][32]"
 		)
 	);
 
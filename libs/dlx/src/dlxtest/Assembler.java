@@ -0,0 +1,121 @@
+package dlxtest;
+
+import asm.AssemblerException;
+
+import core.misc.setable.Setable;
+import core.signal.Bit;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Assembler implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal mem_srt\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"mem_srt:\nadd r2 r2 r1\n" +
+			"mem_srt_ol:\nslt r3 r1 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_end\nadd r0 r0 r0\nlb r5 0(r1)\naddi r4 r1 1\n" +
+			"mem_srt_il:\nslt r3 r4 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_end\nadd r0 r0 r0\nlb r6 0(r4)\nadd r0 r0 r0\n" +
+			"slt r3 r6 r5\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_next\nadd r0 r0 r0\nsb 0(r4) r5\nadd r5 r6 r0\n" +
+			"mem_srt_il_next:\nj mem_srt_il\naddi r4 r4 1\n" +
+			"mem_srt_il_end:\nsb 0(r1) r5\nj mem_srt_ol\naddi r1 r1 1\n" +
+			"mem_srt_end:\njr r31\nadd r0 r0 r0\n";
+
+		asm.Assembler assembler = new asm.Assembler(false);
+
+		try
+		{
+			int[] program = assembler.assemble(new StringReader(asm));
+			testsuite.assertEquals("Opcode Check", reference(asm, program.length), program);
+
+			testsuite.assertEquals("Symbol Check", 4, assembler.getSymbols().get("mem_srt"));
+			testsuite.assertEquals("Symbol Check", 12, assembler.getSymbols().get("mem_srt_il"));
+			testsuite.assertEquals("Symbol Check", 31, assembler.getSymbols().get("mem_srt_end"));
+
+			List<Integer> lines = new ArrayList<Integer>();
+			String[] source = asm.split("\n");
+			for(int i = 0; i < source.length; ++i)
+				if(!source[i].endsWith(":"))
+					lines.add(i + 1);
+			int[] source_map = assembler.getSourceMap();
+			testsuite.assertEquals("Source Map Size Check", lines.size(), source_map.length);
+			for(int i = 0; i < source_map.length; ++i)
+				testsuite.assertEquals("Source Map Check", (int)lines.get(i), source_map[i]);
+
+			// instructions expanded from a makro map to the line of the makro call
+			assembler = new asm.Assembler(true);
+			assembler.assemble("addi r2 r0 1\n// comment\nIF r2 < r3 {addi r4 r0 1}\nj 0\nadd r0 r0 r0\n");
+			testsuite.assertEquals("Makro Source Map Check", new int[] {1, 3, 3, 3, 3, 3, 3, 4, 5}, assembler.getSourceMap());
+
+			// a generated program has to be assembled in one pass without any per token overhead
+			StringBuilder sb = new StringBuilder();
+			int[] expected = new int[20000];
+			for(int i = 0; i < expected.length; ++i)
+			{
+				int r = i % 31 + 1;
+				int v = i % 32768;
+				sb.append("addi r").append(r).append(" r0 ").append(v).append("\n");
+				expected[i] = 017 | r << 11 | v << 16;
+			}
+			testsuite.assertEquals("Generated Program Check", expected, assembler.assemble(new StringReader(sb.toString())));
+			testsuite.assertEquals("Generated Source Map Check", expected.length, assembler.getSourceMap()[expected.length - 1]);
+		}
+		catch(IOException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(AssemblerException ex)
+		{
+			throw new RuntimeException(ex.reason + "\n" + ex.place);
+		}
+
+		String place = "";
+		try
+		{
+			assembler.assemble("addi r1 r0 1\nadd r1 r1 ?\n");
+		}
+		catch(AssemblerException ex)
+		{
+			place = ex.place;
+		}
+		testsuite.assertEquals("Error Check", 1, place.contains("line 2") ? 1 : 0);
+	}
+
+	private static final int[] reference(String asm, int size)
+	{
+		final Bit[] bits = new Bit[size * 32];
+		Arrays.fill(bits, Bit.L);
+
+		DLXAssembler.parse(asm, new Setable()
+		{
+			@Override public int getSetableCount()
+			{
+				return bits.length;
+			}
+
+			@Override public Bit getSetableBit(int i)
+			{
+				return bits[i];
+			}
+
+			@Override public void setSetableBit(int i, Bit v)
+			{
+				bits[i] = v;
+			}
+		});
+
+		int[] program = new int[size];
+		for(int i = 0; i < bits.length; ++i)
+			if(bits[i] == Bit.H)
+				program[i / 32] |= 1 << (i % 32);
+		return program;
+	}
+}
@@ -0,0 +1,150 @@
+package dlxtest;
+
+import core.build.Component;
+import core.build.Composite;
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+public class BuildCache implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal count\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"count:\naddi r2 r0 3\naddi r5 r0 5\nsw 0(r0) r5\nlw r6 0(r0)\n" +
+			"count_loop:\nsubi r2 r2 1\nadd r7 r7 r6\nadd r0 r0 r0\nbnez r2 count_loop\nsw 4(r0) r7\n" +
+			"jr r31\nadd r0 r0 r0\n";
+
+		try
+		{
+			Path directory = Files.createTempDirectory("buildcache");
+			core.build.BuildCache cache = new core.build.BuildCache(directory);
+
+			long[][] registers = new long[2][16];
+			int[] cycles = new int[2];
+			try
+			{
+				run(cache, asm, registers, cycles, testsuite);
+			}
+			finally
+			{
+				DirectoryStream<Path> files = Files.newDirectoryStream(directory);
+				try
+				{
+					for(Path file : files)
+						Files.delete(file);
+				}
+				finally
+				{
+					files.close();
+				}
+				Files.delete(directory);
+			}
+
+			testsuite.assertEquals("Register Check", 15, (int)registers[0][3]);
+			testsuite.assertEquals("Cached Register Check", registers[0], registers[1]);
+			testsuite.assertEquals("Cached Cycle Check", cycles[0], cycles[1]);
+		}
+		catch(AnalyzeException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(BuildException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(IOException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private static final void run(core.build.BuildCache cache, String asm, long[][] registers, int[] cycles, TestSuite testsuite) throws AnalyzeException, BuildException, IOException
+	{
+		for(int pass = 0; pass < 2; ++pass)
+		{
+			core.build.BuildCache.Entry entry = cache.build(environment());
+			testsuite.assertEquals("Cached Check " + pass, pass, entry.cached ? 1 : 0);
+			// a cached simulator is only read when it is needed
+			testsuite.assertEquals("Inflated Check " + pass, 1 - pass, entry.isInflated() ? 1 : 0);
+
+			// the signals and setables have to be taken from the returned environment
+			dlx.Processor processor = (dlx.Processor)entry.environment.getComponents().get("processor");
+			Signal clk = (Signal)processor.getParameters().get("clk");
+			// the components of a cached composite are read when accessed
+			testsuite.assertEquals("Lazy Check " + pass, 1 - pass, processor.isInflated() ? 1 : 0);
+			Composite fetch = (Composite)processor.getComponent("instruction-fetch");
+			testsuite.assertEquals("Subtree Check " + pass, 1, processor.isInflated() && fetch.getComponents().size() > 0 ? 1 : 0);
+
+			DLXAssembler.parse(asm, ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory"));
+			Setable program_counter = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
+			Setables.setWords(processor.getSetableGroup("register file"), 0, new long[16], 31 * 32);
+			Setables.setWords((Setable)entry.environment.getComponents().get("ram"), 0, new long[1], 64);
+
+			Simulator simulator = entry.getSimulator();
+			testsuite.assertEquals("Inflated Components Check " + pass, 1, inflated(entry.environment.getComponents().values()) ? 1 : 0);
+			long[] pc = new long[1];
+			do
+			{
+				clk.setBit(0, Bit.H);
+				simulator.doSimulation();
+				clk.setBit(0, Bit.L);
+				simulator.doSimulation();
+				++cycles[pass];
+
+				Setables.getWords(program_counter, 0, pc, 32);
+			}
+			while(pc[0] != 2 && cycles[pass] < 1000);
+
+			Setables.getWords(processor.getSetableGroup("register file"), 0, registers[pass], 31 * 32);
+			simulator.shutdown();
+		}
+	}
+
+	private static final boolean inflated(Collection<Component> components)
+	{
+		for(Component c : components)
+			if(c instanceof Composite && !(((Composite)c).isInflated() && inflated(((Composite)c).getComponents().values())))
+				return false;
+		return true;
+	}
+
+	private static final Environment environment()
+	{
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[8];
+		Signal[] mem_write = new Signal[8];
+		Signal[] mem_write_en = new Signal[8];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 8; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		new dlx.Processor(environment, "processor").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		new std.memory.RAM(environment, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		return environment;
+	}
+}
@@ -0,0 +1,113 @@
+package dlxtest;
+
+import core.build.Environment;
+import core.build.Flavor;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import static core.misc.BitConverter.*;
+
+public class Cache implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		// loads and stores of a two way cache with two sets of four bytes
+		int[] address = {0x00, 0x04, 0x01, 0x08, 0x10, 0x0A, 0x00, 0x00};
+		int[] access = {1, 1, 2, 1, 1, 1, 2, 0};
+		for(dlx.Cache cache : run(testsuite, 2, 2, 4, true, true, address, access))
+		{
+			testsuite.assertEquals("Hit Check", 2, cache.getHits());
+			testsuite.assertEquals("Miss Check", 5, cache.getMisses());
+			testsuite.assertEquals("Eviction Check", 2, cache.getEvictions());
+			testsuite.assertEquals("Write Back Check", 1, cache.getWriteBacks());
+		}
+
+		// both flavors must agree for random accesses in every configuration
+		int[][] configurations = {{1, 1, 4}, {4, 2, 4}, {2, 4, 8}, {1, 4, 2}};
+		for(int[] c : configurations)
+			for(int policy = 0; policy < 4; ++policy)
+			{
+				address = new int[200];
+				access = new int[address.length];
+				for(int i = 0; i < address.length; ++i)
+				{
+					address[i] = testsuite.predictableRandomInteger(128) | (testsuite.predictableRandomInteger(8) == 0 ? testsuite.predictableRandomInteger(1 << 16) << 16 : 0);
+					access[i] = testsuite.predictableRandomInteger(3);
+				}
+
+				dlx.Cache[] cache = run(testsuite, c[0], c[1], c[2], (policy & 1) != 0, (policy & 2) != 0, address, access);
+				testsuite.assertEquals("Statistics Equivalence Check", new long[] {cache[0].getHits(), cache[0].getMisses(), cache[0].getEvictions(), cache[0].getWriteBacks()}, new long[] {cache[1].getHits(), cache[1].getMisses(), cache[1].getEvictions(), cache[1].getWriteBacks()});
+			}
+
+		// sizes which are no positive powers of two fail when building
+		int[][] invalid = {{3, 2, 4}, {2, 0, 4}, {2, 2, 6}, {-2, 2, 4}};
+		for(int[] c : invalid)
+			for(String flavor : new String[] {Flavor.DEFAULT, "behavioral"})
+			{
+				Environment environment = new Environment();
+				String[] names = {"clk", "address", "load", "store", "hit", "miss", "evict", "flush", "sets", "ways", "line", "write_back", "lru"};
+				new dlx.Cache(environment, "cache").useAndSet(flavor, names, new Signal(1), new Signal(32), new Signal(1), new Signal(1), new Signal(1), new Signal(1), new Signal(1), new Signal(1), c[0], c[1], c[2], true, true);
+
+				boolean failed = false;
+				try { environment.build().shutdown(); }
+				catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+				catch(BuildException ex) { failed = true; }
+				testsuite.assertEquals("Constraint Check " + flavor + " " + c[0] + " " + c[1] + " " + c[2], 1, failed ? 1 : 0);
+			}
+	}
+
+	/**
+	 * Drives the gate level and the behavioral flavor with the same accesses,
+	 * where 1 is a load and 2 a store, and compares their outputs after every
+	 * clock edge.
+	 */
+	private static final dlx.Cache[] run(TestSuite testsuite, int sets, int ways, int line, boolean write_back, boolean lru, int[] address, int[] access)
+	{
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal a = new Signal(32);
+		Signal load = new Signal(1);
+		Signal store = new Signal(1);
+		Signal[][] out = new Signal[2][4];
+		for(int i = 0; i < 2; ++i)
+			for(int j = 0; j < 4; ++j)
+				out[i][j] = new Signal(1);
+
+		String[] names = {"clk", "address", "load", "store", "hit", "miss", "evict", "flush", "sets", "ways", "line", "write_back", "lru"};
+		dlx.Cache[] cache = new dlx.Cache[2];
+		cache[0] = new dlx.Cache(environment, "gates").setAll(clk, a, load, store, out[0][0], out[0][1], out[0][2], out[0][3], sets, ways, line, write_back, lru);
+		cache[1] = (dlx.Cache)new dlx.Cache(environment, "behavioral").useAndSet("behavioral", names, clk, a, load, store, out[1][0], out[1][1], out[1][2], out[1][3], sets, ways, line, write_back, lru);
+
+		Simulator simulator;
+		try { simulator = environment.build(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		String configuration = sets + " sets, " + ways + " ways, " + line + " bytes, " + (write_back ? "write back" : "write through") + ", " + (lru ? "LRU" : "random");
+		for(int i = 0; i < address.length; ++i)
+		{
+			a.setBits(longToBits(32, address[i]));
+			load.setBit(0, access[i] == 1 ? Bit.H : Bit.L);
+			store.setBit(0, access[i] == 2 ? Bit.H : Bit.L);
+			clk.setBit(0, Bit.L);
+			simulator.doSimulation();
+			for(int j = 0; j < 4; ++j)
+				testsuite.assertEquals("Equivalence Check (" + configuration + ", access " + i + ", output " + j + ")", out[0][j].getBits(), out[1][j].getBits());
+
+			clk.setBit(0, Bit.H);
+			simulator.doSimulation();
+			for(int j = 0; j < 4; ++j)
+				testsuite.assertEquals("Equivalence Check (" + configuration + ", access " + i + ", output " + j + ", after the edge)", out[0][j].getBits(), out[1][j].getBits());
+		}
+
+		simulator.shutdown();
+		return cache;
+	}
+}
@@ -0,0 +1,83 @@
+package dlxtest;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import dlx.InstructionSetSimulator;
+import gui.DLXAssembler;
+
+import static core.misc.BitConverter.*;
+
+public class CoSimulation implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal fac\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"fac:\naddi r2 r0 1\nfac_loop:\nslei r3 r1 1\nadd r0 r0 r0\nadd r0 r0 r0\nbnez r3 fac_end\nmult r2 r2 r1\nsubi r1 r1 1\nj fac_loop\nadd r0 r0 r0\nfac_end:\njr r31\nadd r0 r0 r0\n";
+
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[4];
+		Signal[] mem_write = new Signal[4];
+		Signal[] mem_write_en = new Signal[4];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 4; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		GroupSetable processor = new dlx.Processor(environment, "processor").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		Setable ram = new std.memory.RAM(environment, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		Simulator simulator;
+		try { simulator = environment.build(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		Setable im = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory");
+		DLXAssembler.parse(asm, im);
+		int[] program = new int[16];
+		for(int i = 0; i < program.length; ++i)
+		{
+			Bit[] b = new Bit[32];
+			for(int j = 0; j < 32; ++j)
+				b[j] = im.getSetableBit(i * 32 + j);
+			program[i] = (int)bitsToLong(b);
+		}
+
+		InstructionSetSimulator reference = new InstructionSetSimulator(program, 4, true);
+		reference.setRegister(1, 6);
+		reference.run(2);
+
+		InstructionSetSimulator iss = new InstructionSetSimulator(program, 4, true);
+		iss.setRegister(1, 6);
+		dlx.CoSimulation cosim = new dlx.CoSimulation(iss, simulator, clk, processor, ram);
+
+		cosim.run(2, 24);
+		testsuite.assertEquals("Instruction Level Check", 24, cosim.getCycles());
+		cosim.switchToGateLevel();
+		cosim.run(2, 10);
+		testsuite.assertEquals("Gate Level Check", 34, cosim.getCycles());
+		cosim.switchToInstructionLevel();
+		cosim.run(2, 1000);
+
+		testsuite.assertEquals("Cycle Check", reference.getCycles(), cosim.getCycles());
+		for(int i = 1; i < 32; ++i)
+			testsuite.assertEquals("Register Check", reference.getRegister(i), iss.getRegister(i));
+		testsuite.assertEquals("Result Check", 720, iss.getRegister(2));
+
+		simulator.shutdown();
+	}
+}
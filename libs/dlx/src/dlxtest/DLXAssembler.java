@@ -0,0 +1,98 @@
+package dlxtest;
+
+import core.misc.setable.Setable;
+import core.signal.Bit;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler.Incremental;
+import gui.DLXAssembler.Token;
+
+import java.util.Arrays;
+
+public class DLXAssembler implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "// sorts the bytes from r1 to r2\njal mem_srt\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"mem_srt:\nadd r2 r2 r1\n" +
+			"mem_srt_ol:\nslt r3 r1 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_end\nadd r0 r0 r0\nlb r5 0(r1)\naddi r4 r1 1\n" +
+			"mem_srt_il:\nslt r3 r4 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_end\nadd r0 r0 r0\nlb r6 0(r4)\nadd r0 r0 r0\n" +
+			"slt r3 r6 r5\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_next\nadd r0 r0 r0\nsb 0(r4) r5\nadd r5 r6 r0\n" +
+			"mem_srt_il_next:\nj mem_srt_il\naddi r4 r4 1\n" +
+			"mem_srt_il_end:\nsb 0(r1) r5\nj mem_srt_ol\naddi r1 r1 1\n" +
+			"mem_srt_end:\njr r31\nadd r0 r0 r0\n";
+
+		String[] edits = new String[]
+		{
+			asm,
+			// a single changed instruction only writes its own word
+			asm.replace("slt r3 r6 r5", "sgt r3 r6 r5"),
+			// an inserted line moves every following label
+			asm.replace("mem_srt_il:\n", "mem_srt_il:\nadd r0 r0 r0\n"),
+			// a removed label leaves errors at its references
+			asm.replace("mem_srt_il_end:\n", ""),
+			asm.replace("lb r6 0(r4)", "lb r6 0(r4"),
+			asm.replace("j mem_srt_ol\n", "/* j mem_srt_ol\n").replace("jr r31", "*/ jr r31"),
+			asm.replace("slt r3 r6 r5", "slt r3 r6 r5 // compare"),
+			asm
+		};
+
+		int[] memory = new int[48];
+		int[] writes = new int[1];
+		Incremental incremental = new Incremental(memory(memory, writes));
+
+		for(int i = 0; i < edits.length; ++i)
+		{
+			writes[0] = 0;
+			Token[] pos = incremental.parse(edits[i]);
+
+			int[] reference = new int[memory.length];
+			Token[] reference_pos = gui.DLXAssembler.parse(edits[i], memory(reference, new int[1]));
+
+			testsuite.assertEquals("Memory Check " + i, reference, memory);
+			testsuite.assertEquals("Token Check " + i, reference_pos.length, pos.length);
+			int mismatch = -1;
+			for(int j = pos.length - 1; j >= 0; --j)
+				if(!describe(reference_pos[j]).equals(describe(pos[j])))
+					mismatch = j;
+			testsuite.assertEquals("Token Type Check " + i, -1, mismatch);
+
+			if(i == 1)
+				testsuite.assertEquals("Patch Check", 32, writes[0]);
+		}
+	}
+
+	private static final String describe(Token t)
+	{
+		return t == null ? "" : t.getClass().getName() + ":" + t.error + ":" + t.warning;
+	}
+
+	private static final Setable memory(final int[] words, final int[] writes)
+	{
+		Arrays.fill(words, 0);
+
+		return new Setable()
+		{
+			@Override public int getSetableCount()
+			{
+				return words.length * 32;
+			}
+
+			@Override public Bit getSetableBit(int i)
+			{
+				return (words[i / 32] >>> (i % 32) & 1) != 0 ? Bit.H : Bit.L;
+			}
+
+			@Override public void setSetableBit(int i, Bit v)
+			{
+				if(v == Bit.H)
+					words[i / 32] |= 1 << (i % 32);
+				else
+					words[i / 32] &= ~(1 << (i % 32));
+				++writes[0];
+			}
+		};
+	}
+}
@@ -0,0 +1,268 @@
+package dlxtest;
+
+import core.misc.setable.Setable;
+import core.signal.Bit;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class InstructionSetSimulator implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal mem_srt\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"mem_srt:\nadd r2 r2 r1\n" +
+			"mem_srt_ol:\nslt r3 r1 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_end\nadd r0 r0 r0\nlb r5 0(r1)\naddi r4 r1 1\n" +
+			"mem_srt_il:\nslt r3 r4 r2\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_end\nadd r0 r0 r0\nlb r6 0(r4)\nadd r0 r0 r0\n" +
+			"slt r3 r6 r5\nadd r0 r0 r0\nadd r0 r0 r0\nbeqz r3 mem_srt_il_next\nadd r0 r0 r0\nsb 0(r4) r5\nadd r5 r6 r0\n" +
+			"mem_srt_il_next:\nj mem_srt_il\naddi r4 r4 1\n" +
+			"mem_srt_il_end:\nsb 0(r1) r5\nj mem_srt_ol\naddi r1 r1 1\n" +
+			"mem_srt_end:\njr r31\nadd r0 r0 r0\n";
+
+		int[] program = assemble(asm, 40);
+		int[] descending = assemble(asm.replace("slt r3 r6 r5", "sgt r3 r6 r5"), 40);
+		int comparison = 0;
+		while(program[comparison] == descending[comparison])
+			++comparison;
+
+		for(int n = 4; n <= 32; n += 4)
+		{
+			dlx.InstructionSetSimulator translated = new dlx.InstructionSetSimulator(program, n, true);
+			dlx.InstructionSetSimulator interpreted = new dlx.InstructionSetSimulator(program, n, true);
+			byte[] values = new byte[n];
+			for(int i = 0; i < n; ++i)
+				values[i] = translated.getMemory()[i] = interpreted.getMemory()[i] = (byte)testsuite.predictableRandomInteger(256);
+			translated.setRegister(2, n);
+			interpreted.setRegister(2, n);
+
+			translated.run(2);
+			run(interpreted, 2);
+
+			compare(testsuite, "", interpreted, translated, false);
+			testsuite.assertEquals("Translation Check", 1, translated.getBlockCount() > 0 ? 1 : 0);
+			testsuite.assertEquals("Interpretation Check", 0, interpreted.getBlockCount());
+
+			Arrays.sort(values);
+			testsuite.assertSignedEquals("Sort Check", values, translated.getMemory());
+
+			if(n < 12)
+				continue;
+
+			// turning the comparison around in the middle of a run, when it
+			// has been executed half as often as in a whole run, must take
+			// effect in the translated inner loop
+			for(dlx.InstructionSetSimulator simulator : new dlx.InstructionSetSimulator[] {translated, interpreted})
+			{
+				simulator.setProgramCounter(0);
+				simulator.setRegister(1, 0);
+				simulator.setRegister(2, n);
+			}
+			for(int i = 0; i < n * (n - 1) / 4; ++i)
+			{
+				translated.run(comparison);
+				run(interpreted, comparison);
+			}
+			int blocks = translated.getBlockCount();
+			translated.setInstruction(comparison, descending[comparison]);
+			interpreted.setInstruction(comparison, descending[comparison]);
+			testsuite.assertEquals("Invalidation Count Check", 1, translated.getBlockCount() < blocks ? 1 : 0);
+			translated.run(2);
+			run(interpreted, 2);
+
+			compare(testsuite, "Invalidation ", interpreted, translated, true);
+		}
+
+		// random loops, exercising the forwarding, the hazards and the delay
+		// slots, with an instruction of the loop replaced while it is hot
+		for(int round = 0; round < 100; ++round)
+		{
+			List<String> lines = new ArrayList<String>();
+			lines.addAll(Arrays.asList("jal body", "add r0 r0 r0", "j 0", "add r0 r0 r0", "body:", "add r10 r31 r0", "addi r9 r0 " + (HOT_ITERATIONS + testsuite.predictableRandomInteger(20)), "loop:"));
+			int first = lines.size();
+			random(testsuite, lines, 1 + testsuite.predictableRandomInteger(8));
+			lines.add("beqz r" + (1 + testsuite.predictableRandomInteger(REGISTERS - 1)) + " skip");
+			int skipped = lines.size() + 1;
+			random(testsuite, lines, 1 + testsuite.predictableRandomInteger(6));
+			lines.add("skip:");
+			int joined = lines.size();
+			// calls from more places than a block is translated for
+			for(int calls = 1 + testsuite.predictableRandomInteger(7); calls > 0; --calls)
+			{
+				random(testsuite, lines, testsuite.predictableRandomInteger(4));
+				lines.add("jal callee");
+				random(testsuite, lines, 1);
+			}
+			lines.addAll(Arrays.asList("subi r9 r9 1", "add r0 r0 r0", "add r0 r0 r0", "bnez r9 loop"));
+			int last = lines.size();
+			random(testsuite, lines, 1);
+			lines.addAll(Arrays.asList("jr r10", "add r0 r0 r0", "callee:"));
+			random(testsuite, lines, 2 + testsuite.predictableRandomInteger(6));
+			lines.addAll(Arrays.asList("jr r31", "add r0 r0 r0"));
+
+			// an instruction executed in every iteration
+			int line;
+			do
+				line = first + testsuite.predictableRandomInteger(last - first);
+			while((line >= skipped && line < joined) || lines.get(line).contains(" skip") || lines.get(line).contains("r9") || lines.get(line).contains("jal"));
+			List<String> changed = new ArrayList<String>(lines);
+			changed.set(line, "");
+			random(testsuite, changed, 1);
+			changed.set(line, changed.remove(changed.size() - 1));
+
+			int[] random_program = assemble(join(lines), 128);
+			int[] changed_program = assemble(join(changed), 128);
+			int address = 0;
+			while(address < random_program.length && random_program[address] == changed_program[address])
+				++address;
+			if(address == random_program.length)
+				continue;
+
+			dlx.InstructionSetSimulator translated = new dlx.InstructionSetSimulator(random_program, 64, true);
+			dlx.InstructionSetSimulator interpreted = new dlx.InstructionSetSimulator(random_program, 64, true);
+			for(int i = 0; i < 64; ++i)
+				translated.getMemory()[i] = interpreted.getMemory()[i] = (byte)testsuite.predictableRandomInteger(256);
+			for(int i = 1; i < REGISTERS; ++i)
+			{
+				int value = testsuite.predictableRandomInteger(4) == 0 ? 0 : testsuite.predictableRandomInteger(1 << 16) - (1 << 15);
+				translated.setRegister(i, value);
+				interpreted.setRegister(i, value);
+			}
+
+			for(int i = 0; i < HOT_ITERATIONS; ++i)
+			{
+				translated.run(address);
+				run(interpreted, address);
+			}
+			translated.setInstruction(address, changed_program[address]);
+			interpreted.setInstruction(address, changed_program[address]);
+			translated.run(2);
+			run(interpreted, 2);
+
+			compare(testsuite, "Random ", interpreted, translated, true);
+		}
+	}
+
+	/**
+	 * The number of iterations of a loop which surely get its blocks
+	 * translated.
+	 */
+	private static final int HOT_ITERATIONS = 16;
+
+	/**
+	 * The number of registers used by random instructions, few enough to make
+	 * them depend on each other often.
+	 */
+	private static final int REGISTERS = 6;
+
+	private static final String[] REGISTER = {"add", "sub", "and", "or", "xor", "sll", "srl", "sra", "slt", "sgt", "sle", "sge", "seq", "sne", "mult", "div", "divu"};
+	private static final String[] IMMEDIATE = {"addi", "subi", "andi", "ori", "xori", "slli", "srai", "slti", "seqi", "snei"};
+	private static final String[] LOAD = {"lb", "lbu", "lh", "lhu", "lw"};
+	private static final String[] STORE = {"sb", "sh", "sw"};
+
+	/**
+	 * Adds random instructions operating on the first {@link #REGISTERS}
+	 * registers.
+	 */
+	private static final void random(TestSuite testsuite, List<String> lines, int count)
+	{
+		for(int i = 0; i < count; ++i)
+		{
+			String rd = "r" + testsuite.predictableRandomInteger(REGISTERS);
+			String rs = "r" + testsuite.predictableRandomInteger(REGISTERS);
+			String rt = "r" + testsuite.predictableRandomInteger(REGISTERS);
+			switch(testsuite.predictableRandomInteger(5))
+			{
+			case 0:
+				lines.add(REGISTER[testsuite.predictableRandomInteger(REGISTER.length)] + " " + rd + " " + rs + " " + rt);
+				break;
+			case 1:
+				int op = testsuite.predictableRandomInteger(IMMEDIATE.length);
+				lines.add(IMMEDIATE[op] + " " + rd + " " + rs + " " + (testsuite.predictableRandomInteger(64) - (op >= 2 && op <= 4 ? 0 : 32)));
+				break;
+			case 2:
+				lines.add(LOAD[testsuite.predictableRandomInteger(LOAD.length)] + " " + rd + " " + testsuite.predictableRandomInteger(64) + "(" + rs + ")");
+				break;
+			case 3:
+				lines.add(STORE[testsuite.predictableRandomInteger(STORE.length)] + " " + testsuite.predictableRandomInteger(64) + "(" + rs + ") " + rt);
+				break;
+			default:
+				lines.add("add " + rd + " " + rs + " r0");
+				break;
+			}
+		}
+	}
+
+	private static final String join(List<String> lines)
+	{
+		StringBuilder sb = new StringBuilder();
+		for(String line : lines)
+			sb.append(line).append('\n');
+		return sb.toString();
+	}
+
+	private static final void run(dlx.InstructionSetSimulator simulator, int pc)
+	{
+		do
+			simulator.step();
+		while(simulator.getProgramCounter() != pc);
+	}
+
+	/**
+	 * @param flush Whether to compare the registers while the instructions in
+	 *              the pipeline get written back, leaving the simulations in
+	 *              an unknown state
+	 */
+	private static final void compare(TestSuite testsuite, String check, dlx.InstructionSetSimulator interpreted, dlx.InstructionSetSimulator translated, boolean flush)
+	{
+		testsuite.assertEquals(check + "Cycle Check", interpreted.getCycles(), translated.getCycles());
+		testsuite.assertEquals(check + "Program Counter Check", interpreted.getProgramCounter(), translated.getProgramCounter());
+		for(int i = 1; i < 32; ++i)
+			testsuite.assertEquals(check + "Register Check", interpreted.getRegister(i), translated.getRegister(i));
+		testsuite.assertSignedEquals(check + "Memory Check", interpreted.getMemory(), translated.getMemory());
+
+		if(flush)
+			for(int cycle = 0; cycle < 5; ++cycle)
+			{
+				interpreted.step();
+				translated.step();
+				for(int i = 1; i < 32; ++i)
+					testsuite.assertEquals(check + "Pipeline Check", interpreted.getRegister(i), translated.getRegister(i));
+			}
+	}
+
+	private static final int[] assemble(String asm, final int size)
+	{
+		final Bit[] bits = new Bit[size * 32];
+		Arrays.fill(bits, Bit.L);
+
+		DLXAssembler.parse(asm, new Setable()
+		{
+			@Override public int getSetableCount()
+			{
+				return bits.length;
+			}
+
+			@Override public Bit getSetableBit(int i)
+			{
+				return bits[i];
+			}
+
+			@Override public void setSetableBit(int i, Bit v)
+			{
+				bits[i] = v;
+			}
+		});
+
+		int[] program = new int[size];
+		for(int i = 0; i < bits.length; ++i)
+			if(bits[i] == Bit.H)
+				program[i / 32] |= 1 << (i % 32);
+		return program;
+	}
+}
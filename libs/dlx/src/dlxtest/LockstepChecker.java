@@ -0,0 +1,76 @@
+package dlxtest;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import dlx.InstructionSetSimulator;
+import gui.DLXAssembler;
+
+import static core.misc.BitConverter.*;
+
+public class LockstepChecker implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal mul\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"mul:\naddi r2 r0 5\naddi r3 r0 -7\nmult r4 r2 r3\nsw 0(r0) r4\nsb 1(r0) r2\njr r31\nadd r0 r0 r0\n";
+
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[4];
+		Signal[] mem_write = new Signal[4];
+		Signal[] mem_write_en = new Signal[4];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 4; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		GroupSetable processor = new dlx.Processor(environment, "processor").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		Setable ram = new std.memory.RAM(environment, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		Simulator simulator;
+		try { simulator = environment.build(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		Setable im = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory");
+		DLXAssembler.parse(asm, im);
+		int[] program = new int[16];
+		for(int i = 0; i < program.length; ++i)
+		{
+			Bit[] b = new Bit[32];
+			for(int j = 0; j < 32; ++j)
+				b[j] = im.getSetableBit(i * 32 + j);
+			program[i] = (int)bitsToLong(b);
+		}
+
+		InstructionSetSimulator iss = new InstructionSetSimulator(program, 4, true);
+		dlx.LockstepChecker checker = new dlx.LockstepChecker(iss, simulator, clk, processor, ram, mem_write_en);
+
+		boolean returned = checker.run(2, 100);
+		testsuite.assertEquals("Divergence Check" + (checker.getDivergence() == null ? "" : ": " + checker.getDivergence()), 1, checker.getDivergence() == null ? 1 : 0);
+		testsuite.assertEquals("Return Check", 1, returned ? 1 : 0);
+		testsuite.assertEquals("Store Check", new byte[] {-35, 5, -1, -1}, iss.getMemory());
+
+		// a register nobody writes is only compared by a full check
+		iss.setRegister(7, 42);
+		testsuite.assertEquals("Unwritten Register Check", 1, checker.step() ? 1 : 0);
+		testsuite.assertEquals("Detection Check", 0, checker.check() ? 1 : 0);
+		testsuite.assertEquals("Divergence Register Check", 1, checker.getDivergence().contains("register 7") ? 1 : 0);
+
+		simulator.shutdown();
+	}
+}
@@ -0,0 +1,95 @@
+package dlxtest;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.misc.serial.SerializingStream;
+import core.misc.setable.GroupSetable;
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler;
+
+import static core.misc.BitConverter.*;
+
+public class PipelineStatistics implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		String asm = "jal count\nadd r0 r0 r0\nj 0\nadd r0 r0 r0\n" +
+			"count:\naddi r2 r0 2\nlw r5 0(r0)\nadd r0 r0 r0\nadd r6 r5 r5\n" +
+			"count_loop:\nsubi r2 r2 1\nadd r7 r2 r2\nadd r0 r0 r0\nbnez r2 count_loop\nsw 0(r0) r6\n" +
+			"jr r31\nadd r0 r0 r0\n";
+
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[4];
+		Signal[] mem_write = new Signal[4];
+		Signal[] mem_write_en = new Signal[4];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 4; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		GroupSetable processor = new dlx.Processor(environment, "processor").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		new std.memory.RAM(environment, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		Simulator simulator;
+		try { simulator = environment.build(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		DLXAssembler.parse(asm, ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory"));
+		Setable program_counter = ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
+		Bit[] pc = new Bit[32];
+
+		dlx.PipelineStatistics statistics = new dlx.PipelineStatistics(processor, clk);
+		final int[] reports = new int[1];
+		testsuite.assertEquals("Empty Check", 1, statistics.getCyclesPerInstruction() == 0 ? 1 : 0);
+		statistics.setReportPeriod(5, new dlx.PipelineStatistics.ReportListener()
+		{
+			@Override public void report(dlx.PipelineStatistics statistics)
+			{
+				++reports[0];
+			}
+
+			@Override public void serialize(SerializingStream out)
+			{
+			}
+		});
+		do
+		{
+			clk.setBit(0, Bit.H);
+			simulator.doSimulation();
+			clk.setBit(0, Bit.L);
+			simulator.doSimulation();
+
+			for(int i = 0; i < 32; ++i)
+				pc[i] = program_counter.getSetableBit(i);
+		}
+		while(bitsToLong(pc) != 2);
+
+		simulator.shutdown();
+		statistics.detach();
+
+		testsuite.assertEquals("Cycle Check", statistics.getCounter("cycles"), statistics.getCounter("instructions") + statistics.getCounter("bubbles"));
+		testsuite.assertEquals("Instruction Check", 13, statistics.getCounter("instructions"));
+		testsuite.assertEquals("Jump Check", 2, statistics.getCounter("jumps"));
+		testsuite.assertEquals("Branch Check", 2, statistics.getCounter("branches"));
+		testsuite.assertEquals("Taken Branch Check", 1, statistics.getCounter("taken branches"));
+		testsuite.assertEquals("Load Check", 1, statistics.getCounter("loads"));
+		testsuite.assertEquals("Store Check", 2, statistics.getCounter("stores"));
+		testsuite.assertEquals("Load Forward Check", 2, statistics.getCounter("load forwards"));
+		testsuite.assertEquals("Ring Buffer Forward Check", 4, statistics.getCounter("ring buffer forwards"));
+		testsuite.assertEquals("Report Check", statistics.getCounter("cycles") / 5, reports[0]);
+	}
+}
@@ -0,0 +1,302 @@
+package dlxtest;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.ClockSimulator;
+import core.misc.serial.Deferred;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.Serializable;
+import core.misc.serial.SerializingStream;
+import core.misc.setable.GroupSetable;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import gui.DLXAssembler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Serialization implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		try
+		{
+			for(int version : new int[] {SerializingStream.VERSION_1, SerializingStream.VERSION_2})
+			{
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				SerializingStream out = new SerializingStream(bytes, version);
+
+				int[] ints = new int[] {0, 1, -1, 63, -64, 64, Integer.MAX_VALUE, Integer.MIN_VALUE};
+				long[] longs = new long[] {0, 1, -1, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE};
+				byte[] raw = new byte[20000];
+				for(int i = 0; i < raw.length; ++i)
+					raw[i] = (byte)testsuite.predictableRandomInteger(256);
+				List<Object> list = new ArrayList<Object>();
+				list.add("shared");
+				list.add(list.get(0));
+				list.add(null);
+				list.add(Bit.H);
+
+				for(int i : ints)
+					out.writeInteger(i);
+				for(long l : longs)
+					out.writeLong(l);
+				out.writeShort((short)-2);
+				out.writeCharacter('\u20ac');
+				out.writeFloat(1.5f);
+				out.writeDouble(-0.25);
+				out.writeBoolean(true);
+				out.writeString("\u00e4" + new String(new char[10000]).replace('\0', 'x'));
+				out.writeObject(raw);
+				out.writeObject(list);
+				out.writeObject(ints, false);
+				out.close();
+
+				DeserializingStream in = new DeserializingStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+				for(int i : ints)
+					testsuite.assertEquals("Integer Check " + version, i, in.readInteger());
+				for(long l : longs)
+					testsuite.assertEquals("Long Check " + version, l, in.readLong());
+				testsuite.assertEquals("Short Check " + version, -2, (int)in.readShort());
+				testsuite.assertEquals("Character Check " + version, 0x20ac, (int)in.readCharacter());
+				testsuite.assertEquals("Float Check " + version, Float.floatToIntBits(1.5f), Float.floatToIntBits(in.readFloat()));
+				testsuite.assertEquals("Double Check " + version, Double.doubleToLongBits(-0.25), Double.doubleToLongBits(in.readDouble()));
+				testsuite.assertEquals("Boolean Check " + version, 1, in.readBoolean() ? 1 : 0);
+				testsuite.assertEquals("String Check " + version, 10001, in.readString().length());
+				testsuite.assertEquals("Byte Array Check " + version, raw, in.readObject());
+
+				List<?> result = in.readObject();
+				testsuite.assertEquals("List Check " + version, list.size(), result.size());
+				testsuite.assertEquals("Reference Check " + version, 1, result.get(0) == result.get(1) && "shared".equals(result.get(0)) ? 1 : 0);
+				testsuite.assertEquals("Enum Check " + version, Bit.H, result.get(3));
+				testsuite.assertEquals("Array Check " + version, ints, in.readObject(int[].class));
+				testsuite.assertEquals("End Check " + version, -1, in.read());
+			}
+
+			// a nesting far deeper than the stack of a single thread allows
+			List<Object> deep = new ArrayList<Object>();
+			List<Object> last = deep;
+			for(int i = 0; i < 200000; ++i)
+			{
+				List<Object> next = new ArrayList<Object>();
+				last.add(next);
+				last = next;
+			}
+			last.add(Integer.valueOf(42));
+
+			ByteArrayOutputStream deep_bytes = new ByteArrayOutputStream();
+			SerializingStream deep_out = new SerializingStream(deep_bytes);
+			deep_out.writeObject(deep);
+			deep_out.close();
+
+			Object deep_result = new DeserializingStream(new ByteArrayInputStream(deep_bytes.toByteArray())).readObject();
+			int depth = 0;
+			for(; deep_result instanceof List; ++depth)
+				deep_result = ((List<?>)deep_result).get(0);
+			testsuite.assertEquals("Depth Check", 200001, depth);
+			testsuite.assertEquals("Deep Value Check", 42, deep_result);
+
+			// arrays and maps nested alternately, sharing a string between the levels
+			String shared = "shared";
+			Object nested = Integer.valueOf(42);
+			for(int i = 0; i < 100000; ++i)
+			{
+				Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+				map.put(shared, new Object[] {nested, shared});
+				map.put(Integer.valueOf(i), null);
+				nested = map;
+			}
+
+			ByteArrayOutputStream nested_bytes = new ByteArrayOutputStream();
+			SerializingStream nested_out = new SerializingStream(nested_bytes);
+			nested_out.writeObject(nested);
+			nested_out.close();
+
+			Object nested_result = new DeserializingStream(new ByteArrayInputStream(nested_bytes.toByteArray())).readObject();
+			depth = 0;
+			boolean same = true;
+			for(; nested_result instanceof Map; ++depth)
+			{
+				Map<?, ?> map = (Map<?, ?>)nested_result;
+				Object[] value = (Object[])map.values().iterator().next();
+				same &= map.keySet().iterator().next() == value[1] && map.containsKey(Integer.valueOf(99999 - depth));
+				nested_result = value[0];
+			}
+			testsuite.assertEquals("Nested Depth Check", 100000, depth);
+			testsuite.assertEquals("Nested Reference Check", 1, same ? 1 : 0);
+			testsuite.assertEquals("Nested Value Check", 42, nested_result);
+
+			// Serializable objects still nest on the stack: one chain far
+			// deeper than a thread allows, and many continued on a worker
+			List<Link> chains = new ArrayList<Link>();
+			chains.add(Link.chain(50000));
+			for(int i = 0; i < 500; ++i)
+				chains.add(Link.chain(300));
+
+			ByteArrayOutputStream chain_bytes = new ByteArrayOutputStream();
+			SerializingStream chain_out = new SerializingStream(chain_bytes);
+			chain_out.writeObject(chains);
+			chain_out.close();
+
+			List<?> chain_result = new DeserializingStream(new ByteArrayInputStream(chain_bytes.toByteArray())).readObject();
+			boolean lengths = chain_result.size() == chains.size();
+			for(int i = 0; lengths && i < chains.size(); ++i)
+				lengths = ((Link)chain_result.get(i)).length() == chains.get(i).length();
+			testsuite.assertEquals("Chain Check", 1, lengths ? 1 : 0);
+
+			// two sections sharing a list, which has to be moved out of them,
+			// read in the opposite order and followed by a reference to both
+			List<Object> inner = new ArrayList<Object>();
+			inner.add("inner");
+			List<Object> first_section = new ArrayList<Object>();
+			first_section.add(inner);
+			first_section.add(Bit.L);
+			List<Object> second_section = new ArrayList<Object>();
+			second_section.add(inner);
+			second_section.add(Bit.L);
+
+			ByteArrayOutputStream section_bytes = new ByteArrayOutputStream();
+			SerializingStream section_out = new SerializingStream(section_bytes, true);
+			section_out.writeObject("top");
+			section_out.writeDeferred(first_section);
+			section_out.writeDeferred(second_section);
+			section_out.writeSections();
+			section_out.writeObject(new Object[] {first_section, second_section});
+			section_out.close();
+
+			DeserializingStream section_in = new DeserializingStream(ByteBuffer.wrap(section_bytes.toByteArray()));
+			testsuite.assertEquals("Section Top Check", 1, "top".equals(section_in.readObject()) ? 1 : 0);
+			Deferred<List<?>> first_deferred = section_in.readDeferred(null);
+			Deferred<List<?>> second_deferred = section_in.readDeferred(null);
+			testsuite.assertEquals("Section Lazy Check", 0, first_deferred.isRead() || second_deferred.isRead() ? 1 : 0);
+			List<?> second_result = second_deferred.get();
+			testsuite.assertEquals("Section Single Check", 0, first_deferred.isRead() ? 1 : 0);
+			List<?> first_result = first_deferred.get();
+			testsuite.assertEquals("Section Shared Check", 1, first_result.get(0) == second_result.get(0) && first_result.get(1) == Bit.L ? 1 : 0);
+			section_in.readSections();
+			Object[] tail = section_in.readObject();
+			testsuite.assertEquals("Section Tail Check", 1, tail[0] == first_result && tail[1] == second_result ? 1 : 0);
+
+			// a built processor, like saved by the mandelbrot gui
+			ClockSimulator simulator = build();
+			byte[] first = save(simulator, SerializingStream.VERSION_1);
+			byte[] second = save(simulator, SerializingStream.VERSION_2);
+			simulator.shutdown();
+			testsuite.assertEquals("Size Check", 1, second.length * 2 < first.length ? 1 : 0);
+
+			// both formats have to be read completely
+			for(byte[] saved : new byte[][] {first, second})
+			{
+				DeserializingStream in = new DeserializingStream(new ByteArrayInputStream(saved));
+				in.readObject(ClockSimulator.class).shutdown();
+				testsuite.assertEquals("Reload Check", -1, in.read());
+			}
+		}
+		catch(IOException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(SerializingException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(DeserializingException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(InstantiationException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+	}
+
+	private static final ClockSimulator build()
+	{
+		Environment environment = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[4];
+		Signal[] mem_write = new Signal[4];
+		Signal[] mem_write_en = new Signal[4];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 4; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		GroupSetable processor = new dlx.Processor(environment, "processor").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		new std.memory.RAM(environment, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		Simulator simulator;
+		try { simulator = environment.build(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		DLXAssembler.parse("addi r1 r0 7\nj 0\nadd r0 r0 r0\n", ((GroupSetable)processor.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory"));
+
+		return new ClockSimulator(simulator, clk, Bit.H);
+	}
+
+	public static final class Link implements Serializable
+	{
+		public Link(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+		{
+			next = in.readObject(Link.class);
+		}
+
+		private Link(Link next)
+		{
+			this.next = next;
+		}
+
+		public static final Link chain(int length)
+		{
+			Link l = null;
+			for(int i = 0; i < length; ++i)
+				l = new Link(l);
+			return l;
+		}
+
+		final int length()
+		{
+			int n = 0;
+			for(Link l = this; l != null; l = l.next)
+				++n;
+			return n;
+		}
+
+		@Override public final void serialize(SerializingStream out) throws IOException, SerializingException
+		{
+			out.writeObject(next, false);
+		}
+
+		private final Link next;
+	}
+
+	private static final byte[] save(ClockSimulator simulator, int version) throws IOException, SerializingException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SerializingStream out = new SerializingStream(bytes, version);
+		out.writeObject(simulator, false);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
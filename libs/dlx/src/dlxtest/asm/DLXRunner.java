@@ -3,14 +3,17 @@ package dlxtest.asm;
 
 import core.misc.setable.GroupSetable;
 import core.misc.setable.Setable;
+import core.misc.setable.Setables;
 import core.signal.Bit;
 import core.signal.Signal;
 
 import core.misc.test.TestSuite;
 import core.misc.test.Testable;
 
+import dlx.InstructionSetSimulator;
 import gui.DLXAssembler;
-import static core.misc.BitConverter.*;
+
+import java.nio.ByteBuffer;
 
 public abstract class DLXRunner implements Testable
 {
@@ -30,30 +33,35 @@ public abstract class DLXRunner implements Testable
 			mem_write_en[i] = new Signal(1);
 		}
 
-		Bit[] pc = new Bit[32];
-
 		GroupSetable dlx_setable = testsuite.addComponent(dlx.Processor.class).setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, asm.length + 4, true);
 		Setable ram_setable = testsuite.addComponent(std.memory.RAM.class).setAll(mem_clk, mem_write, mem_write_en, mem_read);
 
 		testsuite.buildEnvironment();
 
-		DLXAssembler.parse(buildASM(function, asm), ((GroupSetable)dlx_setable.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory"));
+		Setable instruction_memory = ((GroupSetable)dlx_setable.getSetableGroup("instruction fetch")).getSetableGroup("instruction memory");
+		DLXAssembler.parse(buildASM(function, asm), instruction_memory);
+
+		// the instruction set simulator serves as reference for the gate level pipeline
+		long[] words = new long[(instruction_memory.getSetableCount() + 63) / 64];
+		Setables.getWords(instruction_memory, 0, words, instruction_memory.getSetableCount());
+		int[] program = new int[instruction_memory.getSetableCount() / 32];
+		for(int i = 0; i < program.length; ++i)
+			program[i] = (int)(words[i / 2] >>> (i % 2 * 32));
+		InstructionSetSimulator iss = new InstructionSetSimulator(program, ram.length, true);
+		for(int i = 0; i < 31; ++i)
+			iss.setRegister(i + 1, register[i]);
+		System.arraycopy(ram, 0, iss.getMemory(), 0, ram.length);
+		iss.run(2);
+
 		Setable program_counter = ((GroupSetable)dlx_setable.getSetableGroup("instruction fetch")).getSetableGroup("program counter");
-		Setable[] regs = new Setable[31];
+		Setable register_file = dlx_setable.getSetableGroup("register file");
+		long[] registers = new long[16];
 		for(int i = 0; i < 31; ++i)
-		{
-			regs[i] = ((GroupSetable)dlx_setable.getSetableGroup("register file")).getSetableGroup("register " + (i + 1));
-			Bit[] b = longToBits(32, register[i]);
-			for(int j = 0; j < 32; ++j)
-				regs[i].setSetableBit(j, b[j]);
-		}
-		for(int i = 0; i < ram_setable.getSetableCount() / 8; ++i)
-		{
-			Bit[] b = longToBits(8, ram[i]);
-			for(int j = 0; j < 8; ++j)
-				ram_setable.setSetableBit(i * 8 + j, b[j]);
-		}
+			registers[i / 2] |= (register[i] & 0xFFFFFFFFL) << (i % 2 * 32);
+		Setables.setWords(register_file, 0, registers, 31 * 32);
+		Setables.setBytes(ram_setable, 0, ByteBuffer.wrap(ram));
 
+		long[] pc = new long[1];
 		do
 		{
 			clk.setBit(0, Bit.H);
@@ -61,28 +69,22 @@ public abstract class DLXRunner implements Testable
 			clk.setBit(0, Bit.L);
 			testsuite.doSimulation();
 
-			for(int i = 0; i < 32; ++i)
-				pc[i] = program_counter.getSetableBit(i);
+			Setables.getWords(program_counter, 0, pc, 32);
 		}
-		while(bitsToLong(pc) != 2);
+		while(pc[0] != 2);
 
+		Setables.getWords(register_file, 0, registers, 31 * 32);
 		for(int i = 0; i < 31; ++i)
-		{
-			Bit[] b = new Bit[32];
-			for(int j = 0; j < 32; ++j)
-				b[j] = regs[i].getSetableBit(j);
-
-			register[i] = bitsToInteger(true, b).intValue();
-		}
+			register[i] = (int)(registers[i / 2] >>> (i % 2 * 32));
 
-		for(int i = 0; i < ram_setable.getSetableCount() / 8; ++i)
-		{
-			Bit[] b = new Bit[8];
-			for(int j = 0; j < 8; ++j)
-				b[j] = ram_setable.getSetableBit(i * 8 + j);
+		long[] memory = new long[(ram.length + 7) / 8];
+		Setables.getWords(ram_setable, 0, memory, ram.length * 8L);
+		for(int i = 0; i < ram.length; ++i)
+			ram[i] = (byte)(memory[i / 8] >>> (i % 8 * 8));
 
-			ram[i] = bitsToInteger(true, b).byteValue();
-		}
+		for(int i = 0; i < 31; ++i)
+			testsuite.assertEquals("Reference Register Check", iss.getRegister(i + 1), register[i]);
+		testsuite.assertSignedEquals("Reference Memory Check", iss.getMemory(), ram);
 	}
 
 	private final String buildASM(String function, String... commands)
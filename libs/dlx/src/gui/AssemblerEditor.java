@@ -134,19 +134,19 @@ public final class AssemblerEditor extends JEditorPane
 		@Override public void insertUpdate(DocumentEvent e)
 		{
 			Document d = getDocument();
-			try{ pos = parse(d.getText(0, d.getLength()), instruction_memory); } catch(BadLocationException ex) {}
+			try{ pos = assembler.parse(d.getText(0, d.getLength())); } catch(BadLocationException ex) {}
 		}
 
 		@Override public void removeUpdate(DocumentEvent e)
 		{
 			Document d = getDocument();
-			try{ pos = parse(d.getText(0, d.getLength()), instruction_memory); } catch(BadLocationException ex) {}
+			try{ pos = assembler.parse(d.getText(0, d.getLength())); } catch(BadLocationException ex) {}
 		}
 
 		@Override public void changedUpdate(DocumentEvent e)
 		{
 			Document d = getDocument();
-			try{ pos = parse(d.getText(0, d.getLength()), instruction_memory); } catch(BadLocationException ex) {}
+			try{ pos = assembler.parse(d.getText(0, d.getLength())); } catch(BadLocationException ex) {}
 		}
 	}
 
@@ -160,15 +160,14 @@ public final class AssemblerEditor extends JEditorPane
 	private static final Color error_color = new Color(255, 0, 0);
 	private static final Color warning_color = new Color(192, 192, 0);
 
-	private final Setable instruction_memory;
+	private final Incremental assembler;
 	private Token[] pos;
 
 	public AssemblerEditor(Setable instruction_memory)
 	{
-		this.instruction_memory = instruction_memory;
+		assembler = new Incremental(instruction_memory);
 
 		pos = new Token[0];
-		instruction_memory = null;
 
 		setEditorKit(new SyntaxEditorKit());
 		ToolTipManager.sharedInstance().registerComponent(this);
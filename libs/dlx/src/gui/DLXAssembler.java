@@ -3,8 +3,8 @@ package gui;
 
 import test.*;
 import core.misc.setable.Setable;
+import core.misc.setable.Setables;
 import core.signal.Bit;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -13,7 +13,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static core.signal.Bit.*;
-import static core.misc.BitConverter.*;
 
 /**
  *
@@ -184,12 +183,97 @@ public final class DLXAssembler
 	public static final Token[] parse(String asm, Setable memory)
 	{
 		Token[] pos = new Token[asm.length()];
-		for(int i = 0; i < asm.length(); ++i)
-			pos[i] = null;
+		tokenize(asm, pos, 0, asm.length());
 
+		int[] words = assemble(pos, asm, memory != null ? memory.getSetableCount() / 32 : -1);
+		if(memory != null)
+			write(memory, words, null);
+
+		return pos;
+	}
+
+	/**
+	 * Assembles a changing program into its instruction memory. Only the
+	 * lines changed since the previous call are tokenized again, and only the
+	 * words whose opcode changed are written, so a program can be edited
+	 * while the simulation is running. Labels and warnings are always checked
+	 * again for the whole program, as a change may affect any of them.
+	 */
+	public static final class Incremental
+	{
+		public Incremental(Setable memory)
+		{
+			this.memory = memory;
+
+			asm = "";
+			pos = new Token[0];
+			words = null;
+		}
+
+		public final Token[] parse(String asm)
+		{
+			String old = this.asm;
+			int length = Math.min(old.length(), asm.length());
+
+			int prefix = 0;
+			while(prefix < length && old.charAt(prefix) == asm.charAt(prefix))
+				++prefix;
+			int suffix = 0;
+			while(suffix < length - prefix && old.charAt(old.length() - suffix - 1) == asm.charAt(asm.length() - suffix - 1))
+				++suffix;
+
+			// the changed region always spans whole lines
+			int start = asm.lastIndexOf('\n', prefix - 1) + 1;
+			int old_end = old.indexOf('\n', old.length() - suffix);
+			if(old_end == -1)
+				old_end = old.length();
+			int end = old_end - old.length() + asm.length();
+
+			Token[] pos = new Token[asm.length()];
+
+			// block comments are the only tokens spanning several lines
+			if(words == null || comments(old, start, old_end) || comments(asm, start, end) || (start > 0 && this.pos[start - 1] != null) || (old_end < old.length() && this.pos[old_end] != null))
+				tokenize(asm, pos, 0, asm.length());
+			else
+			{
+				System.arraycopy(this.pos, 0, pos, 0, start);
+				System.arraycopy(this.pos, old_end, pos, end, old.length() - old_end);
+				tokenize(asm, pos, start, end);
+			}
+
+			int[] words = assemble(pos, asm, memory != null ? memory.getSetableCount() / 32 : -1);
+			if(memory != null)
+				write(memory, words, this.words);
+
+			this.asm = asm;
+			this.pos = pos;
+			this.words = words;
+
+			return pos;
+		}
+
+		private final Setable memory;
+
+		private String asm;
+		private Token[] pos;
+		private int[] words;
+
+		private static final boolean comments(String asm, int start, int end)
+		{
+			int i = asm.indexOf("/*", start);
+			int j = asm.indexOf("*/", start);
+			return (i != -1 && i < end - 1) || (j != -1 && j < end - 1);
+		}
+	}
+
+	private static final void tokenize(String asm, Token[] pos, int start, int end)
+	{
 		for(Map.Entry<Pattern, Type> e : regex.entrySet())
 		{
 			Matcher m = e.getKey().matcher(asm);
+			m.region(start, end);
+			m.useTransparentBounds(true);
+			m.useAnchoringBounds(false);
 
 			match: while(m.find())
 			{
@@ -266,6 +350,19 @@ public final class DLXAssembler
 				}
 			}
 		}
+	}
+
+	private static final int[] assemble(Token[] pos, String asm, int size)
+	{
+		// tokens kept from a previous run are checked again
+		for(int i = 0; i < pos.length; ++i)
+			if(pos[i] != null && pos[i].getClass() == Token.class)
+				pos[i] = null;
+			else if(pos[i] != null)
+			{
+				pos[i].error = null;
+				pos[i].warning = null;
+			}
 
 		ArrayList<Token> tokens = new ArrayList<Token>();
 		Map<String, Integer> labels = new HashMap<String, Integer>();
@@ -738,192 +835,128 @@ public final class DLXAssembler
 				c.setError("Expected command");
 		}
 
-		if(memory != null)
+		if(size != -1)
+			for(int i = size; i < commands.size(); ++i)
+				commands.get(i).command.setError("Out of instruction memory");
+
+		int[] words = new int[size != -1 ? Math.min(commands.size(), size) : 0];
+		for(int i = 0; i < words.length; ++i)
+			words[i] = encode(commands.get(i));
+
+		return words;
+	}
+
+	private static final void write(Setable memory, int[] words, int[] old)
+	{
+		int size = memory.getSetableCount() / 32;
+
+		if(old == null)
 		{
-			if(commands.size() * 32 > memory.getSetableCount())
-				for(int i = memory.getSetableCount() / 32; i < commands.size(); ++i)
-					commands.get(i).command.setError("Out of instruction memory");
-			else
-				for(int i = commands.size() * 32; i < memory.getSetableCount(); ++i)
-					memory.setSetableBit(i, L);
+			long[] packed = new long[(memory.getSetableCount() + 63) / 64];
+			for(int i = 0; i < size && i < words.length; ++i)
+				packed[i / 2] |= (words[i] & 0xFFFFFFFFL) << (i % 2 * 32);
+			Setables.setWords(memory, 0, packed, memory.getSetableCount());
+			return;
+		}
 
-			for(int i = 0; i < commands.size() && i < memory.getSetableCount() / 32; ++i)
+		long[] word = new long[1];
+		for(int i = 0; i < size; ++i)
+		{
+			int w = i < words.length ? words[i] : 0;
+			if(w != (i < old.length ? old[i] : 0))
 			{
-				Command c = commands.get(i);
-				Bit[] rs1;
-				Bit[] rs2;
-				Bit[] rd;
-				Bit[] imm;
-
-				switch(c.command.command)
-				{
-				case LB:
-				case LBU:
-				case LH:
-				case LHU:
-				case LW:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((AddressToken)c.params[1]).register));
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					imm = integerToBits(Order.LITTLE_ENDIAN, 16, BigInteger.valueOf(((AddressToken)c.params[1]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, rd[j]);
-					for(int j = 0; j < 16; ++j)
-						memory.setSetableBit(32 * i + j + 16, imm[j]);
-					break;
-				case SB:
-				case SH:
-				case SW:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((AddressToken)c.params[0]).register));
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[1]).register));
-					imm = integerToBits(Order.LITTLE_ENDIAN, 16, BigInteger.valueOf(((AddressToken)c.params[0]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, rd[j]);
-					for(int j = 0; j < 16; ++j)
-						memory.setSetableBit(32 * i + j + 16, imm[j]);
-					break;
-				case ADD:
-				case SUB:
-				case MULT:
-				case MULTU:
-				case DIV:
-				case DIVU:
-				case AND:
-				case OR:
-				case XOR:
-				case SLL:
-				case SRL:
-				case SRA:
-				case SLT:
-				case SGT:
-				case SLE:
-				case SGE:
-				case SEQ:
-				case SNE:
-				case FADD:
-				case FSUB:
-				case FMULT:
-				case FDIV:
-				case FSLT:
-				case FSGT:
-				case FSLE:
-				case FSGE:
-				case FSEQ:
-				case FSNE:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[1]).register));
-					rs2 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[2]).register));
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, L);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, rs2[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 16, rd[j]);
-					for(int j = 0; j < 11; ++j)
-						memory.setSetableBit(32 * i + j + 21, c.command.command.opcode[j]);
-					break;
-				case FSINF:
-				case FCITF:
-				case FCFTI:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[1]).register));
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, L);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, L);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 16, rd[j]);
-					for(int j = 0; j < 11; ++j)
-						memory.setSetableBit(32 * i + j + 21, c.command.command.opcode[j]);
-					break;
-				case ADDI:
-				case ADDUI:
-				case SUBI:
-				case SUBUI:
-				case ANDI:
-				case ORI:
-				case XORI:
-				case SLLI:
-				case SRLI:
-				case SRAI:
-				case SLTI:
-				case SGTI:
-				case SLEI:
-				case SGEI:
-				case SEQI:
-				case SNEI:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[1]).register));
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					imm = integerToBits(Order.LITTLE_ENDIAN, 16, BigInteger.valueOf(((ImmediateToken)c.params[2]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, rd[j]);
-					for(int j = 0; j < 16; ++j)
-						memory.setSetableBit(32 * i + j + 16, imm[j]);
-					break;
-				case LHI:
-					rd = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					imm = integerToBits(Order.LITTLE_ENDIAN, 16, BigInteger.valueOf(((ImmediateToken)c.params[1]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, L);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, rd[j]);
-					for(int j = 0; j < 16; ++j)
-						memory.setSetableBit(32 * i + j + 16, imm[j]);
-					break;
-				case BEQZ:
-				case BNEZ:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					imm = integerToBits(Order.LITTLE_ENDIAN, 16, BigInteger.valueOf(((ImmediateToken)c.params[1]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 11, L);
-					for(int j = 0; j < 16; ++j)
-						memory.setSetableBit(32 * i + j + 16, imm[j]);
-					break;
-				case J:
-				case JAL:
-					imm = integerToBits(Order.LITTLE_ENDIAN, 26, BigInteger.valueOf(((ImmediateToken)c.params[0]).immediate));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 26; ++j)
-						memory.setSetableBit(32 * i + j + 6, imm[j]);
-					break;
-				case JR:
-				case JALR:
-					rs1 = integerToBits(Order.LITTLE_ENDIAN, 5, BigInteger.valueOf(((RegisterToken)c.params[0]).register));
-					for(int j = 0; j < 6; ++j)
-						memory.setSetableBit(32 * i + j, c.command.command.opcode[j]);
-					for(int j = 0; j < 5; ++j)
-						memory.setSetableBit(32 * i + j + 6, rs1[j]);
-					for(int j = 0; j < 21; ++j)
-						memory.setSetableBit(32 * i + j + 11, L);
-				}
+				word[0] = w & 0xFFFFFFFFL;
+				Setables.setWords(memory, 32L * i, word, 32);
 			}
 		}
+	}
 
-		return pos;
+	private static final int encode(Command c)
+	{
+		int opcode = 0;
+		for(int i = 0; i < c.command.command.opcode.length; ++i)
+			if(c.command.command.opcode[i] == H)
+				opcode |= 1 << i;
+
+		switch(c.command.command)
+		{
+		case LB:
+		case LBU:
+		case LH:
+		case LHU:
+		case LW:
+			return opcode | ((AddressToken)c.params[1]).register << 6 | ((RegisterToken)c.params[0]).register << 11 | ((AddressToken)c.params[1]).immediate << 16;
+		case SB:
+		case SH:
+		case SW:
+			return opcode | ((AddressToken)c.params[0]).register << 6 | ((RegisterToken)c.params[1]).register << 11 | ((AddressToken)c.params[0]).immediate << 16;
+		case ADD:
+		case SUB:
+		case MULT:
+		case MULTU:
+		case DIV:
+		case DIVU:
+		case AND:
+		case OR:
+		case XOR:
+		case SLL:
+		case SRL:
+		case SRA:
+		case SLT:
+		case SGT:
+		case SLE:
+		case SGE:
+		case SEQ:
+		case SNE:
+		case FADD:
+		case FSUB:
+		case FMULT:
+		case FDIV:
+		case FSLT:
+		case FSGT:
+		case FSLE:
+		case FSGE:
+		case FSEQ:
+		case FSNE:
+			return ((RegisterToken)c.params[1]).register << 6 | ((RegisterToken)c.params[2]).register << 11 | ((RegisterToken)c.params[0]).register << 16 | opcode << 21;
+		case FSINF:
+		case FCITF:
+		case FCFTI:
+			return ((RegisterToken)c.params[1]).register << 6 | ((RegisterToken)c.params[0]).register << 16 | opcode << 21;
+		case ADDI:
+		case ADDUI:
+		case SUBI:
+		case SUBUI:
+		case ANDI:
+		case ORI:
+		case XORI:
+		case SLLI:
+		case SRLI:
+		case SRAI:
+		case SLTI:
+		case SGTI:
+		case SLEI:
+		case SGEI:
+		case SEQI:
+		case SNEI:
+			return opcode | ((RegisterToken)c.params[1]).register << 6 | ((RegisterToken)c.params[0]).register << 11 | ((ImmediateToken)c.params[2]).immediate << 16;
+		case LHI:
+			return opcode | ((RegisterToken)c.params[0]).register << 11 | ((ImmediateToken)c.params[1]).immediate << 16;
+		case BEQZ:
+		case BNEZ:
+			return opcode | ((RegisterToken)c.params[0]).register << 6 | ((ImmediateToken)c.params[1]).immediate << 16;
+		case J:
+		case JAL:
+			return opcode | ((ImmediateToken)c.params[0]).immediate << 6;
+		case JR:
+		case JALR:
+			return opcode | ((RegisterToken)c.params[0]).register << 6;
+		default:
+			return opcode;
+		}
 	}
 
+
 	private static enum Type
 	{
 		COMMAND,
@@ -11,6 +11,7 @@ import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
 import core.misc.setable.GroupSetable;
 import core.misc.setable.Setable;
+import core.misc.setable.Setables;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.sim.Simulator;
@@ -27,6 +28,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
 import javax.swing.filechooser.FileFilter;
@@ -255,16 +257,9 @@ public class DLXGUIMandelbrot extends javax.swing.JFrame
 		for(int i = 0; i < 31; ++i)
 		{
 			register_setable[i] = ((GroupSetable)dlx_setable.getSetableGroup("register file")).getSetableGroup("register " + (i + 1));
-			Bit[] b = longToBits(32, register[i]);
-			for(int j = 0; j < 32; ++j)
-				register_setable[i].setSetableBit(j, b[j]);
-		}
-		for(int i = 0; i < ram_setable.getSetableCount() / 8; ++i)
-		{
-			Bit[] b = longToBits(8, ram[i]);
-			for(int j = 0; j < 8; ++j)
-				ram_setable.setSetableBit(i * 8 + j, b[j]);
+			Setables.setWords(register_setable[i], 0, new long[] {register[i] & 0xFFFFFFFFL}, 32);
 		}
+		Setables.setBytes(ram_setable, 0, ByteBuffer.wrap(ram));
 
 		save.setEnabled(true);
 		change.setEnabled(true);
@@ -434,14 +429,10 @@ public class DLXGUIMandelbrot extends javax.swing.JFrame
 					register[i] = bitsToInteger(true, b).intValue();
 				}
 
-				for(int i = 0; i < ram_setable.getSetableCount() / 8; ++i)
-				{
-					Bit[] b = new Bit[8];
-					for(int j = 0; j < 8; ++j)
-						b[j] = ram_setable.getSetableBit(i * 8 + j);
-
-					ram[i] = bitsToInteger(true, b).byteValue();
-				}
+				long[] memory = new long[(ram.length + 7) / 8];
+				Setables.getWords(ram_setable, 0, memory, ram.length * 8L);
+				for(int i = 0; i < ram.length; ++i)
+					ram[i] = (byte)(memory[i / 8] >>> (i % 8 * 8));
 
 				clock_simulator.suspend();
 
@@ -6,11 +6,13 @@ import core.exception.AnalyzeException;
 import core.exception.BuildException;
 import core.misc.setable.GroupSetable;
 import core.misc.setable.Setable;
+import core.misc.setable.Setables;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.sim.Simulator;
 import dlx.Processor;
 import gui.DLXAssembler;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import std.io.InputStreamConnector;
 import std.io.OutputStreamConnector;
@@ -94,16 +96,9 @@ public class IOTest
 		for(int i = 0; i < 31; ++i)
 		{
 			register_setable[i] = ((GroupSetable)dlx_setable.getSetableGroup("register file")).getSetableGroup("register " + (i + 1));
-			Bit[] b = longToBits(32, register[i]);
-			for(int j = 0; j < 32; ++j)
-				register_setable[i].setSetableBit(j, b[j]);
-		}
-		for(int i = 0; i < ram_setable.getSetableCount() / 8; ++i)
-		{
-			Bit[] b = longToBits(8, ram[i]);
-			for(int j = 0; j < 8; ++j)
-				ram_setable.setSetableBit(i * 8 + j, b[j]);
+			Setables.setWords(register_setable[i], 0, new long[] {register[i] & 0xFFFFFFFFL}, 32);
 		}
+		Setables.setBytes(ram_setable, 0, ByteBuffer.wrap(ram));
 
 		Bit[] pc = new Bit[32];
 		do
@@ -0,0 +1,76 @@
+
+package test;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import core.signal.Signal;
+import core.sim.Simulator;
+import dlx.Processor;
+import dlxtest.Serialization.Link;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import std.memory.RAM;
+
+public class SerializationBenchmark
+{
+	public static final void main(String[] args) throws AnalyzeException, BuildException, IOException, SerializingException, DeserializingException, InstantiationException
+	{
+		Environment env = new Environment();
+
+		Signal clk = new Signal(1);
+		Signal[] mem_read = new Signal[8];
+		Signal[] mem_write = new Signal[8];
+		Signal[] mem_write_en = new Signal[8];
+		Signal mem_clk = new Signal(1);
+		for(int i = 0; i < 8; ++i)
+		{
+			mem_read[i] = new Signal(8);
+			mem_write[i] = new Signal(8);
+			mem_write_en[i] = new Signal(1);
+		}
+
+		new Processor(env, "dlx").setAll(clk, mem_read, mem_write, mem_write_en, mem_clk, 16, true);
+		new RAM(env, "ram").setAll(mem_clk, mem_write, mem_write_en, mem_read);
+
+		Simulator s = env.build();
+
+		// a wide netlist, and many chains of Serializable objects, each
+		// nested deep enough to be continued on a worker thread
+		List<Link> chains = new ArrayList<Link>();
+		for(int i = 0; i < 2000; ++i)
+			chains.add(Link.chain(300));
+
+		for(int run = 0; run < 5; ++run)
+		{
+			measure("netlist", s);
+			measure("chains", chains);
+		}
+
+		s.shutdown();
+	}
+
+	private static final void measure(String name, Object obj) throws IOException, SerializingException, DeserializingException, InstantiationException
+	{
+		long t = System.nanoTime();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SerializingStream out = new SerializingStream(bytes);
+		out.writeObject(obj);
+		out.close();
+		long write = System.nanoTime() - t;
+
+		t = System.nanoTime();
+		new DeserializingStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		long read = System.nanoTime() - t;
+
+		System.out.println(name + ": " + bytes.size() + " bytes, write " + bytes.size() * 1000.0 / write + " MB/s, read " + bytes.size() * 1000.0 / read + " MB/s");
+	}
+}
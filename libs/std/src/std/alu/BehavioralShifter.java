@@ -0,0 +1,136 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.alu;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link Shifter}, see its "behavioral" flavor.
+ * {@code shift} is interpreted as twos-complement, positive values shift left
+ * and negative values shift right, filling with the most-significant bit of
+ * {@code in} if {@code arithmetic} is set. Shifting by {@code n} or more
+ * yields only zeros or fills, respectively.
+ *
+ * @author lars
+ */
+public final class BehavioralShifter extends Calculator
+{
+	public BehavioralShifter(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralShifter setAll(Signal in, Signal shift, Signal arithmetic, Signal out)
+	{
+		return (BehavioralShifter)useAndSet(Flavor.DEFAULT, new String[] {"in", "shift", "arithmetic", "out"}, in, shift, arithmetic, out);
+	}
+
+	@Override public final Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		// shifting by more than n is the same as shifting by n + 1, so the
+		// value is clamped, which also keeps it in range for any width
+		long s = shift.compareBit(shift.size() - 1, H) ? -1 : 0;
+		for(int i = shift.size() - 1; i >= 0; --i)
+		{
+			if(!shift.compareBit(i, L) && !shift.compareBit(i, H))
+			{
+				for(int j = 0; j < out.size(); ++j)
+					out.getSignalBit(j).is(L);
+				return;
+			}
+			s = Math.max(-in.size() - 1, Math.min(in.size() + 1, 2 * s + (shift.compareBit(i, H) ? 1 : 0)));
+		}
+
+		boolean fill = arithmetic.compareBit(0, H) && in.compareBit(in.size() - 1, H);
+
+		for(int j = 0; j < out.size(); ++j)
+		{
+			long k = j - s;
+			if(k < 0)
+				out.getSignalBit(j).is(L);
+			else if(k >= in.size())
+				out.getSignalBit(j).is(fill ? H : L);
+			else
+				out.getSignalBit(j).is(in.compareBit((int)k, H) ? H : L);
+		}
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false);
+		out.writeObject(this.shift, false);
+		out.writeObject(this.arithmetic, false);
+		out.writeObject(this.out, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralShifter>()
+			{
+				@Override public void build(BehavioralShifter me, Map<String, Integer> variables)
+				{
+					me.in = me.getSignal("in");
+					me.shift = me.getSignal("shift");
+					me.arithmetic = me.getSignal("arithmetic");
+					me.out = me.getSignal("out");
+				}
+			},
+			"in[n], shift[m], arithmetic[1]",
+			"out[n]"
+		)
+	);
+
+	private Signal in;
+	private Signal shift;
+	private Signal arithmetic;
+	private Signal out;
+
+	private BehavioralShifter(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal.class);
+		this.shift = in.readObject(Signal.class);
+		this.arithmetic = in.readObject(Signal.class);
+		this.out = in.readObject(Signal.class);
+	}
+}
@@ -110,6 +110,19 @@ public class Shifter extends Composite
 			},
 			"in[n], shift[m], arithmetic[1]",
 			"out[n]"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<Shifter>()
+			{
+				@Override public void build(Shifter me, Map<String, Integer> variables)
+				{
+					new BehavioralShifter(me,"shift")
+						.setAll(me.getSignal("in"),me.getSignal("shift"),me.getSignal("arithmetic"),me.getSignal("out"));
+				}
+			},
+			"in[n], shift[m], arithmetic[1]",
+			"out[n]"
 		)
 	);
 
@@ -0,0 +1,133 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.convert;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.BitConverter;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.misc.module.Module.Description;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link BinaryDecoder}, see its "behavioral"
+ * flavor. If {@code in} contains {@link core.signal.Bit#Z Z}, all outputs are
+ * low. Only the previously and the currently selected output are touched in
+ * each calculation.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Binary Decoder",
+	description	= "A binary decoder computed by a single calculator."
+)
+public final class BehavioralBinaryDecoder extends Calculator
+{
+	public BehavioralBinaryDecoder(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralBinaryDecoder setAll(Signal in, Signal out)
+	{
+		return (BehavioralBinaryDecoder)useAndSet(Flavor.DEFAULT, new String[] {"in", "out"}, in, out);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		int selected = BitConverter.signalToIndex(in);
+		if(selected >= out.size())
+			selected = -1;
+
+		if(old_selected == UNKNOWN)
+		{
+			for(int i = 0; i < out.size(); ++i)
+				out.getSignalBit(i).is(i == selected ? H : L);
+		}
+		else if(old_selected != selected)
+		{
+			if(old_selected >= 0)
+				out.getSignalBit(old_selected).is(L);
+			if(selected >= 0)
+				out.getSignalBit(selected).is(H);
+		}
+
+		old_selected = selected;
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false);
+		out.writeObject(this.out, false);
+		out.writeInteger(this.old_selected);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralBinaryDecoder>()
+			{
+				@Override public void build(BehavioralBinaryDecoder me, Map<String, Integer> variables)
+				{
+					me.in = me.getSignal("in");
+					me.out = me.getSignal("out");
+					me.old_selected = UNKNOWN;
+				}
+			},
+			"in[m]",
+			"out[n]",
+			"(#n - 1) / (2^(#m - 1)) == 1"
+		)
+	);
+
+	private static final int UNKNOWN = -2;
+
+	private Signal in;
+	private Signal out;
+	private int old_selected;
+
+	private BehavioralBinaryDecoder(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal.class);
+		this.out = in.readObject(Signal.class);
+		this.old_selected = in.readInteger();
+	}
+}
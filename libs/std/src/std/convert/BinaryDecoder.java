@@ -95,6 +95,19 @@ public final class BinaryDecoder extends Composite
 			"in[m]",
 			"out[n]",
 			"(#n - 1) / (2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<BinaryDecoder>()
+			{
+				@Override public void build(BinaryDecoder me, Map<String, Integer> variables)
+				{
+					new BehavioralBinaryDecoder(me, "decoder").setAll(me.getSignal("in"), me.getSignal("out"));
+				}
+			},
+			"in[m]",
+			"out[n]",
+			"(#n - 1) / (2^(#m - 1)) == 1"
 		)
 	);
 
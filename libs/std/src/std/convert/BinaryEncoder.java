@@ -96,6 +96,19 @@ public final class BinaryEncoder extends Composite
 			"in[n]",
 			"out[m]",
 			"(#n - 1) / (2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<BinaryEncoder>()
+			{
+				@Override public void build(BinaryEncoder me, Map<String, Integer> variables)
+				{
+					new BehavioralBinaryEncoder(me, "encoder").setAll(me.getSignal("in"), me.getSignal("out"));
+				}
+			},
+			"in[n]",
+			"out[m]",
+			"(#n - 1) / (2^(#m - 1)) == 1"
 		)
 	);
 
@@ -25,12 +25,14 @@ package std.flipflop;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.SerializingException;
-import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
 import core.misc.serial.SerializingStream;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.build.Composite;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import std.gate.*;
 import std.latch.*;
 import core.build.ComponentCollection;
@@ -47,7 +49,7 @@ import java.util.Map;
 	name		= "D-Flipflop",
 	description	= "A simple D-Flipflop."
 )
-public final class DFlipFlop extends Composite implements Setable
+public final class DFlipFlop extends Composite implements WordSetable
 {
 	public DFlipFlop(ComponentCollection parent,String name)
 	{
@@ -99,6 +101,22 @@ public final class DFlipFlop extends Composite implements Setable
 		i2.setBit(i, v);
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		latch.getWords(offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		for(long i = offset; i < offset + length && i < getSetableCount(); ++i)
+			setSetableBit((int)i, (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? Bit.H : Bit.L);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+	}
+
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
 		new Flavor(
 			new Flavor.Buildable<DFlipFlop>()
@@ -25,12 +25,13 @@ package std.flipflop;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.SerializingException;
-import core.misc.setable.Setable;
+import core.misc.setable.WordSetable;
 import core.misc.serial.SerializingStream;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.build.Composite;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import std.gate.*;
 import std.latch.GatedDLatch;
 import core.build.ComponentCollection;
@@ -47,7 +48,7 @@ import java.util.Map;
 	name		= "Gated D-Flipflop",
 	description	= "A gated D-Flipflop."
 )
-public final class GatedDFlipFlop extends Composite implements Setable
+public final class GatedDFlipFlop extends Composite implements WordSetable
 {
 	public GatedDFlipFlop(ComponentCollection parent,String name)
 	{
@@ -91,6 +92,21 @@ public final class GatedDFlipFlop extends Composite implements Setable
 		flipflop.setSetableBit(i, v);
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		flipflop.getWords(offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		flipflop.setWords(offset, src, length);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		flipflop.setBytes(offset, src);
+	}
+
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
 		new Flavor(
 			new Flavor.Buildable<GatedDFlipFlop>()
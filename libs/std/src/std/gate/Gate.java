@@ -64,11 +64,19 @@ public abstract class Gate extends Calculator implements Drawable
 		return flavors;
 	}
 
+	/**
+	 * The diagram is only needed by the editor, so it is created on the
+	 * first request instead of for every gate of a built design.
+	 */
 	@Override public Diagram getDiagram()
 	{
+		if(this.diagram == null)
+			this.diagram = createDiagram();
 		return this.diagram;
 	}
 
+	protected abstract Diagram createDiagram();
+
 	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
 	{
 		super.serialize(out);
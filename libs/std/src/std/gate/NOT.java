@@ -56,7 +56,6 @@ public final class NOT extends Calculator implements Drawable
 	public NOT(ComponentCollection parent,String name)
 	{
 		super(parent, name);
-		this.diagram = new Diagram(true);
 	}
 
 	public final NOT setAll(Signal in, Signal out)
@@ -77,6 +76,8 @@ public final class NOT extends Calculator implements Drawable
 
 	@Override public gui.circuit.drawing.Diagram getDiagram()
 	{
+		if(this.diagram == null)
+			this.diagram = new Diagram(true);
 		return this.diagram;
 	}
 
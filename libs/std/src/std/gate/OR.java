@@ -50,7 +50,11 @@ public final class OR extends Gate
 	public OR(ComponentCollection parent,String name)
 	{
 		super(parent,name);
-		this.diagram = new Diagram(true);
+	}
+
+	@Override protected final gui.circuit.drawing.Diagram createDiagram()
+	{
+		return new Diagram(true);
 	}
 
 	@Override public final void execute()
@@ -50,7 +50,11 @@ public final class XNOR extends Gate
 	public XNOR(ComponentCollection parent,String name)
 	{
 		super(parent,name);
-		this.diagram = new Diagram(true);
+	}
+
+	@Override protected final gui.circuit.drawing.Diagram createDiagram()
+	{
+		return new Diagram(true);
 	}
 
 	@Override public final void execute()
@@ -24,7 +24,8 @@ package std.latch;
 
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
-import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.build.Composite;
@@ -37,6 +38,7 @@ import core.misc.serial.DeserializingStream;
 import core.misc.serial.SerializingStream;
 import java.util.Map;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * @author torben
@@ -46,7 +48,7 @@ import java.io.IOException;
 	name		= "Gated D-Latch",
 	description	= "A gated D-Latch."
 )
-public final class GatedDLatch extends Composite implements Setable
+public final class GatedDLatch extends Composite implements WordSetable
 {
 	public GatedDLatch(ComponentCollection parent,String name)
 	{
@@ -94,6 +96,22 @@ public final class GatedDLatch extends Composite implements Setable
 		nr.setBit(i, Bit.H);
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		latch.getWords(offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		for(long i = offset; i < offset + length && i < getSetableCount(); ++i)
+			setSetableBit((int)i, (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? Bit.H : Bit.L);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+	}
+
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
 		new Flavor(
 			new Flavor.Buildable<GatedDLatch>()
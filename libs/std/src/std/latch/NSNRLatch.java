@@ -24,11 +24,13 @@ package std.latch;
 
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
-import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.build.Composite;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import std.gate.*;
 import core.build.ComponentCollection;
 import core.misc.module.Module.Description;
@@ -46,7 +48,7 @@ import java.util.Map;
 	name		= "NSNR-Latch",
 	description	= "A simple NSNR-Latch."
 )
-public final class NSNRLatch extends Composite implements Setable
+public final class NSNRLatch extends Composite implements WordSetable
 {
 	public NSNRLatch(ComponentCollection parent,String name)
 	{
@@ -92,6 +94,22 @@ public final class NSNRLatch extends Composite implements Setable
 		nq.setBit(i, v.not());
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		Setables.getWords(new Signal[] {q}, offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		for(long i = offset; i < offset + length && i < q.size(); ++i)
+			setSetableBit((int)i, (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? Bit.H : Bit.L);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+	}
+
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
 		new Flavor(
 			new Flavor.Buildable<NSNRLatch>()
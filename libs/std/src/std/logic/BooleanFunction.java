@@ -146,6 +146,20 @@ public final class BooleanFunction extends Composite
 			// TODO: Fix parameters
 			"std.logic.BooleanFunction$Type type, std.logic.BooleanFunction$Value rules[m][n]",
 			""
+		),
+		new Flavor(
+			"compiled",
+			new Flavor.Buildable<BooleanFunction>()
+			{
+				@Override public void build(BooleanFunction me, Map<String, Integer> variables)
+				{
+					new CompiledBooleanFunction(me, "table").setAll(me.getSignal("in"), me.getSignal("out"), (Type)me.get("type"), (Value[][])me.get("rules"));
+				}
+			},
+			"in[n]",
+			"out[1]",
+			"std.logic.BooleanFunction$Type type, std.logic.BooleanFunction$Value rules[m][n]",
+			"#n <= 64"
 		)
 	);
 
@@ -0,0 +1,223 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.logic;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+import std.logic.BooleanFunction.Type;
+import std.logic.BooleanFunction.Value;
+
+import static core.signal.Bit.*;
+
+/**
+ * A compiled counterpart of {@link BooleanFunction}, see its "compiled"
+ * flavor. Each rule is turned into a pair of bit masks at build time. For up
+ * to {@link #TABLE_LIMIT} inputs, the function is additionally evaluated for
+ * all input values and packed into a truth table, so each calculation is a
+ * single lookup. Like the gates, an input with {@link core.signal.Bit#Z Z}
+ * satisfies neither a positive nor a negative literal.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Compiled Boolean Function",
+	description	= "A boolean function from inputs to outputs, evaluated by table lookup."
+)
+public final class CompiledBooleanFunction extends Calculator
+{
+	/**
+	 * The maximum number of inputs for which a packed truth table is built.
+	 */
+	public static final int TABLE_LIMIT = 16;
+
+	public CompiledBooleanFunction(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final CompiledBooleanFunction setAll(Signal in, Signal out, Type type, Value[][] rules)
+	{
+		return (CompiledBooleanFunction)useAndSet(Flavor.DEFAULT, new String[] {"in", "out", "type", "rules"}, in, out, type, rules);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		long high = 0;
+		long low = 0;
+		for(int i = 0; i < in.size(); ++i)
+			switch(in.getBit(i))
+			{
+			case H:
+				high |= 1L << i;
+				break;
+			case L:
+				low |= 1L << i;
+				break;
+			}
+
+		boolean r;
+		if(table != null && (high | low) == mask)
+			r = (table[(int)(high >>> 6)] & (1L << (high & 63))) != 0;
+		else
+			r = evaluate(high, low);
+
+		out.getSignalBit(0).is(r ? H : L);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false);
+		out.writeObject(this.out, false);
+		out.writeObject(this.type, false);
+		out.writeObject(this.positive, false);
+		out.writeObject(this.negative, false);
+		out.writeLong(this.mask);
+		out.writeObject(this.table, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<CompiledBooleanFunction>()
+			{
+				@Override public void build(CompiledBooleanFunction me, Map<String, Integer> variables)
+				{
+					me.in = me.getSignal("in");
+					me.out = me.getSignal("out");
+					me.type = (Type)me.get("type");
+
+					Value[][] rules = (Value[][])me.get("rules");
+
+					// like the default flavor, a single rule is forwarded without negation
+					if(rules.length == 1 && me.type == Type.NDNF)
+						me.type = Type.DNF;
+					else if(rules.length == 1 && me.type == Type.NKNF)
+						me.type = Type.KNF;
+					me.positive = new long[rules.length];
+					me.negative = new long[rules.length];
+					for(int i = 0; i < rules.length; ++i)
+						for(int j = 0; j < rules[i].length; ++j)
+							if(rules[i][j] == Value.TRUE)
+								me.positive[i] |= 1L << j;
+							else if(rules[i][j] == Value.FALSE)
+								me.negative[i] |= 1L << j;
+
+					int n = me.in.size();
+					me.mask = n == 64 ? -1L : (1L << n) - 1;
+					if(n <= TABLE_LIMIT)
+					{
+						me.table = new long[((1 << n) + 63) >> 6];
+						for(int i = 0; i < (1 << n); ++i)
+							if(me.evaluate(i, ~i & me.mask))
+								me.table[i >> 6] |= 1L << (i & 63);
+					}
+					else
+						me.table = null;
+				}
+			},
+			"in[n]",
+			"out[1]",
+			"std.logic.BooleanFunction$Type type, std.logic.BooleanFunction$Value rules[m][n]",
+			"#n <= 64"
+		)
+	);
+
+	private Signal in;
+	private Signal out;
+	private Type type;
+	private long[] positive;
+	private long[] negative;
+	private long mask;
+	private long[] table;
+
+	private CompiledBooleanFunction(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal.class);
+		this.out = in.readObject(Signal.class);
+		this.type = in.readObject(Type.class);
+		this.positive = in.readObject(long[].class);
+		this.negative = in.readObject(long[].class);
+		this.mask = in.readLong();
+		this.table = in.readObject(long[].class);
+	}
+
+	/**
+	 * @param high The inputs which are high
+	 * @param low  The inputs which are low
+	 *
+	 * @return The value of the function
+	 */
+	private final boolean evaluate(long high, long low)
+	{
+		switch(type)
+		{
+		case DNF:
+			return evaluateTerms(high, low);
+		case NDNF:
+			return !evaluateTerms(high, low);
+		case KNF:
+			return evaluateClauses(high, low);
+		case NKNF:
+			return !evaluateClauses(high, low);
+		}
+
+		return false;
+	}
+
+	private final boolean evaluateTerms(long high, long low)
+	{
+		for(int i = 0; i < positive.length; ++i)
+			if((high & positive[i]) == positive[i] && (low & negative[i]) == negative[i])
+				return true;
+
+		return false;
+	}
+
+	private final boolean evaluateClauses(long high, long low)
+	{
+		for(int i = 0; i < positive.length; ++i)
+			if((low & positive[i]) == 0 && (high & negative[i]) == 0)
+				return false;
+
+		return true;
+	}
+}
@@ -0,0 +1,139 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.logic;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.BitConverter;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A compiled counterpart of {@link Mapping}, see its "compiled" flavor. The
+ * mapping is turned into a table indexed by the input value at build time, so
+ * each calculation is a single lookup. Like {@link Mapping}, only as many
+ * input bits are used as needed for the highest mapped value, unmapped values
+ * and inputs containing {@link Bit#Z Z} yield low outputs.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Compiled Mapping",
+	description	= "A fixed mapping from input bits to output bits, evaluated by table lookup."
+)
+public final class CompiledMapping extends Calculator
+{
+	public CompiledMapping(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final CompiledMapping setAll(Signal in, Signal out, Map<Bit[], Bit[]> map)
+	{
+		return (CompiledMapping)useAndSet(Flavor.DEFAULT, new String[] {"in", "out", "map"}, in, out, map);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		int i = BitConverter.signalToIndex(sel);
+		Bit[] value = i >= 0 && i < table.length ? table[i] : null;
+
+		for(int j = 0; j < out.size(); ++j)
+			out.getSignalBit(j).is(value != null && value[j] == H ? H : L);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.sel, false);
+		out.writeObject(this.out, false);
+		out.writeObject(this.table, false, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<CompiledMapping>()
+			{
+				@Override public void build(CompiledMapping me, Map<String, Integer> variables)
+				{
+					@SuppressWarnings("unchecked")
+					Map<Bit[], Bit[]> map = ((Map<Bit[], Bit[]>)me.get("map"));
+
+					int h = 0;
+					for(Bit[] a : map.keySet())
+						h = Math.max(h, index(a));
+
+					me.table = new Bit[h + 1][];
+					for(Map.Entry<Bit[], Bit[]> e : map.entrySet())
+						me.table[index(e.getKey())] = e.getValue();
+
+					me.sel = me.getSignal("in").get(0, Math.max(1, 32 - Integer.numberOfLeadingZeros(h)));
+					me.out = me.getSignal("out");
+				}
+			},
+			"in[n]",
+			"out[m]",
+			"java.util.Map<Bit[],Bit[]> map",
+			"[#](keys(map)) == #n && [#](values(map)) == #m"
+		)
+	);
+
+	private Signal sel;
+	private Signal out;
+	private Bit[][] table;
+
+	private CompiledMapping(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.sel = in.readObject(Signal.class);
+		this.out = in.readObject(Signal.class);
+		this.table = in.readObject(Bit[][].class, Bit[].class);
+	}
+
+	private static final int index(Bit[] a)
+	{
+		int p = 0;
+		for(int j = 0; j < a.length; ++j)
+			p += (a[j] == H ? (1 << j) : 0);
+		return p;
+	}
+}
@@ -103,6 +103,23 @@ public class Mapping extends Composite
 			"out[m]",
 			"java.util.Map<Bit[],Bit[]> map",
 			"[#](keys(map)) == #n && [#](values(map)) == #m"
+		),
+		new Flavor(
+			"compiled",
+			new Flavor.Buildable<Mapping>()
+			{
+				@Override public void build(Mapping me, Map<String, Integer> variables)
+				{
+					@SuppressWarnings("unchecked")
+					Map<Bit[], Bit[]> map = ((Map<Bit[], Bit[]>)me.get("map"));
+
+					new CompiledMapping(me, "table").setAll(me.getSignal("in"), me.getSignal("out"), map);
+				}
+			},
+			"in[n]",
+			"out[m]",
+			"java.util.Map<Bit[],Bit[]> map",
+			"[#](keys(map)) == #n && [#](values(map)) == #m"
 		)
 	);
 
@@ -0,0 +1,304 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.memory;
+
+import core.exception.BuildException;
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
+import core.misc.serial.SerializingStream;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.misc.module.Module.Description;
+import core.build.Flavor;
+import core.misc.serial.DeserializingStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link RAM}. The contents are held in a
+ * {@link ByteBuffer} (see {@link MemoryImage}) instead of flipflops, which
+ * may be a file mapped into memory, so the contents persist across runs.
+ * If the word size is a multiple of 8, the words lie back to back in the
+ * image, so bulk transfers work on whole bytes.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral RAM",
+	description	= "A clocked RAM with raw read and write, backed by a memory image."
+)
+public final class BehavioralRAM extends Calculator implements WordSetable
+{
+	public BehavioralRAM(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralRAM setAll(Signal clk, Signal[] write, Signal[] write_en, Signal[] read)
+	{
+		return (BehavioralRAM)useAndSet(Flavor.DEFAULT, new String[] {"clk", "write", "write_en", "read"}, clk, write, write_en, read);
+	}
+
+	public final BehavioralRAM setAll(Signal clk, Signal[] write, Signal[] write_en, Signal[] read, String image)
+	{
+		return (BehavioralRAM)useAndSet("mapped", new String[] {"clk", "write", "write_en", "read", "image"}, clk, write, write_en, read, image);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeInteger(data_size);
+		out.writeObject(clk, false);
+		out.writeObject(write, false, false);
+		out.writeObject(write_en, false, false);
+		out.writeObject(read, false, false);
+		out.writeObject(old_clk, false);
+		out.writeObject(old_write);
+		out.writeObject(image, false);
+		out.writeObject(image == null ? memory.array() : null, false);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		// like the flipflops, an edge of clk takes the values before this step
+		Bit new_clk = clk.getBit(0);
+		if(new_clk == H && old_clk == L)
+			for(int i = 0; i < read.length; ++i)
+				if(old_write[i] != null)
+				{
+					MemoryImage.setWord(memory, i, old_write[i]);
+					read[i].setBits(MemoryImage.getWord(memory, i, data_size));
+				}
+		old_clk = new_clk;
+
+		for(int i = 0; i < read.length; ++i)
+			old_write[i] = write_en[i].compareBit(0, H) ? write[i].getBits() : null;
+	}
+
+	@Override public final int getSetableCount()
+	{
+		return read.length * data_size;
+	}
+
+	@Override public final Bit getSetableBit(int i)
+	{
+		return MemoryImage.getBit(memory, i, data_size);
+	}
+
+	@Override public final void setSetableBit(int i, Bit v)
+	{
+		MemoryImage.setBit(memory, i, data_size, v);
+		read[i / data_size].setBit(i % data_size, MemoryImage.getBit(memory, i, data_size));
+	}
+
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		for(int i = 0; i < (length + 63) >>> 6; ++i)
+			dst[i] = 0;
+
+		final long end = Math.min(offset + length, getSetableCount());
+		if(data_size % 8 != 0)
+		{
+			for(long i = offset; i < end; ++i)
+				if(MemoryImage.getBit(memory, (int)i, data_size) == H)
+					dst[(int)((i - offset) >>> 6)] |= 1L << (i - offset);
+			return;
+		}
+
+		for(long i = offset; i < end;)
+		{
+			final int index = (int)(i >>> 3);
+			final int shift = (int)(i & 7);
+			final int n = (int)Math.min(8 - shift, end - i);
+			final long p = i - offset;
+
+			final long v = index < memory.limit() ? (memory.get(index) & 0xFF) >>> shift & (1 << n) - 1 : 0;
+			dst[(int)(p >>> 6)] |= v << p;
+			if((p & 63) + n > 64)
+				dst[(int)(p >>> 6) + 1] |= v >>> (64 - (p & 63));
+
+			i += n;
+		}
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		final long end = Math.min(offset + length, getSetableCount());
+		if(data_size % 8 != 0)
+		{
+			for(long i = offset; i < end; ++i)
+				MemoryImage.setBit(memory, (int)i, data_size, (src[(int)((i - offset) >>> 6)] & 1L << (i - offset)) != 0 ? H : L);
+			update(offset, end);
+			return;
+		}
+
+		for(long i = offset; i < end;)
+		{
+			final int index = (int)(i >>> 3);
+			final int shift = (int)(i & 7);
+			final int n = (int)Math.min(8 - shift, end - i);
+			final long p = i - offset;
+
+			long v = src[(int)(p >>> 6)] >>> p;
+			if((p & 63) + n > 64)
+				v |= src[(int)(p >>> 6) + 1] << (64 - (p & 63));
+			final int mask = (1 << n) - 1 << shift;
+			if(index < memory.limit())
+				memory.put(index, (byte)(memory.get(index) & ~mask | (int)v << shift & mask));
+
+			i += n;
+		}
+		update(offset, end);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		if(data_size % 8 != 0 || offset % 8 != 0)
+		{
+			setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+			return;
+		}
+
+		final int index = (int)(offset >>> 3);
+		final int n = Math.min(src.remaining(), Math.min(getSetableCount() / 8, memory.limit()) - index);
+		if(n <= 0)
+			return;
+
+		final ByteBuffer bytes = src.duplicate();
+		bytes.limit(bytes.position() + n);
+		final ByteBuffer image = memory.duplicate();
+		image.position(index);
+		image.put(bytes);
+		update(offset, offset + n * 8L);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralRAM>()
+			{
+				@Override public void build(BehavioralRAM me, Map<String, Integer> variables) throws BuildException
+				{
+					me.build(variables.get("size"), null);
+				}
+			},
+			"clk[1], write[n][size], write_en[n][1]",
+			"read[n][size]"
+		),
+		new Flavor(
+			"mapped",
+			new Flavor.Buildable<BehavioralRAM>()
+			{
+				@Override public void build(BehavioralRAM me, Map<String, Integer> variables) throws BuildException
+				{
+					me.build(variables.get("size"), (String)me.get("image"));
+				}
+			},
+			"clk[1], write[n][size], write_en[n][1]",
+			"read[n][size]",
+			"String image",
+			""
+		)
+	);
+
+	private int data_size;
+	private Signal clk;
+	private Signal[] write;
+	private Signal[] write_en;
+	private Signal[] read;
+
+	private Bit old_clk;
+	private Bit[][] old_write;
+	private String image;
+	private ByteBuffer memory;
+
+	private BehavioralRAM(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		data_size = in.readInteger();
+		clk = in.readObject(Signal.class);
+		write = in.readObject(Signal[].class, Signal.class);
+		write_en = in.readObject(Signal[].class, Signal.class);
+		read = in.readObject(Signal[].class, Signal.class);
+		old_clk = in.readObject(Bit.class);
+		old_write = in.readObject(Bit[][].class);
+		image = in.readObject(String.class);
+		byte[] contents = in.readObject(byte[].class);
+		memory = image == null ? ByteBuffer.wrap(contents) : MemoryImage.map(image, read.length, data_size, true);
+	}
+
+	/**
+	 * Refreshes the read outputs of all words holding bits from {@code start}
+	 * up to {@code end}.
+	 */
+	private final void update(long start, long end)
+	{
+		for(int i = (int)(start / data_size); i < read.length && i < (end + data_size - 1) / data_size; ++i)
+			read[i].setBits(MemoryImage.getWord(memory, i, data_size));
+	}
+
+	private final void build(int data_size, String image) throws BuildException
+	{
+		this.data_size = data_size;
+		this.clk = getSignal("clk");
+		this.write = (Signal[])get("write");
+		this.write_en = (Signal[])get("write_en");
+		this.read = (Signal[])get("read");
+		this.old_clk = clk.getBit(0);
+		this.old_write = new Bit[read.length][];
+		this.image = image;
+
+		for(Signal w : write)
+			addPriority(clk, w);
+
+		if(image == null)
+			memory = ByteBuffer.allocate(read.length * MemoryImage.getStride(data_size));
+		else
+			try
+			{
+				memory = MemoryImage.map(image, read.length, data_size, true);
+			}
+			catch(IOException ex)
+			{
+				throw new BuildException("cannot map memory image " + image, ex);
+			}
+
+		for(int i = 0; i < read.length; ++i)
+			read[i].setBits(MemoryImage.getWord(memory, i, data_size));
+	}
+}
@@ -0,0 +1,186 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.memory;
+
+import core.signal.Bit;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static core.signal.Bit.*;
+
+/**
+ * The {@code MemoryImage} utility class provides access to a memory image in a
+ * {@link ByteBuffer}. Every word occupies {@link #getStride(int) getStride(size)}
+ * bytes, the bits of a word are stored least-significant bit first. Positions
+ * beyond the limit of the buffer are read as {@link Bit#L L}. Since a
+ * {@link ByteBuffer} can only hold two states per bit, {@link Bit#Z Z} is
+ * written as {@link Bit#L L}.
+ *
+ * @author torben
+ */
+public final class MemoryImage
+{
+	/**
+	 * @param size The number of bits per word
+	 *
+	 * @return The number of bytes occupied by a word
+	 */
+	public static final int getStride(final int size)
+	{
+		assert size > 0;
+
+		return (size + 7) / 8;
+	}
+
+	/**
+	 * Maps a file into memory. If {@code writable} is false, only the
+	 * existing part of the file is mapped, otherwise the file is extended to
+	 * hold all words.
+	 *
+	 * @param file     The path of the file to map
+	 * @param words    The number of words
+	 * @param size     The number of bits per word
+	 * @param writable true if changes should be written back to the file,
+	 *                 otherwise false
+	 *
+	 * @return The mapped file
+	 *
+	 * @throws IOException if the file couldn't be mapped
+	 */
+	public static final MappedByteBuffer map(final String file, final int words, final int size, final boolean writable) throws IOException
+	{
+		assert file != null;
+		assert words > 0;
+
+		final long length = (long)words * getStride(size);
+		final RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r");
+
+		try
+		{
+			final FileChannel channel = raf.getChannel();
+			if(writable)
+				return channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+			else
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, channel.size()));
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * @param image The memory image
+	 * @param word  The index of the word
+	 * @param size  The number of bits per word
+	 *
+	 * @return The bits of the word
+	 */
+	public static final Bit[] getWord(final ByteBuffer image, final int word, final int size)
+	{
+		assert image != null;
+		assert word >= 0;
+
+		final Bit[] bits = new Bit[size];
+		final int offset = word * getStride(size);
+
+		for(int i = 0; i < size; i += 8)
+		{
+			final int index = offset + (i >> 3);
+			final int b = index < image.limit() ? image.get(index) : 0;
+			for(int j = i; j < size && j < i + 8; ++j)
+				bits[j] = (b & (1 << (j - i))) != 0 ? H : L;
+		}
+
+		return bits;
+	}
+
+	/**
+	 * @param image The memory image
+	 * @param word  The index of the word
+	 * @param bits  The new bits of the word
+	 */
+	public static final void setWord(final ByteBuffer image, final int word, final Bit... bits)
+	{
+		assert image != null;
+		assert word >= 0;
+		assert bits != null;
+
+		final int offset = word * getStride(bits.length);
+
+		for(int i = 0; i < bits.length; i += 8)
+		{
+			int b = 0;
+			for(int j = i; j < bits.length && j < i + 8; ++j)
+				if(bits[j] == H)
+					b |= 1 << (j - i);
+			if(offset + (i >> 3) < image.limit())
+				image.put(offset + (i >> 3), (byte)b);
+		}
+	}
+
+	/**
+	 * @param image The memory image
+	 * @param i     The index of the bit, counted over all words
+	 * @param size  The number of bits per word
+	 *
+	 * @return The bit
+	 */
+	public static final Bit getBit(final ByteBuffer image, final int i, final int size)
+	{
+		assert image != null;
+		assert i >= 0;
+
+		final int index = (i / size) * getStride(size) + (i % size >> 3);
+
+		return index < image.limit() && (image.get(index) & (1 << (i % size & 7))) != 0 ? H : L;
+	}
+
+	/**
+	 * @param image The memory image
+	 * @param i     The index of the bit, counted over all words
+	 * @param size  The number of bits per word
+	 * @param v     The new bit
+	 */
+	public static final void setBit(final ByteBuffer image, final int i, final int size, final Bit v)
+	{
+		assert image != null;
+		assert i >= 0;
+		assert v != null;
+
+		final int index = (i / size) * getStride(size) + (i % size >> 3);
+
+		if(index < image.limit())
+		{
+			final int mask = 1 << (i % size & 7);
+			image.put(index, (byte)(v == H ? image.get(index) | mask : image.get(index) & ~mask));
+		}
+	}
+
+	private MemoryImage()
+	{
+	}
+}
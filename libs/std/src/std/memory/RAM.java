@@ -25,12 +25,15 @@ package std.memory;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.SerializingException;
-import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
 import core.misc.serial.SerializingStream;
 import core.signal.Bit;
 import core.signal.Signal;
 import core.build.Composite;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import std.flipflop.GatedDFlipFlop;
 import core.build.ComponentCollection;
 import core.misc.module.Module.Description;
@@ -46,10 +49,11 @@ import java.util.Map;
 	name		= "RAM",
 	description	= "A clocked RAM with raw read and write."
 )
-public final class RAM extends Composite implements Setable
+public final class RAM extends Composite implements WordSetable
 {
 	private int data_size;
 	private GatedDFlipFlop[] flipflop;
+	private BehavioralRAM memory;
 
 	public RAM(ComponentCollection parent,String name)
 	{
@@ -61,12 +65,18 @@ public final class RAM extends Composite implements Setable
 		return (RAM)useAndSet(Flavor.DEFAULT, new String[] {"clk", "write", "write_en", "read"}, clk, write, write_en, read);
 	}
 
+	public final RAM setAll(Signal clk, Signal[] write, Signal[] write_en, Signal[] read, String image)
+	{
+		return (RAM)useAndSet("mapped", new String[] {"clk", "write", "write_en", "read", "image"}, clk, write, write_en, read, image);
+	}
+
 	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
 	{
 		super.serialize(out);
 
 		out.writeInteger(data_size);
 		out.writeObject(flipflop, false, false);
+		out.writeObject(memory, false);
 	}
 
 	@Override public Map<String, Flavor> getFlavors()
@@ -76,17 +86,50 @@ public final class RAM extends Composite implements Setable
 
 	@Override public final int getSetableCount()
 	{
+		if(memory != null)
+			return memory.getSetableCount();
+
 		return flipflop.length * data_size;
 	}
 
 	@Override public final Bit getSetableBit(int i)
 	{
+		if(memory != null)
+			return memory.getSetableBit(i);
+
 		return flipflop[i / data_size].getSetableBit(i % data_size);
 	}
 
 	@Override public final void setSetableBit(int i, Bit v)
 	{
-		flipflop[i / data_size].setSetableBit(i % data_size, v);
+		if(memory != null)
+			memory.setSetableBit(i, v);
+		else
+			flipflop[i / data_size].setSetableBit(i % data_size, v);
+	}
+
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		if(memory != null)
+			memory.getWords(offset, dst, length);
+		else
+			Setables.getWords(Arrays.asList(flipflop), offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		if(memory != null)
+			memory.setWords(offset, src, length);
+		else
+			Setables.setWords(Arrays.asList(flipflop), offset, src, length);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		if(memory != null)
+			memory.setBytes(offset, src);
+		else
+			Setables.setBytes(Arrays.asList(flipflop), offset, src);
 	}
 
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
@@ -101,6 +144,7 @@ public final class RAM extends Composite implements Setable
 					Signal[] read = (Signal[])me.get("read");
 
 					me.data_size = variables.get("size");
+					me.memory = null;
 					me.flipflop = new GatedDFlipFlop[read.length];
 					for(int i = 0; i < me.flipflop.length; ++i)
 						me.flipflop[i] = new GatedDFlipFlop(me, "latch:" + i).setAll(clk, write_en[i], write[i], read[i]);
@@ -108,6 +152,34 @@ public final class RAM extends Composite implements Setable
 			},
 			"clk[1], write[n][size], write_en[n][1]",
 			"read[n][size]"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<RAM>()
+			{
+				@Override public void build(RAM me, Map<String, Integer> variables)
+				{
+					me.data_size = variables.get("size");
+					me.memory = new BehavioralRAM(me, "memory").setAll(me.getSignal("clk"), (Signal[])me.get("write"), (Signal[])me.get("write_en"), (Signal[])me.get("read"));
+				}
+			},
+			"clk[1], write[n][size], write_en[n][1]",
+			"read[n][size]"
+		),
+		new Flavor(
+			"mapped",
+			new Flavor.Buildable<RAM>()
+			{
+				@Override public void build(RAM me, Map<String, Integer> variables)
+				{
+					me.data_size = variables.get("size");
+					me.memory = new BehavioralRAM(me, "memory").setAll(me.getSignal("clk"), (Signal[])me.get("write"), (Signal[])me.get("write_en"), (Signal[])me.get("read"), (String)me.get("image"));
+				}
+			},
+			"clk[1], write[n][size], write_en[n][1]",
+			"read[n][size]",
+			"String image",
+			""
 		)
 	);
 
@@ -117,5 +189,6 @@ public final class RAM extends Composite implements Setable
 
 		data_size = in.readInteger();
 		flipflop = in.readObject(GatedDFlipFlop[].class, GatedDFlipFlop.class);
+		memory = in.readObject(BehavioralRAM.class);
 	}
 }
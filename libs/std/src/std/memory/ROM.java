@@ -22,10 +22,12 @@
 
 package std.memory;
 
+import core.exception.BuildException;
 import core.exception.DeserializingException;
 import core.exception.InstantiationException;
 import core.exception.SerializingException;
-import core.misc.setable.Setable;
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
 import core.misc.serial.SerializingStream;
 import core.signal.Bit;
 import core.signal.Signal;
@@ -35,9 +37,15 @@ import core.misc.module.Module.Description;
 import core.build.Flavor;
 import core.misc.serial.DeserializingStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
+ * A ROM driving all of its words at once. The "mapped" flavor only maps its
+ * memory image while building and copies it into the output {@link Signal}s
+ * on first use, which is the first simulation step or the first access as a
+ * {@link WordSetable}, whichever comes first.
+ *
  * @author torben
  */
 @Description
@@ -45,7 +53,7 @@ import java.util.Map;
 	name		= "ROM",
 	description	= "A ROM with raw output."
 )
-public final class ROM extends Calculator implements Setable
+public final class ROM extends Calculator implements WordSetable
 {
 	public ROM(ComponentCollection parent,String name)
 	{
@@ -57,8 +65,15 @@ public final class ROM extends Calculator implements Setable
 		return (ROM)useAndSet(Flavor.DEFAULT, new String[] {"out"}, (Object)out);
 	}
 
+	public final ROM setAll(Signal[] out, String image)
+	{
+		return (ROM)useAndSet("mapped", new String[] {"out", "image"}, out, image);
+	}
+
 	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
 	{
+		load();
+
 		super.serialize(out);
 
 		out.writeInteger(data_size);
@@ -72,6 +87,7 @@ public final class ROM extends Calculator implements Setable
 
 	@Override public void execute()
 	{
+		load();
 	}
 
 	@Override public final int getSetableCount()
@@ -81,14 +97,33 @@ public final class ROM extends Calculator implements Setable
 
 	@Override public final Bit getSetableBit(int i)
 	{
+		load();
 		return rom[i / data_size].getBit(i % data_size);
 	}
 
 	@Override public final void setSetableBit(int i, Bit v)
 	{
+		load();
 		rom[i / data_size].setBit(i % data_size, v);
 	}
 
+	@Override public final void getWords(long offset, long[] dst, long length)
+	{
+		load();
+		Setables.getWords(rom, offset, dst, length);
+	}
+
+	@Override public final void setWords(long offset, long[] src, long length)
+	{
+		load();
+		Setables.setWords(rom, offset, src, length);
+	}
+
+	@Override public final void setBytes(long offset, ByteBuffer src)
+	{
+		setWords(offset, Setables.toWords(src), (long)src.remaining() * 8);
+	}
+
 	private static final Map<String, Flavor> flavors = Flavor.getMap(
 		new Flavor(
 			new Flavor.Buildable<ROM>()
@@ -97,16 +132,47 @@ public final class ROM extends Calculator implements Setable
 				{
 					me.rom = (Signal[])me.get("out");
 					me.data_size = variables.get("size");
+					me.image = null;
 				}
 			},
 			"",
 			"out[n][size]"
+		),
+		new Flavor(
+			"mapped",
+			new Flavor.Buildable<ROM>()
+			{
+				@Override public void build(ROM me, Map<String, Integer> variables) throws BuildException
+				{
+					me.rom = (Signal[])me.get("out");
+					me.data_size = variables.get("size");
+
+					try
+					{
+						me.image = MemoryImage.map((String)me.get("image"), me.rom.length, me.data_size, false);
+					}
+					catch(IOException ex)
+					{
+						throw new BuildException("cannot map memory image " + me.get("image"), ex);
+					}
+				}
+			},
+			"",
+			"out[n][size]",
+			"String image",
+			""
 		)
 	);
 
 	private int data_size;
 	private Signal[] rom;
 
+	/**
+	 * The memory image of the "mapped" flavor until it has been copied into
+	 * {@link #rom}.
+	 */
+	private ByteBuffer image;
+
 	private ROM(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
 	{
 		super(in);
@@ -114,4 +180,15 @@ public final class ROM extends Calculator implements Setable
 		data_size = in.readInteger();
 		rom = in.readObject(Signal[].class, Signal.class);
 	}
+
+	private final void load()
+	{
+		final ByteBuffer current = image;
+		if(current == null)
+			return;
+
+		for(int i = 0; i < rom.length; ++i)
+			rom[i].setBits(MemoryImage.getWord(current, i, data_size));
+		image = null;
+	}
 }
@@ -0,0 +1,139 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.mux;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.BitConverter;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.misc.module.Module.Description;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link BinaryDemultiplexer}, see its
+ * "behavioral" flavors. If {@code sel} contains {@link core.signal.Bit#Z Z},
+ * nothing is selected. Only the previously and the currently selected output
+ * are touched in each calculation.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Binary Demultiplexer",
+	description	= "A binary demultiplexer computed by a single calculator."
+)
+public final class BehavioralBinaryDemultiplexer extends Calculator
+{
+	public BehavioralBinaryDemultiplexer(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralBinaryDemultiplexer setAll(Signal in, Signal sel, Signal[] out)
+	{
+		return (BehavioralBinaryDemultiplexer)useAndSet(Flavor.DEFAULT, new String[] {"in", "sel", "out"}, in, sel, out);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		int selected = BitConverter.signalToIndex(sel);
+		if(selected >= out.length)
+			selected = -1;
+
+		if(old_selected == UNKNOWN)
+		{
+			for(int j = 0; j < out.length; ++j)
+				if(j != selected)
+					for(int i = 0; i < in.size(); ++i)
+						out[j].getSignalBit(i).is(L);
+		}
+		else if(old_selected >= 0 && old_selected != selected)
+			for(int i = 0; i < in.size(); ++i)
+				out[old_selected].getSignalBit(i).is(L);
+
+		if(selected >= 0)
+			for(int i = 0; i < in.size(); ++i)
+				out[selected].getSignalBit(i).is(in.compareBit(i, H) ? H : L);
+
+		old_selected = selected;
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false);
+		out.writeObject(this.sel, false);
+		out.writeObject(this.out, false, false);
+		out.writeInteger(this.old_selected);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralBinaryDemultiplexer>()
+			{
+				@Override public void build(BehavioralBinaryDemultiplexer me, Map<String, Integer> variables)
+				{
+					me.in = me.getSignal("in");
+					me.sel = me.getSignal("sel");
+					me.out = (Signal[])me.get("out");
+					me.old_selected = UNKNOWN;
+				}
+			},
+			"in[k], sel[m]",
+			"out[n][k]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
+		)
+	);
+
+	private static final int UNKNOWN = -2;
+
+	private Signal in;
+	private Signal sel;
+	private Signal[] out;
+	private int old_selected;
+
+	private BehavioralBinaryDemultiplexer(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal.class);
+		this.sel = in.readObject(Signal.class);
+		this.out = in.readObject(Signal[].class, Signal.class);
+		this.old_selected = in.readInteger();
+	}
+}
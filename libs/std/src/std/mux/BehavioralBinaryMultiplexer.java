@@ -0,0 +1,120 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.mux;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.BitConverter;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.misc.module.Module.Description;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link BinaryMultiplexer}, see its
+ * "behavioral" flavors. If {@code sel} contains {@link core.signal.Bit#Z Z},
+ * nothing is selected.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Binary Multiplexer",
+	description	= "A binary multiplexer computed by a single calculator."
+)
+public final class BehavioralBinaryMultiplexer extends Calculator
+{
+	public BehavioralBinaryMultiplexer(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralBinaryMultiplexer setAll(Signal[] in, Signal sel, Signal out)
+	{
+		return (BehavioralBinaryMultiplexer)useAndSet(Flavor.DEFAULT, new String[] {"in", "sel", "out"}, in, sel, out);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		int selected = BitConverter.signalToIndex(sel);
+
+		if(selected >= 0 && selected < in.length)
+			for(int i = 0; i < out.size(); ++i)
+				out.getSignalBit(i).is(in[selected].compareBit(i, H) ? H : L);
+		else
+			for(int i = 0; i < out.size(); ++i)
+				out.getSignalBit(i).is(L);
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false, false);
+		out.writeObject(this.sel, false);
+		out.writeObject(this.out, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralBinaryMultiplexer>()
+			{
+				@Override public void build(BehavioralBinaryMultiplexer me, Map<String, Integer> variables)
+				{
+					me.in = (Signal[])me.get("in");
+					me.sel = me.getSignal("sel");
+					me.out = me.getSignal("out");
+				}
+			},
+			"in[n][k], sel[m]",
+			"out[k]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
+		)
+	);
+
+	private Signal[] in;
+	private Signal sel;
+	private Signal out;
+
+	private BehavioralBinaryMultiplexer(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal[].class, Signal.class);
+		this.sel = in.readObject(Signal.class);
+		this.out = in.readObject(Signal.class);
+	}
+}
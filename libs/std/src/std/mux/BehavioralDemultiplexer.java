@@ -0,0 +1,115 @@
+
+/* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
+ *                                                                           *
+ * Copyright 2009 Lars Hupel, Torben Maack, Sylvester Tremmel                *
+ *                                                                           *
+ * This file is part of the Jamog Standard Library.                          *
+ *                                                                           *
+ * The Jamog Standard Library is free software: you can redistribute         *
+ * it and/or modify it under the terms of the GNU General Public License     *
+ * as published by the Free Software Foundation; version 3.                  *
+ *                                                                           *
+ * The Jamog Standard Library is distributed in the hope that it will        *
+ * be useful, but WITHOUT ANY WARRANTY; without even the implied warranty    *
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the           *
+ * GNU General Public License for more details.                              *
+ *                                                                           *
+ * You should have received a copy of the GNU General Public License         *
+ * along with the Jamog Standard Library. If not, see                        *
+ * <http://www.gnu.org/licenses/>.                                           *
+ *                                                                           *
+ * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * */
+
+package std.mux;
+
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.signal.Signal;
+import core.sim.Calculator;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.misc.module.Module.Description;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static core.signal.Bit.*;
+
+/**
+ * A behavioral counterpart of {@link Demultiplexer}, see its "behavioral"
+ * flavors.
+ *
+ * @author torben
+ */
+@Description
+(
+	name		= "Behavioral Demultiplexer",
+	description	= "A demultiplexer computed by a single calculator."
+)
+public final class BehavioralDemultiplexer extends Calculator
+{
+	public BehavioralDemultiplexer(ComponentCollection parent,String name)
+	{
+		super(parent,name);
+	}
+
+	public final BehavioralDemultiplexer setAll(Signal in, Signal sel, Signal[] out)
+	{
+		return (BehavioralDemultiplexer)useAndSet(Flavor.DEFAULT, new String[] {"in", "sel", "out"}, in, sel, out);
+	}
+
+	@Override public Map<String, Flavor> getFlavors()
+	{
+		return flavors;
+	}
+
+	@Override public final void execute()
+	{
+		for(int j = 0; j < out.length; ++j)
+		{
+			boolean s = sel.compareBit(j, H);
+			for(int i = 0; i < in.size(); ++i)
+				out[j].getSignalBit(i).is(s && in.compareBit(i, H) ? H : L);
+		}
+	}
+
+	@Override public void serialize(SerializingStream out) throws IOException, SerializingException
+	{
+		super.serialize(out);
+
+		out.writeObject(this.in, false);
+		out.writeObject(this.sel, false);
+		out.writeObject(this.out, false, false);
+	}
+
+	private static final Map<String, Flavor> flavors = Flavor.getMap(
+		new Flavor(
+			new Flavor.Buildable<BehavioralDemultiplexer>()
+			{
+				@Override public void build(BehavioralDemultiplexer me, Map<String, Integer> variables)
+				{
+					me.in = me.getSignal("in");
+					me.sel = me.getSignal("sel");
+					me.out = (Signal[])me.get("out");
+				}
+			},
+			"in[m], sel[n]",
+			"out[n][m]"
+		)
+	);
+
+	private Signal in;
+	private Signal sel;
+	private Signal[] out;
+
+	private BehavioralDemultiplexer(DeserializingStream in) throws IOException, DeserializingException, InstantiationException
+	{
+		super(in);
+
+		this.in = in.readObject(Signal.class);
+		this.sel = in.readObject(Signal.class);
+		this.out = in.readObject(Signal[].class, Signal.class);
+	}
+}
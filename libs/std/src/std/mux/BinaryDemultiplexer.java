@@ -94,6 +94,37 @@ public final class BinaryDemultiplexer extends Composite
 			"in[k], sel[m]",
 			"out[n][k]",
 			"(#n - 1)/(2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<BinaryDemultiplexer>()
+			{
+				@Override public void build(BinaryDemultiplexer me, Map<String, Integer> variables)
+				{
+					Signal out = me.getSignal("out");
+					Signal[] aout = new Signal[out.size()];
+					for(int i = 0; i < aout.length; ++i)
+						aout[i] = out.get(i);
+
+					new BehavioralBinaryDemultiplexer(me, "demux").setAll(me.getSignal("in"), me.getSignal("sel"), aout);
+				}
+			},
+			"in[1], sel[m]",
+			"out[n]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral-multi",
+			new Flavor.Buildable<BinaryDemultiplexer>()
+			{
+				@Override public void build(BinaryDemultiplexer me, Map<String, Integer> variables)
+				{
+					new BehavioralBinaryDemultiplexer(me, "demux").setAll(me.getSignal("in"), me.getSignal("sel"), (Signal[])me.get("out"));
+				}
+			},
+			"in[k], sel[m]",
+			"out[n][k]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
 		)
 	);
 
@@ -94,6 +94,37 @@ public final class BinaryMultiplexer extends Composite
 			"in[n][k],sel[m]",
 			"out[k]",
 			"(#n - 1)/(2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<BinaryMultiplexer>()
+			{
+				@Override public void build(BinaryMultiplexer me, Map<String, Integer> variables)
+				{
+					Signal in = me.getSignal("in");
+					Signal[] ain = new Signal[in.size()];
+					for(int i = 0; i < ain.length; ++i)
+						ain[i] = in.get(i);
+
+					new BehavioralBinaryMultiplexer(me, "mux").setAll(ain, me.getSignal("sel"), me.getSignal("out"));
+				}
+			},
+			"in[n], sel[m]",
+			"out[1]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
+		),
+		new Flavor(
+			"behavioral-multi",
+			new Flavor.Buildable<BinaryMultiplexer>()
+			{
+				@Override public void build(BinaryMultiplexer me, Map<String, Integer> variables)
+				{
+					new BehavioralBinaryMultiplexer(me, "mux").setAll((Signal[])me.get("in"), me.getSignal("sel"), me.getSignal("out"));
+				}
+			},
+			"in[n][k],sel[m]",
+			"out[k]",
+			"(#n - 1)/(2^(#m - 1)) == 1"
 		)
 	);
 
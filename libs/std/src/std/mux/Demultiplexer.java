@@ -92,6 +92,35 @@ public final class Demultiplexer extends Composite
 			},
 			"in[m], sel[n]",
 			"out[n][m]"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<Demultiplexer>()
+			{
+				@Override public void build(Demultiplexer me, Map<String, Integer> variables)
+				{
+					Signal out = me.getSignal("out");
+					Signal[] aout = new Signal[out.size()];
+					for(int i = 0; i < aout.length; ++i)
+						aout[i] = out.get(i);
+
+					new BehavioralDemultiplexer(me, "demux").setAll(me.getSignal("in"), me.getSignal("sel"), aout);
+				}
+			},
+			"in[1], sel[n]",
+			"out[n]"
+		),
+		new Flavor(
+			"behavioral-multi",
+			new Flavor.Buildable<Demultiplexer>()
+			{
+				@Override public void build(Demultiplexer me, Map<String, Integer> variables)
+				{
+					new BehavioralDemultiplexer(me, "demux").setAll(me.getSignal("in"), me.getSignal("sel"), (Signal[])me.get("out"));
+				}
+			},
+			"in[m], sel[n]",
+			"out[n][m]"
 		)
 	);
 
@@ -94,6 +94,37 @@ public final class Multiplexer extends Composite
 			"in[n][m], sel[n]",
 			"out[m]",
 			"#n >= 2"
+		),
+		new Flavor(
+			"behavioral",
+			new Flavor.Buildable<Multiplexer>()
+			{
+				@Override public void build(Multiplexer me, Map<String, Integer> variables)
+				{
+					Signal in = me.getSignal("in");
+					Signal[] ain = new Signal[in.size()];
+					for(int i = 0; i < ain.length; ++i)
+						ain[i] = in.get(i);
+
+					new BehavioralMultiplexer(me, "mux").setAll(ain, me.getSignal("sel"), me.getSignal("out"));
+				}
+			},
+			"in[n], sel[n]",
+			"out[1]",
+			"#n >= 2"
+		),
+		new Flavor(
+			"behavioral-multi",
+			new Flavor.Buildable<Multiplexer>()
+			{
+				@Override public void build(Multiplexer me, Map<String, Integer> variables)
+				{
+					new BehavioralMultiplexer(me, "mux").setAll((Signal[])me.get("in"), me.getSignal("sel"), me.getSignal("out"));
+				}
+			},
+			"in[n][m], sel[n]",
+			"out[m]",
+			"#n >= 2"
 		)
 	);
 
@@ -0,0 +1,105 @@
+package stdtest.alu;
+
+import core.signal.Bit;
+import core.signal.Signal;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.math.BigInteger;
+
+import static core.signal.Bit.*;
+import static core.misc.BitConverter.*;
+
+public class Shifter implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		for(String flavor : new String[] {"default", "behavioral"})
+			for(int i = 1; i < 10; ++i)
+			{
+				for(int j = 1; j < 6; ++j)
+				{
+					testsuite.createEnvironment();
+
+					Signal in = new Signal(i);
+					Signal shift = new Signal(j);
+					Signal arithmetic = new Signal(1);
+					Signal out = new Signal(i);
+
+					testsuite.addComponent(std.alu.Shifter.class).useAndSet(flavor, new String[] {"in", "shift", "arithmetic", "out"}, in, shift, arithmetic, out);
+
+					testsuite.buildEnvironment();
+
+					for(int k = 0; k < (1 << j); ++k)
+					{
+						testsuite.predictableRandomSignal(in);
+						testsuite.predictableRandomSignal(arithmetic);
+						shift.setBits(longToBits(j, k));
+
+						testsuite.doSimulation();
+
+						int s = k < (1 << (j - 1)) ? k : k - (1 << j);
+						Bit fill = arithmetic.getBit(0).and(in.getBit(i - 1));
+						Bit[] expected = new Bit[i];
+						for(int m = 0; m < i; ++m)
+							expected[m] = m - s < 0 ? L : m - s >= i ? fill : in.getBit(m - s);
+
+						testsuite.assertEquals("Check", expected, out);
+					}
+				}
+			}
+
+		// shift values wider than an int or a long, only feasible behaviorally
+		for(int j : new int[] {31, 32, 40, 64, 70})
+		{
+			testsuite.createEnvironment();
+
+			Signal in = new Signal(8);
+			Signal shift = new Signal(j);
+			Signal arithmetic = new Signal(1);
+			Signal out = new Signal(8);
+
+			testsuite.addComponent(std.alu.Shifter.class).useAndSet("behavioral", new String[] {"in", "shift", "arithmetic", "out"}, in, shift, arithmetic, out);
+
+			testsuite.buildEnvironment();
+
+			BigInteger[] values = new BigInteger[] {
+				BigInteger.valueOf(-1),
+				BigInteger.valueOf(-2),
+				BigInteger.valueOf(-9),
+				BigInteger.valueOf(3),
+				BigInteger.valueOf(9),
+				BigInteger.ONE.shiftLeft(j - 2),
+				BigInteger.ONE.shiftLeft(j - 1).negate(),
+				BigInteger.ONE.shiftLeft(j - 1).negate().add(BigInteger.valueOf(2))
+			};
+
+			for(BigInteger k : values)
+			{
+				testsuite.predictableRandomSignal(in);
+				testsuite.predictableRandomSignal(arithmetic);
+				shift.setBits(integerToBits(j, k));
+
+				testsuite.doSimulation();
+
+				int s = k.max(BigInteger.valueOf(-9)).min(BigInteger.valueOf(9)).intValue();
+				Bit fill = arithmetic.getBit(0).and(in.getBit(7));
+				Bit[] expected = new Bit[8];
+				for(int m = 0; m < 8; ++m)
+					expected[m] = m - s < 0 ? L : m - s >= 8 ? fill : in.getBit(m - s);
+
+				testsuite.assertEquals("Wide Check " + j + ": " + k, expected, out);
+			}
+
+			Bit[] undefined = integerToBits(j, BigInteger.valueOf(-1));
+			undefined[j - 1] = Z;
+			testsuite.predictableRandomSignal(in);
+			shift.setBits(undefined);
+
+			testsuite.doSimulation();
+
+			testsuite.assertEquals("Undefined Check " + j, new Bit[] {L, L, L, L, L, L, L, L}, out);
+		}
+	}
+}
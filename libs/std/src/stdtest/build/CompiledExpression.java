@@ -0,0 +1,120 @@
+package stdtest.build;
+
+import core.build.Component;
+import core.build.ComponentCollection;
+import core.build.Flavor;
+import core.build.checking.Expression;
+import core.build.checking.Parser;
+import core.exception.EvaluationException;
+import core.exception.ParseException;
+import core.signal.Bit;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompiledExpression implements Testable
+{
+	private static final List<Class<? extends Component>> COMPONENTS = Arrays.<Class<? extends Component>>asList(
+		std.alu.CLAAdder.class,
+		std.convert.BehavioralBinaryDecoder.class,
+		std.convert.BehavioralBinaryEncoder.class,
+		std.convert.BinaryDecoder.class,
+		std.convert.BinaryEncoder.class,
+		std.flipflop.GatedDFlipFlop.class,
+		std.fpu.Divider.class,
+		std.fpu.Normalizer.class,
+		std.logic.BooleanFunction.class,
+		std.logic.CompiledBooleanFunction.class,
+		std.logic.CompiledMapping.class,
+		std.logic.Mapping.class,
+		std.memory.RingBuffer.class,
+		std.mux.BehavioralBinaryDemultiplexer.class,
+		std.mux.BehavioralBinaryMultiplexer.class,
+		std.mux.BehavioralMultiplexer.class,
+		std.mux.BinaryDemultiplexer.class,
+		std.mux.BinaryMultiplexer.class,
+		std.mux.Demultiplexer.class,
+		std.mux.Multiplexer.class
+	);
+
+	private static final String[] VARIABLES = new String[] {"n", "m", "c", "l", "clk", "chunk_count"};
+
+	@Override public final void test(TestSuite testsuite)
+	{
+		List<core.build.checking.CompiledExpression<Boolean>> constraints = new ArrayList<core.build.checking.CompiledExpression<Boolean>>();
+		for(Class<? extends Component> c : COMPONENTS)
+		{
+			Component component;
+			try { component = c.getConstructor(ComponentCollection.class, String.class).newInstance(null, "component"); }
+			catch(Exception ex) { throw new RuntimeException(ex); }
+
+			for(Flavor f : component.getFlavors().values())
+				constraints.add(f.getConstraint());
+		}
+
+		core.build.checking.CompiledExpression<Boolean> division;
+		core.build.checking.CompiledExpression<Boolean> missing;
+		try
+		{
+			division = core.build.checking.CompiledExpression.compile(Parser.parseConstraint("#n / (#m - #m) == 1"));
+			missing = core.build.checking.CompiledExpression.compile(Parser.parseConstraint("#n == 1 || #missing == 1"));
+		}
+		catch(ParseException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		constraints.add(division);
+		constraints.add(missing);
+
+		for(core.build.checking.CompiledExpression<Boolean> constraint : constraints)
+			for(int i = 0; i < 64; ++i)
+			{
+				Map<String, Object> variables = new HashMap<String, Object>();
+				for(String name : VARIABLES)
+					if(testsuite.predictableRandomInteger(8) != 0)
+						variables.put(name, testsuite.predictableRandomInteger(72) - 2);
+
+				// the variables take precedence over the values, like in a flavor
+				Map<String, Object> values = new HashMap<String, Object>();
+				values.put("n", 1000);
+				if(testsuite.predictableRandomInteger(2) != 0)
+				{
+					Map<Bit[], Bit[]> map = new LinkedHashMap<Bit[], Bit[]>();
+					map.put(new Bit[1 + testsuite.predictableRandomInteger(8)], new Bit[1 + testsuite.predictableRandomInteger(8)]);
+					values.put("map", map);
+				}
+
+				Map<String, Object> identifiers = new HashMap<String, Object>(values);
+				identifiers.putAll(variables);
+
+				String interpreted = evaluate(constraint.getSource(), identifiers);
+				String compiled;
+				try { compiled = String.valueOf(constraint.evaluate(variables, values)); }
+				catch(EvaluationException ex) { compiled = ex.getMessage(); }
+				catch(RuntimeException ex) { compiled = ex.toString(); }
+
+				testsuite.assertEquals("Equivalence Check '" + constraint + "': " + interpreted + " / " + compiled, 1, interpreted.equals(compiled) ? 1 : 0);
+			}
+
+		Map<String, Object> identifiers = new HashMap<String, Object>();
+		identifiers.put("m", 3);
+		identifiers.put("n", 2);
+		// the interpreter lets the ArithmeticException of a division by zero pass
+		testsuite.assertEquals("Division Check", 1, evaluate(division, identifiers).startsWith(ArithmeticException.class.getName()) ? 1 : 0);
+		testsuite.assertEquals("Identifier Check", 1, evaluate(missing, identifiers).startsWith(EvaluationException.Type.IDENTIFIER_NOT_FOUND.toString()) ? 1 : 0);
+	}
+
+	private static final String evaluate(Expression<Boolean> expression, Map<String, Object> identifiers)
+	{
+		try { return String.valueOf(expression.evaluate(identifiers)); }
+		catch(EvaluationException ex) { return ex.getMessage(); }
+		catch(RuntimeException ex) { return ex.toString(); }
+	}
+}
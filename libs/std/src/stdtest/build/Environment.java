@@ -0,0 +1,219 @@
+package stdtest.build;
+
+import core.build.Component;
+import core.build.ComponentCollection;
+import core.build.Composite;
+import core.build.Flavor;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.monitor.AnalyzeListener;
+import core.monitor.EnvironmentListener;
+import core.signal.Signal;
+import core.signal.SignalBit;
+import core.sim.Calculator;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class Environment implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		int n = 4;
+		int size = 8;
+
+		List<String> expected_exceptions = new ArrayList<String>();
+		for(int i = 0; i < n; ++i)
+			expected_exceptions.add("faulty" + ComponentCollection.NAME_SEPARATOR + "bad:" + i);
+		expected_exceptions.add("bad");
+
+		List<String> first_calculators = null;
+		List<String> first_priorities = null;
+
+		// the subtrees complete in a different order on every build
+		for(int round = 0; round < 8; ++round)
+		{
+			Recorder environment = new Recorder();
+			Signal clk = new Signal(1);
+			Signal[] write = new Signal[n];
+			Signal[] write_en = new Signal[n];
+			Signal[] read = new Signal[n];
+			for(int k = 0; k < n; ++k)
+			{
+				write[k] = new Signal(size);
+				write_en[k] = new Signal(1);
+				read[k] = new Signal(size);
+			}
+			new std.memory.RAM(environment, "ram").setAll(clk, write, write_en, read);
+			new Faulty(environment, "faulty").setAll(new Signal(size), new Signal(size));
+			new std.gate.NOT(environment, "bad").setAll(new Signal(2), new Signal(3));
+			new std.latch.SRLatch(environment, "latch").setAll(new Signal(size), new Signal(size), new Signal(size));
+
+			final List<String> exceptions = new ArrayList<String>();
+			try
+			{
+				environment.build(new EnvironmentListener()
+				{
+					@Override public void increaseTotalCount(long delta)
+					{
+					}
+
+					@Override public void increaseConstructedCount(long delta)
+					{
+					}
+
+					@Override public boolean exceptionOccured(Component c, Exception ex)
+					{
+						exceptions.add(c.getName());
+						return true;
+					}
+				}).shutdown();
+			}
+			catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+			catch(BuildException ex) { throw new RuntimeException(ex); }
+
+			testsuite.assertEquals("Exception Count Check " + round, expected_exceptions.size(), exceptions.size());
+			for(int i = 0; i < expected_exceptions.size() && i < exceptions.size(); ++i)
+				testsuite.assertEquals("Exception Order Check " + round + ": " + exceptions.get(i), 1, expected_exceptions.get(i).equals(exceptions.get(i)) ? 1 : 0);
+			testsuite.assertEquals("Removal Check " + round, 1, environment.getComponents().containsKey("bad") ? 0 : 1);
+
+			if(first_calculators == null)
+			{
+				first_calculators = environment.calculators;
+				first_priorities = environment.priorities;
+				testsuite.assertEquals("Priority Check", 1, first_priorities.isEmpty() ? 0 : 1);
+			}
+			else
+			{
+				testsuite.assertEquals("Calculator Count Check " + round, first_calculators.size(), environment.calculators.size());
+				testsuite.assertEquals("Calculator Order Check " + round, 1, first_calculators.equals(environment.calculators) ? 1 : 0);
+				testsuite.assertEquals("Priority Order Check " + round, 1, first_priorities.equals(environment.priorities) ? 1 : 0);
+			}
+		}
+
+		// full names follow the renaming and removal of a top level component
+		core.build.Environment named = new core.build.Environment();
+		Signal[] write = new Signal[n];
+		Signal[] write_en = new Signal[n];
+		Signal[] read = new Signal[n];
+		for(int k = 0; k < n; ++k)
+		{
+			write[k] = new Signal(size);
+			write_en[k] = new Signal(1);
+			read[k] = new Signal(size);
+		}
+		new std.memory.RAM(named, "ram").setAll(new Signal(1), write, write_en, read);
+		try { named.build().shutdown(); }
+		catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+		catch(BuildException ex) { throw new RuntimeException(ex); }
+
+		// a grandchild of the RAM, with the short names of its path
+		Component child = null;
+		String parent_name = null;
+		for(Component c : ((Composite)named.getComponents().get("ram")).getComponents().values())
+			if(c instanceof Composite && !((Composite)c).getComponents().isEmpty())
+			{
+				child = ((Composite)c).getComponents().values().iterator().next();
+				parent_name = c.getShortName();
+			}
+		String name = child.getShortName();
+		String separator = ComponentCollection.NAME_SEPARATOR;
+
+		testsuite.assertEquals("Name Check", 1, ("ram" + separator + parent_name + separator + name).equals(child.getName()) ? 1 : 0);
+		named.renameComponent("ram", "memory");
+		testsuite.assertEquals("Rename Check", 1, ("memory" + separator + parent_name + separator + name).equals(child.getName()) ? 1 : 0);
+		named.removeComponent("memory");
+		testsuite.assertEquals("Remove Check", 1, ("memory" + separator + parent_name + separator + name).equals(child.getName()) ? 1 : 0);
+	}
+
+	/**
+	 * Records the calculators by name and the priorities by the position of
+	 * their bits among the bits of the calculators.
+	 */
+	private static final class Recorder extends core.build.Environment
+	{
+		@Override protected Simulator createSimulator(List<Calculator> calculators, Map<SignalBit, Set<SignalBit>> priorities, AnalyzeListener listener) throws AnalyzeException
+		{
+			Map<SignalBit, Integer> bits = new HashMap<SignalBit, Integer>();
+			this.calculators = new ArrayList<String>();
+			for(Calculator c : calculators)
+			{
+				this.calculators.add(c.getName());
+				for(SignalBit b : c.getInputSignalBits())
+					index(bits, b);
+				for(SignalBit b : c.getOutputSignalBits())
+					index(bits, b);
+			}
+
+			this.priorities = new ArrayList<String>();
+			for(Map.Entry<SignalBit, Set<SignalBit>> e : priorities.entrySet())
+			{
+				StringBuilder sb = new StringBuilder().append(index(bits, e.getKey())).append(" >");
+				for(SignalBit b : e.getValue())
+					sb.append(' ').append(index(bits, b));
+				this.priorities.add(sb.toString());
+			}
+
+			return super.createSimulator(calculators, priorities, listener);
+		}
+
+		private static final int index(Map<SignalBit, Integer> bits, SignalBit b)
+		{
+			Integer i = bits.get(b);
+			if(i == null)
+				bits.put(b, i = bits.size());
+			return i;
+		}
+
+		private List<String> calculators;
+		private List<String> priorities;
+	}
+
+	/**
+	 * A composite of which every second inner component cannot be built.
+	 */
+	public static final class Faulty extends Composite
+	{
+		public Faulty(ComponentCollection parent, String name)
+		{
+			super(parent, name);
+		}
+
+		public final Faulty setAll(Signal in, Signal out)
+		{
+			return (Faulty)useAndSet(Flavor.DEFAULT, new String[] {"in", "out"}, in, out);
+		}
+
+		@Override public Map<String, Flavor> getFlavors()
+		{
+			return flavors;
+		}
+
+		private static final Map<String, Flavor> flavors = Flavor.getMap(
+			new Flavor(
+				new Flavor.Buildable<Faulty>()
+				{
+					@Override public void build(Faulty me, Map<String, Integer> variables)
+					{
+						Signal in = me.getSignal("in");
+						new std.gate.NOT(me, "ok:0").setAll(in, me.getSignal("out"));
+						for(int i = 0; i < 4; ++i)
+						{
+							new std.gate.NOT(me, "bad:" + i).setAll(in, new Signal(in.size() + 1));
+							new std.gate.NOT(me, "ok:" + (i + 1)).setAll(in, new Signal(in.size()));
+						}
+					}
+				},
+				"in[n]",
+				"out[n]"
+			)
+		);
+	}
+}
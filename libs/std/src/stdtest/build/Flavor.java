@@ -0,0 +1,115 @@
+package stdtest.build;
+
+import core.build.Component;
+import core.exception.EvaluationException;
+import core.exception.MatchingException;
+import core.exception.ParameterException;
+import core.signal.Signal;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class Flavor implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		final core.build.Flavor flavor = new core.build.Flavor(
+			new core.build.Flavor.Buildable<Component>()
+			{
+				@Override public void build(Component me, Map<String, Integer> variables)
+				{
+				}
+			},
+			"in[n]",
+			"out[n]",
+			"#n > 0"
+		);
+
+		try
+		{
+			// equal signatures share their bindings
+			Map<String, Integer> first = flavor.checkAndThrow(values(1));
+			testsuite.assertEquals("Binding Check", 1, first.get("n"));
+			testsuite.assertEquals("Memo Check", 1, flavor.checkAndThrow(values(1)) == first ? 1 : 0);
+
+			// a signature kept in use survives more signatures than the memo
+			// holds, an unused one is evicted
+			Map<String, Integer> second = flavor.checkAndThrow(values(2));
+			for(int i = 3; i < 1000; ++i)
+			{
+				flavor.checkAndThrow(values(i));
+				flavor.checkAndThrow(values(1));
+			}
+			testsuite.assertEquals("Recently Used Check", 1, flavor.checkAndThrow(values(1)) == first ? 1 : 0);
+			testsuite.assertEquals("Eviction Check", 1, flavor.checkAndThrow(values(2)) != second ? 1 : 0);
+		}
+		catch(ParameterException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(EvaluationException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(MatchingException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+
+		// every thread gets the bindings of its own check
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+		for(int t = 0; t < 4; ++t)
+		{
+			final int offset = t * 1000;
+			futures.add(executor.submit(new Callable<Boolean>()
+			{
+				@Override public Boolean call() throws Exception
+				{
+					for(int i = 1; i <= 500; ++i)
+						if(flavor.checkAndThrow(values(offset + i % 300 + 1)).get("n") != offset + i % 300 + 1)
+							return false;
+					return true;
+				}
+			}));
+		}
+
+		boolean bindings = true;
+		try
+		{
+			for(Future<Boolean> future : futures)
+				bindings &= future.get();
+		}
+		catch(InterruptedException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		catch(ExecutionException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		testsuite.assertEquals("Concurrent Check", 1, bindings ? 1 : 0);
+	}
+
+	private static final Map<String, Object> values(int n)
+	{
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("in", new Signal(n));
+		values.put("out", new Signal(n));
+		return values;
+	}
+}
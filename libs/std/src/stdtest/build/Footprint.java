@@ -0,0 +1,84 @@
+package stdtest.build;
+
+import core.build.Component;
+import core.build.Composite;
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.signal.Signal;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.util.Map;
+
+public class Footprint implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		int n = 4;
+		int size = 8;
+
+		Environment environment = new Environment();
+		Signal clk = new Signal(1);
+		Signal[] write = new Signal[n];
+		Signal[] write_en = new Signal[n];
+		Signal[] read = new Signal[n];
+		for(int k = 0; k < n; ++k)
+		{
+			write[k] = new Signal(size);
+			write_en[k] = new Signal(1);
+			read[k] = new Signal(size);
+		}
+		new std.memory.RAM(environment, "ram").setAll(clk, write, write_en, read);
+
+		long[] bytes = new long[2];
+		for(int pass = 0; pass < 2; ++pass)
+		{
+			// the second pass rebuilds the compacted components
+			try { environment.build().shutdown(); }
+			catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+			catch(BuildException ex) { throw new RuntimeException(ex); }
+
+			Map<Class<? extends Component>, core.build.Footprint.Usage> usages = core.build.Footprint.measure(environment);
+			int count = 0;
+			int empty = 0;
+			for(core.build.Footprint.Usage usage : usages.values())
+			{
+				count += usage.getCount();
+				bytes[pass] += usage.getBytes();
+				if(usage.getBytes() <= 0)
+					++empty;
+			}
+			testsuite.assertEquals("Count Check " + pass, count(environment.getComponents().values()), count);
+			testsuite.assertEquals("Size Check " + pass, 0, empty);
+			testsuite.assertEquals("Class Check " + pass, 1, usages.containsKey(std.memory.RAM.class) ? 1 : 0);
+		}
+		testsuite.assertEquals("Rebuild Check", bytes[0], bytes[1]);
+
+		// the input bits keep their order
+		Component ram = environment.getComponents().get("ram");
+		testsuite.assertEquals("Order Check", 1, ram.getInputSignalBits().iterator().next() == clk.getSignalBit(0) ? 1 : 0);
+		testsuite.assertEquals("Input Check", 1 + n * (size + 1), ram.getInputSignalBits().size());
+
+		// the full names follow a renamed parent
+		Component leaf = ram;
+		while(leaf instanceof Composite && !((Composite)leaf).getComponents().isEmpty())
+			leaf = ((Composite)leaf).getComponents().values().iterator().next();
+		String name = leaf.getName();
+		environment.renameComponent("ram", "memory");
+		testsuite.assertEquals("Name Check", 1, leaf.getName().equals("memory" + name.substring("ram".length())) && name.startsWith("ram.") ? 1 : 0);
+	}
+
+	private static final int count(Iterable<Component> components)
+	{
+		int count = 0;
+		for(Component c : components)
+		{
+			++count;
+			if(c instanceof Composite)
+				count += count(((Composite)c).getComponents().values());
+		}
+		return count;
+	}
+}
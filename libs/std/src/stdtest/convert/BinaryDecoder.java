@@ -13,25 +13,26 @@ public class BinaryDecoder implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 1; i < 10; ++i)
-		{
-			testsuite.createEnvironment();
+		for(String flavor : new String[] {"default", "behavioral"})
+			for(int i = 1; i < 10; ++i)
+			{
+				testsuite.createEnvironment();
 
-			Signal in = new Signal(i);
-			Signal out = new Signal(1 << i);
+				Signal in = new Signal(i);
+				Signal out = new Signal(1 << i);
 
-			testsuite.addComponent(std.convert.BinaryDecoder.class).setAll(in, out);
+				testsuite.addComponent(std.convert.BinaryDecoder.class).useAndSet(flavor, new String[] {"in", "out"}, in, out);
 
-			testsuite.buildEnvironment();
+				testsuite.buildEnvironment();
 
-			for(int j = 0; j < (1 << i); ++j)
-			{
-				in.setBits(longToBits(i, j));
+				for(int j = 0; j < (1 << i); ++j)
+				{
+					in.setBits(longToBits(i, j));
 
-				testsuite.doSimulation();
+					testsuite.doSimulation();
 				
-				testsuite.assertEquals("Check", BigInteger.valueOf(2).pow(j), out);
+					testsuite.assertEquals("Check", BigInteger.valueOf(2).pow(j), out);
+				}
 			}
-		}
 	}
 }
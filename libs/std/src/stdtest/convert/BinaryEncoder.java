@@ -13,25 +13,26 @@ public class BinaryEncoder implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 1; i < 10; ++i)
-		{
-			testsuite.createEnvironment();
+		for(String flavor : new String[] {"default", "behavioral"})
+			for(int i = 1; i < 10; ++i)
+			{
+				testsuite.createEnvironment();
 
-			Signal in = new Signal(1 << i);
-			Signal out = new Signal(i);
+				Signal in = new Signal(1 << i);
+				Signal out = new Signal(i);
 
-			testsuite.addComponent(std.convert.BinaryEncoder.class).setAll(in, out);
+				testsuite.addComponent(std.convert.BinaryEncoder.class).useAndSet(flavor, new String[] {"in", "out"}, in, out);
 
-			testsuite.buildEnvironment();
+				testsuite.buildEnvironment();
 
-			for(int j = 0; j < (1 << i); ++j)
-			{
-				in.setBits(integerToBits(1 << i, BigInteger.ZERO.setBit(j)));
+				for(int j = 0; j < (1 << i); ++j)
+				{
+					in.setBits(integerToBits(1 << i, BigInteger.ZERO.setBit(j)));
 
-				testsuite.doSimulation();
+					testsuite.doSimulation();
 				
-				testsuite.assertEquals("Check", j, out);
+					testsuite.assertEquals("Check", j, out);
+				}
 			}
-		}
 	}
 }
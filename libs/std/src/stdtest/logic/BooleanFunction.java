@@ -0,0 +1,34 @@
+package stdtest.logic;
+
+import core.signal.Signal;
+
+import core.misc.test.EquivalenceChecker;
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import std.logic.BooleanFunction.Type;
+import std.logic.BooleanFunction.Value;
+
+public class BooleanFunction implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		for(Type type : Type.values())
+			for(int i = 1; i < 8; ++i)
+			{
+				for(int j = 1; j < 6; ++j)
+				{
+					Value[][] rules = new Value[j][i];
+					for(int k = 0; k < j; ++k)
+					{
+						// rules without any literal can't be built by the default flavor
+						rules[k][0] = Value.values()[testsuite.predictableRandomInteger(2)];
+						for(int m = 1; m < i; ++m)
+							rules[k][m] = Value.values()[testsuite.predictableRandomInteger(3)];
+					}
+
+					new EquivalenceChecker(testsuite, std.logic.BooleanFunction.class, "default", "compiled").check(new String[] {"in", "out", "type", "rules"}, new Object[] {new Signal(i), new Signal(1), type, rules}, 1 << i);
+				}
+			}
+	}
+}
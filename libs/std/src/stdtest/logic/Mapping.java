@@ -15,38 +15,39 @@ public class Mapping implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 1; i < 10; ++i)
-		{
-			for(int j = 1; j < 10; ++j)
+		for(String flavor : new String[] {"default", "compiled"})
+			for(int i = 1; i < 10; ++i)
 			{
-				testsuite.createEnvironment();
+				for(int j = 1; j < 10; ++j)
+				{
+					testsuite.createEnvironment();
 
-				Signal in = new Signal(i);
-				Signal out = new Signal(j);
-				Map<Integer, Bit[]> imap = new LinkedHashMap<Integer, Bit[]>();
-				Map<Bit[], Bit[]> map = new LinkedHashMap<Bit[], Bit[]>();
+					Signal in = new Signal(i);
+					Signal out = new Signal(j);
+					Map<Integer, Bit[]> imap = new LinkedHashMap<Integer, Bit[]>();
+					Map<Bit[], Bit[]> map = new LinkedHashMap<Bit[], Bit[]>();
 
-				for(int k = 0; k < (1 << i); ++k)
-				{
-					Bit[] bits = new Bit[j];
-					testsuite.predictableRandomBits(bits);
-					imap.put(k, bits);
-					map.put(longToBits(i, k), imap.get(k));
-				}
+					for(int k = 0; k < (1 << i); ++k)
+					{
+						Bit[] bits = new Bit[j];
+						testsuite.predictableRandomBits(bits);
+						imap.put(k, bits);
+						map.put(longToBits(i, k), imap.get(k));
+					}
 
-				testsuite.addComponent(std.logic.Mapping.class).setAll(in, out, map);
+					testsuite.addComponent(std.logic.Mapping.class).useAndSet(flavor, new String[] {"in", "out", "map"}, in, out, map);
 
-				testsuite.buildEnvironment();
+					testsuite.buildEnvironment();
 
-				for(int k = 0; k < (1 << i); ++k)
-				{
-					in.setBits(longToBits(i, k));
+					for(int k = 0; k < (1 << i); ++k)
+					{
+						in.setBits(longToBits(i, k));
 
-					testsuite.doSimulation();
+						testsuite.doSimulation();
 
-					testsuite.assertEquals("Check", imap.get(k), out);
+						testsuite.assertEquals("Check", imap.get(k), out);
+					}
 				}
 			}
-		}
 	}
 }
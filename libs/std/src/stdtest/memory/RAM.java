@@ -0,0 +1,162 @@
+package stdtest.memory;
+
+import core.misc.setable.Setable;
+import core.signal.Bit;
+import core.signal.Signal;
+import std.memory.MemoryImage;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static core.signal.Bit.*;
+
+public class RAM implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		File image;
+		try
+		{
+			image = File.createTempFile("ram", ".img");
+			image.deleteOnExit();
+		}
+		catch(IOException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+
+		for(int flavor = 0; flavor < 3; ++flavor)
+			for(int i = 1; i < 5; ++i)
+				for(int j = 1; j < 12; j += 5)
+				{
+					testsuite.createEnvironment();
+
+					Signal clk = new Signal(1);
+					Signal[] write = new Signal[i];
+					Signal[] write_en = new Signal[i];
+					Signal[] read = new Signal[i];
+					Bit[][] old = new Bit[i][j];
+					for(int k = 0; k < i; ++k)
+					{
+						write[k] = new Signal(j);
+						write_en[k] = new Signal(1);
+						read[k] = new Signal(j);
+					}
+
+					std.memory.RAM ram = testsuite.addComponent(std.memory.RAM.class);
+					if(flavor == 0)
+						ram.setAll(clk, write, write_en, read);
+					else if(flavor == 1)
+						ram.useAndSet("behavioral", new String[] {"clk", "write", "write_en", "read"}, clk, write, write_en, read);
+					else
+						ram.setAll(clk, write, write_en, read, image.getPath());
+					Setable setable = ram;
+
+					testsuite.buildEnvironment();
+
+					for(int k = 0; k < i; ++k)
+						for(int m = 0; m < j; ++m)
+						{
+							old[k][m] = L;
+							setable.setSetableBit(k * j + m, L);
+						}
+
+					for(int n = 0; n < 64; ++n)
+					{
+						Bit oclk = clk.getBit(0);
+						testsuite.predictableRandomSignal(clk);
+						if(oclk == L && clk.compareBit(0, H))
+							for(int k = 0; k < i; ++k)
+								if(write_en[k].compareBit(0, H))
+									old[k] = write[k].getBits();
+						for(int k = 0; k < i; ++k)
+						{
+							testsuite.predictableRandomSignal(write_en[k]);
+							testsuite.predictableRandomSignal(write[k]);
+						}
+
+						testsuite.doSimulation();
+
+						for(int k = 0; k < i; ++k)
+							testsuite.assertEquals("UpdateCheck", old[k], read[k]);
+					}
+
+					// the memory image keeps the contents across a rebuild,
+					// which drives them on the cleared read signals again
+					if(flavor == 2)
+					{
+						for(int k = 0; k < i; ++k)
+							for(int m = 0; m < j; ++m)
+								read[k].setBit(m, L);
+						testsuite.buildEnvironment();
+						for(int k = 0; k < i; ++k)
+						{
+							testsuite.assertEquals("Rebuild Check", old[k], read[k]);
+							for(int m = 0; m < j; ++m)
+								testsuite.assertEquals("Rebuild Setable Check", old[k][m], setable.getSetableBit(k * j + m));
+						}
+					}
+				}
+
+		// a mapped ROM has to read the same as a default ROM set bit by bit,
+		// with the words missing at the end of a short image read as zeros
+		for(int i = 1; i < 9; i += 3)
+			for(int j = 1; j < 18; j += 5)
+			{
+				Bit[][] words = new Bit[i][j];
+				try
+				{
+					image = File.createTempFile("rom", ".img");
+					image.deleteOnExit();
+					ByteBuffer buffer = MemoryImage.map(image.getPath(), (i + 1) / 2, j, true);
+					for(int k = 0; k < i; ++k)
+					{
+						for(int m = 0; m < j; ++m)
+							words[k][m] = k < (i + 1) / 2 && testsuite.predictableRandomInteger(2) != 0 ? H : L;
+						if(k < (i + 1) / 2)
+							MemoryImage.setWord(buffer, k, words[k]);
+					}
+				}
+				catch(IOException ex)
+				{
+					throw new RuntimeException(ex);
+				}
+
+				testsuite.createEnvironment();
+
+				Signal[] expected = new Signal[i];
+				Signal[] mapped = new Signal[i];
+				for(int k = 0; k < i; ++k)
+				{
+					expected[k] = new Signal(j);
+					mapped[k] = new Signal(j);
+				}
+
+				Setable rom = testsuite.addComponent(std.memory.ROM.class).setAll(expected);
+				Setable mapped_rom = testsuite.addComponent(std.memory.ROM.class).setAll(mapped, image.getPath());
+
+				testsuite.buildEnvironment();
+
+				// the image is copied on first use, here before any simulation
+				for(int k = 0; k < i; ++k)
+					for(int m = 0; m < j; ++m)
+						testsuite.assertEquals("Mapped Setable Check", words[k][m], mapped_rom.getSetableBit(k * j + m));
+
+				for(int k = 0; k < i; ++k)
+					for(int m = 0; m < j; ++m)
+						rom.setSetableBit(k * j + m, words[k][m]);
+
+				testsuite.doSimulation();
+
+				for(int k = 0; k < i; ++k)
+				{
+					testsuite.assertEquals("Default ROM Check", words[k], expected[k]);
+					testsuite.assertEquals("Mapped ROM Check", expected[k], mapped[k]);
+				}
+			}
+	}
+}
@@ -0,0 +1,168 @@
+package stdtest.memory;
+
+import core.build.Environment;
+import core.exception.AnalyzeException;
+import core.exception.BuildException;
+import core.exception.DeserializingException;
+import core.exception.InstantiationException;
+import core.exception.SerializingException;
+import core.misc.serial.DeserializingStream;
+import core.misc.serial.SerializingStream;
+import core.misc.setable.Setables;
+import core.signal.Bit;
+import core.signal.Signal;
+import core.sim.Simulator;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static core.signal.Bit.*;
+
+public class Snapshot implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		for(int flavor = 0; flavor < 2; ++flavor)
+		{
+			int n = 4;
+			int size = 8;
+			int cycles = 40;
+
+			Environment environment = new Environment();
+			Signal clk = new Signal(1);
+			Signal[] write = new Signal[n];
+			Signal[] write_en = new Signal[n];
+			Signal[] read = new Signal[n];
+			for(int k = 0; k < n; ++k)
+			{
+				write[k] = new Signal(size);
+				write_en[k] = new Signal(1);
+				read[k] = new Signal(size);
+			}
+
+			std.memory.RAM ram = new std.memory.RAM(environment, "ram");
+			if(flavor == 0)
+				ram.setAll(clk, write, write_en, read);
+			else
+				ram.useAndSet("behavioral", new String[] {"clk", "write", "write_en", "read"}, clk, write, write_en, read);
+
+			Simulator simulator;
+			try { simulator = environment.build(); }
+			catch(AnalyzeException ex) { throw new RuntimeException(ex); }
+			catch(BuildException ex) { throw new RuntimeException(ex); }
+
+			clk.setBit(0, L);
+			for(int k = 0; k < n; ++k)
+				write_en[k].setBit(0, L);
+			Setables.setWords(ram, 0, new long[(n * size + 63) / 64], n * size);
+			simulator.doSimulation();
+
+			Bit[][] inputs = new Bit[cycles][n * (size + 1)];
+			for(Bit[] input : inputs)
+				testsuite.predictableRandomBits(input);
+
+			Bit[][] outputs = new Bit[cycles][];
+			core.sim.Snapshot[] snapshots = new core.sim.Snapshot[cycles / 10];
+			for(int c = 0; c < cycles; ++c)
+			{
+				if(c % 10 == 0)
+					snapshots[c / 10] = simulator.snapshot(c == 0 ? null : snapshots[c / 10 - 1]);
+				outputs[c] = cycle(simulator, clk, write, write_en, read, inputs[c]);
+			}
+
+			try
+			{
+				// a snapshot of an unchanged state consists of zero words only
+				core.sim.Snapshot last = simulator.snapshot();
+				int full = save(last).length;
+				int delta = save(last, simulator.snapshot(last)).length - full;
+				testsuite.assertEquals("Delta Size Check", 1, delta * 4 < full ? 1 : 0);
+
+				core.sim.Snapshot restored = new DeserializingStream(new ByteArrayInputStream(save(snapshots[2]))).readObject();
+				testsuite.assertEquals("Chain Check", 1, restored.getPrevious() != null && restored.getPrevious().getPrevious() != null ? 1 : 0);
+
+				simulator.restore(restored);
+				simulator.doSimulation();
+				for(int c = 20; c < cycles; ++c)
+					testsuite.assertEquals("Replay Check " + flavor, outputs[c], cycle(simulator, clk, write, write_en, read, inputs[c]));
+
+				// a long chain is broken by a full snapshot
+				core.sim.Snapshot chain = null;
+				for(int i = 0; i < core.sim.Snapshot.CHAIN_LENGTH; ++i)
+					chain = simulator.snapshot(chain);
+				int length = 0;
+				for(core.sim.Snapshot s = chain; s != null; s = s.getPrevious())
+					++length;
+				testsuite.assertEquals("Chain Length Check", core.sim.Snapshot.CHAIN_LENGTH, length);
+				testsuite.assertEquals("Keyframe Check", 1, simulator.snapshot(chain).getPrevious() == null ? 1 : 0);
+
+				// the readers of a pulse on clk are scheduled, but not at the
+				// time of the snapshot, so restoring it drops them
+				core.sim.Snapshot settled = simulator.snapshot();
+				clk.setBit(0, H);
+				clk.setBit(0, L);
+				simulator.restore(settled);
+				testsuite.assertEquals("Unschedule Check " + flavor, 0, simulator.doStep() ? 1 : 0);
+
+				simulator.restore(snapshots[1]);
+				simulator.doSimulation();
+				for(int c = 10; c < 20; ++c)
+					testsuite.assertEquals("Rewind Check " + flavor, outputs[c], cycle(simulator, clk, write, write_en, read, inputs[c]));
+			}
+			catch(IOException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			catch(SerializingException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			catch(DeserializingException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			catch(InstantiationException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+
+			simulator.shutdown();
+		}
+	}
+
+	private static final Bit[] cycle(Simulator simulator, Signal clk, Signal[] write, Signal[] write_en, Signal[] read, Bit[] input)
+	{
+		int size = write[0].size();
+		for(int k = 0; k < write.length; ++k)
+		{
+			for(int i = 0; i < size; ++i)
+				write[k].setBit(i, input[k * (size + 1) + i]);
+			write_en[k].setBit(0, input[k * (size + 1) + size]);
+		}
+
+		clk.setBit(0, H);
+		simulator.doSimulation();
+		clk.setBit(0, L);
+		simulator.doSimulation();
+
+		Bit[] output = new Bit[read.length * size];
+		for(int k = 0; k < read.length; ++k)
+			for(int i = 0; i < size; ++i)
+				output[k * size + i] = read[k].getBit(i);
+		return output;
+	}
+
+	private static final byte[] save(core.sim.Snapshot... snapshots) throws IOException, SerializingException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SerializingStream out = new SerializingStream(bytes);
+		for(core.sim.Snapshot snapshot : snapshots)
+			out.writeObject(snapshot);
+		out.close();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,150 @@
+package stdtest.memory;
+
+import core.misc.setable.Setables;
+import core.misc.setable.WordSetable;
+import core.signal.Bit;
+import core.signal.Signal;
+
+import core.misc.test.TestSuite;
+import core.misc.test.Testable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static core.signal.Bit.*;
+
+public class WordAccess implements Testable
+{
+	@Override public final void test(TestSuite testsuite)
+	{
+		File image;
+		try
+		{
+			image = File.createTempFile("ram", ".img");
+			image.deleteOnExit();
+		}
+		catch(IOException ex)
+		{
+			throw new RuntimeException(ex);
+		}
+
+		int[] sizes = new int[] {1, 8, 11, 32};
+		for(int flavor = 0; flavor < 4; ++flavor)
+			for(int size : sizes)
+			{
+				testsuite.createEnvironment();
+
+				int n = 5;
+				Signal clk = new Signal(1);
+				Signal[] write = new Signal[n];
+				Signal[] write_en = new Signal[n];
+				Signal[] read = new Signal[n];
+				for(int k = 0; k < n; ++k)
+				{
+					write[k] = new Signal(size);
+					write_en[k] = new Signal(1);
+					read[k] = new Signal(size);
+				}
+
+				WordSetable setable;
+				if(flavor == 3)
+					setable = testsuite.addComponent(std.memory.ROM.class).setAll(read);
+				else
+				{
+					std.memory.RAM ram = testsuite.addComponent(std.memory.RAM.class);
+					if(flavor == 0)
+						ram.setAll(clk, write, write_en, read);
+					else if(flavor == 1)
+						ram.useAndSet("behavioral", new String[] {"clk", "write", "write_en", "read"}, clk, write, write_en, read);
+					else
+						ram.setAll(clk, write, write_en, read, image.getPath());
+					setable = ram;
+				}
+
+				testsuite.buildEnvironment();
+
+				int count = setable.getSetableCount();
+				Bit[] expected = new Bit[count];
+				for(int i = 0; i < count; ++i)
+					expected[i] = L;
+				// like an init, before anything got simulated
+				Setables.setWords(setable, 0, new long[(count + 63) / 64], count);
+
+				clk.setBit(0, L);
+				for(int k = 0; k < n; ++k)
+					write_en[k].setBit(0, L);
+				testsuite.doSimulation();
+
+				for(int m = 0; m < 32; ++m)
+				{
+					int offset = testsuite.predictableRandomInteger(count);
+					if(m % 2 == 0)
+					{
+						int length = testsuite.predictableRandomInteger(count - offset + 70) + 1;
+						Bit[] bits = new Bit[length];
+						testsuite.predictableRandomBits(bits);
+
+						Setables.setWords(setable, offset, pack(bits, 0, length), length);
+						for(int i = 0; i < length && offset + i < count; ++i)
+							expected[offset + i] = bits[i];
+					}
+					else
+					{
+						if(m % 4 == 1)
+							offset -= offset % 8;
+						Bit[] bits = new Bit[(testsuite.predictableRandomInteger((count - offset + 7) / 8 + 2) + 1) * 8];
+						testsuite.predictableRandomBits(bits);
+
+						long[] words = pack(bits, 0, bits.length);
+						ByteBuffer bytes = ByteBuffer.allocate(bits.length / 8 + 1);
+						bytes.position(1);
+						for(int i = 0; i < bits.length / 8; ++i)
+							bytes.put(1 + i, (byte)(words[i / 8] >>> (i % 8 * 8)));
+
+						Setables.setBytes(setable, offset, bytes);
+						testsuite.assertEquals("Position Check", 1, bytes.position());
+						for(int i = 0; i < bits.length && offset + i < count; ++i)
+							expected[offset + i] = bits[i];
+					}
+
+					Bit[] result = new Bit[count];
+					for(int i = 0; i < count; ++i)
+						result[i] = setable.getSetableBit(i);
+					testsuite.assertEquals("Bit Check", expected, result);
+
+					for(int k = 0; k < n; ++k)
+						for(int i = 0; i < size; ++i)
+							result[k * size + i] = read[k].getBit(i);
+					testsuite.assertEquals("Read Check", expected, result);
+
+					// the written state has to survive a clock cycle without any write
+					clk.setBit(0, H);
+					testsuite.doSimulation();
+					clk.setBit(0, L);
+					testsuite.doSimulation();
+					for(int k = 0; k < n; ++k)
+						for(int i = 0; i < size; ++i)
+							result[k * size + i] = read[k].getBit(i);
+					testsuite.assertEquals("Hold Check", expected, result);
+
+					int start = testsuite.predictableRandomInteger(count);
+					int length = testsuite.predictableRandomInteger(count - start + 70) + 1;
+					long[] words = new long[(length + 63) / 64];
+					for(int i = 0; i < words.length; ++i)
+						words[i] = -1;
+					Setables.getWords(setable, start, words, length);
+					testsuite.assertEquals("Word Check", pack(expected, start, length), words);
+				}
+			}
+	}
+
+	private static final long[] pack(Bit[] bits, int offset, int length)
+	{
+		long[] words = new long[(length + 63) / 64];
+		for(int i = 0; i < length && offset + i < bits.length; ++i)
+			if(bits[offset + i] == H)
+				words[i / 64] |= 1L << i;
+		return words;
+	}
+}
@@ -14,33 +14,34 @@ public class BinaryDemultiplexer implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 1; i < 5; ++i)
-		{
-			for(int j = 1; j < 20; ++j)
+		for(String flavor : new String[] {"multi", "behavioral-multi"})
+			for(int i = 1; i < 5; ++i)
 			{
-				testsuite.createEnvironment();
+				for(int j = 1; j < 20; ++j)
+				{
+					testsuite.createEnvironment();
 
-				Signal in = new Signal(j);
-				Signal sel = new Signal(i);
-				Signal[] out = new Signal[1 << i];
-				for(int k = 0; k < (1 << i); ++k)
-					out[k] = new Signal(j);
+					Signal in = new Signal(j);
+					Signal sel = new Signal(i);
+					Signal[] out = new Signal[1 << i];
+					for(int k = 0; k < (1 << i); ++k)
+						out[k] = new Signal(j);
 
-				testsuite.addComponent(std.mux.BinaryDemultiplexer.class).setAll(in, sel, out);
+					testsuite.addComponent(std.mux.BinaryDemultiplexer.class).useAndSet(flavor, new String[] {"in", "sel", "out"}, in, sel, out);
 
-				testsuite.buildEnvironment();
+					testsuite.buildEnvironment();
 
-				for(int k = 0; k < (1 << i); ++k)
-				{
-					testsuite.predictableRandomSignal(in);
-					sel.setBits(longToBits(i, k));
+					for(int k = 0; k < (1 << i); ++k)
+					{
+						testsuite.predictableRandomSignal(in);
+						sel.setBits(longToBits(i, k));
 
-					testsuite.doSimulation();
+						testsuite.doSimulation();
 
-					for(int m = 0; m < (1 << i); ++m)
-						testsuite.assertEquals("Check[" + m + "]", k == m ? in : BigInteger.ZERO, out[m]);
+						for(int m = 0; m < (1 << i); ++m)
+							testsuite.assertEquals("Check[" + m + "]", k == m ? in : BigInteger.ZERO, out[m]);
+					}
 				}
 			}
-		}
 	}
 }
@@ -13,33 +13,34 @@ public class Demultiplexer implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 2; i < 50; ++i)
-		{
-			for(int j = 1; j < 20; ++j)
+		for(String flavor : new String[] {"multi", "behavioral-multi"})
+			for(int i = 2; i < 50; ++i)
 			{
-				testsuite.createEnvironment();
+				for(int j = 1; j < 20; ++j)
+				{
+					testsuite.createEnvironment();
 
-				Signal in = new Signal(j);
-				Signal sel = new Signal(i);
-				Signal[] out = new Signal[i];
-				for(int k = 0; k < i; ++k)
-					out[k] = new Signal(j);
+					Signal in = new Signal(j);
+					Signal sel = new Signal(i);
+					Signal[] out = new Signal[i];
+					for(int k = 0; k < i; ++k)
+						out[k] = new Signal(j);
 
-				testsuite.addComponent(std.mux.Demultiplexer.class).setAll(in, sel, out);
+					testsuite.addComponent(std.mux.Demultiplexer.class).useAndSet(flavor, new String[] {"in", "sel", "out"}, in, sel, out);
 
-				testsuite.buildEnvironment();
+					testsuite.buildEnvironment();
 
-				for(int k = 0; k < i; ++k)
-				{
-					testsuite.predictableRandomSignal(in);
-					sel.setBits(integerToBits(i, BigInteger.valueOf(2).pow(k)));
+					for(int k = 0; k < i; ++k)
+					{
+						testsuite.predictableRandomSignal(in);
+						sel.setBits(integerToBits(i, BigInteger.valueOf(2).pow(k)));
 
-					testsuite.doSimulation();
+						testsuite.doSimulation();
 
-					for(int m = 0; m < i; ++m)
-						testsuite.assertEquals("Check[" + m + "]", k == m ? in : BigInteger.ZERO, out[m]);
+						for(int m = 0; m < i; ++m)
+							testsuite.assertEquals("Check[" + m + "]", k == m ? in : BigInteger.ZERO, out[m]);
+					}
 				}
 			}
-		}
 	}
 }
@@ -13,33 +13,34 @@ public class Multiplexer implements Testable
 {
 	@Override public final void test(TestSuite testsuite)
 	{
-		for(int i = 2; i < 50; ++i)
-		{
-			for(int j = 1; j < 20; ++j)
+		for(String flavor : new String[] {"multi", "behavioral-multi"})
+			for(int i = 2; i < 50; ++i)
 			{
-				testsuite.createEnvironment();
+				for(int j = 1; j < 20; ++j)
+				{
+					testsuite.createEnvironment();
 
-				Signal[] in = new Signal[i];
-				for(int k = 0; k < i; ++k)
-					in[k] = new Signal(j);
-				Signal sel = new Signal(i);
-				Signal out = new Signal(j);
+					Signal[] in = new Signal[i];
+					for(int k = 0; k < i; ++k)
+						in[k] = new Signal(j);
+					Signal sel = new Signal(i);
+					Signal out = new Signal(j);
 
-				testsuite.addComponent(std.mux.Multiplexer.class).setAll(in, sel, out);
+					testsuite.addComponent(std.mux.Multiplexer.class).useAndSet(flavor, new String[] {"in", "sel", "out"}, in, sel, out);
 
-				testsuite.buildEnvironment();
+					testsuite.buildEnvironment();
 
-				for(int k = 0; k < i; ++k)
-				{
-					for(int m = 0; m < i; ++m)
-						testsuite.predictableRandomSignal(in[m]);
-					sel.setBits(integerToBits(i, BigInteger.valueOf(2).pow(k)));
+					for(int k = 0; k < i; ++k)
+					{
+						for(int m = 0; m < i; ++m)
+							testsuite.predictableRandomSignal(in[m]);
+						sel.setBits(integerToBits(i, BigInteger.valueOf(2).pow(k)));
 
-					testsuite.doSimulation();
+						testsuite.doSimulation();
 
-					testsuite.assertEquals("Check", in[k], out);
+						testsuite.assertEquals("Check", in[k], out);
+					}
 				}
 			}
-		}
 	}
 }